@@ -43,12 +43,13 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 
@@ -60,12 +61,20 @@ import org.apache.commons.logging.Log;
  * and a single instance which represents the merged configuration from all the modules. When a sitemap configuration
  * file is updated, only the single instance for that configuration file is updated, whereas if a module configuration file
  * is changed, the configuration of all modules will be read again.<p>
+ * 
+ * The cached data is held in an immutable {@link CmsConfigurationCacheState} snapshot. Lookups only read the 
+ * current snapshot and never block. Changes reported by events are queued and applied by the first reader which 
+ * notices them and acquires the update lock without waiting; it reads the changed configuration files, builds a new 
+ * snapshot and replaces the current one, while all other readers continue to use the previous snapshot.<p>
  */
 class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
 
     /** The log instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsConfigurationCache.class);
 
+    /** The key that is used for the map entry which indicates that the folder types need to be computed again. */
+    private static final String FOLDER_TYPES_KEY = "__FOLDER_TYPES_KEY__";
+
     /** The key that is used for the map entry which indicates that the module configuration needs to be read. */
     private static final String MODULE_CONFIG_KEY = "__MODULE_CONFIG_KEY__";
 
@@ -78,20 +87,17 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
     /** The CMS context used for reading configuration data. */
     private CmsObject m_cms;
 
-    /** The configuration files which have been changed but not read yet. */
-    private Map<String, CmsUUID> m_configurationsToRead = new HashMap<String, CmsUUID>();
-
-    /** The cached content types for folders. */
-    private Map<String, String> m_folderTypes = new HashMap<String, String>();
-
-    /** The merged configuration from all the modules. */
-    private CmsADEConfigData m_moduleConfiguration;
+    /** The configuration files which have been changed but not read yet, with the null UUID for removed files. */
+    private ConcurrentMap<String, CmsUUID> m_configurationsToRead = new ConcurrentHashMap<String, CmsUUID>();
 
     /** A cache which stores resources' paths by their structure IDs. */
-    private Map<CmsUUID, String> m_pathCache = Collections.synchronizedMap(new HashMap<CmsUUID, String>());
+    private ConcurrentMap<CmsUUID, String> m_pathCache = new ConcurrentHashMap<CmsUUID, String>();
+
+    /** The current snapshot of the cached data. */
+    private volatile CmsConfigurationCacheState m_state = new CmsConfigurationCacheState();
 
-    /** The configurations from the sitemap / VFS. */
-    private Map<String, CmsADEConfigData> m_siteConfigurations = new HashMap<String, CmsADEConfigData>();
+    /** The lock which serializes the creation of new snapshots. */
+    private ReentrantLock m_updateLock = new ReentrantLock();
 
     /** 
      * Creates a new cache instance.<p>
@@ -139,28 +145,29 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
     /**
      * Initializes the cache by reading in all the configuration files.<p>
      */
-    public synchronized void initialize() {
+    public void initialize() {
 
-        m_siteConfigurations.clear();
+        m_updateLock.lock();
         try {
-            List<CmsResource> configFileCandidates = m_cms.readResources(
-                "/",
-                CmsResourceFilter.DEFAULT.addRequireType(m_configType.getTypeId()));
-            for (CmsResource candidate : configFileCandidates) {
-                if (isSitemapConfiguration(candidate.getRootPath(), candidate.getTypeId())) {
-                    update(candidate);
+            // changes queued so far are covered by reading everything again
+            m_configurationsToRead.clear();
+            Map<String, CmsADEConfigData> siteConfigurations = new HashMap<String, CmsADEConfigData>();
+            try {
+                List<CmsResource> configFileCandidates = m_cms.readResources(
+                    "/",
+                    CmsResourceFilter.DEFAULT.addRequireType(m_configType.getTypeId()));
+                for (CmsResource candidate : configFileCandidates) {
+                    if (isSitemapConfiguration(candidate.getRootPath(), candidate.getTypeId())) {
+                        readSitemapConfiguration(candidate.getRootPath(), candidate.getStructureId(), siteConfigurations);
+                    }
                 }
+            } catch (Exception e) {
+                LOG.error(e.getLocalizedMessage(), e);
             }
-        } catch (Exception e) {
-            LOG.error(e.getLocalizedMessage(), e);
-        }
-        refreshModuleConfiguration();
-        try {
-            initializeFolderTypes();
-        } catch (Exception e) {
-            LOG.error(e.getLocalizedMessage(), e);
+            installState(new CmsConfigurationCacheState(siteConfigurations, readModuleConfiguration()));
+        } finally {
+            m_updateLock.unlock();
         }
-
     }
 
     /**
@@ -218,14 +225,9 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
      * 
      * @return the list of detail page info beans 
      */
-    protected synchronized List<CmsDetailPageInfo> getAllDetailPages() {
+    protected List<CmsDetailPageInfo> getAllDetailPages() {
 
-        readRemainingConfigurations();
-        List<CmsDetailPageInfo> result = new ArrayList<CmsDetailPageInfo>();
-        for (CmsADEConfigData configData : m_siteConfigurations.values()) {
-            result.addAll(configData.getAllDetailPages(true));
-        }
-        return result;
+        return new ArrayList<CmsDetailPageInfo>(getState().getAllDetailPages());
     }
 
     /** 
@@ -250,16 +252,9 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
      * 
      * @return the detail pages for that type 
      */
-    protected synchronized List<String> getDetailPages(String type) {
+    protected List<String> getDetailPages(String type) {
 
-        readRemainingConfigurations();
-        List<String> result = new ArrayList<String>();
-        for (CmsADEConfigData configData : m_siteConfigurations.values()) {
-            for (CmsDetailPageInfo pageInfo : configData.getDetailPagesForType(type)) {
-                result.add(pageInfo.getUri());
-            }
-        }
-        return result;
+        return getState().getDetailPages(type);
     }
 
     /**
@@ -267,26 +262,18 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
      * 
      * @return the set of type names with configured detail pages  
      */
-    protected synchronized Set<String> getDetailPageTypes() {
-
-        readRemainingConfigurations();
-        Set<String> result = new HashSet<String>();
-        for (CmsADEConfigData configData : m_siteConfigurations.values()) {
-            List<CmsDetailPageInfo> detailPageInfos = configData.getAllDetailPages(false);
-            for (CmsDetailPageInfo info : detailPageInfos) {
-                result.add(info.getType());
-            }
-        }
-        return result;
+    protected Set<String> getDetailPageTypes() {
+
+        return getState().getDetailPageTypes();
     }
 
     /**
      * Gets the merged module configuration.<p>
      * @return the merged module configuration instance
      */
-    protected synchronized CmsADEConfigData getModuleConfiguration() {
+    protected CmsADEConfigData getModuleConfiguration() {
 
-        return m_moduleConfiguration;
+        return getState().getModuleConfiguration();
     }
 
     /**
@@ -295,18 +282,9 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
      * @param rootPath the path of a resource 
      * @return the parent folder content type 
      */
-    protected synchronized String getParentFolderType(String rootPath) {
+    protected String getParentFolderType(String rootPath) {
 
-        readRemainingConfigurations();
-        String parent = CmsResource.getParentFolder(rootPath);
-        if (parent == null) {
-            return null;
-        }
-        String type = m_folderTypes.get(parent);
-        if (type == null) {
-            return null;
-        }
-        return type;
+        return getState().getParentFolderType(rootPath);
     }
 
     /**
@@ -321,46 +299,33 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
      * @param path a root path  
      * @return the configuration data for the given path, or null if none was found 
      */
-    protected synchronized CmsADEConfigData getSiteConfigData(String path) {
+    protected CmsADEConfigData getSiteConfigData(String path) {
 
         if (path == null) {
             return null;
         }
-        readRemainingConfigurations();
-        String normalizedPath = CmsStringUtil.joinPaths("/", path, "/");
-        List<String> prefixes = new ArrayList<String>();
-        for (String key : m_siteConfigurations.keySet()) {
-            if (normalizedPath.startsWith(CmsStringUtil.joinPaths("/", key, "/"))) {
-                prefixes.add(key);
-            }
-        }
-        if (prefixes.size() == 0) {
-            return null;
-        }
-        Collections.sort(prefixes);
-        // for any two prefixes of a string, one is a prefix of the other. so the alphabetically last
-        // prefix is the longest prefix of all.
-        return m_siteConfigurations.get(prefixes.get(prefixes.size() - 1));
+        return getState().getSiteConfigData(path);
     }
 
     /**
-     * Initializes the cached folder types.<p>
+     * Returns the current snapshot of the cached data, after applying the queued changes if possible.<p>
+     * 
+     * If there are queued changes and no other thread is currently applying changes, the calling thread applies 
+     * them. Otherwise the current snapshot is returned immediately, without waiting for the other thread.<p>
      * 
-     * @throws CmsException if something goes wrong 
+     * @return the current snapshot 
      */
-    protected synchronized void initializeFolderTypes() throws CmsException {
-
-        LOG.info("Computing folder types for detail pages...");
-        m_folderTypes.clear();
-        List<CmsADEConfigData> configDataObjects = new ArrayList<CmsADEConfigData>(m_siteConfigurations.values());
-        for (CmsADEConfigData configData : configDataObjects) {
-            Map<String, String> folderTypes = configData.getFolderTypes();
-            m_folderTypes.putAll(folderTypes);
-        }
-        if (m_moduleConfiguration != null) {
-            Map<String, String> folderTypes = m_moduleConfiguration.getFolderTypes();
-            m_folderTypes.putAll(folderTypes);
+    protected CmsConfigurationCacheState getState() {
+
+        // applying the changes may itself look up configuration data, which must not apply them recursively
+        if (!m_configurationsToRead.isEmpty() && !m_updateLock.isHeldByCurrentThread() && m_updateLock.tryLock()) {
+            try {
+                readRemainingConfigurations();
+            } finally {
+                m_updateLock.unlock();
+            }
         }
+        return m_state;
     }
 
     /**
@@ -371,9 +336,8 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
      * 
      * @return true if the resource is configured as a detail page 
      */
-    protected synchronized boolean isDetailPage(CmsObject cms, CmsResource resource) {
+    protected boolean isDetailPage(CmsObject cms, CmsResource resource) {
 
-        readRemainingConfigurations();
         CmsResource folder;
         if (resource.isFile()) {
             if (!CmsResourceTypeXmlContainerPage.isContainerPage(resource)) {
@@ -388,12 +352,7 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         } else {
             folder = resource;
         }
-        List<CmsDetailPageInfo> allDetailPages = new ArrayList<CmsDetailPageInfo>();
-        // First collect all detail page infos 
-        for (CmsADEConfigData configData : m_siteConfigurations.values()) {
-            List<CmsDetailPageInfo> detailPageInfos = configData.getAllDetailPages();
-            allDetailPages.addAll(detailPageInfos);
-        }
+        List<CmsDetailPageInfo> allDetailPages = getState().getAllDetailPages();
         // First pass: check if the structure id or path directly match one of the configured detail pages.
         for (CmsDetailPageInfo info : allDetailPages) {
             if (folder.getStructureId().equals(info.getId())
@@ -459,14 +418,17 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
     }
 
     /**
-     * Reloads the module configuration.<p>
+     * Reads the module configuration.<p>
+     * 
+     * @return the merged module configuration 
      */
-    protected synchronized void refreshModuleConfiguration() {
+    protected CmsADEConfigData readModuleConfiguration() {
 
         LOG.info("Refreshing module configuration.");
         CmsConfigurationReader reader = new CmsConfigurationReader(m_cms);
-        m_moduleConfiguration = reader.readModuleConfigurations();
-        m_moduleConfiguration.initialize(m_cms);
+        CmsADEConfigData moduleConfiguration = reader.readModuleConfigurations();
+        moduleConfiguration.initialize(m_cms);
+        return moduleConfiguration;
     }
 
     /**
@@ -481,25 +443,15 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         if (CmsResource.isTemporaryFileName(rootPath)) {
             return;
         }
-        try {
-            updateFolderTypes(rootPath);
-        } catch (CmsException e) {
-            LOG.error(e.getLocalizedMessage(), e);
-        }
+        updateFolderTypes(rootPath);
         m_pathCache.remove(structureId);
         if (isSitemapConfiguration(rootPath, type)) {
-            synchronized (this) {
-                String basePath = getBasePath(rootPath);
-                removePath(basePath);
-                LOG.info("Removing config file from cache: " + rootPath);
-            }
+            LOG.info("Removing config file from cache: " + rootPath);
+            m_configurationsToRead.put(rootPath, CmsUUID.getNullUUID());
         } else if (isModuleConfiguration(rootPath, type)) {
             LOG.info("Removing module configuration " + rootPath);
-            synchronized (this) {
-                m_configurationsToRead.put(MODULE_CONFIG_KEY, CmsUUID.getNullUUID());
-            }
+            m_configurationsToRead.put(MODULE_CONFIG_KEY, CmsUUID.getNullUUID());
         }
-
     }
 
     /**
@@ -515,86 +467,107 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         if (CmsResource.isTemporaryFileName(rootPath)) {
             return;
         }
-
-        try {
-            updateFolderTypes(rootPath);
-        } catch (CmsException e) {
-            LOG.error(e.getLocalizedMessage(), e);
-        }
+        updateFolderTypes(rootPath);
         if (m_pathCache.containsKey(structureId)) {
             m_pathCache.put(structureId, rootPath);
         }
         if (isSitemapConfiguration(rootPath, type)) {
-            synchronized (this) {
-                // Do not update the configuration right now, because reading configuration files while handling 
-                // an event may lead to cache problems. Instead, the configuration file is read when the configuration
-                // is queried.
-                LOG.info("Changed configuration file " + rootPath + "(" + structureId + "), will be read later");
-                m_configurationsToRead.put(rootPath, structureId);
-            }
+            // Do not update the configuration right now, because reading configuration files while handling 
+            // an event may lead to cache problems. Instead, the configuration file is read when the configuration
+            // is queried.
+            LOG.info("Changed configuration file " + rootPath + "(" + structureId + "), will be read later");
+            m_configurationsToRead.put(rootPath, structureId);
         } else if (isModuleConfiguration(rootPath, type)) {
             LOG.info("Changed module configuration file " + rootPath + "(" + structureId + ")");
-            synchronized (this) {
-                m_configurationsToRead.put(MODULE_CONFIG_KEY, CmsUUID.getNullUUID());
-            }
+            m_configurationsToRead.put(MODULE_CONFIG_KEY, CmsUUID.getNullUUID());
         }
     }
 
     /**
-    * Updates the cached folder types.<p>
-    * 
-    * @param rootPath the folder root path 
-    * @throws CmsException if something goes wrong 
-    */
-    protected synchronized void updateFolderTypes(String rootPath) throws CmsException {
-
-        if (m_folderTypes.containsKey(rootPath)) {
+     * Marks the cached folder types for recomputation if they contain the given folder.<p>
+     * 
+     * @param rootPath the folder root path 
+     */
+    protected void updateFolderTypes(String rootPath) {
+
+        // only use folder types which have already been computed, since this is called from event handlers
+        // which must not read configurations; folder types computed later will contain the change anyway
+        Map<String, String> folderTypes = m_state.getComputedFolderTypes();
+        if ((folderTypes != null) && folderTypes.containsKey(rootPath)) {
             LOG.info("Updating folder types because of a change at " + rootPath);
-            synchronized (this) {
-                initializeFolderTypes();
-            }
+            m_configurationsToRead.put(FOLDER_TYPES_KEY, CmsUUID.getNullUUID());
         }
     }
 
     /**
-     * Reads the configuration files which have changed but not been read yet.<p>
+     * Makes a new snapshot the current one and computes its derived data.<p>
+     * 
+     * @param state the new snapshot 
      */
-    private synchronized void readRemainingConfigurations() {
+    private void installState(CmsConfigurationCacheState state) {
 
-        if (m_configurationsToRead.isEmpty()) {
-            // do not initialize folder types if there were no changes!
-            return;
+        m_state = state;
+        try {
+            // the derived data depends on inherited configurations, which are looked up through the new snapshot 
+            state.initializeDerivedData();
+        } catch (CmsRuntimeException e) {
+            // the data will be computed again when it is needed
+            LOG.warn(e.getLocalizedMessage(), e);
         }
-        for (Map.Entry<String, CmsUUID> entry : m_configurationsToRead.entrySet()) {
-            String rootPath = entry.getKey();
-            CmsUUID structureId = entry.getValue();
+    }
+
+    /**
+     * Reads the configuration files which have changed but not been read yet and replaces the current snapshot.<p>
+     * 
+     * Must only be called while holding the update lock.<p>
+     */
+    private void readRemainingConfigurations() {
+
+        CmsConfigurationCacheState oldState = m_state;
+        Map<String, CmsADEConfigData> siteConfigurations = new HashMap<String, CmsADEConfigData>(
+            oldState.getSiteConfigurations());
+        CmsADEConfigData moduleConfiguration = oldState.getModuleConfiguration();
+        for (String rootPath : new ArrayList<String>(m_configurationsToRead.keySet())) {
+            // remove the entry before reading, so that a change which happens while reading will be read again later
+            CmsUUID structureId = m_configurationsToRead.remove(rootPath);
+            if ((structureId == null) || rootPath.equals(FOLDER_TYPES_KEY)) {
+                // the folder types are always computed for the new snapshot
+                continue;
+            }
             if (rootPath.equals(MODULE_CONFIG_KEY)) {
-                refreshModuleConfiguration();
+                moduleConfiguration = readModuleConfiguration();
             } else {
-                try {
-                    // remove the original entry first, so that the configuration will be gone if reading the 
-                    // configuration file fails.
-                    m_siteConfigurations.remove(rootPath);
-                    CmsResource configRes = m_cms.readResource(structureId);
-                    CmsConfigurationReader reader = new CmsConfigurationReader(m_cms);
-                    LOG.info("Reading configuration file " + rootPath + "(" + structureId + ")");
-                    String basePath = getBasePath(rootPath);
-                    CmsADEConfigData configData = reader.parseSitemapConfiguration(basePath, configRes);
-                    configData.initialize(m_cms);
-                    m_siteConfigurations.put(basePath, configData);
-                } catch (CmsException e) {
-                    LOG.warn(e.getLocalizedMessage(), e);
-                } catch (CmsRuntimeException e) {
-                    LOG.warn(e.getLocalizedMessage(), e);
+                // remove the original entry first, so that the configuration will be gone if reading the 
+                // configuration file fails.
+                siteConfigurations.remove(getBasePath(rootPath));
+                if (!structureId.isNullUUID()) {
+                    readSitemapConfiguration(rootPath, structureId, siteConfigurations);
                 }
             }
         }
-        m_configurationsToRead.clear();
-        // Methods which recursively call this method must be called after this point,
-        // because it will lead to an infinite recursion otherwise.
+        installState(new CmsConfigurationCacheState(siteConfigurations, moduleConfiguration));
+    }
+
+    /**
+     * Reads a sitemap configuration file and stores the configuration data by its base path.<p>
+     * 
+     * @param rootPath the root path of the configuration file 
+     * @param structureId the structure id of the configuration file 
+     * @param siteConfigurations the map in which the configuration data should be stored 
+     */
+    private void readSitemapConfiguration(
+        String rootPath,
+        CmsUUID structureId,
+        Map<String, CmsADEConfigData> siteConfigurations) {
 
         try {
-            initializeFolderTypes();
+            CmsResource configRes = m_cms.readResource(structureId);
+            CmsConfigurationReader reader = new CmsConfigurationReader(m_cms);
+            LOG.info("Reading configuration file " + rootPath + "(" + structureId + ")");
+            String basePath = getBasePath(rootPath);
+            CmsADEConfigData configData = reader.parseSitemapConfiguration(basePath, configRes);
+            configData.initialize(m_cms);
+            siteConfigurations.put(basePath, configData);
         } catch (CmsException e) {
             LOG.warn(e.getLocalizedMessage(), e);
         } catch (CmsRuntimeException e) {
@@ -602,15 +575,4 @@ class CmsConfigurationCache implements I_CmsGlobalConfigurationCache {
         }
     }
 
-    /**
-     * Remove a sitemap configuration from the cache by its base path.<p>
-     * 
-     * @param rootPath the base path for the sitemap configuration 
-     */
-    private void removePath(String rootPath) {
-
-        m_configurationsToRead.remove(rootPath);
-        m_siteConfigurations.remove(rootPath);
-    }
-
 }
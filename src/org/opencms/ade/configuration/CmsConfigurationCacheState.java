@@ -0,0 +1,292 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.ade.configuration;
+
+import org.opencms.ade.detailpage.CmsDetailPageInfo;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.CmsRuntimeException;
+import org.opencms.util.CmsPathTrie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * An immutable snapshot of the data stored in a {@link CmsConfigurationCache}.<p>
+ * 
+ * A snapshot is never modified after it has been created. Changes are applied by creating a modified copy 
+ * which then replaces the current snapshot of the cache, so the snapshot can be read by any number of threads 
+ * without locking.<p>
+ * 
+ * The detail page and folder type data is computed lazily, because computing it involves inherited configuration 
+ * data which is looked up through the ADE manager, and therefore must only happen after this snapshot has become 
+ * the current snapshot of its cache. Concurrent readers may compute the same data twice, but never block.<p>
+ * 
+ * @since 8.5.0
+ */
+class CmsConfigurationCacheState {
+
+    /** The log instance for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsConfigurationCacheState.class);
+
+    /** All detail page infos from the sitemap configurations, computed lazily. */
+    private volatile List<CmsDetailPageInfo> m_allDetailPages;
+
+    /** The detail page URIs by type name, computed lazily. */
+    private volatile Map<String, List<String>> m_detailPagesByType;
+
+    /** The content types of folders by folder root path, computed lazily. */
+    private volatile Map<String, String> m_folderTypes;
+
+    /** The merged configuration from all the modules. */
+    private CmsADEConfigData m_moduleConfiguration;
+
+    /** The prefix tree used for looking up the sitemap configuration for a path. */
+    private CmsPathTrie<CmsADEConfigData> m_pathTrie;
+
+    /** The sitemap configurations, by base path. */
+    private Map<String, CmsADEConfigData> m_siteConfigurations;
+
+    /**
+     * Creates a new snapshot.<p>
+     * 
+     * @param siteConfigurations the sitemap configurations, by base path 
+     * @param moduleConfiguration the merged module configuration 
+     */
+    public CmsConfigurationCacheState(
+        Map<String, CmsADEConfigData> siteConfigurations,
+        CmsADEConfigData moduleConfiguration) {
+
+        m_siteConfigurations = Collections.unmodifiableMap(new HashMap<String, CmsADEConfigData>(siteConfigurations));
+        m_moduleConfiguration = moduleConfiguration;
+        m_pathTrie = new CmsPathTrie<CmsADEConfigData>();
+        for (Map.Entry<String, CmsADEConfigData> entry : m_siteConfigurations.entrySet()) {
+            m_pathTrie.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Creates an empty snapshot.<p>
+     */
+    public CmsConfigurationCacheState() {
+
+        this(Collections.<String, CmsADEConfigData> emptyMap(), null);
+    }
+
+    /**
+     * Gets all detail page info beans which are defined anywhere in the configuration.<p>
+     * 
+     * @return the list of detail page info beans 
+     */
+    public List<CmsDetailPageInfo> getAllDetailPages() {
+
+        List<CmsDetailPageInfo> result = m_allDetailPages;
+        if (result == null) {
+            List<CmsDetailPageInfo> allDetailPages = new ArrayList<CmsDetailPageInfo>();
+            for (CmsADEConfigData configData : m_siteConfigurations.values()) {
+                allDetailPages.addAll(configData.getAllDetailPages(true));
+            }
+            result = Collections.unmodifiableList(allDetailPages);
+            m_allDetailPages = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the content types of folders if they have already been computed, without computing them.<p>
+     * 
+     * @return the folder types by folder root path, or <code>null</code> if they have not been computed yet 
+     */
+    public Map<String, String> getComputedFolderTypes() {
+
+        return m_folderTypes;
+    }
+
+    /**
+     * Gets all the detail pages for a given type.<p>
+     * 
+     * @param type the name of the type 
+     * 
+     * @return the detail pages for that type 
+     */
+    public List<String> getDetailPages(String type) {
+
+        List<String> result = getDetailPagesByType().get(type);
+        if (result == null) {
+            return new ArrayList<String>();
+        }
+        return new ArrayList<String>(result);
+    }
+
+    /**
+     * Gets the set of type names for which detail pages are configured in any sitemap configuration.<p>
+     * 
+     * @return the set of type names with configured detail pages  
+     */
+    public Set<String> getDetailPageTypes() {
+
+        Set<String> result = new HashSet<String>();
+        for (CmsADEConfigData configData : m_siteConfigurations.values()) {
+            for (CmsDetailPageInfo info : configData.getAllDetailPages(false)) {
+                result.add(info.getType());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the content types of folders, by folder root path.<p>
+     * 
+     * @return the folder types 
+     */
+    public Map<String, String> getFolderTypes() {
+
+        Map<String, String> result = m_folderTypes;
+        if (result == null) {
+            result = Collections.unmodifiableMap(computeFolderTypes());
+            m_folderTypes = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the merged module configuration.<p>
+     * 
+     * @return the merged module configuration instance
+     */
+    public CmsADEConfigData getModuleConfiguration() {
+
+        return m_moduleConfiguration;
+    }
+
+    /**
+     * Returns the parent folder type for a given path.<p>
+     * 
+     * @param rootPath the path of a resource 
+     * 
+     * @return the parent folder content type 
+     */
+    public String getParentFolderType(String rootPath) {
+
+        String parent = CmsResource.getParentFolder(rootPath);
+        if (parent == null) {
+            return null;
+        }
+        return getFolderTypes().get(parent);
+    }
+
+    /**
+     * Gets the best matching sitemap configuration object for a given root path, ignoring the module 
+     * configuration.<p>
+     * 
+     * @param path a root path  
+     * 
+     * @return the configuration data for the given path, or null if none was found 
+     */
+    public CmsADEConfigData getSiteConfigData(String path) {
+
+        return m_pathTrie.getLongestPrefixValue(path);
+    }
+
+    /**
+     * Gets the sitemap configurations, by base path.<p>
+     * 
+     * @return the sitemap configurations 
+     */
+    public Map<String, CmsADEConfigData> getSiteConfigurations() {
+
+        return m_siteConfigurations;
+    }
+
+    /**
+     * Computes the lazily initialized data of this snapshot in advance, so that readers do not have to.<p>
+     */
+    public void initializeDerivedData() {
+
+        getFolderTypes();
+        getAllDetailPages();
+        getDetailPagesByType();
+    }
+
+    /**
+     * Computes the folder types from the sitemap and module configurations.<p>
+     * 
+     * @return the folder types, by folder root path 
+     */
+    private Map<String, String> computeFolderTypes() {
+
+        LOG.info("Computing folder types for detail pages...");
+        Map<String, String> result = new HashMap<String, String>();
+        List<CmsADEConfigData> configDataObjects = new ArrayList<CmsADEConfigData>(m_siteConfigurations.values());
+        if (m_moduleConfiguration != null) {
+            configDataObjects.add(m_moduleConfiguration);
+        }
+        for (CmsADEConfigData configData : configDataObjects) {
+            try {
+                result.putAll(configData.getFolderTypes());
+            } catch (CmsException e) {
+                LOG.warn(e.getLocalizedMessage(), e);
+            } catch (CmsRuntimeException e) {
+                LOG.warn(e.getLocalizedMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the URIs of the detail pages by type name.<p>
+     * 
+     * @return the detail page URIs by type name 
+     */
+    private Map<String, List<String>> getDetailPagesByType() {
+
+        Map<String, List<String>> result = m_detailPagesByType;
+        if (result == null) {
+            result = new HashMap<String, List<String>>();
+            for (CmsDetailPageInfo info : getAllDetailPages()) {
+                List<String> uris = result.get(info.getType());
+                if (uris == null) {
+                    uris = new ArrayList<String>();
+                    result.put(info.getType(), uris);
+                }
+                uris.add(info.getUri());
+            }
+            m_detailPagesByType = result;
+        }
+        return result;
+    }
+}
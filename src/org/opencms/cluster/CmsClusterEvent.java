@@ -0,0 +1,285 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsUUID;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An event exchanged between the nodes of a cluster.<p>
+ * 
+ * Only event data values that can be represented as Strings are transferred, these are 
+ * Strings, Integers, Longs, Booleans and UUIDs. All other values, like the database context 
+ * or the report of a publish event, are local to the node that fired the event and are dropped.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsClusterEvent {
+
+    /** Prefix of encoded Boolean values. */
+    private static final String PREFIX_BOOLEAN = "b:";
+
+    /** Prefix of encoded Integer values. */
+    private static final String PREFIX_INTEGER = "i:";
+
+    /** Prefix of encoded Long values. */
+    private static final String PREFIX_LONG = "l:";
+
+    /** Prefix of encoded String values. */
+    private static final String PREFIX_STRING = "s:";
+
+    /** Prefix of encoded UUID values. */
+    private static final String PREFIX_UUID = "u:";
+
+    /** The encoded event data. */
+    private Map<String, String> m_data;
+
+    /** The id of the node that fired the event. */
+    private String m_nodeId;
+
+    /** The sequence number assigned by the transport. */
+    private long m_sequence;
+
+    /** The time the event was fired. */
+    private long m_timestamp;
+
+    /** The event type. */
+    private int m_type;
+
+    /**
+     * Creates a new cluster event.<p>
+     * 
+     * @param sequence the sequence number assigned by the transport, or <code>0</code> if the event was not yet sent
+     * @param nodeId the id of the node that fired the event
+     * @param type the event type
+     * @param data the encoded event data
+     * @param timestamp the time the event was fired
+     */
+    public CmsClusterEvent(long sequence, String nodeId, int type, Map<String, String> data, long timestamp) {
+
+        m_sequence = sequence;
+        m_nodeId = nodeId;
+        m_type = type;
+        m_data = Collections.unmodifiableMap(new TreeMap<String, String>(data));
+        m_timestamp = timestamp;
+    }
+
+    /**
+     * Creates a cluster event for the given local OpenCms event.<p>
+     * 
+     * @param nodeId the id of the local node
+     * @param event the OpenCms event
+     * 
+     * @return the cluster event
+     */
+    public static CmsClusterEvent fromCmsEvent(String nodeId, CmsEvent event) {
+
+        Map<String, String> data = new HashMap<String, String>();
+        if (event.getData() != null) {
+            Iterator<Map.Entry<String, Object>> it = event.getData().entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Object> entry = it.next();
+                String value = encodeValue(entry.getValue());
+                if (value != null) {
+                    data.put(entry.getKey(), value);
+                }
+            }
+        }
+        return new CmsClusterEvent(0, nodeId, event.getType(), data, System.currentTimeMillis());
+    }
+
+    /**
+     * Decodes an event data value.<p>
+     * 
+     * @param value the encoded value
+     * 
+     * @return the decoded value, or <code>null</code> if the value can not be decoded
+     */
+    protected static Object decodeValue(String value) {
+
+        if ((value == null) || (value.length() < 2)) {
+            return null;
+        }
+        String prefix = value.substring(0, 2);
+        String content = value.substring(2);
+        try {
+            if (PREFIX_STRING.equals(prefix)) {
+                return content;
+            } else if (PREFIX_INTEGER.equals(prefix)) {
+                return Integer.valueOf(content);
+            } else if (PREFIX_LONG.equals(prefix)) {
+                return Long.valueOf(content);
+            } else if (PREFIX_BOOLEAN.equals(prefix)) {
+                return Boolean.valueOf(content);
+            } else if (PREFIX_UUID.equals(prefix)) {
+                return new CmsUUID(content);
+            }
+        } catch (NumberFormatException e) {
+            // invalid value, ignore
+        }
+        return null;
+    }
+
+    /**
+     * Encodes an event data value.<p>
+     * 
+     * @param value the value to encode
+     * 
+     * @return the encoded value, or <code>null</code> if the value can not be transferred
+     */
+    protected static String encodeValue(Object value) {
+
+        if (value instanceof String) {
+            return PREFIX_STRING + value;
+        } else if (value instanceof Integer) {
+            return PREFIX_INTEGER + value;
+        } else if (value instanceof Long) {
+            return PREFIX_LONG + value;
+        } else if (value instanceof Boolean) {
+            return PREFIX_BOOLEAN + value;
+        } else if (value instanceof CmsUUID) {
+            return PREFIX_UUID + value;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key used to coalesce equal events that are waiting to be sent.<p>
+     * 
+     * Two events with the same key have the same effect on the receiving nodes, 
+     * so only one of them needs to be sent.<p>
+     * 
+     * @return the coalescing key
+     */
+    public String getCoalescingKey() {
+
+        return m_type + ":" + m_data;
+    }
+
+    /**
+     * Returns the encoded event data.<p>
+     * 
+     * @return the encoded event data
+     */
+    public Map<String, String> getData() {
+
+        return m_data;
+    }
+
+    /**
+     * Returns the id of the node that fired the event.<p>
+     * 
+     * @return the id of the node that fired the event
+     */
+    public String getNodeId() {
+
+        return m_nodeId;
+    }
+
+    /**
+     * Returns the sequence number assigned by the transport.<p>
+     * 
+     * @return the sequence number, or <code>0</code> if the event was not yet sent
+     */
+    public long getSequence() {
+
+        return m_sequence;
+    }
+
+    /**
+     * Returns the time the event was fired.<p>
+     * 
+     * @return the time the event was fired
+     */
+    public long getTimestamp() {
+
+        return m_timestamp;
+    }
+
+    /**
+     * Returns the event type.<p>
+     * 
+     * @return the event type
+     */
+    public int getType() {
+
+        return m_type;
+    }
+
+    /**
+     * Creates the OpenCms event to fire on the receiving node.<p>
+     * 
+     * The event data contains the id of the originating node with the key 
+     * {@link I_CmsEventListener#KEY_CLUSTER_NODE}.<p>
+     * 
+     * @return the OpenCms event
+     */
+    public CmsEvent toCmsEvent() {
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        Iterator<Map.Entry<String, String>> it = m_data.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            Object value = decodeValue(entry.getValue());
+            if (value != null) {
+                data.put(entry.getKey(), value);
+            }
+        }
+        data.put(I_CmsEventListener.KEY_CLUSTER_NODE, m_nodeId);
+        return new CmsEvent(m_type, data);
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "CmsClusterEvent['" + m_sequence + "', '" + m_nodeId + "', '" + m_type + "']";
+    }
+
+    /**
+     * Returns a copy of this event with the given sequence number.<p>
+     * 
+     * @param sequence the sequence number
+     * 
+     * @return the copy of this event
+     */
+    public CmsClusterEvent withSequence(long sequence) {
+
+        return new CmsClusterEvent(sequence, m_nodeId, m_type, m_data, m_timestamp);
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsEventManager;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Forwards selected OpenCms events to the other nodes of a cluster and fires the events received from them.<p>
+ * 
+ * Local events of the configured types are collected in an outbox and sent by a background thread using 
+ * the configured {@link I_CmsClusterTransport}. Equal events waiting in the outbox are coalesced, and a pending 
+ * "clear caches" event makes pending "clear online / offline caches" events obsolete. Events stay in the outbox 
+ * until the transport confirmed them, so every event is delivered at least once.<p>
+ * 
+ * The same thread reads the events sent by the other nodes and fires them with the local event manager, 
+ * the event data then contains the id of the originating node with the key 
+ * {@link I_CmsEventListener#KEY_CLUSTER_NODE}. Since the manager keeps the sequence number of the last 
+ * processed event, all events sent while the transport was not available are replayed on reconnect. 
+ * If the transport no longer has all missed events, all caches are cleared.<p>
+ * 
+ * The cluster manager is configured in <code>opencms.properties</code>:
+ * <ul>
+ * <li><code>cluster.transport</code>: the class name of the transport, the cluster manager is only started if set</li>
+ * <li><code>cluster.transport.*</code>: the parameters of the transport, without the prefix</li>
+ * <li><code>cluster.node.id</code>: the unique id of this node, a random id is used if not set</li>
+ * <li><code>cluster.events</code>: comma separated list of the event types to forward</li>
+ * <li><code>cluster.interval</code>: the synchronization interval in milliseconds</li>
+ * </ul><p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsClusterManager implements I_CmsEventListener {
+
+    /** The event types forwarded by default. */
+    public static final int[] DEFAULT_EVENT_TYPES = new int[] {
+        EVENT_PUBLISH_PROJECT,
+        EVENT_CLEAR_CACHES,
+        EVENT_CLEAR_OFFLINE_CACHES,
+        EVENT_CLEAR_ONLINE_CACHES,
+        EVENT_CLEAR_PRINCIPAL_CACHES,
+        EVENT_FLEX_CACHE_CLEAR,
+        EVENT_FLEX_PURGE_JSP_REPOSITORY,
+        EVENT_USER_MODIFIED,
+        EVENT_GROUP_MODIFIED,
+        EVENT_OU_MODIFIED};
+
+    /** The default synchronization interval in milliseconds. */
+    public static final int DEFAULT_INTERVAL = 2000;
+
+    /** Parameter name for the forwarded event types. */
+    public static final String PARAM_EVENTS = "cluster.events";
+
+    /** Parameter name for the synchronization interval. */
+    public static final String PARAM_INTERVAL = "cluster.interval";
+
+    /** Parameter name for the node id. */
+    public static final String PARAM_NODE_ID = "cluster.node.id";
+
+    /** Parameter name for the transport class. */
+    public static final String PARAM_TRANSPORT = "cluster.transport";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsClusterManager.class);
+
+    /** The maximum number of events read from the transport at once. */
+    private static final int MAX_RECEIVE = 500;
+
+    /** Indicates if the transport was available during the last synchronization. */
+    private boolean m_connected;
+
+    /** The event manager used to fire received events. */
+    private CmsEventManager m_eventManager;
+
+    /** The forwarded event types. */
+    private int[] m_eventTypes;
+
+    /** The synchronization interval in milliseconds. */
+    private int m_interval;
+
+    /** The sequence number of the last processed event, -1 if unknown. */
+    private long m_lastSequence;
+
+    /** The id of the local node. */
+    private String m_nodeId;
+
+    /** The events waiting to be sent, by coalescing key. */
+    private Map<String, CmsClusterEvent> m_outbox;
+
+    /** The background synchronization thread. */
+    private CmsClusterThread m_thread;
+
+    /** The transport. */
+    private I_CmsClusterTransport m_transport;
+
+    /**
+     * Creates a new cluster manager.<p>
+     * 
+     * @param nodeId the id of the local node
+     * @param transport the initialized transport
+     * @param eventManager the event manager used to fire received events
+     * @param eventTypes the forwarded event types
+     * @param interval the synchronization interval in milliseconds, if not positive no background thread is started
+     */
+    public CmsClusterManager(
+        String nodeId,
+        I_CmsClusterTransport transport,
+        CmsEventManager eventManager,
+        int[] eventTypes,
+        int interval) {
+
+        m_nodeId = nodeId;
+        m_transport = transport;
+        m_eventManager = eventManager;
+        m_eventTypes = eventTypes;
+        m_interval = interval;
+        m_outbox = new LinkedHashMap<String, CmsClusterEvent>();
+        m_lastSequence = -1;
+    }
+
+    /**
+     * Creates the cluster manager from the <code>opencms.properties</code> configuration.<p>
+     * 
+     * @param configuration the configuration
+     * @param eventManager the event manager used to fire received events
+     * 
+     * @return the cluster manager, or <code>null</code> if no cluster transport is configured
+     * 
+     * @throws CmsClusterException if the transport can not be created
+     */
+    public static CmsClusterManager create(CmsParameterConfiguration configuration, CmsEventManager eventManager)
+    throws CmsClusterException {
+
+        String transportClass = configuration.getString(PARAM_TRANSPORT, null);
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(transportClass)) {
+            return null;
+        }
+        String nodeId = configuration.getString(PARAM_NODE_ID, null);
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(nodeId)) {
+            nodeId = new CmsUUID().toString();
+        }
+        int[] eventTypes = DEFAULT_EVENT_TYPES;
+        List<String> events = configuration.getList(PARAM_EVENTS, null);
+        if ((events != null) && !events.isEmpty()) {
+            eventTypes = new int[events.size()];
+            for (int i = 0; i < eventTypes.length; i++) {
+                try {
+                    eventTypes[i] = Integer.parseInt(events.get(i).trim());
+                } catch (NumberFormatException e) {
+                    throw new CmsClusterException(Messages.get().container(
+                        Messages.ERR_CLUSTER_INVALID_EVENT_TYPE_1,
+                        events.get(i)), e);
+                }
+            }
+        }
+        String prefix = PARAM_TRANSPORT + ".";
+        Map<String, String> parameters = new HashMap<String, String>();
+        Iterator<String> it = configuration.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            if (key.startsWith(prefix)) {
+                parameters.put(key.substring(prefix.length()), configuration.get(key));
+            }
+        }
+        I_CmsClusterTransport transport;
+        try {
+            transport = (I_CmsClusterTransport)Class.forName(transportClass.trim()).newInstance();
+        } catch (Exception e) {
+            throw new CmsClusterException(Messages.get().container(
+                Messages.ERR_CLUSTER_TRANSPORT_CLASS_1,
+                transportClass), e);
+        }
+        transport.initialize(nodeId, parameters);
+        return new CmsClusterManager(
+            nodeId,
+            transport,
+            eventManager,
+            eventTypes,
+            configuration.getInteger(PARAM_INTERVAL, DEFAULT_INTERVAL));
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        if (event.isClusterEvent()) {
+            // the event was received from another node
+            return;
+        }
+        enqueue(CmsClusterEvent.fromCmsEvent(m_nodeId, event));
+        if (m_thread != null) {
+            m_thread.wakeUp();
+        }
+    }
+
+    /**
+     * Returns the sequence number of the last processed event.<p>
+     * 
+     * @return the sequence number of the last processed event, or -1 if the transport has not been available yet
+     */
+    public synchronized long getLastSequence() {
+
+        return m_lastSequence;
+    }
+
+    /**
+     * Returns the id of the local node.<p>
+     * 
+     * @return the id of the local node
+     */
+    public String getNodeId() {
+
+        return m_nodeId;
+    }
+
+    /**
+     * Returns the number of events waiting to be sent.<p>
+     * 
+     * @return the number of events waiting to be sent
+     */
+    public int getOutboxSize() {
+
+        synchronized (m_outbox) {
+            return m_outbox.size();
+        }
+    }
+
+    /**
+     * Initializes the cluster manager, registers it as event listener and starts the background thread.<p>
+     */
+    public void initialize() {
+
+        m_eventManager.addCmsEventListener(this, m_eventTypes);
+        // events sent before this node was started are not relevant, since all caches are empty now
+        synchronize();
+        if (m_interval > 0) {
+            m_thread = new CmsClusterThread(this, m_interval);
+            m_thread.start();
+        }
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.INIT_CLUSTER_MANAGER_STARTED_2,
+                m_nodeId,
+                m_transport.getClass().getName()));
+        }
+    }
+
+    /**
+     * Returns if the transport was available during the last synchronization.<p>
+     * 
+     * @return <code>true</code> if the transport was available during the last synchronization
+     */
+    public synchronized boolean isConnected() {
+
+        return m_connected;
+    }
+
+    /**
+     * Stops the background thread, sends the pending events and shuts down the transport.<p>
+     */
+    public void shutDown() {
+
+        m_eventManager.removeCmsEventListener(this);
+        if (m_thread != null) {
+            m_thread.shutDown();
+            m_thread = null;
+        }
+        synchronize();
+        m_transport.shutDown();
+    }
+
+    /**
+     * Sends the pending local events and fires the events received from the other nodes.<p>
+     */
+    public synchronized void synchronize() {
+
+        try {
+            send();
+            if (m_lastSequence < 0) {
+                m_lastSequence = m_transport.getLastSequence();
+            } else {
+                receive();
+            }
+            if (!m_connected) {
+                m_connected = true;
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(Messages.get().getBundle().key(
+                        Messages.LOG_CLUSTER_CONNECTED_1,
+                        String.valueOf(m_lastSequence)));
+                }
+            }
+        } catch (CmsClusterException e) {
+            if (m_connected || LOG.isDebugEnabled()) {
+                // log only the first failure after the connection was lost
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_CLUSTER_DISCONNECTED_0), e);
+            }
+            m_connected = false;
+        }
+    }
+
+    /**
+     * Adds an event to the outbox, coalescing it with the pending events.<p>
+     * 
+     * @param event the event to add
+     */
+    protected void enqueue(CmsClusterEvent event) {
+
+        synchronized (m_outbox) {
+            if ((event.getType() == EVENT_CLEAR_ONLINE_CACHES) || (event.getType() == EVENT_CLEAR_OFFLINE_CACHES)) {
+                Iterator<CmsClusterEvent> it = m_outbox.values().iterator();
+                while (it.hasNext()) {
+                    if (it.next().getType() == EVENT_CLEAR_CACHES) {
+                        // the pending "clear caches" event covers this one
+                        return;
+                    }
+                }
+            } else if (event.getType() == EVENT_CLEAR_CACHES) {
+                Iterator<CmsClusterEvent> it = m_outbox.values().iterator();
+                while (it.hasNext()) {
+                    int type = it.next().getType();
+                    if ((type == EVENT_CLEAR_ONLINE_CACHES) || (type == EVENT_CLEAR_OFFLINE_CACHES)) {
+                        it.remove();
+                    }
+                }
+            }
+            // remove an equal event first, so that the order of the outbox reflects the latest occurrence
+            String key = event.getCoalescingKey();
+            m_outbox.remove(key);
+            m_outbox.put(key, event);
+        }
+    }
+
+    /**
+     * Fires the events received from the other nodes.<p>
+     * 
+     * @throws CmsClusterException if the transport is not available
+     */
+    protected void receive() throws CmsClusterException {
+
+        if (m_transport.getFirstSequence() > (m_lastSequence + 1)) {
+            // some events are no longer available, so all caches have to be cleared
+            LOG.warn(Messages.get().getBundle().key(
+                Messages.LOG_CLUSTER_EVENTS_LOST_1,
+                String.valueOf(m_lastSequence)));
+            Map<String, Object> data = new HashMap<String, Object>();
+            data.put(KEY_CLUSTER_NODE, m_nodeId);
+            fire(new CmsEvent(EVENT_CLEAR_CACHES, data));
+            m_lastSequence = m_transport.getFirstSequence() - 1;
+        }
+        List<CmsClusterEvent> events = m_transport.receive(m_lastSequence, MAX_RECEIVE);
+        while (!events.isEmpty()) {
+            Iterator<CmsClusterEvent> it = events.iterator();
+            while (it.hasNext()) {
+                CmsClusterEvent event = it.next();
+                // events of the local node have already been fired, invalid events have a negative type
+                if ((event.getType() >= 0) && !m_nodeId.equals(event.getNodeId())) {
+                    fire(event.toCmsEvent());
+                }
+                m_lastSequence = event.getSequence();
+            }
+            events = m_transport.receive(m_lastSequence, MAX_RECEIVE);
+        }
+    }
+
+    /**
+     * Sends the events of the outbox.<p>
+     * 
+     * @throws CmsClusterException if the transport is not available
+     */
+    protected void send() throws CmsClusterException {
+
+        List<CmsClusterEvent> events;
+        synchronized (m_outbox) {
+            if (m_outbox.isEmpty()) {
+                return;
+            }
+            events = new ArrayList<CmsClusterEvent>(m_outbox.values());
+        }
+        m_transport.send(events);
+        synchronized (m_outbox) {
+            Iterator<CmsClusterEvent> it = m_outbox.values().iterator();
+            while (it.hasNext()) {
+                CmsClusterEvent event = it.next();
+                // events coalesced while sending have been replaced by a new instance and are kept
+                for (int i = 0; i < events.size(); i++) {
+                    if (events.get(i) == event) {
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fires an event received from another node with the local event manager.<p>
+     * 
+     * @param event the event to fire
+     */
+    private void fire(CmsEvent event) {
+
+        try {
+            m_eventManager.fireEvent(event);
+        } catch (Throwable t) {
+            // a failing listener must not stop the processing of the following events
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_CLUSTER_EVENT_FAILED_1, event), t);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.main.CmsLog;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Background thread that periodically synchronizes the cluster manager with the other nodes.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsClusterThread extends Thread {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsClusterThread.class);
+
+    /** Indicates that this thread is alive. */
+    private volatile boolean m_alive;
+
+    /** The synchronization interval in milliseconds. */
+    private int m_interval;
+
+    /** The cluster manager to synchronize. */
+    private CmsClusterManager m_manager;
+
+    /** Indicates that local events are waiting to be sent. */
+    private boolean m_pending;
+
+    /**
+     * Creates a new cluster synchronization thread.<p>
+     * 
+     * @param manager the cluster manager to synchronize
+     * @param interval the synchronization interval in milliseconds
+     */
+    protected CmsClusterThread(CmsClusterManager manager, int interval) {
+
+        super("OpenCms: Cluster synchronization");
+        setDaemon(true);
+        m_manager = manager;
+        m_interval = interval;
+        m_alive = true;
+    }
+
+    /**
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+
+        while (m_alive) {
+            synchronized (this) {
+                if (!m_pending && m_alive) {
+                    try {
+                        wait(m_interval);
+                    } catch (InterruptedException e) {
+                        // continue with the synchronization
+                    }
+                }
+                if (!m_alive) {
+                    return;
+                }
+                m_pending = false;
+            }
+            try {
+                m_manager.synchronize();
+            } catch (Throwable t) {
+                LOG.error(t.getLocalizedMessage(), t);
+            }
+        }
+    }
+
+    /**
+     * Stops this thread and waits for the current synchronization to finish.<p>
+     */
+    public void shutDown() {
+
+        synchronized (this) {
+            m_alive = false;
+            notifyAll();
+        }
+        try {
+            join(m_interval);
+        } catch (InterruptedException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Triggers a synchronization without waiting for the end of the current interval.<p>
+     */
+    public synchronized void wakeUp() {
+
+        m_pending = true;
+        notifyAll();
+    }
+}
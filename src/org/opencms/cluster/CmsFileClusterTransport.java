@@ -0,0 +1,444 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.main.CmsLog;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Cluster transport that stores the events as files in a directory shared by all nodes, e.g. on a network file system.<p>
+ * 
+ * Every event is stored in its own file, named after its sequence number. To send an event, a node first writes 
+ * the event to a temporary file, then reserves the next sequence number by atomically creating a claim file 
+ * and finally renames the temporary file to the event file. Readers wait for claimed sequence numbers 
+ * that have no event file yet, unless the claim is older than the claim timeout, in which case the sending 
+ * node is assumed to have failed.<p>
+ * 
+ * Event files older than the retention time are removed, except for the latest one.<p>
+ * 
+ * Parameters:
+ * <ul>
+ * <li><code>directory</code>: the shared directory, required</li>
+ * <li><code>retention</code>: the retention time of events in milliseconds, default is one day</li>
+ * <li><code>claim.timeout</code>: the claim timeout in milliseconds, default is one minute</li>
+ * </ul><p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsFileClusterTransport implements I_CmsClusterTransport {
+
+    /** The default claim timeout in milliseconds. */
+    public static final long DEFAULT_CLAIM_TIMEOUT = 60L * 1000L;
+
+    /** The default retention time in milliseconds. */
+    public static final long DEFAULT_RETENTION = 24L * 60L * 60L * 1000L;
+
+    /** Parameter name for the claim timeout. */
+    public static final String PARAM_CLAIM_TIMEOUT = "claim.timeout";
+
+    /** Parameter name for the shared directory. */
+    public static final String PARAM_DIRECTORY = "directory";
+
+    /** Parameter name for the retention time. */
+    public static final String PARAM_RETENTION = "retention";
+
+    /** The suffix of claim files. */
+    private static final String SUFFIX_CLAIM = ".claim";
+
+    /** The suffix of event files. */
+    private static final String SUFFIX_EVENT = ".event";
+
+    /** The suffix of temporary files. */
+    private static final String SUFFIX_TEMP = ".tmp";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsFileClusterTransport.class);
+
+    /** The key of the node id in event files. */
+    private static final String PROPERTY_NODE = "node";
+
+    /** The key prefix of event data in event files. */
+    private static final String PROPERTY_PREFIX_DATA = "data.";
+
+    /** The key of the time stamp in event files. */
+    private static final String PROPERTY_TIMESTAMP = "timestamp";
+
+    /** The key of the event type in event files. */
+    private static final String PROPERTY_TYPE = "type";
+
+    /** The claim timeout in milliseconds. */
+    private long m_claimTimeout = DEFAULT_CLAIM_TIMEOUT;
+
+    /** The shared directory. */
+    private File m_directory;
+
+    /** The time of the last removal of expired files. */
+    private long m_lastPruned;
+
+    /** The id of the local node. */
+    private String m_nodeId;
+
+    /** The retention time in milliseconds. */
+    private long m_retention = DEFAULT_RETENTION;
+
+    /**
+     * Parses the sequence number from the given file name.<p>
+     * 
+     * @param name the file name
+     * @param suffix the file suffix
+     * 
+     * @return the sequence number, or -1 if the name is not valid
+     */
+    protected static long parseSequence(String name, String suffix) {
+
+        if (!name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#getFirstSequence()
+     */
+    public long getFirstSequence() throws CmsClusterException {
+
+        long[] range = getSequenceRange();
+        return range[0];
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#getLastSequence()
+     */
+    public long getLastSequence() throws CmsClusterException {
+
+        long[] range = getSequenceRange();
+        return range[1];
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#initialize(java.lang.String, java.util.Map)
+     */
+    public void initialize(String nodeId, Map<String, String> parameters) throws CmsClusterException {
+
+        m_nodeId = nodeId;
+        String directory = parameters.get(PARAM_DIRECTORY);
+        if (directory == null) {
+            throw new CmsClusterException(Messages.get().container(
+                Messages.ERR_CLUSTER_MISSING_PARAM_1,
+                PARAM_DIRECTORY));
+        }
+        m_directory = new File(CmsFileUtil.normalizePath(directory.trim()));
+        if (!m_directory.isDirectory() && !m_directory.mkdirs()) {
+            throw new CmsClusterException(Messages.get().container(
+                Messages.ERR_CLUSTER_DIRECTORY_1,
+                m_directory.getAbsolutePath()));
+        }
+        String retention = parameters.get(PARAM_RETENTION);
+        if (retention != null) {
+            m_retention = Long.parseLong(retention.trim());
+        }
+        String claimTimeout = parameters.get(PARAM_CLAIM_TIMEOUT);
+        if (claimTimeout != null) {
+            m_claimTimeout = Long.parseLong(claimTimeout.trim());
+        }
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#receive(long, int)
+     */
+    public List<CmsClusterEvent> receive(long lastSequence, int maxEvents) throws CmsClusterException {
+
+        long last = getSequenceRange()[1];
+        List<CmsClusterEvent> result = new ArrayList<CmsClusterEvent>();
+        long now = System.currentTimeMillis();
+        for (long sequence = lastSequence + 1; (sequence <= last) && (result.size() < maxEvents); sequence++) {
+            File eventFile = getFile(sequence, SUFFIX_EVENT);
+            if (eventFile.exists()) {
+                result.add(readEvent(sequence, eventFile));
+                continue;
+            }
+            File claimFile = getFile(sequence, SUFFIX_CLAIM);
+            if (claimFile.exists() && ((now - claimFile.lastModified()) < m_claimTimeout)) {
+                // the event is still being written, keep the order and wait for it
+                break;
+            }
+            // the sending node has failed, or the event has expired
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#send(java.util.List)
+     */
+    public void send(List<CmsClusterEvent> events) throws CmsClusterException {
+
+        long sequence = getSequenceRange()[1];
+        Iterator<CmsClusterEvent> it = events.iterator();
+        while (it.hasNext()) {
+            CmsClusterEvent event = it.next();
+            File tempFile = new File(m_directory, "." + m_nodeId + "-" + new CmsUUID() + SUFFIX_TEMP);
+            writeEvent(event, tempFile);
+            // reserve the next free sequence number
+            File claimFile;
+            try {
+                do {
+                    sequence++;
+                    claimFile = getFile(sequence, SUFFIX_CLAIM);
+                } while (!claimFile.createNewFile());
+            } catch (IOException e) {
+                tempFile.delete();
+                throw new CmsClusterException(Messages.get().container(
+                    Messages.ERR_CLUSTER_WRITE_1,
+                    m_directory.getAbsolutePath()), e);
+            }
+            if (!tempFile.renameTo(getFile(sequence, SUFFIX_EVENT))) {
+                tempFile.delete();
+                throw new CmsClusterException(Messages.get().container(
+                    Messages.ERR_CLUSTER_WRITE_1,
+                    getFile(sequence, SUFFIX_EVENT).getAbsolutePath()));
+            }
+        }
+        prune(sequence);
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#shutDown()
+     */
+    public void shutDown() {
+
+        // nothing to release
+    }
+
+    /**
+     * Returns the file for the given sequence number.<p>
+     * 
+     * @param sequence the sequence number
+     * @param suffix the file suffix
+     * 
+     * @return the file
+     */
+    private File getFile(long sequence, String suffix) {
+
+        // pad the name so that the files are listed in order
+        String name = String.valueOf(sequence);
+        StringBuffer result = new StringBuffer(20 + suffix.length());
+        for (int i = name.length(); i < 19; i++) {
+            result.append('0');
+        }
+        result.append(name).append(suffix);
+        return new File(m_directory, result.toString());
+    }
+
+    /**
+     * Returns the range of the claimed sequence numbers.<p>
+     * 
+     * @return an array with the first available and the last claimed sequence number
+     * 
+     * @throws CmsClusterException if the shared directory can not be read
+     */
+    private long[] getSequenceRange() throws CmsClusterException {
+
+        String[] names = m_directory.list(new FilenameFilter() {
+
+            public boolean accept(File dir, String name) {
+
+                return name.endsWith(SUFFIX_CLAIM);
+            }
+        });
+        if (names == null) {
+            throw new CmsClusterException(Messages.get().container(
+                Messages.ERR_CLUSTER_DIRECTORY_1,
+                m_directory.getAbsolutePath()));
+        }
+        long first = Long.MAX_VALUE;
+        long last = 0;
+        for (int i = 0; i < names.length; i++) {
+            long sequence = parseSequence(names[i], SUFFIX_CLAIM);
+            if (sequence > 0) {
+                first = Math.min(first, sequence);
+                last = Math.max(last, sequence);
+            }
+        }
+        if (first == Long.MAX_VALUE) {
+            first = last + 1;
+        }
+        return new long[] {first, last};
+    }
+
+    /**
+     * Removes the expired files, at most once per claim timeout.<p>
+     * 
+     * The file of the last sequence number is never removed, so the sequence numbers are never reused.<p>
+     * 
+     * @param lastSequence the last claimed sequence number
+     */
+    private void prune(long lastSequence) {
+
+        long now = System.currentTimeMillis();
+        if ((now - m_lastPruned) < m_claimTimeout) {
+            return;
+        }
+        m_lastPruned = now;
+        File[] files = m_directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            File file = files[i];
+            String name = file.getName();
+            long age = now - file.lastModified();
+            if (name.endsWith(SUFFIX_TEMP)) {
+                if (age > m_claimTimeout) {
+                    file.delete();
+                }
+                continue;
+            }
+            long sequence = Math.max(parseSequence(name, SUFFIX_CLAIM), parseSequence(name, SUFFIX_EVENT));
+            if ((sequence > 0) && (sequence < lastSequence) && (age > m_retention)) {
+                // remove the event file before the claim file, so readers never see an event without claim
+                if (name.endsWith(SUFFIX_CLAIM)) {
+                    getFile(sequence, SUFFIX_EVENT).delete();
+                }
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads an event file.<p>
+     * 
+     * @param sequence the sequence number of the event
+     * @param file the event file
+     * 
+     * @return the event
+     * 
+     * @throws CmsClusterException if the file can not be read
+     */
+    private CmsClusterEvent readEvent(long sequence, File file) throws CmsClusterException {
+
+        Properties properties = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            properties.load(in);
+        } catch (IOException e) {
+            throw new CmsClusterException(Messages.get().container(
+                Messages.ERR_CLUSTER_READ_1,
+                file.getAbsolutePath()), e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+        Map<String, String> data = new HashMap<String, String>();
+        Iterator<Object> it = properties.keySet().iterator();
+        while (it.hasNext()) {
+            String key = (String)it.next();
+            if (key.startsWith(PROPERTY_PREFIX_DATA)) {
+                data.put(key.substring(PROPERTY_PREFIX_DATA.length()), properties.getProperty(key));
+            }
+        }
+        try {
+            return new CmsClusterEvent(
+                sequence,
+                properties.getProperty(PROPERTY_NODE),
+                Integer.parseInt(properties.getProperty(PROPERTY_TYPE)),
+                data,
+                Long.parseLong(properties.getProperty(PROPERTY_TIMESTAMP)));
+        } catch (NumberFormatException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.ERR_CLUSTER_READ_1, file.getAbsolutePath()), e);
+            // an invalid event can not be processed, it is skipped by the cluster manager
+            return new CmsClusterEvent(sequence, properties.getProperty(PROPERTY_NODE), -1, data, 0);
+        }
+    }
+
+    /**
+     * Writes an event file.<p>
+     * 
+     * @param event the event to write
+     * @param file the file to write to
+     * 
+     * @throws CmsClusterException if the file can not be written
+     */
+    private void writeEvent(CmsClusterEvent event, File file) throws CmsClusterException {
+
+        Properties properties = new Properties();
+        properties.setProperty(PROPERTY_NODE, event.getNodeId());
+        properties.setProperty(PROPERTY_TYPE, String.valueOf(event.getType()));
+        properties.setProperty(PROPERTY_TIMESTAMP, String.valueOf(event.getTimestamp()));
+        Iterator<Map.Entry<String, String>> it = event.getData().entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            properties.setProperty(PROPERTY_PREFIX_DATA + entry.getKey(), entry.getValue());
+        }
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            properties.store(out, null);
+        } catch (IOException e) {
+            file.delete();
+            throw new CmsClusterException(Messages.get().container(
+                Messages.ERR_CLUSTER_WRITE_1,
+                file.getAbsolutePath()), e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process cluster transport, used to test the cluster event bus without a shared storage.<p>
+ * 
+ * All transport instances of the same JVM that use the same channel name share one event log,
+ * so several {@link CmsClusterManager} instances can simulate the nodes of a cluster. The connection 
+ * of every instance can be switched off to simulate an unavailable transport.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsLoopbackClusterTransport implements I_CmsClusterTransport {
+
+    /**
+     * A shared event log.<p>
+     */
+    private static final class CmsLoopbackChannel {
+
+        /** The retained events. */
+        protected LinkedList<CmsClusterEvent> m_events = new LinkedList<CmsClusterEvent>();
+
+        /** The last assigned sequence number. */
+        protected long m_lastSequence;
+
+        /**
+         * Default constructor.<p>
+         */
+        protected CmsLoopbackChannel() {
+
+            // nothing to do
+        }
+    }
+
+    /** The default number of retained events. */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    /** Parameter name for the number of retained events. */
+    public static final String PARAM_CAPACITY = "capacity";
+
+    /** Parameter name for the channel name. */
+    public static final String PARAM_CHANNEL = "channel";
+
+    /** The shared event logs by channel name. */
+    private static final Map<String, CmsLoopbackChannel> CHANNELS = new HashMap<String, CmsLoopbackChannel>();
+
+    /** The number of retained events. */
+    private int m_capacity = DEFAULT_CAPACITY;
+
+    /** The event log of this transport. */
+    private CmsLoopbackChannel m_channel;
+
+    /** Indicates if this transport is connected. */
+    private volatile boolean m_connected = true;
+
+    /**
+     * Removes all event logs.<p>
+     */
+    public static void reset() {
+
+        synchronized (CHANNELS) {
+            CHANNELS.clear();
+        }
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#getFirstSequence()
+     */
+    public long getFirstSequence() throws CmsClusterException {
+
+        checkConnected();
+        synchronized (m_channel) {
+            if (m_channel.m_events.isEmpty()) {
+                return m_channel.m_lastSequence + 1;
+            }
+            return m_channel.m_events.getFirst().getSequence();
+        }
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#getLastSequence()
+     */
+    public long getLastSequence() throws CmsClusterException {
+
+        checkConnected();
+        synchronized (m_channel) {
+            return m_channel.m_lastSequence;
+        }
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#initialize(java.lang.String, java.util.Map)
+     */
+    public void initialize(String nodeId, Map<String, String> parameters) {
+
+        String channel = parameters.get(PARAM_CHANNEL);
+        if (channel == null) {
+            channel = "";
+        }
+        String capacity = parameters.get(PARAM_CAPACITY);
+        if (capacity != null) {
+            m_capacity = Math.max(1, Integer.parseInt(capacity.trim()));
+        }
+        synchronized (CHANNELS) {
+            m_channel = CHANNELS.get(channel);
+            if (m_channel == null) {
+                m_channel = new CmsLoopbackChannel();
+                CHANNELS.put(channel, m_channel);
+            }
+        }
+    }
+
+    /**
+     * Returns if this transport is connected.<p>
+     * 
+     * @return <code>true</code> if this transport is connected
+     */
+    public boolean isConnected() {
+
+        return m_connected;
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#receive(long, int)
+     */
+    public List<CmsClusterEvent> receive(long lastSequence, int maxEvents) throws CmsClusterException {
+
+        checkConnected();
+        List<CmsClusterEvent> result = new ArrayList<CmsClusterEvent>();
+        synchronized (m_channel) {
+            Iterator<CmsClusterEvent> it = m_channel.m_events.iterator();
+            while (it.hasNext() && (result.size() < maxEvents)) {
+                CmsClusterEvent event = it.next();
+                if (event.getSequence() > lastSequence) {
+                    result.add(event);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#send(java.util.List)
+     */
+    public void send(List<CmsClusterEvent> events) throws CmsClusterException {
+
+        checkConnected();
+        synchronized (m_channel) {
+            Iterator<CmsClusterEvent> it = events.iterator();
+            while (it.hasNext()) {
+                m_channel.m_lastSequence++;
+                m_channel.m_events.add(it.next().withSequence(m_channel.m_lastSequence));
+            }
+            while (m_channel.m_events.size() > m_capacity) {
+                m_channel.m_events.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Connects or disconnects this transport.<p>
+     * 
+     * @param connected <code>true</code> to connect this transport
+     */
+    public void setConnected(boolean connected) {
+
+        m_connected = connected;
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#shutDown()
+     */
+    public void shutDown() {
+
+        m_connected = false;
+    }
+
+    /**
+     * Checks if this transport is connected.<p>
+     * 
+     * @throws CmsClusterException if this transport is not connected
+     */
+    private void checkConnected() throws CmsClusterException {
+
+        if (!m_connected) {
+            throw new CmsClusterException(Messages.get().container(Messages.ERR_CLUSTER_NOT_CONNECTED_0));
+        }
+    }
+}
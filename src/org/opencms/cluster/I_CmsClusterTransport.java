@@ -0,0 +1,110 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transport used by the {@link CmsClusterManager} to exchange events with the other nodes of a cluster.<p>
+ * 
+ * A transport is an ordered, shared log of events. Every event appended by {@link #send(List)} gets a 
+ * sequence number that is greater than the sequence numbers of all events appended before, so each node 
+ * can read the events it has not yet seen with {@link #receive(long, int)}. Since the nodes keep track 
+ * of the last sequence number they processed, events missed while a node was disconnected are replayed
+ * once the transport is available again.<p>
+ * 
+ * Implementations must be thread safe.<p>
+ * 
+ * @since 8.5.0
+ */
+public interface I_CmsClusterTransport {
+
+    /**
+     * Returns the sequence number of the oldest event still available in the transport.<p>
+     * 
+     * If events older than the ones a node has processed are no longer available, the node 
+     * must assume it has missed events.<p>
+     * 
+     * @return the sequence number of the oldest available event, or the next sequence number if no events are available
+     * 
+     * @throws CmsClusterException if the transport is not available
+     */
+    long getFirstSequence() throws CmsClusterException;
+
+    /**
+     * Returns the sequence number of the latest event in the transport.<p>
+     * 
+     * @return the sequence number of the latest event, or <code>0</code> if no event has ever been sent
+     * 
+     * @throws CmsClusterException if the transport is not available
+     */
+    long getLastSequence() throws CmsClusterException;
+
+    /**
+     * Initializes the transport.<p>
+     * 
+     * @param nodeId the id of the local node
+     * @param parameters the configuration parameters of the transport
+     * 
+     * @throws CmsClusterException if the transport can not be initialized
+     */
+    void initialize(String nodeId, Map<String, String> parameters) throws CmsClusterException;
+
+    /**
+     * Reads the events following the given sequence number, in order of their sequence numbers.<p>
+     * 
+     * The result includes the events sent by the local node.<p>
+     * 
+     * @param lastSequence the sequence number of the last event already processed
+     * @param maxEvents the maximum number of events to return
+     * 
+     * @return the events following the given sequence number
+     * 
+     * @throws CmsClusterException if the transport is not available
+     */
+    List<CmsClusterEvent> receive(long lastSequence, int maxEvents) throws CmsClusterException;
+
+    /**
+     * Appends the given events to the transport.<p>
+     * 
+     * When this method returns normally all events have been stored durably, 
+     * if an exception is thrown the caller has to send the events again.<p>
+     * 
+     * @param events the events to send
+     * 
+     * @throws CmsClusterException if the transport is not available
+     */
+    void send(List<CmsClusterEvent> events) throws CmsClusterException;
+
+    /**
+     * Shuts down the transport and releases all resources.<p>
+     */
+    void shutDown();
+}
@@ -37,6 +37,7 @@ import org.opencms.repository.CmsRepositoryFilter;
 import org.opencms.repository.CmsRepositoryManager;
 import org.opencms.repository.I_CmsRepository;
 import org.opencms.security.I_CmsPrincipal;
+import org.opencms.staticexport.CmsStaticExportCompression;
 import org.opencms.staticexport.CmsStaticExportExportRule;
 import org.opencms.staticexport.CmsStaticExportManager;
 import org.opencms.staticexport.CmsStaticExportRfsRule;
@@ -45,6 +46,7 @@ import org.opencms.util.CmsStringUtil;
 import java.io.File;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.apache.commons.digester.Digester;
@@ -58,6 +60,9 @@ import org.dom4j.Element;
  */
 public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
 
+    /** The name of the minimum size attribute. */
+    public static final String A_MINSIZE = "minsize";
+
     /** The name of the DTD for this configuration. */
     public static final String CONFIGURATION_DTD_NAME = "opencms-importexport.dtd";
 
@@ -190,6 +195,9 @@ public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
     /**  The node name of the static export acceptlanguage node. */
     public static final String N_STATICEXPORT_ACCEPTLANGUAGE = "acceptlanguage";
 
+    /**  The node name of the static export compression node. */
+    public static final String N_STATICEXPORT_COMPRESSION = "compression";
+
     /**  The node name of the static export default node. */
     public static final String N_STATICEXPORT_DEFAULT = "defaultpropertyvalue";
 
@@ -229,6 +237,12 @@ public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
     /**  The node name of the static export header node. */
     public static final String N_STATICEXPORT_HEADER = "header";
 
+    /**  The node name of the static export compression mimetype node. */
+    public static final String N_STATICEXPORT_MIMETYPE = "mimetype";
+
+    /**  The node name of the static export compression minsize node. */
+    public static final String N_STATICEXPORT_MINSIZE = "minsize";
+
     /**  The node name of the static export export-rule modified node. */
     public static final String N_STATICEXPORT_MODIFIED = "modified-resources";
 
@@ -253,6 +267,9 @@ public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
     /**  The node name of the static export rendersettings node. */
     public static final String N_STATICEXPORT_RENDERSETTINGS = "rendersettings";
 
+    /**  The node name of the static export renderthreads node. */
+    public static final String N_STATICEXPORT_RENDERTHREADS = "renderthreads";
+
     /**  The node name of the static export requestheaders node. */
     public static final String N_STATICEXPORT_REQUESTHEADERS = "requestheaders";
 
@@ -433,6 +450,16 @@ public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
             "*/" + N_STATICEXPORT + "/" + N_STATICEXPORT_EXPORTHEADERS + "/" + N_STATICEXPORT_HEADER,
             "setExportHeader",
             0);
+        // compression rules
+        String compressionPath = "*/" + N_STATICEXPORT + "/" + N_STATICEXPORT_COMPRESSION;
+        digester.addObjectCreate(compressionPath, CmsStaticExportCompression.class);
+        digester.addSetNext(compressionPath, "setCompression");
+        digester.addCallMethod(compressionPath, "setEnabled", 1);
+        digester.addCallParam(compressionPath, 0, A_ENABLED);
+        digester.addCallMethod(compressionPath + "/" + N_STATICEXPORT_MINSIZE, "setMinSize", 0);
+        digester.addCallMethod(compressionPath + "/" + N_STATICEXPORT_MIMETYPE, "addMimeType", 2);
+        digester.addCallParam(compressionPath + "/" + N_STATICEXPORT_MIMETYPE, 0);
+        digester.addCallParam(compressionPath + "/" + N_STATICEXPORT_MIMETYPE, 1, A_MINSIZE);
         // accept-language rule
         digester.addCallMethod("*/"
             + N_STATICEXPORT
@@ -482,6 +509,13 @@ public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
             + N_STATICEXPORT_RENDERSETTINGS
             + "/"
             + N_STATICEXPORT_EXPORTURL, "setExportUrl", 0);
+        // render threads rule
+        digester.addCallMethod("*/"
+            + N_STATICEXPORT
+            + "/"
+            + N_STATICEXPORT_RENDERSETTINGS
+            + "/"
+            + N_STATICEXPORT_RENDERTHREADS, "setRenderThreads", 0);
         // plain export optimization rule
         digester.addCallMethod("*/"
             + N_STATICEXPORT
@@ -815,6 +849,25 @@ public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
                 exportheadersElement.addElement(N_STATICEXPORT_HEADER).addText(header);
             }
         }
+        // <compression> node and its <minsize> and <mimetype> sub nodes
+        CmsStaticExportCompression compression = m_staticExportManager.getCompression();
+        if (compression.isEnabled() || !compression.getMimeTypes().isEmpty()) {
+            Element compressionElement = staticexportElement.addElement(N_STATICEXPORT_COMPRESSION);
+            compressionElement.addAttribute(A_ENABLED, String.valueOf(compression.isEnabled()));
+            if (compression.getMinSize() != CmsStaticExportCompression.DEFAULT_MIN_SIZE) {
+                compressionElement.addElement(N_STATICEXPORT_MINSIZE).addText(String.valueOf(compression.getMinSize()));
+            }
+            Iterator<Map.Entry<String, Integer>> mimeTypes = compression.getMimeTypes().entrySet().iterator();
+            while (mimeTypes.hasNext()) {
+                Map.Entry<String, Integer> mimeType = mimeTypes.next();
+                Element mimeTypeElement = compressionElement.addElement(N_STATICEXPORT_MIMETYPE).addText(
+                    mimeType.getKey());
+                if (mimeType.getValue() != null) {
+                    mimeTypeElement.addAttribute(A_MINSIZE, String.valueOf(mimeType.getValue()));
+                }
+            }
+        }
+
         // <requestheaders> node and the <acceptlanguage> and <acceptcharset> node
         String acceptlanguage = m_staticExportManager.getAcceptLanguageHeader();
         String acceptcharset = m_staticExportManager.getAcceptCharsetHeader();
@@ -850,6 +903,12 @@ public class CmsImportExportConfiguration extends A_CmsXmlConfiguration {
         rendersettingsElement.addElement(N_STATICEXPORT_EXPORTURL).addText(
             m_staticExportManager.getExportUrlForConfiguration());
 
+        // <renderthreads> node
+        if (m_staticExportManager.getRenderThreads() > 0) {
+            rendersettingsElement.addElement(N_STATICEXPORT_RENDERTHREADS).addText(
+                String.valueOf(m_staticExportManager.getRenderThreads()));
+        }
+
         // <plainoptimization> node
         rendersettingsElement.addElement(N_STATICEXPORT_PLAINOPTIMIZATION).addText(
             m_staticExportManager.getPlainExportOptimization());
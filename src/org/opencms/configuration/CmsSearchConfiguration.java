@@ -170,6 +170,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
     /** Node name constant. */
     public static final String N_MAPPING = "mapping";
 
+    /** Node name constant. */
+    public static final String N_MAX_EXTRACTED_CHARS = "maxExtractedChars";
+
     /** Node name constant. */
     public static final String N_MAX_MODIFICATIONS_BEFORE_COMMIT = "maxModificationsBeforeCommit";
 
@@ -261,6 +264,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
             "setMaxModificationsBeforeCommit",
             0);
 
+        // rule for the max. number of characters extracted from a document
+        digester.addCallMethod(XPATH_SEARCH + "/" + N_MAX_EXTRACTED_CHARS, "setMaxExtractedChars", 0);
+
         // rule for the highlighter to highlight the search terms in the excerpt of the search result
         digester.addCallMethod(XPATH_SEARCH + "/" + N_HIGHLIGHTER, "setHighlighter", 0);
 
@@ -413,6 +419,9 @@ public class CmsSearchConfiguration extends A_CmsXmlConfiguration {
         // add <maxModificationsBeforeCommit> element
         searchElement.addElement(N_MAX_MODIFICATIONS_BEFORE_COMMIT).addText(
             String.valueOf(m_searchManager.getMaxModificationsBeforeCommit()));
+        // add <maxExtractedChars> element
+        searchElement.addElement(N_MAX_EXTRACTED_CHARS).addText(
+            String.valueOf(m_searchManager.getMaxExtractedChars()));
         // add <highlighter> element
         searchElement.addElement(N_HIGHLIGHTER).addText(m_searchManager.getHighlighter().getClass().getName());
 
@@ -0,0 +1,600 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsVfsResourceNotFoundException;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsPermissionSetCustom;
+import org.opencms.util.CmsCollectionsGenericWrapper;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * In-memory index of the effective access control entries of the VFS folder tree.<p>
+ * 
+ * For every folder that has been requested once, the index keeps the merged permissions of all
+ * access control entries that apply to the folder and its direct files (including the entries 
+ * inherited from the parent folders), and the merged permissions inherited by its sub folders.
+ * The permissions are stored as a map from principal id to a packed allowed/denied bit mask.
+ * Folders without own access control entries share the maps of their parent folder, so the memory
+ * consumption only grows with the number of folders that actually define access control entries.<p>
+ * 
+ * The entries defined directly on files are kept in a bounded LRU map keyed by resource id, 
+ * since files are far more numerous than folders.<p>
+ * 
+ * Once a folder and a file are known to the index, a permission check requires only a few hash lookups
+ * and no database access. The index is kept up to date by the driver manager, which invalidates
+ * the affected sub trees whenever access control entries are written or resources are created, moved, 
+ * deleted or published.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsAccessControlIndex {
+
+    /**
+     * The effective permissions of a single folder.<p>
+     */
+    protected static final class CmsAccessControlNode {
+
+        /** The permissions that apply to the folder itself and its direct files. */
+        final Map<CmsUUID, Long> m_effective;
+
+        /** The permissions that are inherited by the sub folders. */
+        final Map<CmsUUID, Long> m_inherited;
+
+        /** The resource id of the folder. */
+        final CmsUUID m_resourceId;
+
+        /**
+         * Creates a new node.<p>
+         * 
+         * @param resourceId the resource id of the folder
+         * @param effective the permissions that apply to the folder itself and its direct files
+         * @param inherited the permissions that are inherited by the sub folders
+         */
+        CmsAccessControlNode(CmsUUID resourceId, Map<CmsUUID, Long> effective, Map<CmsUUID, Long> inherited) {
+
+            m_resourceId = resourceId;
+            m_effective = effective;
+            m_inherited = inherited;
+        }
+    }
+
+    /**
+     * The access control entries defined directly on a file, in evaluation order.<p>
+     */
+    protected static final class CmsAccessControlEntries {
+
+        /** The allowed permissions of the entries. */
+        final int[] m_allowed;
+
+        /** The denied permissions of the entries. */
+        final int[] m_denied;
+
+        /** The 'overwrite' flags of the entries. */
+        final boolean[] m_overwrite;
+
+        /** Flag to indicate that the entries contain an 'overwrite all' entry. */
+        final boolean m_overwriteAll;
+
+        /** The principal ids of the entries. */
+        final CmsUUID[] m_principals;
+
+        /**
+         * Creates a new entry list from a sorted list of access control entries.<p>
+         * 
+         * @param aces the sorted access control entries
+         * @param overwriteAll <code>true</code> if the list contains an 'overwrite all' entry
+         */
+        CmsAccessControlEntries(List<CmsAccessControlEntry> aces, boolean overwriteAll) {
+
+            int size = aces.size();
+            m_principals = new CmsUUID[size];
+            m_allowed = new int[size];
+            m_denied = new int[size];
+            m_overwrite = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                CmsAccessControlEntry ace = aces.get(i);
+                m_principals[i] = ace.getPrincipal();
+                m_allowed[i] = ace.getAllowedPermissions();
+                m_denied[i] = ace.getDeniedPermissions();
+                m_overwrite[i] = (ace.getFlags() & CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE) > 0;
+            }
+            m_overwriteAll = overwriteAll;
+        }
+
+        /**
+         * Checks if this entry list is empty.<p>
+         * 
+         * @return <code>true</code> if this entry list is empty
+         */
+        boolean isEmpty() {
+
+            return m_principals.length == 0;
+        }
+    }
+
+    /** The entries of a resource without own access control entries. */
+    protected static final CmsAccessControlEntries NO_ENTRIES = new CmsAccessControlEntries(
+        Collections.<CmsAccessControlEntry> emptyList(),
+        false);
+
+    /** The logger instance for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsAccessControlIndex.class);
+
+    /** The driver manager used to read the access control entries. */
+    private CmsDriverManager m_driverManager;
+
+    /** Counter which is incremented on every invalidation, used to avoid caching outdated nodes. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /** The entries of offline files, by resource id. */
+    private Map<CmsUUID, CmsAccessControlEntries> m_offlineFiles;
+
+    /** The offline folder nodes, by root path. */
+    private ConcurrentMap<String, CmsAccessControlNode> m_offlineFolders;
+
+    /** The entries of online files, by resource id. */
+    private Map<CmsUUID, CmsAccessControlEntries> m_onlineFiles;
+
+    /** The online folder nodes, by root path. */
+    private ConcurrentMap<String, CmsAccessControlNode> m_onlineFolders;
+
+    /**
+     * Creates a new access control index.<p>
+     * 
+     * @param driverManager the driver manager used to read the access control entries
+     * @param fileCacheSize the maximum number of files kept per project type (online or offline)
+     */
+    public CmsAccessControlIndex(CmsDriverManager driverManager, int fileCacheSize) {
+
+        m_driverManager = driverManager;
+        Map<CmsUUID, CmsAccessControlEntries> lruOnline = CmsCollectionsGenericWrapper.createLRUMap(fileCacheSize);
+        m_onlineFiles = Collections.synchronizedMap(lruOnline);
+        Map<CmsUUID, CmsAccessControlEntries> lruOffline = CmsCollectionsGenericWrapper.createLRUMap(fileCacheSize);
+        m_offlineFiles = Collections.synchronizedMap(lruOffline);
+        m_onlineFolders = new ConcurrentHashMap<String, CmsAccessControlNode>();
+        m_offlineFolders = new ConcurrentHashMap<String, CmsAccessControlNode>();
+    }
+
+    /**
+     * Applies the given sorted access control entries to the given base permissions.<p>
+     * 
+     * This implements the same merge rules as the access control list calculation of the driver manager.
+     * If no entries are given, the base map itself is returned.<p>
+     * 
+     * @param base the base permissions, usually inherited from the parent folder
+     * @param aces the sorted access control entries to apply
+     * @param overwriteAll <code>true</code> if the base permissions should be ignored
+     * 
+     * @return the resulting permissions (an unmodifiable map) 
+     */
+    protected static Map<CmsUUID, Long> apply(
+        Map<CmsUUID, Long> base,
+        List<CmsAccessControlEntry> aces,
+        boolean overwriteAll) {
+
+        if (aces.isEmpty()) {
+            return overwriteAll ? Collections.<CmsUUID, Long> emptyMap() : base;
+        }
+        Map<CmsUUID, Long> result = overwriteAll
+        ? new HashMap<CmsUUID, Long>()
+        : new HashMap<CmsUUID, Long>(base);
+        for (CmsAccessControlEntry ace : aces) {
+            Long value = result.get(ace.getPrincipal());
+            result.put(
+                ace.getPrincipal(),
+                Long.valueOf(merge(
+                    value,
+                    ace.getAllowedPermissions(),
+                    ace.getDeniedPermissions(),
+                    (ace.getFlags() & CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE) > 0)));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Returns the allowed permissions of a packed permission value.<p>
+     * 
+     * @param value the packed permission value
+     * 
+     * @return the allowed permissions
+     */
+    protected static int getAllowed(long value) {
+
+        return (int)(value >>> 32);
+    }
+
+    /**
+     * Returns the denied permissions of a packed permission value.<p>
+     * 
+     * @param value the packed permission value
+     * 
+     * @return the denied permissions
+     */
+    protected static int getDenied(long value) {
+
+        return (int)value;
+    }
+
+    /**
+     * Checks if the given access control entries contain an 'overwrite all' entry, and sorts them in evaluation order.<p>
+     * 
+     * @param aces the access control entries
+     * 
+     * @return <code>true</code> if an 'overwrite all' entry was found
+     */
+    protected static boolean sortAces(List<CmsAccessControlEntry> aces) {
+
+        Collections.sort(aces, CmsAccessControlEntry.COMPARATOR_ACE);
+        // after sorting just the first 2 positions come in question
+        for (int i = 0; i < Math.min(aces.size(), 2); i++) {
+            if (aces.get(i).getPrincipal().equals(CmsAccessControlEntry.PRINCIPAL_OVERWRITE_ALL_ID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges a single access control entry into a packed permission value.<p>
+     * 
+     * @param value the current packed value, or <code>null</code> 
+     * @param allowed the allowed permissions of the entry
+     * @param denied the denied permissions of the entry
+     * @param overwrite if the allowed permissions should replace the current allowed permissions
+     * 
+     * @return the new packed permission value
+     */
+    private static long merge(Long value, int allowed, int denied, boolean overwrite) {
+
+        int currentAllowed = 0;
+        int currentDenied = 0;
+        if (value != null) {
+            currentAllowed = getAllowed(value.longValue());
+            currentDenied = getDenied(value.longValue());
+        }
+        int newAllowed = overwrite ? allowed : currentAllowed | allowed;
+        return pack(newAllowed, currentDenied | denied);
+    }
+
+    /**
+     * Packs allowed and denied permissions into a single value.<p>
+     * 
+     * @param allowed the allowed permissions
+     * @param denied the denied permissions
+     * 
+     * @return the packed value
+     */
+    private static long pack(int allowed, int denied) {
+
+        return (((long)allowed) << 32) | (denied & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Removes all entries from the index.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        m_onlineFolders.clear();
+        m_onlineFiles.clear();
+        m_offlineFolders.clear();
+        m_offlineFiles.clear();
+    }
+
+    /**
+     * Removes all entries of either the online or the offline project from the index.<p>
+     * 
+     * @param online <code>true</code> for the online project, <code>false</code> for the offline projects
+     */
+    public void clear(boolean online) {
+
+        m_generation.incrementAndGet();
+        getFolders(online).clear();
+        getFiles(online).clear();
+    }
+
+    /**
+     * Calculates the permissions of the given principals on the given resource.<p>
+     * 
+     * The principals are evaluated like in {@link org.opencms.security.CmsAccessControlList#getPermissions(org.opencms.file.CmsUser, List, List)},
+     * i.e. if none of the principals has an entry, the 'all others' entry is used.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the resource
+     * @param principals the ids of the user, the groups and the roles to check
+     * 
+     * @return the summarized permission set of the principals
+     * 
+     * @throws CmsException if something goes wrong reading uncached access control entries
+     */
+    public CmsPermissionSetCustom getPermissions(CmsDbContext dbc, CmsResource resource, List<CmsUUID> principals)
+    throws CmsException {
+
+        boolean online = dbc.currentProject().isOnlineProject();
+        Map<CmsUUID, Long> base;
+        CmsAccessControlEntries own;
+        if (resource.isFolder()) {
+            base = getNode(dbc, online, resource.getRootPath(), resource.getResourceId()).m_effective;
+            own = NO_ENTRIES;
+        } else {
+            String parentPath = CmsResource.getParentFolder(resource.getRootPath());
+            base = (parentPath == null)
+            ? Collections.<CmsUUID, Long> emptyMap()
+            : getNode(dbc, online, parentPath, null).m_effective;
+            own = getFileEntries(dbc, online, resource.getResourceId());
+        }
+
+        int allowed = 0;
+        int denied = 0;
+        boolean hasPermissions = false;
+        for (int i = 0, size = principals.size(); i < size; i++) {
+            Long value = resolve(base, own, principals.get(i));
+            if (value != null) {
+                allowed |= getAllowed(value.longValue());
+                denied |= getDenied(value.longValue());
+                hasPermissions = true;
+            }
+        }
+        if (!hasPermissions) {
+            // if no applicable entry is found check the 'all others' entry
+            Long value = resolve(base, own, CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID);
+            if (value != null) {
+                allowed |= getAllowed(value.longValue());
+                denied |= getDenied(value.longValue());
+            }
+        }
+        return new CmsPermissionSetCustom(allowed, denied);
+    }
+
+    /**
+     * Returns the number of folders currently kept in the index.<p>
+     * 
+     * @param online <code>true</code> for the online project, <code>false</code> for the offline projects
+     * 
+     * @return the number of indexed folders
+     */
+    public int getSize(boolean online) {
+
+        return getFolders(online).size();
+    }
+
+    /**
+     * Removes the given resource, and all resources below it in case of a folder, from the index.<p>
+     * 
+     * @param online <code>true</code> for the online project, <code>false</code> for the offline projects
+     * @param resource the resource that has changed
+     */
+    public void invalidate(boolean online, CmsResource resource) {
+
+        invalidate(online, resource.getRootPath(), resource.getResourceId(), resource.isFolder());
+    }
+
+    /**
+     * Removes the given resource, and all resources below it in case of a folder, from the index.<p>
+     * 
+     * @param online <code>true</code> for the online project, <code>false</code> for the offline projects
+     * @param rootPath the root path of the resource
+     * @param resourceId the resource id of the resource
+     * @param isFolder <code>true</code> if the resource is a folder
+     */
+    public void invalidate(boolean online, String rootPath, CmsUUID resourceId, boolean isFolder) {
+
+        m_generation.incrementAndGet();
+        getFiles(online).remove(resourceId);
+        if (!isFolder) {
+            return;
+        }
+        String folderPath = CmsResource.isFolder(rootPath) ? rootPath : rootPath + "/";
+        Iterator<String> it = getFolders(online).keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().startsWith(folderPath)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Reads the entries defined directly on a file, using the index if possible.<p>
+     * 
+     * @param dbc the current database context
+     * @param online <code>true</code> for the online project
+     * @param resourceId the resource id of the file
+     * 
+     * @return the entries of the file
+     * 
+     * @throws CmsException if something goes wrong 
+     */
+    private CmsAccessControlEntries getFileEntries(CmsDbContext dbc, boolean online, CmsUUID resourceId)
+    throws CmsException {
+
+        Map<CmsUUID, CmsAccessControlEntries> files = getFiles(online);
+        CmsAccessControlEntries entries = files.get(resourceId);
+        if (entries != null) {
+            return entries;
+        }
+        long generation = m_generation.get();
+        List<CmsAccessControlEntry> aces = m_driverManager.getUserDriver(dbc).readAccessControlEntries(
+            dbc,
+            dbc.currentProject(),
+            resourceId,
+            false);
+        if (aces.isEmpty()) {
+            entries = NO_ENTRIES;
+        } else {
+            boolean overwriteAll = sortAces(aces);
+            entries = new CmsAccessControlEntries(aces, overwriteAll);
+        }
+        if (generation == m_generation.get()) {
+            files.put(resourceId, entries);
+            if (generation != m_generation.get()) {
+                // an invalidation may have run between the check and the put, so the entries may be outdated
+                synchronized (files) {
+                    if (files.get(resourceId) == entries) {
+                        files.remove(resourceId);
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the file entry map for either the online or the offline project.<p>
+     * 
+     * @param online <code>true</code> for the online project
+     * 
+     * @return the file entry map
+     */
+    private Map<CmsUUID, CmsAccessControlEntries> getFiles(boolean online) {
+
+        return online ? m_onlineFiles : m_offlineFiles;
+    }
+
+    /**
+     * Returns the folder node map for either the online or the offline project.<p>
+     * 
+     * @param online <code>true</code> for the online project
+     * 
+     * @return the folder node map
+     */
+    private ConcurrentMap<String, CmsAccessControlNode> getFolders(boolean online) {
+
+        return online ? m_onlineFolders : m_offlineFolders;
+    }
+
+    /**
+     * Returns the node for the given folder, building it (and the nodes of the parent folders) if required.<p>
+     * 
+     * @param dbc the current database context
+     * @param online <code>true</code> for the online project
+     * @param folderPath the root path of the folder
+     * @param resourceId the resource id of the folder, or <code>null</code> if it has to be read
+     * 
+     * @return the node for the folder
+     * 
+     * @throws CmsException if something goes wrong 
+     */
+    private CmsAccessControlNode getNode(CmsDbContext dbc, boolean online, String folderPath, CmsUUID resourceId)
+    throws CmsException {
+
+        if (!CmsResource.isFolder(folderPath)) {
+            folderPath += "/";
+        }
+        ConcurrentMap<String, CmsAccessControlNode> folders = getFolders(online);
+        CmsAccessControlNode node = folders.get(folderPath);
+        if ((node != null) && ((resourceId == null) || resourceId.equals(node.m_resourceId))) {
+            return node;
+        }
+
+        // build the node, collect the missing parent nodes first
+        long generation = m_generation.get();
+        String parentPath = CmsResource.getParentFolder(folderPath);
+        Map<CmsUUID, Long> parentInherited = (parentPath == null)
+        ? Collections.<CmsUUID, Long> emptyMap()
+        : getNode(dbc, online, parentPath, null).m_inherited;
+
+        if (resourceId == null) {
+            CmsResource folder;
+            try {
+                folder = m_driverManager.getVfsDriver(dbc).readFolder(dbc, dbc.currentProject().getUuid(), folderPath);
+            } catch (CmsVfsResourceNotFoundException e) {
+                // should never happen, treat as a folder without entries
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(e.getLocalizedMessage(), e);
+                }
+                return new CmsAccessControlNode(CmsUUID.getNullUUID(), parentInherited, parentInherited);
+            }
+            resourceId = folder.getResourceId();
+        }
+
+        List<CmsAccessControlEntry> aces = m_driverManager.getUserDriver(dbc).readAccessControlEntries(
+            dbc,
+            dbc.currentProject(),
+            resourceId,
+            false);
+        List<CmsAccessControlEntry> inheritedAces = new ArrayList<CmsAccessControlEntry>(aces.size());
+        for (CmsAccessControlEntry ace : aces) {
+            if (ace.isInheriting()) {
+                inheritedAces.add(ace);
+            }
+        }
+        boolean overwriteAll = sortAces(aces);
+        boolean overwriteAllInherited = sortAces(inheritedAces);
+        node = new CmsAccessControlNode(
+            resourceId,
+            apply(parentInherited, aces, overwriteAll),
+            apply(parentInherited, inheritedAces, overwriteAllInherited));
+        if (generation == m_generation.get()) {
+            folders.put(folderPath, node);
+            if (generation != m_generation.get()) {
+                // an invalidation may have run between the check and the put, so the node may be outdated
+                folders.remove(folderPath, node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Resolves the packed permissions of a single principal.<p>
+     * 
+     * @param base the permissions inherited from the parent folder
+     * @param own the entries defined directly on the resource
+     * @param principal the principal id
+     * 
+     * @return the packed permissions, or <code>null</code> if the principal has no entry
+     */
+    private Long resolve(Map<CmsUUID, Long> base, CmsAccessControlEntries own, CmsUUID principal) {
+
+        if (own.isEmpty()) {
+            return base.get(principal);
+        }
+        Long value = own.m_overwriteAll ? null : base.get(principal);
+        for (int i = 0; i < own.m_principals.length; i++) {
+            if (own.m_principals[i].equals(principal)) {
+                value = Long.valueOf(merge(value, own.m_allowed[i], own.m_denied[i], own.m_overwrite[i]));
+            }
+        }
+        return value;
+    }
+}
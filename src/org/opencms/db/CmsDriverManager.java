@@ -319,6 +319,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** Constant mode parameter to read all files and folders in the {@link #readChangedResourcesInsideProject(CmsDbContext, CmsUUID, CmsReadChangedProjectResourceMode)}} method. */
     private static final CmsReadChangedProjectResourceMode RCPRM_FOLDERS_ONLY_MODE = new CmsReadChangedProjectResourceMode();
 
+    /** The index of the effective access control entries. */
+    private CmsAccessControlIndex m_accessControlIndex;
+
     /** The list of initialized JDBC pools. */
     private List<PoolingDriver> m_connectionPools;
 
@@ -343,6 +346,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** The project driver. */
     private I_CmsProjectDriver m_projectDriver;
 
+    /** The in-memory graph of the principals and their memberships. */
+    private CmsPrincipalGraph m_principalGraph;
+
     /** The the configuration read from the <code>opencms.properties</code> file. */
     private CmsParameterConfiguration m_propertyConfiguration;
 
@@ -364,6 +370,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** The user driver. */
     private I_CmsUserDriver m_userDriver;
 
+    /** The cache of the additional user infos. */
+    private CmsUserInfoCache m_userInfoCache;
+
+    /** The index used to search, count, sort and page users. */
+    private CmsUserSearchIndex m_userSearchIndex;
+
     /** The VFS driver. */
     private I_CmsVfsDriver m_vfsDriver;
 
@@ -528,6 +540,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
             I_CmsEventListener.EVENT_CLEAR_CACHES,
             I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES,
             I_CmsEventListener.EVENT_USER_MODIFIED,
+            I_CmsEventListener.EVENT_GROUP_MODIFIED,
+            I_CmsEventListener.EVENT_OU_MODIFIED,
             I_CmsEventListener.EVENT_PUBLISH_PROJECT});
 
         // return the configured driver manager
@@ -698,6 +712,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         //add this user to the group
         getUserDriver(dbc).createUserInGroup(dbc, user.getId(), group.getId());
+        if (m_principalGraph != null) {
+            m_principalGraph.addMembership(user.getId(), group);
+        }
 
         // flush the cache
         if (readRoles) {
@@ -975,18 +992,47 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
             case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
                 CmsUUID publishHistoryId = new CmsUUID((String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID));
+                m_monitor.clearCache();
+                if (event.isClusterEvent()) {
+                    // the export points have been written by the publishing node, only update the local caches
+                    dbc = new CmsDbContext();
+                    try {
+                        updateAccessControlIndex(dbc, publishHistoryId);
+                    } finally {
+                        dbc.clear();
+                    }
+                    break;
+                }
                 report = (I_CmsReport)event.getData().get(I_CmsEventListener.KEY_REPORT);
                 dbc = (CmsDbContext)event.getData().get(I_CmsEventListener.KEY_DBCONTEXT);
-                m_monitor.clearCache();
+                updateAccessControlIndex(dbc, publishHistoryId);
                 writeExportPoints(dbc, report, publishHistoryId);
                 break;
 
             case I_CmsEventListener.EVENT_CLEAR_CACHES:
                 m_monitor.clearCache();
+                if (m_accessControlIndex != null) {
+                    m_accessControlIndex.clear();
+                }
+                if (m_principalGraph != null) {
+                    m_principalGraph.clear();
+                }
+                if (m_userInfoCache != null) {
+                    m_userInfoCache.clear();
+                }
+                if (m_userSearchIndex != null) {
+                    m_userSearchIndex.clear();
+                }
                 break;
             case I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES:
             case I_CmsEventListener.EVENT_USER_MODIFIED:
                 m_monitor.clearPrincipalsCache();
+                updatePrincipalGraph(event);
+                updateUserSearchIndex(event);
+                break;
+            case I_CmsEventListener.EVENT_GROUP_MODIFIED:
+            case I_CmsEventListener.EVENT_OU_MODIFIED:
+                updatePrincipalGraph(event);
                 break;
             default:
                 // noop
@@ -1048,6 +1094,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // clear the cache
         m_monitor.clearAccessControlListCache();
+        invalidateAccessControlIndex(dbc, destination);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -1327,6 +1374,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // put it into the cache
         m_monitor.cacheGroup(group);
+        if (m_principalGraph != null) {
+            m_principalGraph.updateGroup(group);
+        }
 
         if (!dbc.getProjectId().isNullUUID()) {
             // group modified event is not needed
@@ -1397,6 +1447,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // flush relevant caches
         m_monitor.clearPrincipalsCache();
+        if (m_principalGraph != null) {
+            m_principalGraph.clearOrganizationalUnits();
+        }
+        if (m_accessControlIndex != null) {
+            m_accessControlIndex.clear();
+        }
         m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
 
         // create a publish list for the 'virtual' publish event
@@ -1890,6 +1946,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         } finally {
             // clear the internal caches
             m_monitor.clearAccessControlListCache();
+            invalidateAccessControlIndex(dbc, newResource != null ? newResource : resource);
             m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
 
             if (newResource != null) {
@@ -2336,6 +2393,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // clear the relevant caches
         m_monitor.uncacheGroup(group);
+        if (m_principalGraph != null) {
+            m_principalGraph.removeGroup(group);
+        }
         m_monitor.flushCache(
             CmsMemoryMonitor.CacheType.USERGROUPS,
             CmsMemoryMonitor.CacheType.USER_LIST,
@@ -2373,59 +2433,53 @@ public final class CmsDriverManager implements I_CmsEventListener {
         long timeDeleted,
         I_CmsReport report) throws CmsException {
 
-        report.println(Messages.get().container(Messages.RPT_START_DELETE_VERSIONS_0), I_CmsReport.FORMAT_HEADLINE);
-        if (versionsToKeep >= 0) {
-            report.println(
-                Messages.get().container(Messages.RPT_START_DELETE_ACT_VERSIONS_1, new Integer(versionsToKeep)),
-                I_CmsReport.FORMAT_HEADLINE);
-
-            List<I_CmsHistoryResource> resources = getHistoryDriver(dbc).getAllNotDeletedEntries(dbc);
-            if (resources.isEmpty()) {
-                report.println(Messages.get().container(Messages.RPT_DELETE_NOTHING_0), I_CmsReport.FORMAT_OK);
-            }
-            int n = resources.size();
-            int m = 1;
-            Iterator<I_CmsHistoryResource> itResources = resources.iterator();
-            while (itResources.hasNext()) {
-                I_CmsHistoryResource histResource = itResources.next();
-
-                report.print(
-                    org.opencms.report.Messages.get().container(
-                        org.opencms.report.Messages.RPT_SUCCESSION_2,
-                        String.valueOf(m),
-                        String.valueOf(n)),
-                    I_CmsReport.FORMAT_NOTE);
-                report.print(org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    dbc.removeSiteRoot(histResource.getRootPath())));
-                report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+        deleteHistoricalVersions(dbc, versionsToKeep, versionsDeleted, timeDeleted, new CmsHistoryClearCursor(), report);
+    }
 
-                try {
-                    int deleted = getHistoryDriver(dbc).deleteEntries(dbc, histResource, versionsToKeep, -1);
+    /**
+     * Deletes the versions from the history tables, keeping the given number of versions per resource.<p>
+     *
+     * The historical entries are read and processed in chunks, as configured by the given cursor. 
+     * If the cursor limits the number of entries per run, processing stops when the limit is reached, 
+     * and calling this method again with the same cursor resumes at the next entry.<p>
+     *
+     * @param dbc the current database context
+     * @param versionsToKeep number of versions to keep, is ignored if negative
+     * @param versionsDeleted number of versions to keep for deleted resources, is ignored if negative
+     * @param timeDeleted deleted resources older than this will also be deleted, is ignored if negative
+     * @param cursor the cursor controlling the chunks and keeping the progress
+     * @param report the report for output logging
+     *
+     * @throws CmsException if operation was not successful
+     */
+    public void deleteHistoricalVersions(
+        CmsDbContext dbc,
+        int versionsToKeep,
+        int versionsDeleted,
+        long timeDeleted,
+        CmsHistoryClearCursor cursor,
+        I_CmsReport report) throws CmsException {
 
-                    report.print(
-                        Messages.get().container(Messages.RPT_VERSION_DELETING_1, new Integer(deleted)),
-                        I_CmsReport.FORMAT_NOTE);
-                    report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-                    report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                        I_CmsReport.FORMAT_OK);
-                } catch (CmsDataAccessException e) {
+        cursor.startRun();
+        report.println(Messages.get().container(Messages.RPT_START_DELETE_VERSIONS_0), I_CmsReport.FORMAT_HEADLINE);
+        if (!cursor.isExistingDone()) {
+            if (versionsToKeep >= 0) {
+                report.println(
+                    Messages.get().container(Messages.RPT_START_DELETE_ACT_VERSIONS_1, new Integer(versionsToKeep)),
+                    I_CmsReport.FORMAT_HEADLINE);
+                if (!deleteHistoricalEntries(dbc, false, versionsToKeep, -1, cursor, report)) {
                     report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ERROR_0),
-                        I_CmsReport.FORMAT_ERROR);
-
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug(e.getLocalizedMessage(), e);
-                    }
+                        Messages.get().container(
+                            Messages.RPT_DELETE_VERSIONS_SUSPENDED_1,
+                            new Integer(cursor.getProcessedTotal())),
+                        I_CmsReport.FORMAT_HEADLINE);
+                    return;
                 }
-
-                m++;
+                report.println(
+                    Messages.get().container(Messages.RPT_END_DELETE_ACT_VERSIONS_0),
+                    I_CmsReport.FORMAT_HEADLINE);
             }
-
-            report.println(
-                Messages.get().container(Messages.RPT_END_DELETE_ACT_VERSIONS_0),
-                I_CmsReport.FORMAT_HEADLINE);
+            cursor.setExistingDone();
         }
         if ((versionsDeleted >= 0) || (timeDeleted >= 0)) {
             if (timeDeleted >= 0) {
@@ -2440,53 +2494,19 @@ public final class CmsDriverManager implements I_CmsEventListener {
                     Messages.get().container(Messages.RPT_START_DELETE_DEL_VERSIONS_1, new Integer(versionsDeleted)),
                     I_CmsReport.FORMAT_HEADLINE);
             }
-            List<I_CmsHistoryResource> resources = getHistoryDriver(dbc).getAllDeletedEntries(dbc);
-            if (resources.isEmpty()) {
-                report.println(Messages.get().container(Messages.RPT_DELETE_NOTHING_0), I_CmsReport.FORMAT_OK);
-            }
-            int n = resources.size();
-            int m = 1;
-            Iterator<I_CmsHistoryResource> itResources = resources.iterator();
-            while (itResources.hasNext()) {
-                I_CmsHistoryResource histResource = itResources.next();
-
-                report.print(
-                    org.opencms.report.Messages.get().container(
-                        org.opencms.report.Messages.RPT_SUCCESSION_2,
-                        String.valueOf(m),
-                        String.valueOf(n)),
-                    I_CmsReport.FORMAT_NOTE);
-                report.print(org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    dbc.removeSiteRoot(histResource.getRootPath())));
-                report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-
-                try {
-                    int deleted = getHistoryDriver(dbc).deleteEntries(dbc, histResource, versionsDeleted, timeDeleted);
-
-                    report.print(
-                        Messages.get().container(Messages.RPT_VERSION_DELETING_1, new Integer(deleted)),
-                        I_CmsReport.FORMAT_NOTE);
-                    report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-                    report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                        I_CmsReport.FORMAT_OK);
-                } catch (CmsDataAccessException e) {
-                    report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ERROR_0),
-                        I_CmsReport.FORMAT_ERROR);
-
-                    if (LOG.isDebugEnabled()) {
-                        LOG.debug(e.getLocalizedMessage(), e);
-                    }
-                }
-
-                m++;
+            if (!deleteHistoricalEntries(dbc, true, versionsDeleted, timeDeleted, cursor, report)) {
+                report.println(
+                    Messages.get().container(
+                        Messages.RPT_DELETE_VERSIONS_SUSPENDED_1,
+                        new Integer(cursor.getProcessedTotal())),
+                    I_CmsReport.FORMAT_HEADLINE);
+                return;
             }
             report.println(
                 Messages.get().container(Messages.RPT_END_DELETE_DEL_VERSIONS_0),
                 I_CmsReport.FORMAT_HEADLINE);
         }
+        cursor.setFinished();
         report.println(Messages.get().container(Messages.RPT_END_DELETE_VERSIONS_0), I_CmsReport.FORMAT_HEADLINE);
     }
 
@@ -2590,6 +2610,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // remove the organizational unit itself
         getUserDriver(dbc).deleteOrganizationalUnit(dbc, organizationalUnit);
+        if (m_accessControlIndex != null) {
+            m_accessControlIndex.clear();
+        }
 
         // write the publish history entry
         getProjectDriver(dbc).writePublishHistory(
@@ -2599,6 +2622,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // flush relevant caches
         m_monitor.clearPrincipalsCache();
+        if (m_principalGraph != null) {
+            m_principalGraph.clearOrganizationalUnits();
+        }
         m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
 
         // fire the 'virtual' publish event
@@ -2736,6 +2762,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // unlock all resources in the project
         m_lockManager.removeResourcesInProject(deleteProject.getUuid(), true);
         m_monitor.clearAccessControlListCache();
+        if (m_accessControlIndex != null) {
+            m_accessControlIndex.clear(false);
+        }
         m_monitor.clearResourceCache();
 
         // set project to online project if current project is the one which will be deleted
@@ -3067,6 +3096,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // flush all caches
         m_monitor.clearAccessControlListCache();
+        invalidateAccessControlIndex(dbc, resource);
         m_monitor.flushCache(
             CmsMemoryMonitor.CacheType.PROPERTY,
             CmsMemoryMonitor.CacheType.PROPERTY_LIST,
@@ -3169,6 +3199,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
         getUserDriver(dbc).deleteUser(dbc, username);
         // delete user from cache
         m_monitor.clearUserCache(user);
+        if (m_principalGraph != null) {
+            m_principalGraph.removeUser(user.getId());
+        }
 
         if (!dbc.getProjectId().isNullUUID()) {
             // user modified event is not needed
@@ -3890,14 +3923,26 @@ public final class CmsDriverManager implements I_CmsEventListener {
         String cacheKey = m_keyGenerator.getCacheKeyForUserGroups(prefix, dbc, user);
         List<CmsGroup> groups = m_monitor.getCachedUserGroups(cacheKey);
         if (groups == null) {
+            // the principal graph is only used outside of transactions, like the cache
+            CmsPrincipalGraph graph = dbc.getProjectId().isNullUUID() ? m_principalGraph : null;
             // get all groups of the user
-            List<CmsGroup> directGroups = getUserDriver(dbc).readGroupsOfUser(
-                dbc,
-                user.getId(),
-                readRoles ? "" : ouFqn,
-                readRoles ? true : includeChildOus,
-                remoteAddress,
-                readRoles);
+            List<CmsGroup> directGroups;
+            if (graph != null) {
+                directGroups = graph.getGroupsOfUser(
+                    dbc,
+                    user.getId(),
+                    readRoles ? "" : ouFqn,
+                    readRoles ? true : includeChildOus,
+                    readRoles);
+            } else {
+                directGroups = getUserDriver(dbc).readGroupsOfUser(
+                    dbc,
+                    user.getId(),
+                    readRoles ? "" : ouFqn,
+                    readRoles ? true : includeChildOus,
+                    remoteAddress,
+                    readRoles);
+            }
             Set<CmsGroup> allGroups = new HashSet<CmsGroup>();
             if (!readRoles) {
                 allGroups.addAll(directGroups);
@@ -3906,13 +3951,15 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 if (!readRoles) {
                     // now get all parents of the groups
                     for (int i = 0; i < directGroups.size(); i++) {
-                        CmsGroup parent = getParent(dbc, directGroups.get(i).getName());
+                        CmsGroup parent = (graph != null)
+                        ? graph.getParent(dbc, directGroups.get(i))
+                        : getParent(dbc, directGroups.get(i).getName());
                         while ((parent != null) && (!allGroups.contains(parent))) {
                             if (parent.getOuFqn().startsWith(ouFqn)) {
                                 allGroups.add(parent);
                             }
                             // read next parent group
-                            parent = getParent(dbc, parent.getName());
+                            parent = (graph != null) ? graph.getParent(dbc, parent) : getParent(dbc, parent.getName());
                         }
                     }
                 }
@@ -3937,20 +3984,34 @@ public final class CmsDriverManager implements I_CmsEventListener {
                         CmsRole childRole = itChildRoles.next();
                         if (childRole.isSystemRole()) {
                             // include system roles only
-                            allGroups.add(readGroup(dbc, childRole.getGroupName()));
+                            String childName = childRole.getGroupName();
+                            allGroups.add((graph != null) ? graph.getGroup(dbc, childName) : readGroup(dbc, childName));
                         }
                     }
                     if (includeChildOus) {
                         // if needed include the roles of child ous
-                        Iterator<CmsOrganizationalUnit> itSubOus = getOrganizationalUnits(
-                            dbc,
-                            readOrganizationalUnit(dbc, group.getOuFqn()),
-                            true).iterator();
+                        List<String> subOus;
+                        if (graph != null) {
+                            subOus = graph.getSubOrganizationalUnits(dbc, group.getOuFqn());
+                        } else {
+                            subOus = new ArrayList<String>();
+                            Iterator<CmsOrganizationalUnit> itOus = getOrganizationalUnits(
+                                dbc,
+                                readOrganizationalUnit(dbc, group.getOuFqn()),
+                                true).iterator();
+                            while (itOus.hasNext()) {
+                                subOus.add(itOus.next().getName());
+                            }
+                        }
+                        Iterator<String> itSubOus = subOus.iterator();
                         while (itSubOus.hasNext()) {
-                            CmsOrganizationalUnit subOu = itSubOus.next();
+                            String subOu = itSubOus.next();
                             // add role in child ou
                             try {
-                                allGroups.add(readGroup(dbc, role.forOrgUnit(subOu.getName()).getGroupName()));
+                                String subRoleName = role.forOrgUnit(subOu).getGroupName();
+                                allGroups.add((graph != null)
+                                ? graph.getGroup(dbc, subRoleName)
+                                : readGroup(dbc, subRoleName));
                             } catch (CmsDbEntryNotFoundException e) {
                                 // ignore, this may happen while deleting an orgunit
                                 if (LOG.isDebugEnabled()) {
@@ -3962,7 +4023,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
                             while (itChildRoles.hasNext()) {
                                 CmsRole childRole = itChildRoles.next();
                                 try {
-                                    allGroups.add(readGroup(dbc, childRole.forOrgUnit(subOu.getName()).getGroupName()));
+                                    String subRoleName = childRole.forOrgUnit(subOu).getGroupName();
+                                    allGroups.add((graph != null)
+                                    ? graph.getGroup(dbc, subRoleName)
+                                    : readGroup(dbc, subRoleName));
                                 } catch (CmsDbEntryNotFoundException e) {
                                     // ignore, this may happen while deleting an orgunit
                                     if (LOG.isDebugEnabled()) {
@@ -4242,8 +4306,22 @@ public final class CmsDriverManager implements I_CmsEventListener {
     public CmsPermissionSetCustom getPermissions(CmsDbContext dbc, CmsResource resource, CmsUser user)
     throws CmsException {
 
+        List<CmsGroup> groups = getGroupsOfUser(dbc, user.getName(), false);
+        List<CmsRole> roles = getRolesForUser(dbc, user);
+        if ((m_accessControlIndex != null) && dbc.getProjectId().isNullUUID()) {
+            // use the precomputed index of effective access control entries
+            List<CmsUUID> principals = new ArrayList<CmsUUID>(1 + groups.size() + roles.size());
+            principals.add(user.getId());
+            for (int i = 0, size = groups.size(); i < size; i++) {
+                principals.add(groups.get(i).getId());
+            }
+            for (int i = 0, size = roles.size(); i < size; i++) {
+                principals.add(roles.get(i).getId());
+            }
+            return m_accessControlIndex.getPermissions(dbc, resource, principals);
+        }
         CmsAccessControlList acList = getAccessControlList(dbc, resource, false);
-        return acList.getPermissions(user, getGroupsOfUser(dbc, user.getName(), false), getRolesForUser(dbc, user));
+        return acList.getPermissions(user, groups, roles);
     }
 
     /**
@@ -4807,6 +4885,16 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return driver != null ? driver : defaultDriver;
     }
 
+    /**
+     * Returns the cache of the additional user infos.<p>
+     *
+     * @return the cache of the additional user infos, or <code>null</code> if not initialized
+     */
+    public CmsUserInfoCache getUserInfoCache() {
+
+        return m_userInfoCache;
+    }
+
     /**
      * Returns all direct users of the given organizational unit.<p>
      *
@@ -4951,6 +5039,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             userDriver.writeAccessControlEntry(dbc, dbc.currentProject(), i.next());
         }
         m_monitor.clearAccessControlListCache();
+        invalidateAccessControlIndex(dbc, resource);
     }
 
     /**
@@ -5056,6 +5145,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
             flags,
             dateCreated,
             additionalInfos);
+        // imported users are not announced by an event
+        if (m_userSearchIndex != null) {
+            m_userSearchIndex.invalidate(newUser.getId());
+        }
         return newUser;
     }
 
@@ -5099,6 +5192,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // initialize the key generator
         m_keyGenerator = (I_CmsCacheKey)Class.forName(settings.getCacheKeyGenerator()).newInstance();
 
+        // initialize the access control index
+        m_accessControlIndex = new CmsAccessControlIndex(this, settings.getAclCacheSize());
+
+        // initialize the cache of the additional user infos
+        m_userInfoCache = new CmsUserInfoCache(settings.getUserCacheSize());
+
         // initialize the HTML link validator
         m_htmlLinkValidator = new CmsRelationSystemValidator(this);
 
@@ -5125,6 +5224,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
         dbc1.clear();
         getUserDriver().createRootOrganizationalUnit(dbc2);
         dbc2.clear();
+
+        // initialize the principal graph after the default principals have been created
+        m_principalGraph = new CmsPrincipalGraph(this);
+
+        // initialize the user search index, it is built on the first user search
+        m_userSearchIndex = new CmsUserSearchIndex(this);
     }
 
     /**
@@ -5586,6 +5691,47 @@ public final class CmsDriverManager implements I_CmsEventListener {
         getSubscriptionDriver().markResourceAsVisitedBy(dbc, poolName, resource, user);
     }
 
+    /**
+     * Merges historical content records of the same resource that contain identical content.<p>
+     * 
+     * This reduces the storage used by the history of resources that were published
+     * several times without changing their content.<p>
+     * 
+     * @param dbc the current database context
+     * @param report the report for output logging
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    public void mergeHistoricalContents(CmsDbContext dbc, I_CmsReport report) throws CmsException {
+
+        report.println(
+            Messages.get().container(Messages.RPT_START_MERGE_HISTORY_CONTENTS_0),
+            I_CmsReport.FORMAT_HEADLINE);
+        I_CmsHistoryDriver historyDriver = getHistoryDriver(dbc);
+        List<CmsUUID> resourceIds = historyDriver.readResourceIdsWithHistoricalContents(dbc);
+        int merged = 0;
+        int resources = 0;
+        Iterator<CmsUUID> itResourceIds = resourceIds.iterator();
+        while (itResourceIds.hasNext()) {
+            CmsUUID resourceId = itResourceIds.next();
+            try {
+                int count = historyDriver.mergeHistoricalContents(dbc, resourceId);
+                if (count > 0) {
+                    merged += count;
+                    resources++;
+                }
+            } catch (CmsDataAccessException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_MERGE_HISTORY_CONTENTS_FAILED_1, resourceId), e);
+            }
+        }
+        report.println(
+            Messages.get().container(
+                Messages.RPT_END_MERGE_HISTORY_CONTENTS_2,
+                new Integer(merged),
+                new Integer(resources)),
+            I_CmsReport.FORMAT_HEADLINE);
+    }
+
     /**
      * Moves a resource.<p>
      *
@@ -5653,6 +5799,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // flush all relevant caches
         m_monitor.clearAccessControlListCache();
+        invalidateAccessControlIndex(dbc, source);
+        invalidateAccessControlIndex(dbc, destRes);
         m_monitor.flushCache(
             CmsMemoryMonitor.CacheType.PROPERTY,
             CmsMemoryMonitor.CacheType.PROPERTY_LIST,
@@ -7942,6 +8090,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // clear the cache
         m_monitor.clearAccessControlListCache();
+        invalidateAccessControlIndex(dbc, resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -8116,6 +8265,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
         }
         getUserDriver(dbc).deleteUserInGroup(dbc, user.getId(), group.getId());
+        if (m_principalGraph != null) {
+            m_principalGraph.removeMembership(user.getId(), group);
+        }
 
         // flush relevant caches
         if (readRoles) {
@@ -8570,6 +8722,13 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
     ) throws CmsDataAccessException {
 
+        if ((m_userSearchIndex != null) && m_userSearchIndex.isSupported(searchParams)) {
+            try {
+                return m_userSearchIndex.searchUsers(dbc, searchParams);
+            } catch (CmsException e) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_USER_SEARCH_INDEX_FAILED_0), e);
+            }
+        }
         return getUserDriver(dbc).searchUsers(dbc, searchParams);
     }
 
@@ -8785,6 +8944,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
         getUserDriver(dbc).setUsersOrganizationalUnit(dbc, orgUnit, user);
         // remove the principal from cache
         m_monitor.clearUserCache(user);
+        if (m_principalGraph != null) {
+            m_principalGraph.removeUser(user.getId());
+        }
 
         if (!dbc.getProjectId().isNullUUID()) {
             // user modified event is not needed
@@ -9245,6 +9407,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
     public boolean userInGroup(CmsDbContext dbc, String username, String groupname, boolean readRoles)
     throws CmsException {
 
+        if (!readRoles && (m_principalGraph != null) && dbc.getProjectId().isNullUUID()) {
+            // resolve the group membership in the principal graph
+            return m_principalGraph.isUserInGroup(dbc, readUser(dbc, username).getId(), groupname);
+        }
         List<CmsGroup> groups = getGroupsOfUser(dbc, username, readRoles);
         for (int i = 0; i < groups.size(); i++) {
             CmsGroup group = groups.get(i);
@@ -9320,6 +9486,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // clear the cache
         m_monitor.clearAccessControlListCache();
+        invalidateAccessControlIndex(dbc, resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9529,6 +9696,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
         m_monitor.uncacheGroup(oldGroup);
         getUserDriver(dbc).writeGroup(dbc, group);
         m_monitor.cacheGroup(group);
+        if (m_principalGraph != null) {
+            m_principalGraph.updateGroup(group);
+        }
 
         if (!dbc.getProjectId().isNullUUID()) {
             // group modified event is not needed
@@ -10178,6 +10348,13 @@ public final class CmsDriverManager implements I_CmsEventListener {
      */
     long countUsers(CmsDbContext dbc, CmsUserSearchParameters searchParams) throws CmsDataAccessException {
 
+        if ((m_userSearchIndex != null) && m_userSearchIndex.isSupported(searchParams)) {
+            try {
+                return m_userSearchIndex.countUsers(dbc, searchParams);
+            } catch (CmsException e) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_USER_SEARCH_INDEX_FAILED_0), e);
+            }
+        }
         return getUserDriver(dbc).countUsers(dbc, searchParams);
     }
 
@@ -10359,6 +10536,114 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return false;
     }
 
+    /**
+     * Deletes the historical versions of either the existing or the deleted resources, 
+     * reading the historical entries chunk by chunk.<p>
+     * 
+     * @param dbc the current database context
+     * @param deleted <code>true</code> to process the entries of deleted resources
+     * @param versionsToKeep number of versions to keep, is ignored if negative
+     * @param timeDeleted deleted resources older than this will also be deleted, is ignored if negative
+     * @param cursor the cursor controlling the chunks and keeping the progress
+     * @param report the report for output logging
+     * 
+     * @return <code>true</code> if all entries were processed, 
+     *      <code>false</code> if processing was suspended and has to be resumed later
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    private boolean deleteHistoricalEntries(
+        CmsDbContext dbc,
+        boolean deleted,
+        int versionsToKeep,
+        long timeDeleted,
+        CmsHistoryClearCursor cursor,
+        I_CmsReport report) throws CmsException {
+
+        I_CmsHistoryDriver historyDriver = getHistoryDriver(dbc);
+        boolean empty = true;
+        while (true) {
+            List<I_CmsHistoryResource> resources = deleted ? historyDriver.getDeletedEntries(
+                dbc,
+                cursor.getLastStructureId(),
+                cursor.getChunkSize()) : historyDriver.getNotDeletedEntries(
+                dbc,
+                cursor.getLastStructureId(),
+                cursor.getChunkSize());
+            if (resources.isEmpty()) {
+                if (empty) {
+                    report.println(Messages.get().container(Messages.RPT_DELETE_NOTHING_0), I_CmsReport.FORMAT_OK);
+                }
+                return true;
+            }
+            empty = false;
+            List<I_CmsHistoryResource> chunk = resources.subList(
+                0,
+                Math.min(resources.size(), cursor.getRemaining()));
+            if (chunk.isEmpty()) {
+                return false;
+            }
+            int succession = cursor.getProcessedTotal();
+            Iterator<I_CmsHistoryResource> itResources = chunk.iterator();
+            while (itResources.hasNext()) {
+                I_CmsHistoryResource histResource = itResources.next();
+                succession++;
+                report.print(
+                    org.opencms.report.Messages.get().container(
+                        org.opencms.report.Messages.RPT_SUCCESSION_1,
+                        String.valueOf(succession)),
+                    I_CmsReport.FORMAT_NOTE);
+                report.println(org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_ARGUMENT_1,
+                    dbc.removeSiteRoot(histResource.getRootPath())));
+            }
+
+            try {
+                // delete the versions of the whole chunk at once
+                int count = historyDriver.deleteEntries(dbc, chunk, versionsToKeep, timeDeleted);
+
+                report.print(
+                    Messages.get().container(Messages.RPT_VERSION_DELETING_1, new Integer(count)),
+                    I_CmsReport.FORMAT_NOTE);
+                report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+                report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                    I_CmsReport.FORMAT_OK);
+            } catch (CmsDataAccessException e) {
+                report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ERROR_0),
+                    I_CmsReport.FORMAT_ERROR);
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(e.getLocalizedMessage(), e);
+                }
+            }
+            itResources = chunk.iterator();
+            while (itResources.hasNext()) {
+                cursor.advance(itResources.next().getStructureId());
+            }
+            if (chunk.size() < resources.size()) {
+                // the limit of the current run was reached within this chunk
+                return false;
+            }
+            if (resources.size() < cursor.getChunkSize()) {
+                return true;
+            }
+            if (cursor.isLimitReached()) {
+                return false;
+            }
+            if (cursor.getPause() > 0) {
+                // give other database clients a chance between two chunks
+                try {
+                    Thread.sleep(cursor.getPause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
     /**
      * Copies all relations from the source resource to the target resource.<p>
      *
@@ -10830,6 +11115,20 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return groups;
     }
 
+    /**
+     * Removes the given resource from the index of effective access control entries
+     * of the current project after its access control entries or its position in the tree have changed.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the changed resource
+     */
+    private void invalidateAccessControlIndex(CmsDbContext dbc, CmsResource resource) {
+
+        if (m_accessControlIndex != null) {
+            m_accessControlIndex.invalidate(dbc.currentProject().isOnlineProject(), resource);
+        }
+    }
+
     /**
      * Returns a list of users in a group.<p>
      *
@@ -11105,6 +11404,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 if (aceModified) {
                     // clear the cache
                     m_monitor.clearAccessControlListCache();
+                    if (m_accessControlIndex != null) {
+                        m_accessControlIndex.clear();
+                    }
                 }
             }
             if (attrModified || aceModified) {
@@ -11198,6 +11500,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                     ace.getPermissions().getDeniedPermissions(),
                     ace.getFlags());
             }
+            invalidateAccessControlIndex(dbc, onlineResource);
         } else {
             byte[] onlineContent = vfsDriver.readContent(
                 dbc,
@@ -11278,6 +11581,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                     ace.getPermissions().getDeniedPermissions(),
                     ace.getFlags());
             }
+            invalidateAccessControlIndex(dbc, onlineResource);
 
             vfsDriver.deleteUrlNameMappingEntries(
                 dbc,
@@ -11334,6 +11638,36 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Updates the online part of the index of effective access control entries after a publish job.<p>
+     *
+     * Only the published resources (and the sub trees of published folders) are removed from the index,
+     * all other entries stay valid.<p>
+     *
+     * @param dbc the current database context
+     * @param publishHistoryId the id of the publish job
+     */
+    private void updateAccessControlIndex(CmsDbContext dbc, CmsUUID publishHistoryId) {
+
+        if (m_accessControlIndex == null) {
+            return;
+        }
+        if (dbc == null) {
+            m_accessControlIndex.clear(true);
+            return;
+        }
+        try {
+            List<CmsPublishedResource> publishedResources = readPublishedResources(dbc, publishHistoryId);
+            for (CmsPublishedResource res : publishedResources) {
+                m_accessControlIndex.invalidate(true, res.getRootPath(), res.getResourceId(), res.isFolder());
+            }
+        } catch (CmsException e) {
+            // clear the complete online index if the published resources are not available
+            LOG.error(e.getLocalizedMessage(), e);
+            m_accessControlIndex.clear(true);
+        }
+    }
+
     /**
      * Updates the current users context dates with the given resource.<p>
      *
@@ -11422,6 +11756,46 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Updates the principal graph and the additional user info cache after a principal event.<p>
+     *
+     * Local modifications are applied to the graph and the cache directly by the modifying methods,
+     * so apart from explicit cache clearing only the events received from other cluster nodes
+     * have to be considered here.<p>
+     *
+     * @param event the principal event
+     */
+    private void updatePrincipalGraph(CmsEvent event) {
+
+        if (m_principalGraph == null) {
+            return;
+        }
+        if (event.getType() == I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES) {
+            m_principalGraph.clear();
+            if (m_userInfoCache != null) {
+                m_userInfoCache.clear();
+            }
+            return;
+        }
+        Map<String, Object> data = event.getData();
+        if ((data == null) || !data.containsKey(I_CmsEventListener.KEY_CLUSTER_NODE)) {
+            return;
+        }
+        Object userId = data.get(I_CmsEventListener.KEY_USER_ID);
+        if ((event.getType() == I_CmsEventListener.EVENT_USER_MODIFIED) && (userId != null)) {
+            // only the assignments and infos of the modified user have to be read again
+            m_principalGraph.removeUser(new CmsUUID(userId.toString()));
+            if (m_userInfoCache != null) {
+                m_userInfoCache.invalidate(new CmsUUID(userId.toString()));
+            }
+        } else if (event.getType() == I_CmsEventListener.EVENT_OU_MODIFIED) {
+            m_principalGraph.clearOrganizationalUnits();
+        } else {
+            // group modifications may affect the assignments of all users
+            m_principalGraph.clear();
+        }
+    }
+
     /**
      * Updates the state of a resource, depending on the <code>resourceState</code> parameter.<p>
      *
@@ -11447,4 +11821,24 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Updates the user search index after a principal event.<p>
+     *
+     * The modified user is indexed again on the next search, both for local modifications 
+     * and for modifications on other cluster nodes.<p>
+     *
+     * @param event the principal event
+     */
+    private void updateUserSearchIndex(CmsEvent event) {
+
+        if (m_userSearchIndex == null) {
+            return;
+        }
+        Object userId = (event.getData() != null) ? event.getData().get(I_CmsEventListener.KEY_USER_ID) : null;
+        if ((event.getType() == I_CmsEventListener.EVENT_USER_MODIFIED) && (userId != null)) {
+            m_userSearchIndex.invalidate(new CmsUUID(userId.toString()));
+        } else {
+            m_userSearchIndex.clear();
+        }
+    }
 }
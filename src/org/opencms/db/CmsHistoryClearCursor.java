@@ -0,0 +1,249 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.util.CmsUUID;
+
+/**
+ * Cursor for clearing the history in chunks.<p>
+ * 
+ * The historical entries are processed ordered by their structure id, a chunk at a time. 
+ * The cursor remembers the last processed entry, so that an interrupted or limited run
+ * can be resumed later by passing the same cursor again.<p>
+ * 
+ * @since 8.5.0
+ * 
+ * @see CmsDriverManager#deleteHistoricalVersions(CmsDbContext, int, int, long, CmsHistoryClearCursor, org.opencms.report.I_CmsReport)
+ */
+public class CmsHistoryClearCursor {
+
+    /** The default number of entries to read per chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /** The number of entries to read per chunk. */
+    private int m_chunkSize;
+
+    /** Signals if the entries of existing resources have all been processed. */
+    private boolean m_existingDone;
+
+    /** Signals if all entries have been processed. */
+    private boolean m_finished;
+
+    /** The structure id of the last processed entry. */
+    private CmsUUID m_lastStructureId;
+
+    /** The maximal number of entries to process per run, or <code>-1</code> if unlimited. */
+    private int m_maxEntries;
+
+    /** The time to pause between two chunks in milliseconds. */
+    private long m_pause;
+
+    /** The number of entries processed in the current run. */
+    private int m_processed;
+
+    /** The total number of entries processed. */
+    private int m_processedTotal;
+
+    /**
+     * Creates a new cursor with the default chunk size, no pause and no limit.<p>
+     */
+    public CmsHistoryClearCursor() {
+
+        this(DEFAULT_CHUNK_SIZE, 0, -1);
+    }
+
+    /**
+     * Creates a new cursor.<p>
+     * 
+     * @param chunkSize the number of entries to read per chunk
+     * @param pause the time to pause between two chunks in milliseconds
+     * @param maxEntries the maximal number of entries to process per run, or <code>-1</code> if unlimited
+     */
+    public CmsHistoryClearCursor(int chunkSize, long pause, int maxEntries) {
+
+        m_chunkSize = (chunkSize > 0) ? chunkSize : DEFAULT_CHUNK_SIZE;
+        m_pause = Math.max(0, pause);
+        m_maxEntries = maxEntries;
+        m_lastStructureId = CmsUUID.getNullUUID();
+    }
+
+    /**
+     * Returns the number of entries to read per chunk.<p>
+     *
+     * @return the number of entries to read per chunk
+     */
+    public int getChunkSize() {
+
+        return m_chunkSize;
+    }
+
+    /**
+     * Returns the structure id of the last processed entry.<p>
+     * 
+     * The next chunk starts with the entry following this structure id.<p>
+     *
+     * @return the structure id of the last processed entry
+     */
+    public CmsUUID getLastStructureId() {
+
+        return m_lastStructureId;
+    }
+
+    /**
+     * Returns the maximal number of entries to process per run.<p>
+     *
+     * @return the maximal number of entries to process per run, or <code>-1</code> if unlimited
+     */
+    public int getMaxEntries() {
+
+        return m_maxEntries;
+    }
+
+    /**
+     * Returns the time to pause between two chunks in milliseconds.<p>
+     *
+     * @return the time to pause between two chunks
+     */
+    public long getPause() {
+
+        return m_pause;
+    }
+
+    /**
+     * Returns the total number of processed entries, including previous runs.<p>
+     *
+     * @return the total number of processed entries
+     */
+    public int getProcessedTotal() {
+
+        return m_processedTotal;
+    }
+
+    /**
+     * Checks if the entries of existing resources have all been processed,
+     * so processing continues with the entries of deleted resources.<p>
+     *
+     * @return <code>true</code> if the entries of existing resources have all been processed
+     */
+    public boolean isExistingDone() {
+
+        return m_existingDone;
+    }
+
+    /**
+     * Checks if all entries have been processed.<p>
+     *
+     * @return <code>true</code> if all entries have been processed
+     */
+    public boolean isFinished() {
+
+        return m_finished;
+    }
+
+    /**
+     * Checks if the maximal number of entries for the current run has been processed.<p>
+     * 
+     * @return <code>true</code> if the current run has to stop
+     */
+    public boolean isLimitReached() {
+
+        return (m_maxEntries >= 0) && (m_processed >= m_maxEntries);
+    }
+
+    /**
+     * Starts a new run, resetting the number of entries processed in the current run.<p>
+     * 
+     * If the previous run had finished, the cursor starts again at the first entry.<p>
+     */
+    public void startRun() {
+
+        if (m_finished) {
+            m_finished = false;
+            m_existingDone = false;
+            m_lastStructureId = CmsUUID.getNullUUID();
+            m_processedTotal = 0;
+        }
+        m_processed = 0;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return getClass().getSimpleName()
+            + "[existingDone="
+            + m_existingDone
+            + ", lastStructureId="
+            + m_lastStructureId
+            + ", processed="
+            + m_processedTotal
+            + "]";
+    }
+
+    /**
+     * Marks the given entry as processed.<p>
+     * 
+     * @param structureId the structure id of the processed entry
+     */
+    protected void advance(CmsUUID structureId) {
+
+        m_lastStructureId = structureId;
+        m_processed++;
+        m_processedTotal++;
+    }
+
+    /**
+     * Returns the number of entries that may still be processed in the current run.<p>
+     * 
+     * @return the number of entries that may still be processed, or {@link Integer#MAX_VALUE} if unlimited
+     */
+    protected int getRemaining() {
+
+        return (m_maxEntries < 0) ? Integer.MAX_VALUE : Math.max(0, m_maxEntries - m_processed);
+    }
+
+    /**
+     * Marks the entries of existing resources as processed, 
+     * so the cursor continues with the entries of deleted resources.<p>
+     */
+    protected void setExistingDone() {
+
+        m_existingDone = true;
+        m_lastStructureId = CmsUUID.getNullUUID();
+    }
+
+    /**
+     * Marks all entries as processed.<p>
+     */
+    protected void setFinished() {
+
+        m_finished = true;
+    }
+}
@@ -0,0 +1,541 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsGroup;
+import org.opencms.main.CmsException;
+import org.opencms.security.CmsOrganizationalUnit;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory graph of the users, groups, roles and organizational units and their relations.<p>
+ * 
+ * The graph keeps the group and role nodes by id and by name, the direct group and role assignments 
+ * of every user that has been requested once as compact arrays of group ids, and the sub organizational 
+ * units of every organizational unit that has been requested once. The parent group relation is taken
+ * from the group nodes themselves. Once a user is known to the graph, the groups and roles of the user
+ * can be resolved with a few hash lookups and without database access.<p>
+ * 
+ * The graph is loaded lazily and kept up to date incrementally by the driver manager whenever users are 
+ * added to or removed from groups, or groups, users and organizational units are created, written or deleted.
+ * Unlike the principal caches of the memory monitor, it is not flushed by unrelated principal modifications.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsPrincipalGraph {
+
+    /** Empty group id array. */
+    private static final CmsUUID[] NO_GROUPS = new CmsUUID[0];
+
+    /** The driver manager used to read the principals. */
+    private CmsDriverManager m_driverManager;
+
+    /** The generation counter, incremented on every modification to detect concurrent loads. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /** The group ids by group name. */
+    private Map<String, CmsUUID> m_groupIds = new ConcurrentHashMap<String, CmsUUID>();
+
+    /** The group nodes by group id. */
+    private Map<CmsUUID, CmsGroup> m_groups = new ConcurrentHashMap<CmsUUID, CmsGroup>();
+
+    /** The names of all sub organizational units, by organizational unit name. */
+    private Map<String, List<String>> m_subOrgUnits = new ConcurrentHashMap<String, List<String>>();
+
+    /** The ids of the groups directly assigned to a user, by user id. */
+    private Map<CmsUUID, CmsUUID[]> m_userGroups = new ConcurrentHashMap<CmsUUID, CmsUUID[]>();
+
+    /** The ids of the roles directly assigned to a user, by user id. */
+    private Map<CmsUUID, CmsUUID[]> m_userRoles = new ConcurrentHashMap<CmsUUID, CmsUUID[]>();
+
+    /**
+     * Creates a new principal graph.<p>
+     * 
+     * @param driverManager the driver manager used to read the principals
+     */
+    public CmsPrincipalGraph(CmsDriverManager driverManager) {
+
+        m_driverManager = driverManager;
+    }
+
+    /**
+     * Adds a group or role to the direct assignments of a user.<p>
+     * 
+     * @param userId the id of the user
+     * @param group the group or role the user was added to
+     */
+    public synchronized void addMembership(CmsUUID userId, CmsGroup group) {
+
+        m_generation.incrementAndGet();
+        putGroup(group);
+        Map<CmsUUID, CmsUUID[]> memberships = getMemberships(group.isRole());
+        CmsUUID[] groupIds = memberships.get(userId);
+        if ((groupIds != null) && (indexOf(groupIds, group.getId()) < 0)) {
+            CmsUUID[] result = new CmsUUID[groupIds.length + 1];
+            System.arraycopy(groupIds, 0, result, 0, groupIds.length);
+            result[groupIds.length] = group.getId();
+            memberships.put(userId, result);
+        }
+    }
+
+    /**
+     * Removes all nodes and relations from the graph.<p>
+     */
+    public synchronized void clear() {
+
+        m_generation.incrementAndGet();
+        m_userGroups.clear();
+        m_userRoles.clear();
+        m_groups.clear();
+        m_groupIds.clear();
+        m_subOrgUnits.clear();
+    }
+
+    /**
+     * Removes the organizational unit hierarchy from the graph.<p>
+     * 
+     * This has to be called whenever an organizational unit is created or deleted.<p>
+     */
+    public synchronized void clearOrganizationalUnits() {
+
+        m_generation.incrementAndGet();
+        m_subOrgUnits.clear();
+    }
+
+    /**
+     * Returns the group or role with the given id.<p>
+     * 
+     * @param dbc the current database context
+     * @param groupId the id of the group
+     * 
+     * @return the group
+     * 
+     * @throws CmsException if the group could not be read
+     */
+    public CmsGroup getGroup(CmsDbContext dbc, CmsUUID groupId) throws CmsException {
+
+        CmsGroup group = m_groups.get(groupId);
+        if (group == null) {
+            long generation = m_generation.get();
+            group = readGroup(dbc, groupId);
+            putGroup(generation, null, group);
+        }
+        return group;
+    }
+
+    /**
+     * Returns the group or role with the given name.<p>
+     * 
+     * @param dbc the current database context
+     * @param groupName the name of the group
+     * 
+     * @return the group
+     * 
+     * @throws CmsException if the group could not be read
+     */
+    public CmsGroup getGroup(CmsDbContext dbc, String groupName) throws CmsException {
+
+        CmsUUID groupId = m_groupIds.get(groupName);
+        CmsGroup group = (groupId != null) ? m_groups.get(groupId) : null;
+        if (group == null) {
+            long generation = m_generation.get();
+            group = readGroup(dbc, groupName);
+            putGroup(generation, groupName, group);
+        }
+        return group;
+    }
+
+    /**
+     * Returns the groups or roles directly assigned to a user.<p>
+     * 
+     * @param dbc the current database context
+     * @param userId the id of the user
+     * @param ouFqn the fully qualified name of the organizational unit to restrict the result for
+     * @param includeChildOus if the groups of child organizational units should be included
+     * @param readRoles if to read roles or groups
+     * 
+     * @return a list of <code>{@link CmsGroup}</code> objects
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsGroup> getGroupsOfUser(
+        CmsDbContext dbc,
+        CmsUUID userId,
+        String ouFqn,
+        boolean includeChildOus,
+        boolean readRoles) throws CmsException {
+
+        CmsUUID[] groupIds = getMemberships(dbc, userId, readRoles);
+        List<CmsGroup> result = new ArrayList<CmsGroup>(groupIds.length);
+        for (int i = 0; i < groupIds.length; i++) {
+            CmsGroup group = getGroup(dbc, groupIds[i]);
+            String groupOu = group.getOuFqn();
+            if (includeChildOus ? groupOu.startsWith(ouFqn) : groupOu.equals(ouFqn)) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the parent group of the given group.<p>
+     * 
+     * @param dbc the current database context
+     * @param group the group
+     * 
+     * @return the parent group, or <code>null</code> if the group has no parent
+     * 
+     * @throws CmsException if the parent group could not be read
+     */
+    public CmsGroup getParent(CmsDbContext dbc, CmsGroup group) throws CmsException {
+
+        CmsUUID parentId = group.getParentId();
+        if ((parentId == null) || parentId.isNullUUID()) {
+            return null;
+        }
+        return getGroup(dbc, parentId);
+    }
+
+    /**
+     * Returns the number of users whose group or role assignments are currently kept in the graph.<p>
+     * 
+     * @return the number of users in the graph
+     */
+    public int getSize() {
+
+        Set<CmsUUID> users = new HashSet<CmsUUID>(m_userGroups.keySet());
+        users.addAll(m_userRoles.keySet());
+        return users.size();
+    }
+
+    /**
+     * Returns the names of all sub organizational units of the given organizational unit, 
+     * including the indirect ones.<p>
+     * 
+     * @param dbc the current database context
+     * @param ouFqn the fully qualified name of the organizational unit
+     * 
+     * @return an unmodifiable list of organizational unit names
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    public List<String> getSubOrganizationalUnits(CmsDbContext dbc, String ouFqn) throws CmsException {
+
+        List<String> result = m_subOrgUnits.get(ouFqn);
+        if (result == null) {
+            long generation = m_generation.get();
+            List<CmsOrganizationalUnit> orgUnits = m_driverManager.getOrganizationalUnits(
+                dbc,
+                m_driverManager.readOrganizationalUnit(dbc, ouFqn),
+                true);
+            List<String> names = new ArrayList<String>(orgUnits.size());
+            for (int i = 0, size = orgUnits.size(); i < size; i++) {
+                names.add(orgUnits.get(i).getName());
+            }
+            result = Collections.unmodifiableList(names);
+            synchronized (this) {
+                if (generation == m_generation.get()) {
+                    m_subOrgUnits.put(ouFqn, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if a user is member of a group, either directly or through a sub group.<p>
+     * 
+     * The group name may be given with or without a leading separator.<p>
+     * 
+     * @param dbc the current database context
+     * @param userId the id of the user
+     * @param groupName the name of the group
+     * 
+     * @return <code>true</code> if the user is member of the group
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    public boolean isUserInGroup(CmsDbContext dbc, CmsUUID userId, String groupName) throws CmsException {
+
+        CmsUUID[] groupIds = getMemberships(dbc, userId, false);
+        for (int i = 0; i < groupIds.length; i++) {
+            CmsGroup group = getGroup(dbc, groupIds[i]);
+            int depth = 0;
+            while ((group != null) && (depth <= m_groups.size())) {
+                String name = group.getName();
+                if (groupName.equals(name) || groupName.substring(1).equals(name)) {
+                    return true;
+                }
+                // the depth check protects against cycles in the parent relation
+                group = getParent(dbc, group);
+                depth++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a group or role from the graph, including all assignments of users to it.<p>
+     * 
+     * @param group the deleted group
+     */
+    public synchronized void removeGroup(CmsGroup group) {
+
+        m_generation.incrementAndGet();
+        CmsUUID groupId = group.getId();
+        m_groups.remove(groupId);
+        Iterator<CmsUUID> itNames = m_groupIds.values().iterator();
+        while (itNames.hasNext()) {
+            if (groupId.equals(itNames.next())) {
+                itNames.remove();
+            }
+        }
+        Map<CmsUUID, CmsUUID[]> memberships = getMemberships(group.isRole());
+        Iterator<Map.Entry<CmsUUID, CmsUUID[]>> itUsers = memberships.entrySet().iterator();
+        while (itUsers.hasNext()) {
+            Map.Entry<CmsUUID, CmsUUID[]> entry = itUsers.next();
+            if (indexOf(entry.getValue(), groupId) >= 0) {
+                entry.setValue(remove(entry.getValue(), groupId));
+            }
+        }
+    }
+
+    /**
+     * Removes a group or role from the direct assignments of a user.<p>
+     * 
+     * @param userId the id of the user
+     * @param group the group or role the user was removed from
+     */
+    public synchronized void removeMembership(CmsUUID userId, CmsGroup group) {
+
+        m_generation.incrementAndGet();
+        Map<CmsUUID, CmsUUID[]> memberships = getMemberships(group.isRole());
+        CmsUUID[] groupIds = memberships.get(userId);
+        if ((groupIds != null) && (indexOf(groupIds, group.getId()) >= 0)) {
+            memberships.put(userId, remove(groupIds, group.getId()));
+        }
+    }
+
+    /**
+     * Removes a user from the graph.<p>
+     * 
+     * The assignments of the user are read again from the database on the next request.<p>
+     * 
+     * @param userId the id of the user
+     */
+    public synchronized void removeUser(CmsUUID userId) {
+
+        m_generation.incrementAndGet();
+        m_userGroups.remove(userId);
+        m_userRoles.remove(userId);
+    }
+
+    /**
+     * Adds or replaces a group or role node in the graph.<p>
+     * 
+     * This has to be called whenever a group is created or written.<p>
+     * 
+     * @param group the created or written group
+     */
+    public synchronized void updateGroup(CmsGroup group) {
+
+        m_generation.incrementAndGet();
+        putGroup(group);
+    }
+
+    /**
+     * Reads a group from the database.<p>
+     * 
+     * @param dbc the current database context
+     * @param groupId the id of the group
+     * 
+     * @return the group
+     * 
+     * @throws CmsException if the group could not be read
+     */
+    protected CmsGroup readGroup(CmsDbContext dbc, CmsUUID groupId) throws CmsException {
+
+        return m_driverManager.readGroup(dbc, groupId);
+    }
+
+    /**
+     * Reads a group from the database.<p>
+     * 
+     * @param dbc the current database context
+     * @param groupName the name of the group
+     * 
+     * @return the group
+     * 
+     * @throws CmsException if the group could not be read
+     */
+    protected CmsGroup readGroup(CmsDbContext dbc, String groupName) throws CmsException {
+
+        return m_driverManager.readGroup(dbc, groupName);
+    }
+
+    /**
+     * Reads the groups or roles directly assigned to a user from the database.<p>
+     * 
+     * @param dbc the current database context
+     * @param userId the id of the user
+     * @param roles <code>true</code> to read the roles, <code>false</code> to read the groups
+     * 
+     * @return a list of <code>{@link CmsGroup}</code> objects
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    protected List<CmsGroup> readGroupsOfUser(CmsDbContext dbc, CmsUUID userId, boolean roles) throws CmsException {
+
+        return m_driverManager.getUserDriver(dbc).readGroupsOfUser(dbc, userId, "", true, null, roles);
+    }
+
+    /**
+     * Returns the membership map for either roles or groups.<p>
+     * 
+     * @param roles <code>true</code> for the role assignments
+     * 
+     * @return the membership map
+     */
+    private Map<CmsUUID, CmsUUID[]> getMemberships(boolean roles) {
+
+        return roles ? m_userRoles : m_userGroups;
+    }
+
+    /**
+     * Returns the ids of the groups or roles directly assigned to a user, reading them if needed.<p>
+     * 
+     * @param dbc the current database context
+     * @param userId the id of the user
+     * @param roles <code>true</code> to read the role assignments
+     * 
+     * @return the group ids
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    private CmsUUID[] getMemberships(CmsDbContext dbc, CmsUUID userId, boolean roles) throws CmsException {
+
+        Map<CmsUUID, CmsUUID[]> memberships = getMemberships(roles);
+        CmsUUID[] groupIds = memberships.get(userId);
+        if (groupIds != null) {
+            return groupIds;
+        }
+        long generation = m_generation.get();
+        List<CmsGroup> groups = readGroupsOfUser(dbc, userId, roles);
+        groupIds = groups.isEmpty() ? NO_GROUPS : new CmsUUID[groups.size()];
+        for (int i = 0; i < groupIds.length; i++) {
+            groupIds[i] = groups.get(i).getId();
+        }
+        synchronized (this) {
+            if (generation == m_generation.get()) {
+                for (int i = 0; i < groupIds.length; i++) {
+                    putGroup(groups.get(i));
+                }
+                memberships.put(userId, groupIds);
+            }
+        }
+        return groupIds;
+    }
+
+    /**
+     * Returns the position of a group id in the given array.<p>
+     * 
+     * @param groupIds the group id array
+     * @param groupId the group id to look for
+     * 
+     * @return the position of the group id, or <code>-1</code> if not found
+     */
+    private int indexOf(CmsUUID[] groupIds, CmsUUID groupId) {
+
+        for (int i = 0; i < groupIds.length; i++) {
+            if (groupIds[i].equals(groupId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a group node.<p>
+     * 
+     * @param group the group
+     */
+    private void putGroup(CmsGroup group) {
+
+        CmsGroup oldGroup = m_groups.put(group.getId(), group);
+        if ((oldGroup != null) && !oldGroup.getName().equals(group.getName())) {
+            m_groupIds.remove(oldGroup.getName());
+        }
+        m_groupIds.put(group.getName(), group.getId());
+    }
+
+    /**
+     * Stores a group node read from the database, if the graph has not been modified in the meantime.<p>
+     * 
+     * @param generation the generation at the time the group was read
+     * @param groupName the name the group was requested with, or <code>null</code>
+     * @param group the group
+     */
+    private synchronized void putGroup(long generation, String groupName, CmsGroup group) {
+
+        if (generation == m_generation.get()) {
+            putGroup(group);
+            if (groupName != null) {
+                m_groupIds.put(groupName, group.getId());
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the given array without the given group id.<p>
+     * 
+     * @param groupIds the group id array
+     * @param groupId the group id to remove
+     * 
+     * @return the new array
+     */
+    private CmsUUID[] remove(CmsUUID[] groupIds, CmsUUID groupId) {
+
+        List<CmsUUID> result = new ArrayList<CmsUUID>(groupIds.length);
+        for (int i = 0; i < groupIds.length; i++) {
+            if (!groupIds[i].equals(groupId)) {
+                result.add(groupIds[i]);
+            }
+        }
+        return result.isEmpty() ? NO_GROUPS : result.toArray(new CmsUUID[result.size()]);
+    }
+}
@@ -1352,12 +1352,48 @@ public final class CmsSecurityManager {
         long timeDeleted,
         I_CmsReport report) throws CmsException, CmsRoleViolationException {
 
+        deleteHistoricalVersions(
+            context,
+            versionsToKeep,
+            versionsDeleted,
+            timeDeleted,
+            new CmsHistoryClearCursor(),
+            report);
+    }
+
+    /**
+     * Deletes the versions from the history tables in chunks, keeping the given number of versions per resource.<p>
+     *
+     * @param context the current request context
+     * @param versionsToKeep number of versions to keep, is ignored if negative
+     * @param versionsDeleted number of versions to keep for deleted resources, is ignored if negative
+     * @param timeDeleted deleted resources older than this will also be deleted, is ignored if negative
+     * @param cursor the cursor controlling the chunks and keeping the progress
+     * @param report the report for output logging
+     *
+     * @throws CmsException if operation was not successful
+     * @throws CmsRoleViolationException if the current user does not own the role {@link CmsRole#WORKPLACE_MANAGER}
+     */
+    public void deleteHistoricalVersions(
+        CmsRequestContext context,
+        int versionsToKeep,
+        int versionsDeleted,
+        long timeDeleted,
+        CmsHistoryClearCursor cursor,
+        I_CmsReport report) throws CmsException, CmsRoleViolationException {
+
         CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
         try {
             CmsFolder root = readFolder(dbc, "/", CmsResourceFilter.ALL);
             checkRole(dbc, CmsRole.WORKPLACE_MANAGER.forOrgUnit(null));
             checkPermissions(dbc, root, CmsPermissionSet.ACCESS_WRITE, false, CmsResourceFilter.ALL);
-            m_driverManager.deleteHistoricalVersions(dbc, versionsToKeep, versionsDeleted, timeDeleted, report);
+            m_driverManager.deleteHistoricalVersions(
+                dbc,
+                versionsToKeep,
+                versionsDeleted,
+                timeDeleted,
+                cursor,
+                report);
         } catch (Exception e) {
             dbc.report(
                 null,
@@ -3572,6 +3608,29 @@ public final class CmsSecurityManager {
         return ret;
     }
 
+    /**
+     * Merges historical content records of the same resource that contain identical content.<p>
+     *
+     * @param context the current request context
+     * @param report the report for output logging
+     *
+     * @throws CmsException if operation was not successful
+     * @throws CmsRoleViolationException if the current user does not own the role {@link CmsRole#WORKPLACE_MANAGER}
+     */
+    public void mergeHistoricalContents(CmsRequestContext context, I_CmsReport report)
+    throws CmsException, CmsRoleViolationException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            checkRole(dbc, CmsRole.WORKPLACE_MANAGER.forOrgUnit(null));
+            m_driverManager.mergeHistoricalContents(dbc, report);
+        } catch (Exception e) {
+            dbc.report(null, Messages.get().container(Messages.ERR_MERGE_HISTORY_CONTENTS_0), e);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Moves a resource.<p>
      *
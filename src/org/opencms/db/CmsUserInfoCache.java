@@ -0,0 +1,142 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.util.CmsCollectionsGenericWrapper;
+import org.opencms.util.CmsUUID;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache for the additional information of users, keyed by user id.<p>
+ * 
+ * The cache is used by the user driver to avoid reading the additional information of a user 
+ * again and again, for example when comparing the stored information with the information to write.
+ * Entries are invalidated for a single user whenever the information of that user is written or deleted,
+ * so modifications of other principals do not affect the cached information.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsUserInfoCache {
+
+    /** The generation counter, incremented on every invalidation to detect concurrent reads. */
+    private AtomicLong m_generation = new AtomicLong();
+
+    /** The cached additional information by user id. */
+    private Map<CmsUUID, Map<String, Object>> m_infos;
+
+    /**
+     * Creates a new user info cache.<p>
+     * 
+     * @param size the maximum number of users kept in the cache
+     */
+    public CmsUserInfoCache(int size) {
+
+        Map<CmsUUID, Map<String, Object>> lruMap = CmsCollectionsGenericWrapper.createLRUMap(size);
+        m_infos = Collections.synchronizedMap(lruMap);
+    }
+
+    /**
+     * Removes all entries from the cache.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        m_infos.clear();
+    }
+
+    /**
+     * Returns a copy of the cached additional information of a user.<p>
+     * 
+     * @param userId the id of the user
+     * 
+     * @return a modifiable copy of the additional information, or <code>null</code> if not cached
+     */
+    public Map<String, Object> get(CmsUUID userId) {
+
+        Map<String, Object> infos = m_infos.get(userId);
+        return (infos != null) ? new HashMap<String, Object>(infos) : null;
+    }
+
+    /**
+     * Returns the current generation of the cache.<p>
+     * 
+     * This has to be read before the additional information is read from the database,
+     * and passed to {@link #put(CmsUUID, Map, long)} afterwards.<p>
+     * 
+     * @return the current generation
+     */
+    public long getGeneration() {
+
+        return m_generation.get();
+    }
+
+    /**
+     * Returns the number of users in the cache.<p>
+     * 
+     * @return the number of users in the cache
+     */
+    public int getSize() {
+
+        return m_infos.size();
+    }
+
+    /**
+     * Removes the additional information of a single user from the cache.<p>
+     * 
+     * @param userId the id of the user
+     */
+    public void invalidate(CmsUUID userId) {
+
+        m_generation.incrementAndGet();
+        m_infos.remove(userId);
+    }
+
+    /**
+     * Caches the additional information of a user read from the database.<p>
+     * 
+     * The information is only cached if no entry was invalidated since the given generation,
+     * so information read concurrently to a write never overwrites the written information.<p>
+     * 
+     * @param userId the id of the user
+     * @param infos the additional information of the user
+     * @param generation the generation of the cache before the information was read
+     */
+    public void put(CmsUUID userId, Map<String, Object> infos, long generation) {
+
+        Map<String, Object> value = Collections.unmodifiableMap(new HashMap<String, Object>(infos));
+        synchronized (m_infos) {
+            if (generation == m_generation.get()) {
+                m_infos.put(userId, value);
+            }
+        }
+    }
+}
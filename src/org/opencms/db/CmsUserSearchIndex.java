@@ -0,0 +1,681 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsUser;
+import org.opencms.file.CmsUserSearchParameters;
+import org.opencms.file.CmsUserSearchParameters.SearchKey;
+import org.opencms.file.CmsUserSearchParameters.SortKey;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.security.CmsOrganizationalUnit;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.util.CmsCollectionsGenericWrapper;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.search.WildcardTermEnum;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+
+/**
+ * Local in-memory Lucene index of the users, used to search, count, sort and page users
+ * without querying the user table.<p>
+ * 
+ * Every user is indexed with the values the search filter is matched against, with the flags for the flag 
+ * conditions, and with one sort value per sort key. Like in the database, the search filter matches any part 
+ * of the login name, first name and last name, of the email address or of the organizational unit.
+ * The sort values are made unique by appending the user id, which allows to continue a search directly 
+ * after the last user of the previous page (keyset paging) instead of collecting and skipping all users 
+ * of the previous pages.<p>
+ * 
+ * The index is built lazily from the database when it is first searched, and users are re-indexed 
+ * individually on the next search after they have been invalidated by the driver manager. 
+ * Searches with group conditions, sorted by the flag status or with wildcard characters in the 
+ * search filter are not supported by the index and have to be executed in the database, 
+ * see {@link #isSupported(CmsUserSearchParameters)}.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsUserSearchIndex {
+
+    /** The number of users read from the database at once while the index is built. */
+    private static final int BUILD_PAGE_SIZE = 1000;
+
+    /** The field for the email address. */
+    private static final String FIELD_EMAIL = "email";
+
+    /** The field for the single bits of the user flags. */
+    private static final String FIELD_FLAG = "flag";
+
+    /** The numeric field for the user flags. */
+    private static final String FIELD_FLAGS = "flags";
+
+    /** The field for the user id. */
+    private static final String FIELD_ID = "id";
+
+    /** The field for the login name, first name and last name, separated by blanks. */
+    private static final String FIELD_NAME = "name";
+
+    /** The field for the organizational unit, with leading separator as in the user table. */
+    private static final String FIELD_OU = "ou";
+
+    /** The field for the organizational unit, matched by the search filter. */
+    private static final String FIELD_OU_NAME = "ouname";
+
+    /** The prefix of the sort value fields. */
+    private static final String FIELD_SORT_PREFIX = "sort_";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsUserSearchIndex.class);
+
+    /** The maximum number of keyset paging positions kept. */
+    private static final int MAX_CURSORS = 256;
+
+    /** The separator between the sort value and the user id, sorts before all other characters. */
+    private static final char SORT_SEPARATOR = '\u0001';
+
+    /** The suffix of the fields containing the values with their original case. */
+    private static final String SUFFIX_CASE_SENSITIVE = "_cs";
+
+    /** The keyset paging positions, i.e. the sort value of the last user of a page, by query and page. */
+    private Map<String, String> m_cursors;
+
+    /** The driver manager used to read the users. */
+    private CmsDriverManager m_driverManager;
+
+    /** The ids of the users which have to be indexed again before the next search. */
+    private Set<CmsUUID> m_invalidUsers = new HashSet<CmsUUID>();
+
+    /** The current index reader, <code>null</code> if the index has not been built. */
+    private IndexReader m_reader;
+
+    /** The index writer, <code>null</code> if the index has not been built. */
+    private IndexWriter m_writer;
+
+    /**
+     * Creates a new user search index.<p>
+     * 
+     * @param driverManager the driver manager used to read the users
+     */
+    public CmsUserSearchIndex(CmsDriverManager driverManager) {
+
+        m_driverManager = driverManager;
+        m_cursors = CmsCollectionsGenericWrapper.createLRUMap(MAX_CURSORS);
+    }
+
+    /**
+     * Discards the index, it is built again from the database on the next search.<p>
+     */
+    public synchronized void clear() {
+
+        m_invalidUsers.clear();
+        m_cursors.clear();
+        try {
+            if (m_reader != null) {
+                m_reader.close();
+            }
+            if (m_writer != null) {
+                m_writer.close();
+            }
+        } catch (IOException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        } finally {
+            m_reader = null;
+            m_writer = null;
+        }
+    }
+
+    /**
+     * Counts the users matching the given search criteria.<p>
+     * 
+     * @param dbc the current database context
+     * @param searchParams the search criteria, must be supported by the index
+     * 
+     * @return the number of matching users
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    public synchronized long countUsers(CmsDbContext dbc, CmsUserSearchParameters searchParams) throws CmsException {
+
+        IndexSearcher searcher = getSearcher(dbc);
+        try {
+            TotalHitCountCollector collector = new TotalHitCountCollector();
+            searcher.search(createQuery(searchParams), collector);
+            return collector.getTotalHits();
+        } catch (IOException e) {
+            throw handleException(e);
+        } finally {
+            closeSearcher(searcher);
+        }
+    }
+
+    /**
+     * Returns the number of users in the index.<p>
+     * 
+     * @return the number of users in the index, 0 if the index has not been built yet
+     */
+    public synchronized int getSize() {
+
+        return (m_reader != null) ? m_reader.numDocs() : 0;
+    }
+
+    /**
+     * Marks a user to be indexed again before the next search.<p>
+     * 
+     * This has to be called whenever a user is created, written or deleted.<p>
+     * 
+     * @param userId the id of the modified user
+     */
+    public synchronized void invalidate(CmsUUID userId) {
+
+        if (m_writer != null) {
+            m_invalidUsers.add(userId);
+            m_cursors.clear();
+        }
+    }
+
+    /**
+     * Checks if the given search criteria can be answered by the index.<p>
+     * 
+     * @param searchParams the search criteria
+     * 
+     * @return <code>false</code> if the search criteria contain group conditions, 
+     *      the users are sorted by flag status or the search filter contains wildcard characters
+     */
+    public boolean isSupported(CmsUserSearchParameters searchParams) {
+
+        String searchFilter = searchParams.getSearchFilter();
+        return (searchParams.getGroup() == null)
+            && (searchParams.getNotGroup() == null)
+            && isEmpty(searchParams.getAnyGroups())
+            && isEmpty(searchParams.getNotAnyGroups())
+            && (searchParams.getSortKey() != SortKey.flagStatus)
+            && ((searchFilter == null) || ((searchFilter.indexOf(WildcardTermEnum.WILDCARD_STRING) < 0)
+                && (searchFilter.indexOf(WildcardTermEnum.WILDCARD_CHAR) < 0)));
+    }
+
+    /**
+     * Searches the users matching the given search criteria.<p>
+     * 
+     * Only the users of the requested page are read. If the previous page of the same search 
+     * has been requested before, the search continues after its last user.<p>
+     * 
+     * @param dbc the current database context
+     * @param searchParams the search criteria, must be supported by the index
+     * 
+     * @return the users of the requested page, sorted as requested 
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    public synchronized List<CmsUser> searchUsers(CmsDbContext dbc, CmsUserSearchParameters searchParams)
+    throws CmsException {
+
+        IndexSearcher searcher = getSearcher(dbc);
+        List<CmsUUID> ids = new ArrayList<CmsUUID>();
+        try {
+            Query query = createQuery(searchParams);
+            String sortField = getSortField(searchParams.getSortKey());
+            boolean ascending = searchParams.isAscending();
+            Sort sort = new Sort(new SortField(sortField, SortField.STRING, !ascending));
+            int pageSize = searchParams.getPageSize();
+            int page = Math.max(searchParams.getPage(), 1);
+            if (pageSize <= 0) {
+                pageSize = Math.max(searcher.maxDoc(), 1);
+                page = 1;
+            }
+            String cursorKey = query.toString() + "|" + sortField + "|" + ascending + "|" + pageSize + "|";
+            String cursor = m_cursors.get(cursorKey + (page - 1));
+            int offset = 0;
+            TopFieldDocs docs;
+            if ((page > 1) && (cursor != null)) {
+                // continue directly after the last user of the previous page
+                BooleanQuery keysetQuery = new BooleanQuery();
+                keysetQuery.add(query, Occur.MUST);
+                keysetQuery.add(ascending
+                ? new TermRangeQuery(sortField, cursor, null, false, true)
+                : new TermRangeQuery(sortField, null, cursor, true, false), Occur.MUST);
+                docs = searcher.search(keysetQuery, null, pageSize, sort);
+            } else {
+                offset = (page - 1) * pageSize;
+                docs = searcher.search(query, null, offset + pageSize, sort);
+            }
+            ScoreDoc[] hits = docs.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                ids.add(new CmsUUID(searcher.doc(hits[i].doc).get(FIELD_ID)));
+            }
+            if (hits.length > offset) {
+                m_cursors.put(cursorKey + page, (String)((FieldDoc)hits[hits.length - 1]).fields[0]);
+            }
+        } catch (IOException e) {
+            throw handleException(e);
+        } finally {
+            closeSearcher(searcher);
+        }
+        List<CmsUser> users = new ArrayList<CmsUser>(ids.size());
+        for (CmsUUID id : ids) {
+            try {
+                users.add(readUser(dbc, id));
+            } catch (CmsDbEntryNotFoundException e) {
+                // the user has been deleted in the meantime
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Reads a single user from the database.<p>
+     * 
+     * @param dbc the current database context
+     * @param userId the id of the user
+     * 
+     * @return the user
+     * 
+     * @throws CmsException if something goes wrong, 
+     *      {@link CmsDbEntryNotFoundException} if the user does not exist
+     */
+    protected CmsUser readUser(CmsDbContext dbc, CmsUUID userId) throws CmsException {
+
+        return m_driverManager.readUser(dbc, userId);
+    }
+
+    /**
+     * Reads a page of all users from the database, ordered by id.<p>
+     * 
+     * @param dbc the current database context
+     * @param page the page to read, starting with 1
+     * @param pageSize the number of users per page
+     * 
+     * @return the users of the page 
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    protected List<CmsUser> readUsers(CmsDbContext dbc, int page, int pageSize) throws CmsException {
+
+        CmsUserSearchParameters searchParams = new CmsUserSearchParameters();
+        searchParams.setPaging(pageSize, page);
+        return m_driverManager.getUserDriver(dbc).searchUsers(dbc, searchParams);
+    }
+
+    /**
+     * Adds a value the search filter is matched against, in lower case and with its original case.<p>
+     * 
+     * @param document the document
+     * @param field the field to add the value to
+     * @param value the value, may be <code>null</code>
+     */
+    private void addMatchValue(Document document, String field, String value) {
+
+        if (value == null) {
+            return;
+        }
+        document.add(createKeyword(field, value.toLowerCase(), false));
+        document.add(createKeyword(field + SUFFIX_CASE_SENSITIVE, value, false));
+    }
+
+    /**
+     * Builds the index from the database.<p>
+     * 
+     * @param dbc the current database context
+     * 
+     * @throws CmsException if reading the users fails
+     * @throws IOException if writing the index fails 
+     */
+    private void build(CmsDbContext dbc) throws CmsException, IOException {
+
+        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_36, new KeywordAnalyzer());
+        m_writer = new IndexWriter(new RAMDirectory(), config);
+        int page = 1;
+        List<CmsUser> users;
+        do {
+            users = readUsers(dbc, page, BUILD_PAGE_SIZE);
+            for (CmsUser user : users) {
+                m_writer.addDocument(createDocument(user));
+            }
+            page++;
+        } while (users.size() == BUILD_PAGE_SIZE);
+        m_reader = IndexReader.open(m_writer, true);
+    }
+
+    /**
+     * Closes a searcher, without closing the shared index reader.<p>
+     * 
+     * @param searcher the searcher to close
+     */
+    private void closeSearcher(IndexSearcher searcher) {
+
+        try {
+            searcher.close();
+        } catch (IOException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Creates the index document for a user.<p>
+     * 
+     * @param user the user
+     * 
+     * @return the index document
+     */
+    private Document createDocument(CmsUser user) {
+
+        Document document = new Document();
+        String id = user.getId().toString();
+        document.add(createKeyword(FIELD_ID, id, true));
+        document.add(createKeyword(FIELD_OU, CmsOrganizationalUnit.SEPARATOR + user.getOuFqn(), false));
+        document.add(new NumericField(FIELD_FLAGS).setIntValue(user.getFlags()));
+        for (int bit = 1; bit != 0; bit <<= 1) {
+            if ((user.getFlags() & bit) != 0) {
+                document.add(createKeyword(FIELD_FLAG, String.valueOf(bit), false));
+            }
+        }
+        // the same value as the concatenated name columns of the database query 
+        addMatchValue(
+            document,
+            FIELD_NAME,
+            toString(user.getSimpleName()) + " " + toString(user.getFirstname()) + " " + toString(user.getLastname()));
+        addMatchValue(document, FIELD_EMAIL, user.getEmail());
+        addMatchValue(document, FIELD_OU_NAME, CmsOrganizationalUnit.SEPARATOR + user.getOuFqn());
+        document.add(createKeyword(getSortField(null), id, false));
+        for (SortKey sortKey : SortKey.values()) {
+            String value = getSortValue(user, sortKey);
+            if (value != null) {
+                document.add(createKeyword(getSortField(sortKey), value + SORT_SEPARATOR + id, false));
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Creates a non tokenized field.<p>
+     * 
+     * @param name the field name
+     * @param value the field value
+     * @param store if the value has to be stored
+     * 
+     * @return the field
+     */
+    private Field createKeyword(String name, String value, boolean store) {
+
+        return new Field(name, value, store ? Field.Store.YES : Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS);
+    }
+
+    /**
+     * Creates the index query for the given search criteria, with the same semantics as the database query.<p>
+     * 
+     * Like the <code>LIKE '%filter%'</code> condition of the database query, the search filter has to be 
+     * a part of the names, the email address or the organizational unit of a user.<p>
+     * 
+     * @param searchParams the search criteria
+     * 
+     * @return the index query
+     */
+    private Query createQuery(CmsUserSearchParameters searchParams) {
+
+        BooleanQuery query = new BooleanQuery();
+        query.add(new MatchAllDocsQuery(), Occur.MUST);
+        CmsOrganizationalUnit orgUnit = searchParams.getOrganizationalUnit();
+        if (orgUnit != null) {
+            Term ouTerm = new Term(FIELD_OU, CmsOrganizationalUnit.SEPARATOR + orgUnit.getName());
+            query.add(searchParams.recursiveOrgUnits() ? new PrefixQuery(ouTerm) : new TermQuery(ouTerm), Occur.MUST);
+            Query webuserQuery = NumericRangeQuery.newIntRange(
+                FIELD_FLAGS,
+                Integer.valueOf(I_CmsPrincipal.FLAG_USER_WEBUSER),
+                Integer.valueOf(2 * I_CmsPrincipal.FLAG_USER_WEBUSER),
+                true,
+                false);
+            query.add(webuserQuery, orgUnit.hasFlagWebuser() ? Occur.MUST : Occur.MUST_NOT);
+        }
+        Query coreQuery = NumericRangeQuery.newIntRange(
+            FIELD_FLAGS,
+            null,
+            Integer.valueOf(I_CmsPrincipal.FLAG_CORE_LIMIT),
+            true,
+            true);
+        if (searchParams.isFilterCore()) {
+            query.add(coreQuery, Occur.MUST);
+        }
+        List<CmsOrganizationalUnit> allowedOus = searchParams.getAllowedOus();
+        if ((allowedOus != null) && !allowedOus.isEmpty()) {
+            BooleanQuery ouQuery = new BooleanQuery();
+            for (CmsOrganizationalUnit ou : allowedOus) {
+                String ouName = CmsStringUtil.joinPaths(CmsOrganizationalUnit.SEPARATOR, ou.getName());
+                ouQuery.add(new TermQuery(new Term(FIELD_OU, ouName)), Occur.SHOULD);
+            }
+            query.add(ouQuery, Occur.MUST);
+        }
+        int flags = searchParams.getFlags();
+        if (flags != 0) {
+            BooleanQuery flagQuery = new BooleanQuery();
+            for (int bit = 1; bit != 0; bit <<= 1) {
+                if ((flags & bit) != 0) {
+                    flagQuery.add(new TermQuery(new Term(FIELD_FLAG, String.valueOf(bit))), Occur.MUST);
+                }
+            }
+            if (searchParams.keepCoreUsers()) {
+                BooleanQuery flagOrCoreQuery = new BooleanQuery();
+                flagOrCoreQuery.add(flagQuery, Occur.SHOULD);
+                flagOrCoreQuery.add(coreQuery, Occur.SHOULD);
+                flagQuery = flagOrCoreQuery;
+            }
+            query.add(flagQuery, Occur.MUST);
+        }
+        String searchFilter = searchParams.getSearchFilter();
+        if (!CmsStringUtil.isEmptyOrWhitespaceOnly(searchFilter)) {
+            boolean caseSensitive = searchParams.isCaseSensitive();
+            String suffix = caseSensitive ? SUFFIX_CASE_SENSITIVE : "";
+            if (!caseSensitive) {
+                searchFilter = searchFilter.toLowerCase();
+            }
+            String pattern = WildcardTermEnum.WILDCARD_STRING + searchFilter + WildcardTermEnum.WILDCARD_STRING;
+            Set<SearchKey> searchKeys = searchParams.getSearchKeys();
+            BooleanQuery filterQuery = new BooleanQuery();
+            filterQuery.add(new WildcardQuery(new Term(FIELD_NAME + suffix, pattern)), Occur.SHOULD);
+            if (searchKeys.contains(SearchKey.email)) {
+                filterQuery.add(new WildcardQuery(new Term(FIELD_EMAIL + suffix, pattern)), Occur.SHOULD);
+            }
+            if (searchKeys.contains(SearchKey.orgUnit)) {
+                filterQuery.add(new WildcardQuery(new Term(FIELD_OU_NAME + suffix, pattern)), Occur.SHOULD);
+            }
+            query.add(filterQuery, Occur.MUST);
+        }
+        return query;
+    }
+
+    /**
+     * Returns a searcher for the current state of the index.<p>
+     * 
+     * Builds the index if needed, and indexes all invalidated users again.<p>
+     * 
+     * @param dbc the current database context
+     * 
+     * @return the searcher, has to be closed after use 
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    private IndexSearcher getSearcher(CmsDbContext dbc) throws CmsException {
+
+        try {
+            if (m_writer == null) {
+                build(dbc);
+            } else if (!m_invalidUsers.isEmpty()) {
+                for (CmsUUID userId : m_invalidUsers) {
+                    Term idTerm = new Term(FIELD_ID, userId.toString());
+                    try {
+                        m_writer.updateDocument(idTerm, createDocument(readUser(dbc, userId)));
+                    } catch (CmsDbEntryNotFoundException e) {
+                        m_writer.deleteDocuments(idTerm);
+                    }
+                }
+                m_invalidUsers.clear();
+                IndexReader reader = IndexReader.openIfChanged(m_reader, m_writer, true);
+                if (reader != null) {
+                    m_reader.close();
+                    m_reader = reader;
+                }
+            }
+        } catch (IOException e) {
+            throw handleException(e);
+        } catch (CmsException e) {
+            clear();
+            throw e;
+        }
+        return new IndexSearcher(m_reader);
+    }
+
+    /**
+     * Returns the name of the sort value field for the given sort key.<p>
+     * 
+     * @param sortKey the sort key, <code>null</code> to sort by id
+     * 
+     * @return the sort value field 
+     */
+    private String getSortField(SortKey sortKey) {
+
+        return FIELD_SORT_PREFIX + ((sortKey != null) ? sortKey.name() : FIELD_ID);
+    }
+
+    /**
+     * Returns the sort value of a user, with the same order as the database sort expression.<p>
+     * 
+     * @param user the user
+     * @param sortKey the sort key
+     * 
+     * @return the sort value, or <code>null</code> if the sort key is not supported by the index
+     */
+    private String getSortValue(CmsUser user, SortKey sortKey) {
+
+        switch (sortKey) {
+            case activated:
+                return String.valueOf(user.getFlags() % 2);
+            case email:
+                return toLowerCase(user.getEmail());
+            case fullName:
+                String fullName = toLowerCase(user.getFirstname())
+                    + " "
+                    + toLowerCase(user.getLastname())
+                    + " ("
+                    + toLowerCase(user.getSimpleName())
+                    + ")";
+                return fullName.trim();
+            case lastLogin:
+                // zero padded, so that the string order is the numeric order
+                return String.format("%020d", Long.valueOf(Math.max(user.getLastlogin(), 0)));
+            case loginName:
+                return toLowerCase(user.getSimpleName());
+            case orgUnit:
+                return CmsOrganizationalUnit.SEPARATOR + user.getOuFqn();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Discards the index after an index error and wraps the error.<p>
+     * 
+     * @param e the index error
+     * 
+     * @return the exception to throw
+     */
+    private CmsException handleException(IOException e) {
+
+        clear();
+        return new CmsDbIoException(Messages.get().container(Messages.ERR_USER_SEARCH_INDEX_0), e);
+    }
+
+    /**
+     * Checks if a collection is <code>null</code> or empty.<p>
+     * 
+     * @param collection the collection to check
+     * 
+     * @return <code>true</code> if the collection is <code>null</code> or empty
+     */
+    private boolean isEmpty(Collection<?> collection) {
+
+        return (collection == null) || collection.isEmpty();
+    }
+
+    /**
+     * Converts a value to lower case, treating <code>null</code> as an empty value.<p>
+     * 
+     * @param value the value
+     * 
+     * @return the lower case value
+     */
+    private String toLowerCase(String value) {
+
+        return (value != null) ? value.toLowerCase() : "";
+    }
+
+    /**
+     * Returns the given value, treating <code>null</code> as an empty value.<p>
+     * 
+     * @param value the value
+     * 
+     * @return the value, or an empty value
+     */
+    private String toString(String value) {
+
+        return (value != null) ? value : "";
+    }
+}
\ No newline at end of file
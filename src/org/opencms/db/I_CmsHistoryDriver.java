@@ -86,6 +86,27 @@ public interface I_CmsHistoryDriver {
     int deleteEntries(CmsDbContext dbc, I_CmsHistoryResource histResource, int versionsToKeep, long time)
     throws CmsDataAccessException;
 
+    /**
+     * Deletes the historical versions of several resources at once, 
+     * keeping maximal <code>versionsToKeep</code> versions of each resource.<p>
+     * 
+     * Drivers may execute the deletion of all given resources as a batch, 
+     * which is used when clearing the history chunk by chunk.<p>
+     * 
+     * @param dbc the current database context
+     * @param histResources the historical resources to delete versions for 
+     * @param versionsToKeep the number of versions to keep
+     * @param time deleted resources older than this will also be deleted, is ignored if negative
+     * 
+     * @return the number of versions that were deleted
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     * 
+     * @see #deleteEntries(CmsDbContext, I_CmsHistoryResource, int, long)
+     */
+    int deleteEntries(CmsDbContext dbc, List<I_CmsHistoryResource> histResources, int versionsToKeep, long time)
+    throws CmsDataAccessException;
+
     /**
      * Deletes a property definition.<p>
      * 
@@ -125,6 +146,40 @@ public interface I_CmsHistoryDriver {
      */
     List<I_CmsHistoryResource> getAllNotDeletedEntries(CmsDbContext dbc) throws CmsDataAccessException;
 
+    /**
+     * Returns a chunk of the historical entries of deleted resources, 
+     * ordered by structure id.<p>
+     * 
+     * @param dbc the current database context
+     * @param afterStructureId only entries with a structure id greater than this are returned
+     * @param maxEntries the maximal number of entries to return
+     * 
+     * @return a list of historical resources, as <code>{@link I_CmsHistoryResource}</code> objects
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     * 
+     * @see #getAllDeletedEntries(CmsDbContext)
+     */
+    List<I_CmsHistoryResource> getDeletedEntries(CmsDbContext dbc, CmsUUID afterStructureId, int maxEntries)
+    throws CmsDataAccessException;
+
+    /**
+     * Returns a chunk of the historical entries of not deleted resources, 
+     * ordered by structure id.<p>
+     * 
+     * @param dbc the current database context
+     * @param afterStructureId only entries with a structure id greater than this are returned
+     * @param maxEntries the maximal number of entries to return
+     * 
+     * @return a list of historical resources, as <code>{@link I_CmsHistoryResource}</code> objects
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     * 
+     * @see #getAllNotDeletedEntries(CmsDbContext)
+     */
+    List<I_CmsHistoryResource> getNotDeletedEntries(CmsDbContext dbc, CmsUUID afterStructureId, int maxEntries)
+    throws CmsDataAccessException;
+
     /**
      * Returns the SqlManager of this driver.<p>
      * 
@@ -141,6 +196,21 @@ public interface I_CmsHistoryDriver {
      */
     CmsSqlManager initSqlManager(String classname);
 
+    /**
+     * Merges consecutive historical content records of a resource that contain identical content.<p>
+     * 
+     * The remaining record covers the publish tag ranges of all merged records, so the content
+     * is stored only once for all historical versions that share it.<p>
+     * 
+     * @param dbc the current database context
+     * @param resourceId the resource id of the resource to merge the historical contents for
+     * 
+     * @return the number of removed content records
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    int mergeHistoricalContents(CmsDbContext dbc, CmsUUID resourceId) throws CmsDataAccessException;
+
     /**
      * Reads all file headers of the resource with the given structure id.<p>
      * 
@@ -332,6 +402,17 @@ public interface I_CmsHistoryDriver {
      */
     I_CmsHistoryResource readResource(CmsDbContext dbc, CmsUUID structureId, int version) throws CmsDataAccessException;
 
+    /**
+     * Reads the resource ids of all resources with more than one content record.<p>
+     * 
+     * @param dbc the current database context
+     * 
+     * @return the list of resource ids, as <code>{@link CmsUUID}</code> objects
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    List<CmsUUID> readResourceIdsWithHistoricalContents(CmsDbContext dbc) throws CmsDataAccessException;
+
     /**
      * Sets the driver manager for this driver if possible.<p>
      * 
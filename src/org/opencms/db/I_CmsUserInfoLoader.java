@@ -0,0 +1,57 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.main.CmsException;
+import org.opencms.util.CmsUUID;
+
+import java.util.Map;
+
+/**
+ * Reads the additional information of a user on first access.<p>
+ * 
+ * The user driver attaches a loader to the users it reads, so that the additional information 
+ * is only read from the database if it is actually used.<p>
+ * 
+ * @since 8.5.0
+ * 
+ * @see org.opencms.file.CmsUser#setAdditionalInfoLoader(I_CmsUserInfoLoader)
+ */
+public interface I_CmsUserInfoLoader {
+
+    /**
+     * Reads the additional information of the user with the given id.<p>
+     * 
+     * @param userId the id of the user
+     * 
+     * @return the additional information of the user
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    Map<String, Object> readUserInfos(CmsUUID userId) throws CmsException;
+}
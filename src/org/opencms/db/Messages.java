@@ -354,6 +354,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_MARK_RESOURCE_AS_VISITED_2 = "ERR_MARK_RESOURCE_AS_VISITED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_MERGE_HISTORY_CONTENTS_0 = "ERR_MERGE_HISTORY_CONTENTS_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_MERGING_PUBLISH_LISTS_0 = "ERR_MERGING_PUBLISH_LISTS_0";
 
@@ -738,6 +741,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_USERNAME_PASSWORD_MISMATCH_1 = "ERR_USERNAME_PASSWORD_MISMATCH_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_USER_SEARCH_INDEX_0 = "ERR_USER_SEARCH_INDEX_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_VALIDATE_RELATIONS_0 = "ERR_VALIDATE_RELATIONS_0";
 
@@ -870,12 +876,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_GET_TIMESTAMP_2 = "LOG_GET_TIMESTAMP_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MERGE_HISTORY_CONTENTS_FAILED_1 = "LOG_MERGE_HISTORY_CONTENTS_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NO_EXPORT_POINTS_CONFIGURED_0 = "LOG_NO_EXPORT_POINTS_CONFIGURED_0";
 
     /** Message constant for key in the resource bundle. */
     public static final String LOG_UPDATE_EXORT_POINTS_ERROR_0 = "LOG_UPDATE_EXORT_POINTS_ERROR_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_USER_SEARCH_INDEX_FAILED_0 = "LOG_USER_SEARCH_INDEX_FAILED_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WRITE_EXPORT_POINT_1 = "LOG_WRITE_EXPORT_POINT_1";
 
@@ -894,6 +906,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_DELETE_NOTHING_0 = "RPT_DELETE_NOTHING_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_DELETE_VERSIONS_SUSPENDED_1 = "RPT_DELETE_VERSIONS_SUSPENDED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_END_DELETE_ACT_VERSIONS_0 = "RPT_END_DELETE_ACT_VERSIONS_0";
 
@@ -903,6 +918,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_END_DELETE_VERSIONS_0 = "RPT_END_DELETE_VERSIONS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_END_MERGE_HISTORY_CONTENTS_2 = "RPT_END_MERGE_HISTORY_CONTENTS_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_EXPORT_POINTS_DELETE_0 = "RPT_EXPORT_POINTS_DELETE_0";
 
@@ -933,6 +951,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_START_DELETE_VERSIONS_0 = "RPT_START_DELETE_VERSIONS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_START_MERGE_HISTORY_CONTENTS_0 = "RPT_START_MERGE_HISTORY_CONTENTS_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_VERSION_DELETING_1 = "RPT_VERSION_DELETING_1";
 
@@ -63,8 +63,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -121,157 +124,113 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
      * @see org.opencms.db.I_CmsHistoryDriver#deleteEntries(CmsDbContext, I_CmsHistoryResource, int, long)
      */
     public int deleteEntries(CmsDbContext dbc, I_CmsHistoryResource resource, int versionsToKeep, long time)
+    throws CmsDataAccessException {
+
+        return deleteEntries(dbc, Collections.singletonList(resource), versionsToKeep, time);
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#deleteEntries(CmsDbContext, List, int, long)
+     */
+    public int deleteEntries(CmsDbContext dbc, List<I_CmsHistoryResource> resources, int versionsToKeep, long time)
     throws CmsDataAccessException {
 
         Connection conn = null;
         PreparedStatement stmt = null;
-        ResultSet res = null;
+        int count = 0;
 
         try {
             conn = m_sqlManager.getConnection(dbc);
 
-            int maxVersion = -1;
-            // get the maximal version number for this resource
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_STRUCTURE_HISTORY_MAXVER");
-            stmt.setString(1, resource.getStructureId().toString());
-            res = stmt.executeQuery();
-            if (res.next()) {
-                maxVersion = res.getInt(1);
-                while (res.next()) {
-                    // do nothing only move through all rows because of mssql odbc driver
+            // collect the minimal structure publish tag to keep for every resource with versions to delete
+            List<I_CmsHistoryResource> toDelete = new ArrayList<I_CmsHistoryResource>(resources.size());
+            List<Integer> minStrPublishTags = new ArrayList<Integer>(resources.size());
+            for (I_CmsHistoryResource resource : resources) {
+                int minStrPublishTagToKeep = internalReadMinPublishTagToKeep(dbc, conn, resource, versionsToKeep, time);
+                if (minStrPublishTagToKeep > 0) {
+                    toDelete.add(resource);
+                    minStrPublishTags.add(Integer.valueOf(minStrPublishTagToKeep));
                 }
-            } else {
-                // make sure the connection is closed
-                m_sqlManager.closeAll(dbc, conn, stmt, res);
-                // nothing to delete
-                internalCleanup(dbc, resource);
-                return 0;
             }
-            m_sqlManager.closeAll(dbc, conn, stmt, res);
 
-            if (time >= 0) {
-                int maxVersionByTime = -1;
-                conn = m_sqlManager.getConnection(dbc);
-                // get the maximal version to keep for this resource based on the time parameter
-                stmt = m_sqlManager.getPreparedStatement(conn, "C_STRUCTURE_HISTORY_MAXVER_BYTIME");
-                stmt.setString(1, resource.getStructureId().toString());
-                stmt.setLong(2, time);
-                res = stmt.executeQuery();
-                if (res.next()) {
-                    maxVersionByTime = res.getInt(1);
-                    while (res.next()) {
-                        // do nothing only move through all rows because of mssql odbc driver
-                    }
-                }
-                m_sqlManager.closeAll(dbc, conn, stmt, res);
-                if (maxVersionByTime > 0) {
-                    if (versionsToKeep < 0) {
-                        versionsToKeep = (maxVersion - maxVersionByTime);
-                    } else {
-                        versionsToKeep = Math.min(versionsToKeep, (maxVersion - maxVersionByTime));
-                    }
+            if (!toDelete.isEmpty()) {
+                // delete the properties
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_PROPERTIES_HISTORY_DELETE");
+                for (int i = 0; i < toDelete.size(); i++) {
+                    stmt.setString(1, toDelete.get(i).getStructureId().toString());
+                    stmt.setInt(2, minStrPublishTags.get(i).intValue());
+                    stmt.addBatch();
                 }
-            }
-
-            if ((maxVersion - versionsToKeep) <= 0) {
-                // nothing to delete
-                internalCleanup(dbc, resource);
-                return 0;
-            }
+                stmt.executeBatch();
+                m_sqlManager.closeAll(dbc, null, stmt, null);
 
-            // get the minimal structure publish tag to keep for this sibling
-            int minStrPublishTagToKeep = -1;
-            conn = m_sqlManager.getConnection(dbc);
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_READ_MAXTAG_FOR_VERSION");
-            stmt.setString(1, resource.getStructureId().toString());
-            stmt.setInt(2, (1 + maxVersion) - versionsToKeep);
-            res = stmt.executeQuery();
-            if (res.next()) {
-                minStrPublishTagToKeep = res.getInt(1);
-                while (res.next()) {
-                    // do nothing only move through all rows because of mssql odbc driver
+                // delete the structure entries
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_STRUCTURE_HISTORY_DELETE");
+                for (int i = 0; i < toDelete.size(); i++) {
+                    stmt.setString(1, toDelete.get(i).getStructureId().toString());
+                    stmt.setInt(2, minStrPublishTags.get(i).intValue());
+                    stmt.addBatch();
                 }
-            } else {
-                // make sure the statement and the result is closed
-                m_sqlManager.closeAll(dbc, conn, stmt, res);
-                // nothing to delete
-                internalCleanup(dbc, resource);
-                return 0;
-            }
-            m_sqlManager.closeAll(dbc, conn, stmt, res);
-            if (minStrPublishTagToKeep < 1) {
-                // nothing to delete
-                internalCleanup(dbc, resource);
-                return 0;
-            }
-            minStrPublishTagToKeep++;
+                int[] structureVersions = stmt.executeBatch();
+                m_sqlManager.closeAll(dbc, null, stmt, null);
 
-            // delete the properties
-            conn = m_sqlManager.getConnection(dbc);
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_PROPERTIES_HISTORY_DELETE");
-            stmt.setString(1, resource.getStructureId().toString());
-            stmt.setInt(2, minStrPublishTagToKeep);
-            stmt.executeUpdate();
-            m_sqlManager.closeAll(dbc, null, stmt, null);
+                // get the minimal resource publish tag to keep, after all structure entries have been deleted
+                int[] minResPublishTags = new int[toDelete.size()];
+                boolean hasResourceEntries = false;
+                for (int i = 0; i < toDelete.size(); i++) {
+                    minResPublishTags[i] = internalReadMinUsedPublishTag(dbc, conn, toDelete.get(i));
+                    hasResourceEntries |= (minResPublishTags[i] >= 0);
+                }
 
-            // delete the structure entries
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_STRUCTURE_HISTORY_DELETE");
-            stmt.setString(1, resource.getStructureId().toString());
-            stmt.setInt(2, minStrPublishTagToKeep);
-            int structureVersions = stmt.executeUpdate();
-            m_sqlManager.closeAll(dbc, null, stmt, null);
+                int[] resourceVersions = new int[toDelete.size()];
+                if (hasResourceEntries) {
+                    // delete the resource entries
+                    stmt = m_sqlManager.getPreparedStatement(conn, "C_RESOURCES_HISTORY_DELETE");
+                    for (int i = 0; i < toDelete.size(); i++) {
+                        if (minResPublishTags[i] >= 0) {
+                            stmt.setString(1, toDelete.get(i).getResourceId().toString());
+                            stmt.setInt(2, minResPublishTags[i]);
+                            stmt.addBatch();
+                        }
+                    }
+                    int[] deletedResources = stmt.executeBatch();
+                    m_sqlManager.closeAll(dbc, null, stmt, null);
+                    int batchIndex = 0;
+                    for (int i = 0; i < toDelete.size(); i++) {
+                        if (minResPublishTags[i] >= 0) {
+                            resourceVersions[i] = deletedResources[batchIndex++];
+                        }
+                    }
 
-            // get the minimal resource publish tag to keep, 
-            // all entries with publish tag less than this will be deleted
-            int minResPublishTagToKeep = -1;
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_READ_MIN_USED_TAG");
-            stmt.setString(1, resource.getResourceId().toString());
-            res = stmt.executeQuery();
-            if (res.next()) {
-                minResPublishTagToKeep = res.getInt(1);
-                if (res.wasNull()) {
-                    // the database will return a row with a single NULL column if there are no rows at all for the given
-                    // resource id. This means that we want to clean up all resource history and content history entries 
-                    // for this resource id, and we achieve this by comparing their publish tag with the maximum integer.
-                    minResPublishTagToKeep = Integer.MAX_VALUE;
+                    // delete the content entries
+                    stmt = m_sqlManager.getPreparedStatement(conn, "C_CONTENT_HISTORY_DELETE");
+                    for (int i = 0; i < toDelete.size(); i++) {
+                        if (minResPublishTags[i] >= 0) {
+                            stmt.setString(1, toDelete.get(i).getResourceId().toString());
+                            stmt.setInt(2, minResPublishTags[i]);
+                            stmt.addBatch();
+                        }
+                    }
+                    stmt.executeBatch();
                 }
-                while (res.next()) {
-                    // do nothing only move through all rows because of mssql odbc driver
+
+                // drivers may answer Statement.SUCCESS_NO_INFO instead of the update count
+                for (int i = 0; i < toDelete.size(); i++) {
+                    count += Math.max(0, Math.max(structureVersions[i], resourceVersions[i]));
                 }
-            } else {
-                // make sure the statement and the result is closed
-                m_sqlManager.closeAll(dbc, conn, stmt, res);
-                // nothing to delete
-                internalCleanup(dbc, resource);
-                return structureVersions;
             }
-            m_sqlManager.closeAll(dbc, conn, stmt, res);
-
-            // delete the resource entries
-            conn = m_sqlManager.getConnection(dbc);
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_RESOURCES_HISTORY_DELETE");
-            stmt.setString(1, resource.getResourceId().toString());
-            stmt.setInt(2, minResPublishTagToKeep);
-            int resourceVersions = stmt.executeUpdate();
-            m_sqlManager.closeAll(dbc, null, stmt, null);
-
-            // delete the content entries
-            stmt = m_sqlManager.getPreparedStatement(conn, "C_CONTENT_HISTORY_DELETE");
-            stmt.setString(1, resource.getResourceId().toString());
-            stmt.setInt(2, minResPublishTagToKeep);
-            stmt.executeUpdate();
-
-            // make sure the statement and the result is closed
-            m_sqlManager.closeAll(dbc, conn, stmt, res);
-            internalCleanup(dbc, resource);
-            return Math.max(structureVersions, resourceVersions);
         } catch (SQLException e) {
             throw new CmsDbSqlException(Messages.get().container(
                 Messages.ERR_GENERIC_SQL_1,
                 CmsDbSqlException.getErrorQuery(stmt)), e);
         } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, res);
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
         }
+
+        for (I_CmsHistoryResource resource : resources) {
+            internalCleanup(dbc, resource);
+        }
+        return count;
     }
 
     /**
@@ -389,6 +348,24 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return entries;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#getDeletedEntries(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, int)
+     */
+    public List<I_CmsHistoryResource> getDeletedEntries(CmsDbContext dbc, CmsUUID afterStructureId, int maxEntries)
+    throws CmsDataAccessException {
+
+        return internalReadEntries(dbc, "C_STRUCTURE_HISTORY_READ_DELETED_CHUNK", afterStructureId, maxEntries);
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#getNotDeletedEntries(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, int)
+     */
+    public List<I_CmsHistoryResource> getNotDeletedEntries(CmsDbContext dbc, CmsUUID afterStructureId, int maxEntries)
+    throws CmsDataAccessException {
+
+        return internalReadEntries(dbc, "C_STRUCTURE_HISTORY_READ_NOTDELETED_CHUNK", afterStructureId, maxEntries);
+    }
+
     /**
      * @see org.opencms.db.I_CmsHistoryDriver#getSqlManager()
      */
@@ -450,6 +427,105 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return CmsSqlManager.getInstance(classname);
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#mergeHistoricalContents(CmsDbContext, CmsUUID)
+     */
+    public int mergeHistoricalContents(CmsDbContext dbc, CmsUUID resourceId) throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        // each entry holds publish tag from, publish tag to and the online flag
+        List<int[]> versions = new ArrayList<int[]>();
+        int merged = 0;
+        boolean wasInTransaction = true;
+        boolean committed = false;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            // the deletions and extensions must be applied together, otherwise a failure
+            // in between would leave a content record that is neither merged nor complete
+            wasInTransaction = !conn.getAutoCommit();
+            if (!wasInTransaction) {
+                conn.setAutoCommit(false);
+            }
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_CONTENTS_READ_VERSIONS");
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+            while (res.next()) {
+                versions.add(new int[] {res.getInt(1), res.getInt(2), res.getInt(3)});
+            }
+            m_sqlManager.closeAll(dbc, null, stmt, res);
+            res = null;
+
+            int[] kept = null;
+            byte[] keptContent = null;
+            Iterator<int[]> it = versions.iterator();
+            while (it.hasNext()) {
+                int[] version = it.next();
+                // read the contents one by one to keep only two of them in memory
+                byte[] content = null;
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_CONTENTS_READ_VERSION");
+                stmt.setString(1, resourceId.toString());
+                stmt.setInt(2, version[0]);
+                res = stmt.executeQuery();
+                if (res.next()) {
+                    content = m_sqlManager.getBytes(res, m_sqlManager.readQuery("C_RESOURCES_FILE_CONTENT"));
+                    while (res.next()) {
+                        // do nothing only move through all rows because of mssql odbc driver
+                    }
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, res);
+                res = null;
+
+                if ((kept == null) || (content == null) || !Arrays.equals(keptContent, content)) {
+                    kept = version;
+                    keptContent = content;
+                    continue;
+                }
+                // the record has to be deleted first, since the publish tag to has to be unique
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_CONTENTS_DELETE_VERSION");
+                stmt.setString(1, resourceId.toString());
+                stmt.setInt(2, version[0]);
+                stmt.executeUpdate();
+                m_sqlManager.closeAll(dbc, null, stmt, null);
+
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_CONTENTS_EXTEND_VERSION");
+                stmt.setInt(1, version[1]);
+                stmt.setInt(2, version[2]);
+                stmt.setString(3, resourceId.toString());
+                stmt.setInt(4, kept[0]);
+                stmt.executeUpdate();
+                m_sqlManager.closeAll(dbc, null, stmt, null);
+
+                kept[1] = version[1];
+                kept[2] = version[2];
+                merged++;
+            }
+            if (!wasInTransaction) {
+                conn.commit();
+            }
+            committed = true;
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(
+                Messages.ERR_GENERIC_SQL_1,
+                CmsDbSqlException.getErrorQuery(stmt)), e);
+        } finally {
+            if (!wasInTransaction) {
+                try {
+                    if (!committed) {
+                        conn.rollback();
+                    }
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    LOG.error(e.getLocalizedMessage(), e);
+                }
+            }
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return merged;
+    }
+
     /**
      * @see org.opencms.db.I_CmsHistoryDriver#readAllAvailableVersions(CmsDbContext, CmsUUID)
      */
@@ -1224,6 +1300,33 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return resource;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#readResourceIdsWithHistoricalContents(CmsDbContext)
+     */
+    public List<CmsUUID> readResourceIdsWithHistoricalContents(CmsDbContext dbc) throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        List<CmsUUID> result = new ArrayList<CmsUUID>();
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_CONTENTS_READ_SHARED_CANDIDATES");
+            res = stmt.executeQuery();
+            while (res.next()) {
+                result.add(new CmsUUID(res.getString(1)));
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(
+                Messages.ERR_GENERIC_SQL_1,
+                CmsDbSqlException.getErrorQuery(stmt)), e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsHistoryDriver#setDriverManager(org.opencms.db.CmsDriverManager)
      */
@@ -1879,6 +1982,188 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         }
     }
 
+    /**
+     * Reads a chunk of the latest historical entries, ordered by structure id.<p>
+     * 
+     * @param dbc the current database context
+     * @param queryKey the key of the query selecting the structure ids and versions
+     * @param afterStructureId only entries with a structure id greater than this are returned
+     * @param maxEntries the maximal number of entries to return
+     * 
+     * @return a list of historical resources, as <code>{@link I_CmsHistoryResource}</code> objects
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected List<I_CmsHistoryResource> internalReadEntries(
+        CmsDbContext dbc,
+        String queryKey,
+        CmsUUID afterStructureId,
+        int maxEntries) throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+
+        Map<CmsUUID, Integer> tmpEntries = new LinkedHashMap<CmsUUID, Integer>();
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, queryKey);
+            stmt.setString(1, afterStructureId.toString());
+            stmt.setMaxRows(maxEntries);
+            res = stmt.executeQuery();
+            while (res.next() && (tmpEntries.size() < maxEntries)) {
+                CmsUUID structureId = new CmsUUID(res.getString(1));
+                int version = res.getInt(2);
+                tmpEntries.put(structureId, Integer.valueOf(version));
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(
+                Messages.ERR_GENERIC_SQL_1,
+                CmsDbSqlException.getErrorQuery(stmt)), e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+
+        // read the resources after the connection was released
+        List<I_CmsHistoryResource> entries = new ArrayList<I_CmsHistoryResource>(tmpEntries.size());
+        for (Map.Entry<CmsUUID, Integer> entry : tmpEntries.entrySet()) {
+            entries.add(readResource(dbc, entry.getKey(), entry.getValue().intValue()));
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the minimal structure publish tag to keep for the given historical resource,
+     * all structure and property entries with a publish tag less than this will be deleted.<p>
+     * 
+     * @param dbc the current database context
+     * @param conn the connection to use
+     * @param resource the historical resource to delete versions for
+     * @param versionsToKeep the number of versions to keep
+     * @param time deleted resources older than this will also be deleted, is ignored if negative
+     * 
+     * @return the minimal structure publish tag to keep, or <code>-1</code> if there is nothing to delete
+     * 
+     * @throws SQLException if something goes wrong
+     */
+    protected int internalReadMinPublishTagToKeep(
+        CmsDbContext dbc,
+        Connection conn,
+        I_CmsHistoryResource resource,
+        int versionsToKeep,
+        long time) throws SQLException {
+
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+
+        try {
+            int maxVersion = -1;
+            // get the maximal version number for this resource
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_STRUCTURE_HISTORY_MAXVER");
+            stmt.setString(1, resource.getStructureId().toString());
+            res = stmt.executeQuery();
+            if (res.next()) {
+                maxVersion = res.getInt(1);
+                while (res.next()) {
+                    // do nothing only move through all rows because of mssql odbc driver
+                }
+            } else {
+                // nothing to delete
+                return -1;
+            }
+            m_sqlManager.closeAll(dbc, null, stmt, res);
+
+            if (time >= 0) {
+                int maxVersionByTime = -1;
+                // get the maximal version to keep for this resource based on the time parameter
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_STRUCTURE_HISTORY_MAXVER_BYTIME");
+                stmt.setString(1, resource.getStructureId().toString());
+                stmt.setLong(2, time);
+                res = stmt.executeQuery();
+                if (res.next()) {
+                    maxVersionByTime = res.getInt(1);
+                    while (res.next()) {
+                        // do nothing only move through all rows because of mssql odbc driver
+                    }
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, res);
+                if (maxVersionByTime > 0) {
+                    if (versionsToKeep < 0) {
+                        versionsToKeep = (maxVersion - maxVersionByTime);
+                    } else {
+                        versionsToKeep = Math.min(versionsToKeep, (maxVersion - maxVersionByTime));
+                    }
+                }
+            }
+
+            if ((maxVersion - versionsToKeep) <= 0) {
+                // nothing to delete
+                return -1;
+            }
+
+            // get the minimal structure publish tag to keep for this sibling
+            int minStrPublishTagToKeep = -1;
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_READ_MAXTAG_FOR_VERSION");
+            stmt.setString(1, resource.getStructureId().toString());
+            stmt.setInt(2, (1 + maxVersion) - versionsToKeep);
+            res = stmt.executeQuery();
+            if (res.next()) {
+                minStrPublishTagToKeep = res.getInt(1);
+                while (res.next()) {
+                    // do nothing only move through all rows because of mssql odbc driver
+                }
+            }
+            if (minStrPublishTagToKeep < 1) {
+                // nothing to delete
+                return -1;
+            }
+            return minStrPublishTagToKeep + 1;
+        } finally {
+            m_sqlManager.closeAll(dbc, null, stmt, res);
+        }
+    }
+
+    /**
+     * Returns the minimal resource publish tag still used by a structure entry of the given historical resource,
+     * all resource and content entries with a publish tag less than this will be deleted.<p>
+     * 
+     * @param dbc the current database context
+     * @param conn the connection to use
+     * @param resource the historical resource to delete versions for
+     * 
+     * @return the minimal resource publish tag to keep, or <code>-1</code> if there is nothing to delete
+     * 
+     * @throws SQLException if something goes wrong
+     */
+    protected int internalReadMinUsedPublishTag(CmsDbContext dbc, Connection conn, I_CmsHistoryResource resource)
+    throws SQLException {
+
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+
+        try {
+            int minResPublishTagToKeep = -1;
+            stmt = m_sqlManager.getPreparedStatement(conn, "C_HISTORY_READ_MIN_USED_TAG");
+            stmt.setString(1, resource.getResourceId().toString());
+            res = stmt.executeQuery();
+            if (res.next()) {
+                minResPublishTagToKeep = res.getInt(1);
+                if (res.wasNull()) {
+                    // the database will return a row with a single NULL column if there are no rows at all for the given
+                    // resource id. This means that we want to clean up all resource history and content history entries 
+                    // for this resource id, and we achieve this by comparing their publish tag with the maximum integer.
+                    minResPublishTagToKeep = Integer.MAX_VALUE;
+                }
+                while (res.next()) {
+                    // do nothing only move through all rows because of mssql odbc driver
+                }
+            }
+            return minResPublishTagToKeep;
+        } finally {
+            m_sqlManager.closeAll(dbc, null, stmt, res);
+        }
+    }
+
     /**
      * Tests if a history resource does exist.<p>
      * 
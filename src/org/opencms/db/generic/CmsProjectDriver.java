@@ -92,6 +92,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -1291,81 +1292,15 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         boolean needToUpdateContent,
         int publishTag) throws CmsDataAccessException {
 
-        CmsFile newFile = null;
-        try {
-            // read the file content offline
-            CmsUUID projectId = dbc.getProjectId();
-            boolean dbcHasProjectId = (projectId != null) && !projectId.isNullUUID();
-            CmsUUID projectIdForReading = (!dbcHasProjectId ? offlineProject.getUuid() : CmsProject.ONLINE_PROJECT_ID);
-            dbc.setProjectId(offlineProject.getUuid());
-            byte[] offlineContent = m_driverManager.getVfsDriver(dbc).readContent(
-                dbc,
-                projectIdForReading,
-                offlineResource.getResourceId());
-            CmsFile offlineFile = new CmsFile(offlineResource);
-            offlineFile.setContents(offlineContent);
-            dbc.setProjectId(projectId);
-
-            // create the file online
-            newFile = (CmsFile)offlineFile.clone();
-            newFile.setState(CmsResource.STATE_UNCHANGED);
-
-            boolean createSibling = true;
-            // check if we are facing with a create new sibling operation
-            if (!offlineFile.getState().isNew()) {
-                createSibling = false;
-            } else {
-                // check if the resource entry already exists
-                if (!m_driverManager.getVfsDriver(dbc).validateResourceIdExists(
-                    dbc,
-                    onlineProject.getUuid(),
-                    offlineFile.getResourceId())) {
-                    // we are creating a normal resource and not a sibling
-                    createSibling = false;
-                }
-            }
-
-            // only update the content if it was not updated before
-            boolean alreadyPublished = publishedResourceIds.contains(offlineResource.getResourceId());
-            needToUpdateContent &= !alreadyPublished;
-
-            if (createSibling) {
-                if (!alreadyPublished) {
-                    // create the file online, the first time a sibling is published also the resource entry has to be actualized
-                    m_driverManager.getVfsDriver(dbc).createResource(dbc, onlineProject.getUuid(), newFile, null);
-                } else {
-                    // create the sibling online
-                    m_driverManager.getVfsDriver(dbc).createSibling(dbc, onlineProject, offlineResource);
-                }
-                newFile = new CmsFile(offlineResource);
-                newFile.setContents(offlineContent);
-            } else {
-                // update the online/offline structure and resource records of the file
-                m_driverManager.getVfsDriver(dbc).publishResource(dbc, onlineProject, newFile, offlineFile);
-            }
-            // update version numbers
-            m_driverManager.getVfsDriver(dbc).publishVersions(dbc, offlineResource, !alreadyPublished);
-
-            // create/update the content
-            m_driverManager.getVfsDriver(dbc).createOnlineContent(
-                dbc,
-                offlineFile.getResourceId(),
-                offlineFile.getContents(),
-                publishTag,
-                true,
-                needToUpdateContent);
-
-            // mark the resource as written to avoid that the same content is written for each sibling instance
-            publishedResourceIds.add(offlineResource.getResourceId());
-        } catch (CmsDataAccessException e) {
-            if (LOG.isErrorEnabled()) {
-                LOG.error(
-                    Messages.get().getBundle().key(Messages.LOG_PUBLISHING_FILE_CONTENT_1, offlineResource.toString()),
-                    e);
-            }
-            throw e;
-        }
-        return newFile;
+        return publishFileContent(
+            dbc,
+            offlineProject,
+            onlineProject,
+            offlineResource,
+            publishedResourceIds,
+            needToUpdateContent,
+            null,
+            publishTag);
     }
 
     /**
@@ -3182,6 +3117,41 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * Checks if the offline content of a changed file is identical to its current online content.<p>
+     * 
+     * If this is the case, publishing can keep the existing content record and extend its publish tag
+     * range instead of storing the same content once more for the new historical version.
+     * Only the online content is read, the offline content is the one already read for publishing.<p>
+     * 
+     * @param dbc the current database context
+     * @param onlineResource the online resource
+     * @param offlineFile the offline file, with its contents
+     * 
+     * @return <code>true</code> if the content did not change
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected boolean isContentUnchanged(CmsDbContext dbc, CmsResource onlineResource, CmsFile offlineFile)
+    throws CmsDataAccessException {
+
+        if (!onlineResource.getResourceId().equals(offlineFile.getResourceId())
+            || (onlineResource.getLength() != offlineFile.getContents().length)) {
+            return false;
+        }
+        byte[] onlineContent;
+        try {
+            onlineContent = m_driverManager.getVfsDriver(dbc).readContent(
+                dbc,
+                CmsProject.ONLINE_PROJECT_ID,
+                onlineResource.getResourceId());
+        } catch (CmsVfsResourceNotFoundException e) {
+            // no online content available
+            return false;
+        }
+        return Arrays.equals(onlineContent, offlineFile.getContents());
+    }
+
     /**
      * Build the whole WHERE SQL statement part for the given log entry filter.<p>
      *
@@ -3380,13 +3350,15 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         CmsFile newFile;
         try {
             // publish the file content
-            newFile = m_driverManager.getProjectDriver(dbc).publishFileContent(
+            // publish the file content, comparing it with the online content if only the content date changed
+            newFile = publishFileContent(
                 dbc,
                 dbc.currentProject(),
                 onlineProject,
                 offlineResource,
                 publishedResourceIds,
                 needToUpdateContent,
+                onlineResource,
                 publishTag);
 
         } catch (CmsDataAccessException e) {
@@ -3646,6 +3618,121 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * Publishes the content of a file, keeping the existing online content record 
+     * if the content did not change.<p>
+     * 
+     * @param dbc the current database context
+     * @param offlineProject the offline project to read data
+     * @param onlineProject the online project to write data
+     * @param offlineResource the offline resource
+     * @param publishedResourceIds contains the UUIDs of already published content records
+     * @param needToUpdateContent <code>true</code> if the content record has to be updated
+     * @param onlineResource the online resource to compare the content with, 
+     *      or <code>null</code> to update the content without comparing it
+     * @param publishTag the publish tag
+     * 
+     * @return the published file (online)
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     * 
+     * @see #publishFileContent(CmsDbContext, CmsProject, CmsProject, CmsResource, Set, boolean, int)
+     */
+    protected CmsFile publishFileContent(
+        CmsDbContext dbc,
+        CmsProject offlineProject,
+        CmsProject onlineProject,
+        CmsResource offlineResource,
+        Set<CmsUUID> publishedResourceIds,
+        boolean needToUpdateContent,
+        CmsResource onlineResource,
+        int publishTag) throws CmsDataAccessException {
+
+        CmsFile newFile = null;
+        try {
+            // read the file content offline
+            CmsUUID projectId = dbc.getProjectId();
+            boolean dbcHasProjectId = (projectId != null) && !projectId.isNullUUID();
+            CmsUUID projectIdForReading = (!dbcHasProjectId ? offlineProject.getUuid() : CmsProject.ONLINE_PROJECT_ID);
+            dbc.setProjectId(offlineProject.getUuid());
+            byte[] offlineContent = m_driverManager.getVfsDriver(dbc).readContent(
+                dbc,
+                projectIdForReading,
+                offlineResource.getResourceId());
+            CmsFile offlineFile = new CmsFile(offlineResource);
+            offlineFile.setContents(offlineContent);
+            dbc.setProjectId(projectId);
+
+            // create the file online
+            newFile = (CmsFile)offlineFile.clone();
+            newFile.setState(CmsResource.STATE_UNCHANGED);
+
+            boolean createSibling = true;
+            // check if we are facing with a create new sibling operation
+            if (!offlineFile.getState().isNew()) {
+                createSibling = false;
+            } else {
+                // check if the resource entry already exists
+                if (!m_driverManager.getVfsDriver(dbc).validateResourceIdExists(
+                    dbc,
+                    onlineProject.getUuid(),
+                    offlineFile.getResourceId())) {
+                    // we are creating a normal resource and not a sibling
+                    createSibling = false;
+                }
+            }
+
+            // only update the content if it was not updated before
+            boolean alreadyPublished = publishedResourceIds.contains(offlineResource.getResourceId());
+            needToUpdateContent &= !alreadyPublished;
+            if (needToUpdateContent
+                && !createSibling
+                && !dbcHasProjectId
+                && (onlineResource != null)
+                && isContentUnchanged(dbc, onlineResource, offlineFile)) {
+                // only the content date changed, keep sharing the existing content record
+                needToUpdateContent = false;
+            }
+
+            if (createSibling) {
+                if (!alreadyPublished) {
+                    // create the file online, the first time a sibling is published also the resource entry has to be actualized
+                    m_driverManager.getVfsDriver(dbc).createResource(dbc, onlineProject.getUuid(), newFile, null);
+                } else {
+                    // create the sibling online
+                    m_driverManager.getVfsDriver(dbc).createSibling(dbc, onlineProject, offlineResource);
+                }
+                newFile = new CmsFile(offlineResource);
+                newFile.setContents(offlineContent);
+            } else {
+                // update the online/offline structure and resource records of the file
+                m_driverManager.getVfsDriver(dbc).publishResource(dbc, onlineProject, newFile, offlineFile);
+            }
+            // update version numbers
+            m_driverManager.getVfsDriver(dbc).publishVersions(dbc, offlineResource, !alreadyPublished);
+
+            // create/update the content
+            m_driverManager.getVfsDriver(dbc).createOnlineContent(
+                dbc,
+                offlineFile.getResourceId(),
+                offlineFile.getContents(),
+                publishTag,
+                true,
+                needToUpdateContent);
+
+            // mark the resource as written to avoid that the same content is written for each sibling instance
+            publishedResourceIds.add(offlineResource.getResourceId());
+        } catch (CmsDataAccessException e) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error(
+                    Messages.get().getBundle().key(Messages.LOG_PUBLISHING_FILE_CONTENT_1, offlineResource.toString()),
+                    e);
+            }
+            throw e;
+        }
+        return newFile;
+    }
+
     /**
      * Publishes a new file.<p>
      *
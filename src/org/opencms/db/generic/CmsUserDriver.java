@@ -36,10 +36,12 @@ import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDbUtil;
 import org.opencms.db.CmsDriverManager;
+import org.opencms.db.CmsUserInfoCache;
 import org.opencms.db.CmsUserSettings;
 import org.opencms.db.CmsVisitEntryFilter;
 import org.opencms.db.I_CmsProjectDriver;
 import org.opencms.db.I_CmsUserDriver;
+import org.opencms.db.I_CmsUserInfoLoader;
 import org.opencms.file.CmsDataAccessException;
 import org.opencms.file.CmsFolder;
 import org.opencms.file.CmsGroup;
@@ -99,7 +101,7 @@ import org.apache.commons.logging.Log;
  * 
  * @since 6.0.0 
  */
-public class CmsUserDriver implements I_CmsUserDriver {
+public class CmsUserDriver implements I_CmsUserDriver, I_CmsUserInfoLoader {
 
     /** The root path for organizational units. */
     public static final String ORGUNIT_BASE_FOLDER = "/system/orgunits/";
@@ -114,9 +116,6 @@ public class CmsUserDriver implements I_CmsUserDriver {
     /** Attribute WRITE USER_ADDINFO value delete. */
     private static final String ATTRIBUTE_USERADDINFO_VALUE_DELETE = "delete";
 
-    /** Attribute WRITE USER_ADDINFO value insert. */
-    private static final String ATTRIBUTE_USERADDINFO_VALUE_INSERT = "insert";
-
     /** Attribute WRITE USER_ADDINFO value update. */
     private static final String ATTRIBUTE_USERADDINFO_VALUE_UPDATE = "update";
 
@@ -692,6 +691,7 @@ public class CmsUserDriver implements I_CmsUserDriver {
                 CmsDbSqlException.getErrorQuery(stmt)), e);
         } finally {
             m_sqlManager.closeAll(dbc, conn, stmt, null);
+            invalidateUserInfos(userId);
         }
     }
 
@@ -1368,8 +1368,8 @@ public class CmsUserDriver implements I_CmsUserDriver {
             m_sqlManager.closeAll(dbc, conn, stmt, res);
         }
 
-        Map<String, Object> info = readUserInfos(dbc, user.getId());
-        user.setAdditionalInfo(info);
+        // the additional infos are only read on first access
+        user.setAdditionalInfoLoader(this);
         return user;
     }
 
@@ -1413,8 +1413,8 @@ public class CmsUserDriver implements I_CmsUserDriver {
             m_sqlManager.closeAll(dbc, conn, stmt, res);
         }
 
-        Map<String, Object> info = readUserInfos(dbc, user.getId());
-        user.setAdditionalInfo(info);
+        // the additional infos are only read on first access
+        user.setAdditionalInfoLoader(this);
         return user;
     }
 
@@ -1459,8 +1459,8 @@ public class CmsUserDriver implements I_CmsUserDriver {
             m_sqlManager.closeAll(dbc, conn, stmt, res);
         }
 
-        Map<String, Object> info = readUserInfos(dbc, user.getId());
-        user.setAdditionalInfo(info);
+        // the additional infos are only read on first access
+        user.setAdditionalInfoLoader(this);
         return user;
     }
 
@@ -1469,6 +1469,15 @@ public class CmsUserDriver implements I_CmsUserDriver {
      */
     public Map<String, Object> readUserInfos(CmsDbContext dbc, CmsUUID userId) throws CmsDataAccessException {
 
+        CmsUserInfoCache cache = (m_driverManager != null) ? m_driverManager.getUserInfoCache() : null;
+        long generation = 0;
+        if (cache != null) {
+            Map<String, Object> cachedInfos = cache.get(userId);
+            if (cachedInfos != null) {
+                return cachedInfos;
+            }
+            generation = cache.getGeneration();
+        }
         Map<String, Object> infos = new HashMap<String, Object>();
 
         ResultSet res = null;
@@ -1523,10 +1532,20 @@ public class CmsUserDriver implements I_CmsUserDriver {
         } finally {
             m_sqlManager.closeAll(dbc, conn, stmt, res);
         }
-
+        if (cache != null) {
+            cache.put(userId, infos, generation);
+        }
         return infos;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsUserInfoLoader#readUserInfos(org.opencms.util.CmsUUID)
+     */
+    public Map<String, Object> readUserInfos(CmsUUID userId) throws CmsDataAccessException {
+
+        return readUserInfos(new CmsDbContext(), userId);
+    }
+
     /**
      * @see org.opencms.db.I_CmsUserDriver#readUsersOfGroup(CmsDbContext, String, boolean)
      */
@@ -1564,8 +1583,7 @@ public class CmsUserDriver implements I_CmsUserDriver {
         }
 
         for (CmsUser user : users) {
-            Map<String, Object> info = readUserInfos(dbc, user.getId());
-            user.setAdditionalInfo(info);
+            user.setAdditionalInfoLoader(this);
         }
         return users;
     }
@@ -1761,8 +1779,7 @@ public class CmsUserDriver implements I_CmsUserDriver {
             m_sqlManager.closeAll(dbc, conn, stmt, res);
         }
         for (CmsUser user : users) {
-            Map<String, Object> info = readUserInfos(dbc, user.getId());
-            user.setAdditionalInfo(info);
+            user.setAdditionalInfoLoader(this);
         }
         return users;
     }
@@ -2060,6 +2077,7 @@ public class CmsUserDriver implements I_CmsUserDriver {
             // default is to insert or update a new value
             internalWriteUserInfo(dbc, userId, key, value);
         }
+        invalidateUserInfos(userId);
     }
 
     /**
@@ -2659,8 +2677,7 @@ public class CmsUserDriver implements I_CmsUserDriver {
         }
         if (readAdditionalInfos) {
             for (CmsUser user : users) {
-                Map<String, Object> info = readUserInfos(dbc, user.getId());
-                user.setAdditionalInfo(info);
+                user.setAdditionalInfoLoader(this);
             }
         }
         return users;
@@ -2948,6 +2965,9 @@ public class CmsUserDriver implements I_CmsUserDriver {
     /**
      * Updates the user additional information map.<p>
      * 
+     * The given information is compared with the stored information, and only the differences 
+     * are written with {@link #internalWriteUserInfos(CmsDbContext, CmsUUID, List, Map, Map)}.<p>
+     * 
      * @param dbc the current database context
      * @param userId the id of the user to update
      * @param additionalInfo the info to write
@@ -2960,6 +2980,10 @@ public class CmsUserDriver implements I_CmsUserDriver {
         // get the map of existing additional infos to compare it new additional infos
         Map<String, Object> existingInfos = readUserInfos(dbc, userId);
 
+        List<String> deletedKeys = new ArrayList<String>();
+        Map<String, Object> updatedInfos = new HashMap<String, Object>();
+        Map<String, Object> newInfos = new HashMap<String, Object>();
+
         // loop over all entries of the existing additional infos
         Iterator<Entry<String, Object>> itEntries = existingInfos.entrySet().iterator();
         while (itEntries.hasNext()) {
@@ -2967,14 +2991,12 @@ public class CmsUserDriver implements I_CmsUserDriver {
             if ((entry.getKey() != null) && (entry.getValue() != null)) {
                 // entry does not exist in new additional infos -> delete it
                 if (!additionalInfo.containsKey(entry.getKey())) {
-                    dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_DELETE);
-                    writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
+                    deletedKeys.add(entry.getKey());
                 } else {
                     Object newValue = additionalInfo.get(entry.getKey());
                     // entry does exist but has different value -> update it
                     if ((newValue != null) && !newValue.equals(entry.getValue())) {
-                        dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_UPDATE);
-                        writeUserInfo(dbc, userId, entry.getKey(), newValue);
+                        updatedInfos.put(entry.getKey(), newValue);
                     }
                 }
             }
@@ -2987,10 +3009,104 @@ public class CmsUserDriver implements I_CmsUserDriver {
             if ((entry.getKey() != null) && (entry.getValue() != null)) {
                 // entry doews not exist in the existing additional infos -> create a new one
                 if (!existingInfos.containsKey(entry.getKey())) {
-                    dbc.setAttribute(ATTRIBUTE_USERADDINFO, ATTRIBUTE_USERADDINFO_VALUE_INSERT);
-                    writeUserInfo(dbc, userId, entry.getKey(), entry.getValue());
+                    newInfos.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        if (deletedKeys.isEmpty() && updatedInfos.isEmpty() && newInfos.isEmpty()) {
+            // nothing has changed
+            return;
+        }
+        try {
+            internalWriteUserInfos(dbc, userId, deletedKeys, updatedInfos, newInfos);
+        } finally {
+            invalidateUserInfos(userId);
+        }
+    }
+
+    /**
+     * Writes the changes of the user additional information.<p>
+     * 
+     * All changes are written with a single connection, using one statement batch for
+     * the deleted, the updated and the new entries each.<p>
+     * 
+     * @param dbc the current database context
+     * @param userId the id of the user to update
+     * @param deletedKeys the keys of the entries to delete
+     * @param updatedInfos the entries to update
+     * @param newInfos the entries to insert
+     * 
+     * @throws CmsDataAccessException if user data could not be written
+     */
+    protected void internalWriteUserInfos(
+        CmsDbContext dbc,
+        CmsUUID userId,
+        List<String> deletedKeys,
+        Map<String, Object> updatedInfos,
+        Map<String, Object> newInfos) throws CmsDataAccessException {
+
+        PreparedStatement stmt = null;
+        Connection conn = null;
+
+        try {
+            conn = getSqlManager().getConnection(dbc);
+            if (!deletedKeys.isEmpty()) {
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_USERDATA_DELETE_2");
+                for (String key : deletedKeys) {
+                    stmt.setString(1, userId.toString());
+                    stmt.setString(2, key);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                m_sqlManager.closeAll(dbc, null, stmt, null);
+                stmt = null;
+            }
+            if (!updatedInfos.isEmpty()) {
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_USERDATA_UPDATE_4");
+                for (Entry<String, Object> entry : updatedInfos.entrySet()) {
+                    m_sqlManager.setBytes(stmt, 1, CmsDataTypeUtil.dataSerialize(entry.getValue()));
+                    stmt.setString(2, entry.getValue().getClass().getName());
+                    stmt.setString(3, userId.toString());
+                    stmt.setString(4, entry.getKey());
+                    stmt.addBatch();
                 }
+                stmt.executeBatch();
+                m_sqlManager.closeAll(dbc, null, stmt, null);
+                stmt = null;
             }
+            if (!newInfos.isEmpty()) {
+                stmt = m_sqlManager.getPreparedStatement(conn, "C_USERDATA_WRITE_4");
+                for (Entry<String, Object> entry : newInfos.entrySet()) {
+                    stmt.setString(1, userId.toString());
+                    stmt.setString(2, entry.getKey());
+                    m_sqlManager.setBytes(stmt, 3, CmsDataTypeUtil.dataSerialize(entry.getValue()));
+                    stmt.setString(4, entry.getValue().getClass().getName());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(
+                Messages.ERR_GENERIC_SQL_1,
+                CmsDbSqlException.getErrorQuery(stmt)), e);
+        } catch (IOException e) {
+            throw new CmsDbIoException(Messages.get().container(Messages.ERR_SERIALIZING_USER_DATA_1, userId), e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
+    /**
+     * Removes the additional infos of the given user from the cache.<p>
+     * 
+     * @param userId the id of the user
+     */
+    private void invalidateUserInfos(CmsUUID userId) {
+
+        CmsUserInfoCache cache = (m_driverManager != null) ? m_driverManager.getUserInfoCache() : null;
+        if (cache != null) {
+            cache.invalidate(userId);
         }
     }
 
@@ -70,12 +70,14 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceException;
 import javax.persistence.Query;
@@ -98,6 +100,12 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
     /** Query key. */
     private static final String C_FILES_READ_HISTORY_BYID = "C_FILES_READ_HISTORY_BYID";
 
+    /** Query key. */
+    private static final String C_HISTORY_CONTENTS_READ_SHARED_CANDIDATES = "C_HISTORY_CONTENTS_READ_SHARED_CANDIDATES";
+
+    /** Query key. */
+    private static final String C_HISTORY_CONTENTS_READ_VERSIONS = "C_HISTORY_CONTENTS_READ_VERSIONS";
+
     /** Query key. */
     private static final String C_HISTORY_EXISTS_RESOURCE = "C_HISTORY_EXISTS_RESOURCE";
 
@@ -200,9 +208,15 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
     /** Query key. */
     private static final String C_STRUCTURE_HISTORY_READ_DELETED = "C_STRUCTURE_HISTORY_READ_DELETED";
 
+    /** Query key. */
+    private static final String C_STRUCTURE_HISTORY_READ_DELETED_CHUNK = "C_STRUCTURE_HISTORY_READ_DELETED_CHUNK";
+
     /** Query key. */
     private static final String C_STRUCTURE_HISTORY_READ_NOTDELETED = "C_STRUCTURE_HISTORY_READ_NOTDELETED";
 
+    /** Query key. */
+    private static final String C_STRUCTURE_HISTORY_READ_NOTDELETED_CHUNK = "C_STRUCTURE_HISTORY_READ_NOTDELETED_CHUNK";
+
     /** Query key. */
     private static final String C_STRUCTURE_HISTORY_READ_SUBRESOURCES = "C_STRUCTURE_HISTORY_READ_SUBRESOURCES";
 
@@ -370,6 +384,20 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         }
     }
 
+    /** 
+     * @see org.opencms.db.I_CmsHistoryDriver#deleteEntries(org.opencms.db.CmsDbContext, java.util.List, int, long)
+     */
+    public int deleteEntries(CmsDbContext dbc, List<I_CmsHistoryResource> resources, int versionsToKeep, long time)
+    throws CmsDataAccessException {
+
+        // the sql manager flushes the entity manager before every query, so there is nothing to gain from batching
+        int count = 0;
+        for (I_CmsHistoryResource resource : resources) {
+            count += deleteEntries(dbc, resource, versionsToKeep, time);
+        }
+        return count;
+    }
+
     /** 
      * @see org.opencms.db.I_CmsHistoryDriver#deletePropertyDefinition(org.opencms.db.CmsDbContext, org.opencms.file.CmsPropertyDefinition)
      */
@@ -457,6 +485,24 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return entries;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#getDeletedEntries(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, int)
+     */
+    public List<I_CmsHistoryResource> getDeletedEntries(CmsDbContext dbc, CmsUUID afterStructureId, int maxEntries)
+    throws CmsDataAccessException {
+
+        return internalReadEntries(dbc, C_STRUCTURE_HISTORY_READ_DELETED_CHUNK, afterStructureId, maxEntries);
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#getNotDeletedEntries(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, int)
+     */
+    public List<I_CmsHistoryResource> getNotDeletedEntries(CmsDbContext dbc, CmsUUID afterStructureId, int maxEntries)
+    throws CmsDataAccessException {
+
+        return internalReadEntries(dbc, C_STRUCTURE_HISTORY_READ_NOTDELETED_CHUNK, afterStructureId, maxEntries);
+    }
+
     /** 
      * @see org.opencms.db.I_CmsHistoryDriver#getSqlManager()
      */
@@ -505,6 +551,56 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return CmsSqlManager.getInstance(classname);
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#mergeHistoricalContents(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID)
+     */
+    public int mergeHistoricalContents(CmsDbContext dbc, CmsUUID resourceId) throws CmsDataAccessException {
+
+        int merged = 0;
+        EntityManager em = m_sqlManager.getEntityManager(dbc);
+        // commit the pending work so that the merge of this resource forms its own transaction,
+        // which is either applied completely or rolled back if a deletion or an extension fails
+        if ((em.getTransaction() != null) && em.getTransaction().isActive()) {
+            em.getTransaction().commit();
+        }
+        em.getTransaction().begin();
+        boolean committed = false;
+        try {
+            Query q = m_sqlManager.createQuery(dbc, C_HISTORY_CONTENTS_READ_VERSIONS);
+            q.setParameter(1, resourceId.toString());
+            @SuppressWarnings("unchecked")
+            List<CmsDAOContents> contents = q.getResultList();
+
+            CmsDAOContents kept = null;
+            for (CmsDAOContents c : contents) {
+                if ((kept == null)
+                    || (c.getFileContent() == null)
+                    || !Arrays.equals(kept.getFileContent(), c.getFileContent())) {
+                    kept = c;
+                    continue;
+                }
+                int publishTagTo = c.getPublishTagTo();
+                int onlineFlag = c.getOnlineFlag();
+                // the entry has to be deleted first, since the publish tag to has to be unique
+                m_sqlManager.remove(dbc, c);
+                m_sqlManager.getEntityManager(dbc).flush();
+                kept.setPublishTagTo(publishTagTo);
+                kept.setOnlineFlag(onlineFlag);
+                merged++;
+            }
+            em.getTransaction().commit();
+            committed = true;
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        } finally {
+            if (!committed && (em.getTransaction() != null) && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.getTransaction().begin();
+        }
+        return merged;
+    }
+
     /**
      * @see org.opencms.db.I_CmsHistoryDriver#readAllAvailableVersions(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID)
      */
@@ -1128,6 +1224,25 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         return resource;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsHistoryDriver#readResourceIdsWithHistoricalContents(org.opencms.db.CmsDbContext)
+     */
+    public List<CmsUUID> readResourceIdsWithHistoricalContents(CmsDbContext dbc) throws CmsDataAccessException {
+
+        List<CmsUUID> result = new ArrayList<CmsUUID>();
+        try {
+            Query q = m_sqlManager.createQuery(dbc, C_HISTORY_CONTENTS_READ_SHARED_CANDIDATES);
+            @SuppressWarnings("unchecked")
+            List<String> resourceIds = q.getResultList();
+            for (String resourceId : resourceIds) {
+                result.add(new CmsUUID(resourceId));
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDataAccessException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsHistoryDriver#setDriverManager(org.opencms.db.CmsDriverManager) 
      */
@@ -1722,6 +1837,42 @@ public class CmsHistoryDriver implements I_CmsDriver, I_CmsHistoryDriver {
         }
     }
 
+    /**
+     * Reads a chunk of the latest historical entries, ordered by structure id.<p>
+     * 
+     * @param dbc the current database context
+     * @param queryKey the key of the query selecting the structure ids and versions
+     * @param afterStructureId only entries with a structure id greater than this are returned
+     * @param maxEntries the maximal number of entries to return
+     * 
+     * @return a list of historical resources, as <code>{@link I_CmsHistoryResource}</code> objects
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected List<I_CmsHistoryResource> internalReadEntries(
+        CmsDbContext dbc,
+        String queryKey,
+        CmsUUID afterStructureId,
+        int maxEntries) throws CmsDataAccessException {
+
+        List<I_CmsHistoryResource> entries = new ArrayList<I_CmsHistoryResource>();
+        try {
+            Query q = m_sqlManager.createQuery(dbc, queryKey);
+            q.setParameter(1, afterStructureId.toString());
+            q.setMaxResults(maxEntries);
+            @SuppressWarnings("unchecked")
+            List<Object[]> res = q.getResultList();
+            for (Object[] o : res) {
+                CmsUUID structureId = new CmsUUID((String)o[0]);
+                int version = CmsDataTypeUtil.numberToInt((Number)o[1]);
+                entries.add(readResource(dbc, structureId, version));
+            }
+        } catch (PersistenceException e) {
+            throw new CmsDbSqlException(Messages.get().container(Messages.ERR_JPA_PERSITENCE_1, e), e);
+        }
+        return entries;
+    }
+
     /**
      * Tests if a history resource does exist.<p>
      * 
@@ -48,6 +48,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.dbcp.DelegatingResultSet;
 
@@ -292,4 +295,30 @@ public class CmsUserDriver extends org.opencms.db.generic.CmsUserDriver {
         internalUpdateUserInfoData(dbc, userId, key, value);
     }
 
+    /**
+     * Writes the changes of the user additional information.<p>
+     * 
+     * Since the values are written as BLOBs, the entries are written one by one.<p>
+     * 
+     * @see org.opencms.db.generic.CmsUserDriver#internalWriteUserInfos(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, java.util.Map, java.util.Map)
+     */
+    @Override
+    protected void internalWriteUserInfos(
+        CmsDbContext dbc,
+        CmsUUID userId,
+        List<String> deletedKeys,
+        Map<String, Object> updatedInfos,
+        Map<String, Object> newInfos) throws CmsDataAccessException {
+
+        for (String key : deletedKeys) {
+            internalDeleteUserInfo(dbc, userId, key);
+        }
+        for (Entry<String, Object> entry : updatedInfos.entrySet()) {
+            internalUpdateUserInfo(dbc, userId, entry.getKey(), entry.getValue());
+        }
+        for (Entry<String, Object> entry : newInfos.entrySet()) {
+            internalWriteUserInfo(dbc, userId, entry.getKey(), entry.getValue());
+        }
+    }
+
 }
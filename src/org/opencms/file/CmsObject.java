@@ -28,6 +28,7 @@
 package org.opencms.file;
 
 import org.opencms.db.CmsDbEntryNotFoundException;
+import org.opencms.db.CmsHistoryClearCursor;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.CmsResourceState;
 import org.opencms.db.CmsSecurityManager;
@@ -854,6 +855,36 @@ public final class CmsObject {
         m_securityManager.deleteHistoricalVersions(m_context, versionsToKeep, versionsDeleted, timeDeleted, report);
     }
 
+    /**
+     * Deletes the versions from the history tables in chunks, keeping the given number of versions per resource.<p>
+     * 
+     * The given cursor controls the chunk size, the pause between chunks and the maximal number of 
+     * resources processed per call. Passing the same cursor again resumes an interrupted run.<p>
+     * 
+     * @param versionsToKeep number of versions to keep, is ignored if negative 
+     * @param versionsDeleted number of versions to keep for deleted resources, is ignored if negative
+     * @param timeDeleted deleted resources older than this will also be deleted, is ignored if negative
+     * @param cursor the cursor controlling the chunks and keeping the progress
+     * @param report the report for output logging
+     * 
+     * @throws CmsException if operation was not successful
+     */
+    public void deleteHistoricalVersions(
+        int versionsToKeep,
+        int versionsDeleted,
+        long timeDeleted,
+        CmsHistoryClearCursor cursor,
+        I_CmsReport report) throws CmsException {
+
+        m_securityManager.deleteHistoricalVersions(
+            m_context,
+            versionsToKeep,
+            versionsDeleted,
+            timeDeleted,
+            cursor,
+            report);
+    }
+
     /**
      * Deletes the log entries matching the given filter.<p>
      *
@@ -2060,6 +2091,19 @@ public final class CmsObject {
         return m_securityManager.lookupPrincipal(m_context, principalName);
     }
 
+    /**
+     * Merges historical content records of the same resource that contain identical content,
+     * so that the content is stored only once for all historical versions sharing it.<p>
+     * 
+     * @param report the report for output logging
+     * 
+     * @throws CmsException if operation was not successful
+     */
+    public void mergeHistoricalContents(I_CmsReport report) throws CmsException {
+
+        m_securityManager.mergeHistoricalContents(m_context, report);
+    }
+
     /**
      * Moves a resource to the given destination.<p>
      * 
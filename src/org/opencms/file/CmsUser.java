@@ -28,8 +28,10 @@
 package org.opencms.file;
 
 import org.opencms.db.CmsUserSettings;
+import org.opencms.db.I_CmsUserInfoLoader;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
+import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsPrincipal;
 import org.opencms.security.CmsSecurityException;
@@ -72,6 +74,9 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
     /** Storage for additional user information. */
     private Map<String, Object> m_additionalInfo;
 
+    /** The loader for the additional user information, or <code>null</code> if the information is available. */
+    private volatile I_CmsUserInfoLoader m_additionalInfoLoader;
+
     /** The creation date. */
     private long m_dateCreated;
 
@@ -153,12 +158,7 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
         } else {
             m_additionalInfo = new HashMap<String, Object>();
         }
-        if (m_additionalInfo.get(CmsUserSettings.ADDITIONAL_INFO_ADDRESS) == null) {
-            m_additionalInfo.put(CmsUserSettings.ADDITIONAL_INFO_ADDRESS, "");
-        }
-        if (m_additionalInfo.get(CmsUserSettings.ADDITIONAL_INFO_DESCRIPTION) == null) {
-            m_additionalInfo.put(CmsUserSettings.ADDITIONAL_INFO_DESCRIPTION, "");
-        }
+        initAdditionalInfo();
     }
 
     /**
@@ -235,17 +235,23 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
     @Override
     public Object clone() {
 
-        return new CmsUser(
-            m_id,
-            m_name,
-            m_password,
-            m_firstname,
-            m_lastname,
-            m_email,
-            m_lastlogin,
-            m_flags,
-            m_dateCreated,
-            m_additionalInfo);
+        CmsUser user;
+        synchronized (this) {
+            user = new CmsUser(
+                m_id,
+                m_name,
+                m_password,
+                m_firstname,
+                m_lastname,
+                m_email,
+                m_lastlogin,
+                m_flags,
+                m_dateCreated,
+                m_additionalInfo);
+            // the clone reads the additional information on its own if still needed
+            user.m_additionalInfoLoader = m_additionalInfoLoader;
+        }
+        return user;
     }
 
     /**
@@ -257,6 +263,7 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
      */
     public void deleteAdditionalInfo(String key) {
 
+        readAdditionalInfo();
         m_additionalInfo.remove(key);
     }
 
@@ -272,6 +279,7 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
      */
     public Map<String, Object> getAdditionalInfo() {
 
+        readAdditionalInfo();
         return m_additionalInfo;
     }
 
@@ -287,6 +295,7 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
      */
     public Object getAdditionalInfo(String key) {
 
+        readAdditionalInfo();
         return m_additionalInfo.get(key);
     }
 
@@ -527,9 +536,10 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
      * 
      * @see #getAdditionalInfo()
      */
-    public void setAdditionalInfo(Map<String, Object> additionalInfo) {
+    public synchronized void setAdditionalInfo(Map<String, Object> additionalInfo) {
 
         m_additionalInfo = additionalInfo;
+        m_additionalInfoLoader = null;
     }
 
     /**
@@ -547,9 +557,25 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
                 Messages.ERR_USER_ADDINFO_KEY_NULL_1,
                 getFullName()));
         }
+        readAdditionalInfo();
         m_additionalInfo.put(key, value);
     }
 
+    /**
+     * Sets a loader that reads this users "additional information" storage map on first access.<p>
+     * 
+     * This is used by the user driver, so that the additional information is only read from the 
+     * database if it is actually needed.<p>
+     * 
+     * @param loader the loader for the additional information
+     * 
+     * @see #getAdditionalInfo()
+     */
+    public void setAdditionalInfoLoader(I_CmsUserInfoLoader loader) {
+
+        m_additionalInfoLoader = loader;
+    }
+
     /**
      * Sets the address line of this user.<p>
      *
@@ -719,4 +745,41 @@ public class CmsUser extends CmsPrincipal implements Cloneable {
 
         m_isTouched = true;
     }
+
+    /**
+     * Adds the default entries to the "additional information" storage map.<p>
+     */
+    private void initAdditionalInfo() {
+
+        if (m_additionalInfo.get(CmsUserSettings.ADDITIONAL_INFO_ADDRESS) == null) {
+            m_additionalInfo.put(CmsUserSettings.ADDITIONAL_INFO_ADDRESS, "");
+        }
+        if (m_additionalInfo.get(CmsUserSettings.ADDITIONAL_INFO_DESCRIPTION) == null) {
+            m_additionalInfo.put(CmsUserSettings.ADDITIONAL_INFO_DESCRIPTION, "");
+        }
+    }
+
+    /**
+     * Reads the "additional information" storage map with the loader, if it has not been read yet.<p>
+     */
+    private void readAdditionalInfo() {
+
+        if (m_additionalInfoLoader == null) {
+            return;
+        }
+        synchronized (this) {
+            I_CmsUserInfoLoader loader = m_additionalInfoLoader;
+            if (loader != null) {
+                try {
+                    m_additionalInfo = new HashMap<String, Object>(loader.readUserInfos(m_id));
+                } catch (CmsException e) {
+                    throw new CmsRuntimeException(
+                        Messages.get().container(Messages.ERR_USER_ADDINFO_READ_1, m_name),
+                        e);
+                }
+                initAdditionalInfo();
+                m_additionalInfoLoader = null;
+            }
+        }
+    }
 }
\ No newline at end of file
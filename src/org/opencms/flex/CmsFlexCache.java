@@ -38,7 +38,6 @@ import org.opencms.main.OpenCms;
 import org.opencms.security.CmsRole;
 import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsFileUtil;
-import org.opencms.util.CmsStringUtil;
 
 import java.io.File;
 import java.util.Collection;
@@ -110,7 +109,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         public CmsFlexCacheKey m_key;
 
         /** Maps variations to CmsFlexCacheEntries. */
-        public Map<String, I_CmsLruCacheObject> m_map;
+        public Map<CmsFlexCacheVariationKey, I_CmsLruCacheObject> m_map;
 
         /**
          * Generates a new instance of CmsFlexCacheVariation.<p>
@@ -120,7 +119,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         public CmsFlexCacheVariation(CmsFlexCacheKey theKey) {
 
             m_key = theKey;
-            m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            m_map = new Hashtable<CmsFlexCacheVariationKey, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
         }
     }
 
@@ -159,7 +158,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             if (v == null) {
                 return true;
             }
-            Map<String, I_CmsLruCacheObject> m = v.m_map;
+            Map<CmsFlexCacheVariationKey, I_CmsLruCacheObject> m = v.m_map;
             if ((m == null) || (m.size() == 0)) {
                 return true;
             }
@@ -430,7 +429,11 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
         Object o = m_keyCache.get(key);
         if (o != null) {
-            return ((CmsFlexCacheVariation)o).m_map.keySet();
+            Set<String> variations = new HashSet<String>();
+            for (CmsFlexCacheVariationKey variation : ((CmsFlexCacheVariation)o).m_map.keySet()) {
+                variations.add(variation.toString());
+            }
+            return variations;
         }
         return null;
     }
@@ -509,9 +512,9 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (o != null) {
             // found a matching key in the cache
             CmsFlexCacheVariation v = (CmsFlexCacheVariation)o;
-            String variation = v.m_key.matchRequestKey(key);
+            CmsFlexCacheVariationKey variation = v.m_key.matchRequestVariation(key);
 
-            if (CmsStringUtil.isEmpty(variation)) {
+            if (variation == null) {
                 // requested resource is not cacheable
                 return null;
             }
@@ -584,7 +587,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * @param variation the pre-calculated variation for the entry
      * @return true if the value was added to the cache, false otherwise
      */
-    boolean put(CmsFlexCacheKey key, CmsFlexCacheEntry entry, String variation) {
+    boolean put(CmsFlexCacheKey key, CmsFlexCacheEntry entry, CmsFlexCacheVariationKey variation) {
 
         if (!isEnabled()) {
             return false;
@@ -647,7 +650,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             return;
         }
         CmsFlexCacheVariation o = m_keyCache.get(key.getResource());
-        if (o != null) {
+        if ((o != null) && (key.getVariation() != null)) {
             I_CmsLruCacheObject old = o.m_map.get(key.getVariation());
             if (old != null) {
                 getEntryLruCache().remove(old);
@@ -702,7 +705,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                         allEntries.remove();
                         m_variationCache.remove(nextObject);
                     }
-                    v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+                    v.m_map = new Hashtable<CmsFlexCacheVariationKey, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
                 } else {
                     // Clear key and entry
                     m_size -= v.m_map.size();
@@ -754,7 +757,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                 allEntries.remove();
                 m_variationCache.remove(nextObject);
             }
-            v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            v.m_map = new Hashtable<CmsFlexCacheVariationKey, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
         }
         m_size = 0;
     }
@@ -882,7 +885,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
         if (o != null) {
             // We already have a variation map for this resource
-            Map<String, I_CmsLruCacheObject> m = o.m_map;
+            Map<CmsFlexCacheVariationKey, I_CmsLruCacheObject> m = o.m_map;
             boolean wasAdded = true;
             if (!m.containsKey(key.getVariation())) {
                 wasAdded = m_variationCache.add(theCacheEntry);
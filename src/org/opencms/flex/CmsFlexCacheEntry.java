@@ -33,10 +33,12 @@ import org.opencms.i18n.CmsMessageContainer;
 import org.opencms.main.CmsLog;
 import org.opencms.monitor.CmsMemoryMonitor;
 import org.opencms.monitor.I_CmsMemoryMonitorable;
+import org.opencms.staticexport.CmsStaticExportCompression;
 import org.opencms.util.CmsCollectionsGenericWrapper;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -83,6 +85,9 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /** Indicates if this cache entry is completed. */
     private boolean m_completed;
 
+    /** The gzip compressed content of this entry, or <code>null</code>. */
+    private byte[] m_compressedContent;
+
     /** The "expires" date for this Flex cache entry. */
     private long m_dateExpires;
 
@@ -105,10 +110,10 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     private String m_redirectTarget;
 
     /** The key under which this cache entry is stored in the variation map. */
-    private String m_variationKey;
+    private CmsFlexCacheVariationKey m_variationKey;
 
     /** The variation map where this cache entry is stored. */
-    private Map<String, I_CmsLruCacheObject> m_variationMap;
+    private Map<CmsFlexCacheVariationKey, I_CmsLruCacheObject> m_variationMap;
 
     /** 
      * Constructor for class CmsFlexCacheEntry.<p>
@@ -229,6 +234,40 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         }
     }
 
+    /**
+     * Keeps a gzip compressed copy of the content of this entry.<p>
+     * 
+     * Only entries without sub elements are compressed, and only if the compression rules 
+     * match the given MIME type and the size of the content. 
+     * This must be called after the entry was completed, but before it is added to the cache, 
+     * since the compressed content adds to the cache costs of this entry.<p>
+     * 
+     * @param compression the compression rules
+     * @param mimeType the MIME type of the content
+     * 
+     * @return <code>true</code> if this entry has compressed content
+     */
+    public boolean compress(CmsStaticExportCompression compression, String mimeType) {
+
+        if (!m_completed
+            || (m_redirectTarget != null)
+            || (m_compressedContent != null)
+            || (m_elements.size() != 1)
+            || !(m_elements.get(0) instanceof byte[])) {
+            return m_compressedContent != null;
+        }
+        byte[] content = (byte[])m_elements.get(0);
+        if (compression.isCompressible(mimeType, content.length)) {
+            byte[] compressed = CmsStaticExportCompression.gzip(content);
+            // only keep the compressed content if it actually saves bytes 
+            if (compressed.length < content.length) {
+                m_compressedContent = compressed;
+                m_byteSize += CmsMemoryMonitor.getMemorySize(compressed);
+            }
+        }
+        return m_compressedContent != null;
+    }
+
     /**
      * Returns the list of data entries of this cache entry.<p>
      * 
@@ -242,6 +281,26 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return m_elements;
     }
 
+    /**
+     * Returns the gzip compressed form of the given content, if this entry has a compressed 
+     * copy of exactly this content.<p>
+     * 
+     * @param content the uncompressed content
+     * 
+     * @return the compressed content, or <code>null</code> if not available
+     */
+    public byte[] getCompressedContent(byte[] content) {
+
+        if (m_compressedContent == null) {
+            return null;
+        }
+        byte[] cached = (byte[])m_elements.get(0);
+        if ((cached == content) || Arrays.equals(cached, content)) {
+            return m_compressedContent;
+        }
+        return null;
+    }
+
     /** 
      * Returns the expiration date of this cache entry,
      * this is set to the time when the entry becomes invalid.<p>
@@ -348,6 +407,13 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
             CmsFlexResponse.processHeaders(m_headers, res);
             // check if this cache entry is a "leaf" (i.e. no further includes)            
             boolean hasNoSubElements = (m_elements.size() == 1);
+            if (hasNoSubElements && (m_compressedContent != null)) {
+                CmsFlexController controller = CmsFlexController.getController(req);
+                if ((controller != null) && (controller.getResponseStackSize() == 2)) {
+                    // this entry is the complete output of the requested resource
+                    controller.setCompressedCacheEntry(this);
+                }
+            }
             // write output to stream and process all included elements
             for (int i = 0; i < m_elements.size(); i++) {
                 Object o = m_elements.get(i);
@@ -512,7 +578,9 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
      * @param theVariationKey the variation key
      * @param theVariationMap the variation map
      */
-    public void setVariationData(String theVariationKey, Map<String, I_CmsLruCacheObject> theVariationMap) {
+    public void setVariationData(
+        CmsFlexCacheVariationKey theVariationKey,
+        Map<CmsFlexCacheVariationKey, I_CmsLruCacheObject> theVariationMap) {
 
         m_variationKey = theVariationKey;
         m_variationMap = theVariationMap;
@@ -204,6 +204,9 @@ public class CmsFlexCacheKey {
     /** Cache key variable: Timeout of the resource. */
     private long m_timeout;
 
+    /** The timeout of the resource as used in the variation keys. */
+    private Long m_timeoutValue;
+
     /** Cache key variable: The uri of the original request. */
     private String m_uri;
 
@@ -211,7 +214,10 @@ public class CmsFlexCacheKey {
     private String m_user;
 
     /** The cache behaviour description for the resource. */
-    private String m_variation;
+    private CmsFlexCacheVariationKey m_variation;
+
+    /** The expected number of (name, value) pairs of the variation keys. */
+    private int m_variationCapacity;
 
     /**
      * This constructor is used when building a cache key from set of cache directives.<p>
@@ -232,12 +238,13 @@ public class CmsFlexCacheKey {
     public CmsFlexCacheKey(String resourcename, String cacheDirectives, boolean online) {
 
         m_resource = getKeyName(resourcename, online);
-        m_variation = "never";
         m_always = -1;
         m_timeout = -1;
         if (cacheDirectives != null) {
             parseFlexKey(cacheDirectives);
         }
+        m_timeoutValue = Long.valueOf(m_timeout);
+        m_variationCapacity = calculateVariationCapacity();
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_GENERATED_1, toString()));
         }
@@ -293,10 +300,9 @@ public class CmsFlexCacheKey {
      * Compares this key to the other key passed as parameter,
      * from comparing the two keys, a variation String is constructed.<p>
      * 
-     * This method is the "heart" of the key matching process.<p>
-     *
-     * The assumtion is that this key should be the one constructed for the response, 
-     * while the parameter key should have been constructed from the request.<p>
+     * This is the String representation of the variation key calculated by 
+     * {@link #matchRequestVariation(CmsFlexRequestKey)}, which should be used instead 
+     * where possible since it does not need to build a String.<p>
      *
      * A short example how this works:
      * If the cache key is "cache=user" and the request is done from a guest user
@@ -307,7 +313,27 @@ public class CmsFlexCacheKey {
      */
     public String matchRequestKey(CmsFlexRequestKey key) {
 
-        StringBuffer str = new StringBuffer(100);
+        CmsFlexCacheVariationKey variation = matchRequestVariation(key);
+        return variation != null ? variation.toString() : null;
+    }
+
+    /**
+     * Compares this key to the other key passed as parameter,
+     * from comparing the two keys, a variation key is constructed.<p>
+     * 
+     * This method is the "heart" of the key matching process.<p>
+     *
+     * The assumtion is that this key should be the one constructed for the response, 
+     * while the parameter key should have been constructed from the request.<p>
+     *
+     * The variation key contains only the request values for the cache directives 
+     * used by this key, its hash code is calculated once on creation.<p>
+     * 
+     * @param key the key to match this key with
+     * @return null if not cachable, or the variation key if cachable
+     */
+    public CmsFlexCacheVariationKey matchRequestVariation(CmsFlexRequestKey key) {
+
         if (m_always < 0) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_NEVER_0));
@@ -318,11 +344,12 @@ public class CmsFlexCacheKey {
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_PARAMS_0));
         }
-        if ((m_noparams != null) && (key.getParams() != null)) {
-            if ((m_noparams.size() == 0) && (key.getParams().size() > 0)) {
+        Map<String, String[]> keyParams = ((m_noparams != null) || (m_params != null)) ? key.getParams() : null;
+        if ((m_noparams != null) && (keyParams != null)) {
+            if ((m_noparams.size() == 0) && (keyParams.size() > 0)) {
                 return null;
             }
-            Iterator<String> i = key.getParams().keySet().iterator();
+            Iterator<String> i = keyParams.keySet().iterator();
             while (i.hasNext()) {
                 if (m_noparams.contains(i.next())) {
                     return null;
@@ -333,11 +360,12 @@ public class CmsFlexCacheKey {
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CHECK_NO_ATTRS_0));
         }
-        if ((m_noattrs != null) && (key.getAttributes() != null)) {
-            if ((m_noattrs.size() == 0) && (key.getAttributes().size() > 0)) {
+        Map<String, Object> keyAttrs = ((m_noattrs != null) || (m_attrs != null)) ? key.getAttributes() : null;
+        if ((m_noattrs != null) && (keyAttrs != null)) {
+            if ((m_noattrs.size() == 0) && (keyAttrs.size() > 0)) {
                 return null;
             }
-            Iterator<String> i = key.getAttributes().keySet().iterator();
+            Iterator<String> i = keyAttrs.keySet().iterator();
             while (i.hasNext()) {
                 if (m_noattrs.contains(i.next())) {
                     return null;
@@ -349,65 +377,59 @@ public class CmsFlexCacheKey {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_KEYMATCH_CACHE_ALWAYS_0));
             }
-            str.append(CACHE_00_ALWAYS);
-            return str.toString();
+            return CmsFlexCacheVariationKey.ALWAYS;
         }
 
+        CmsFlexCacheVariationKey variation = new CmsFlexCacheVariationKey(m_variationCapacity);
+
         if (m_uri != null) {
-            appendKeyValue(str, CACHE_02_URI, key.getUri());
+            variation.add(CACHE_02_URI, key.getUri());
         }
 
         if (m_site != null) {
-            appendKeyValue(str, CACHE_17_SITE, key.getSite());
+            variation.add(CACHE_17_SITE, key.getSite());
         }
 
         if (m_element != null) {
-            appendKeyValue(str, CACHE_14_ELEMENT, key.getElement());
+            variation.add(CACHE_14_ELEMENT, key.getElement());
         }
 
         if (m_device != null) {
-            appendKeyValue(str, CACHE_20_DEVICE, key.getDevice());
+            variation.add(CACHE_20_DEVICE, key.getDevice());
         }
 
         if (m_containerElement != null) {
-            appendKeyValue(str, CACHE_22_CONTAINER_ELEMENT, key.getContainerElement());
+            variation.add(CACHE_22_CONTAINER_ELEMENT, key.getContainerElement());
         }
 
         if (m_locale != null) {
-            appendKeyValue(str, CACHE_15_LOCALE, key.getLocale());
+            variation.add(CACHE_15_LOCALE, key.getLocale());
         }
 
         if (m_encoding != null) {
-            appendKeyValue(str, CACHE_16_ENCODING, key.getEncoding());
+            variation.add(CACHE_16_ENCODING, key.getEncoding());
         }
 
         if (m_ip != null) {
-            appendKeyValue(str, CACHE_13_IP, key.getIp());
+            variation.add(CACHE_13_IP, key.getIp());
         }
 
         if (m_user != null) {
-            appendKeyValue(str, CACHE_03_USER, key.getUser());
+            variation.add(CACHE_03_USER, key.getUser());
         }
 
         if (m_params != null) {
-            str.append(CACHE_04_PARAMS);
-            str.append("=(");
-            Map<String, String[]> keyParams = key.getParams();
+            variation.add(CACHE_04_PARAMS, CmsFlexCacheVariationKey.LIST_START);
             if (keyParams != null) {
                 if (m_params.size() > 0) {
                     // match only params listed in cache directives
                     Iterator<String> i = m_params.iterator();
                     while (i.hasNext()) {
-                        Object o = i.next();
-                        if (keyParams.containsKey(o)) {
-                            str.append(o);
-                            str.append("=");
-                            // TODO: handle multiple occurrences of the same parameter value
-                            String[] values = keyParams.get(o);
-                            str.append(values[0]);
-                            if (i.hasNext()) {
-                                str.append(",");
-                            }
+                        String name = i.next();
+                        // TODO: handle multiple occurrences of the same parameter value
+                        String[] values = keyParams.get(name);
+                        if (values != null) {
+                            variation.add(name, values[0]);
                         }
                     }
                 } else {
@@ -415,38 +437,25 @@ public class CmsFlexCacheKey {
                     Iterator<Map.Entry<String, String[]>> i = keyParams.entrySet().iterator();
                     while (i.hasNext()) {
                         Map.Entry<String, String[]> entry = i.next();
-                        str.append(entry.getKey());
-                        str.append("=");
                         // TODO: handle multiple occurrences of the same parameter value
-                        String[] values = entry.getValue();
-                        str.append(values[0]);
-                        if (i.hasNext()) {
-                            str.append(",");
-                        }
+                        variation.add(entry.getKey(), entry.getValue()[0]);
                     }
                 }
             }
-            str.append(");");
+            variation.add(CmsFlexCacheVariationKey.LIST_END, null);
         }
 
         if (m_attrs != null) {
-            str.append(CACHE_18_ATTRS);
-            str.append("=(");
-            Map<String, Object> keyAttrs = key.getAttributes();
+            variation.add(CACHE_18_ATTRS, CmsFlexCacheVariationKey.LIST_START);
             if (keyAttrs != null) {
                 if (m_attrs.size() > 0) {
                     // match only attributes listed in cache directives
                     Iterator<String> i = m_attrs.iterator();
                     while (i.hasNext()) {
-                        String s = i.next();
-                        if (keyAttrs.containsKey(s)) {
-                            str.append(s);
-                            str.append("=");
-                            Object value = keyAttrs.get(s);
-                            str.append(value.toString());
-                            if (i.hasNext()) {
-                                str.append(",");
-                            }
+                        String name = i.next();
+                        Object value = keyAttrs.get(name);
+                        if (value != null) {
+                            variation.add(name, value.toString());
                         }
                     }
                 } else {
@@ -454,24 +463,17 @@ public class CmsFlexCacheKey {
                     Iterator<Map.Entry<String, Object>> i = keyAttrs.entrySet().iterator();
                     while (i.hasNext()) {
                         Map.Entry<String, Object> entry = i.next();
-                        str.append(entry.getKey());
-                        str.append("=");
-                        Object value = entry.getValue();
-                        str.append(value.toString());
-                        if (i.hasNext()) {
-                            str.append(",");
-                        }
+                        variation.add(entry.getKey(), String.valueOf(entry.getValue()));
                     }
                 }
             }
-            str.append(");");
+            variation.add(CmsFlexCacheVariationKey.LIST_END, null);
         }
 
         if (m_session != null) {
-            StringBuffer buf = new StringBuffer(32);
+            int mark = variation.mark();
             boolean found = false;
-            buf.append(CACHE_07_SESSION);
-            buf.append("=(");
+            variation.add(CACHE_07_SESSION, CmsFlexCacheVariationKey.LIST_START);
             HttpSession keySession = key.getSession();
             if (keySession != null) {
                 // match only session attributes listed in cache directives
@@ -481,18 +483,14 @@ public class CmsFlexCacheKey {
                     Object val = keySession.getAttribute(name);
                     if (val != null) {
                         found = true;
-                        buf.append(name);
-                        buf.append("=");
-                        buf.append(val);
-                        if (i.hasNext()) {
-                            buf.append(",");
-                        }
+                        variation.add(name, val.toString());
                     }
                 }
             }
             if (found) {
-                buf.append(");");
-                str.append(buf);
+                variation.add(CmsFlexCacheVariationKey.LIST_END, null);
+            } else {
+                variation.reset(mark);
             }
         }
 
@@ -501,7 +499,7 @@ public class CmsFlexCacheKey {
             if ((m_schemes.size() > 0) && (!m_schemes.contains(s))) {
                 return null;
             }
-            appendKeyValue(str, CACHE_08_SCHEMES, s);
+            variation.add(CACHE_08_SCHEMES, s);
         }
 
         if (m_ports != null) {
@@ -509,24 +507,17 @@ public class CmsFlexCacheKey {
             if ((m_ports.size() > 0) && (!m_ports.contains(i))) {
                 return null;
             }
-            str.append(CACHE_09_PORTS);
-            str.append("=(");
-            str.append(i);
-            str.append(");");
+            variation.add(CACHE_09_PORTS, i);
         }
 
         if (m_timeout > 0) {
-            str.append(CACHE_06_TIMEOUT);
-            str.append("=(");
-            str.append(m_timeout);
-            str.append(");");
+            variation.add(CACHE_06_TIMEOUT, m_timeoutValue);
         }
 
-        if (str.length() > 0) {
-            return str.toString();
-        } else {
+        if (variation.isEmpty()) {
             return null;
         }
+        return variation.complete();
     }
 
     /** 
@@ -751,7 +742,7 @@ public class CmsFlexCacheKey {
      *
      * @return the variation
      */
-    protected String getVariation() {
+    protected CmsFlexCacheVariationKey getVariation() {
 
         return m_variation;
     }
@@ -761,11 +752,52 @@ public class CmsFlexCacheKey {
      *
      * @param variation the variation to set
      */
-    protected void setVariation(String variation) {
+    protected void setVariation(CmsFlexCacheVariationKey variation) {
 
         m_variation = variation;
     }
 
+    /**
+     * Calculates the expected number of (name, value) pairs of the variation keys 
+     * from the cache directives in use.<p>
+     * 
+     * @return the expected number of (name, value) pairs
+     */
+    private int calculateVariationCapacity() {
+
+        int capacity = 0;
+        Object[] directives = new Object[] {
+            m_uri,
+            m_site,
+            m_element,
+            m_device,
+            m_containerElement,
+            m_locale,
+            m_encoding,
+            m_ip,
+            m_user,
+            m_schemes,
+            m_ports};
+        for (int i = 0; i < directives.length; i++) {
+            if (directives[i] != null) {
+                capacity++;
+            }
+        }
+        if (m_params != null) {
+            capacity += 2 + (m_params.isEmpty() ? 4 : m_params.size());
+        }
+        if (m_attrs != null) {
+            capacity += 2 + (m_attrs.isEmpty() ? 4 : m_attrs.size());
+        }
+        if (m_session != null) {
+            capacity += 2 + m_session.size();
+        }
+        if (m_timeout > 0) {
+            capacity++;
+        }
+        return capacity;
+    }
+
     /**
      * Parse a String in the Flex cache language and construct 
      * the key data structure from this.<p>
@@ -0,0 +1,242 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+/**
+ * Describes a single variation of a cached Flex resource.<p>
+ *
+ * A variation key is created by {@link CmsFlexCacheKey#matchRequestVariation(CmsFlexRequestKey)} 
+ * for every Flex include. It only contains the values of the cache directives that are in use for 
+ * the resource, stored as a flat list of (directive, value) pairs. The hash code is calculated once 
+ * when the key is completed, and equality is checked on the components, so looking up a variation 
+ * in the cache does not require building a String.<p>
+ * 
+ * The String representation in the Flex cache language is only generated on demand, e.g. for 
+ * the FlexCache administration or log output.<p>
+ * 
+ * @since 8.5.0 
+ */
+public final class CmsFlexCacheVariationKey {
+
+    /** The variation key used for resources that are always cached. */
+    public static final CmsFlexCacheVariationKey ALWAYS = new CmsFlexCacheVariationKey(0).complete();
+
+    /** Marker value for a directive that is used without a value. */
+    static final Object IS_USED = new Object();
+
+    /** Marker value for the start of a directive with a list of (name, value) pairs. */
+    static final Object LIST_START = new Object();
+
+    /** Marker name for the end of a directive with a list of (name, value) pairs. */
+    static final String LIST_END = ");";
+
+    /** The components of this key, alternating directive / name and value. */
+    private Object[] m_components;
+
+    /** The precalculated hash code. */
+    private int m_hash;
+
+    /** The number of used component slots. */
+    private int m_size;
+
+    /** The cached String representation. */
+    private String m_string;
+
+    /**
+     * Creates a new, empty variation key.<p>
+     * 
+     * @param capacity the expected number of (name, value) pairs
+     */
+    CmsFlexCacheVariationKey(int capacity) {
+
+        m_components = new Object[Math.max(capacity, 1) * 2];
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof CmsFlexCacheVariationKey)) {
+            return false;
+        }
+        CmsFlexCacheVariationKey other = (CmsFlexCacheVariationKey)obj;
+        if ((other.m_hash != m_hash) || (other.m_size != m_size)) {
+            return false;
+        }
+        for (int i = 0; i < m_size; i++) {
+            Object o1 = m_components[i];
+            Object o2 = other.m_components[i];
+            if ((o1 != o2) && ((o1 == null) || !o1.equals(o2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+
+        return m_hash;
+    }
+
+    /**
+     * Returns the number of (name, value) pairs in this key.<p>
+     * 
+     * @return the number of (name, value) pairs in this key
+     */
+    public int size() {
+
+        return m_size / 2;
+    }
+
+    /**
+     * Returns the variation in the Flex cache language, e.g. <code>uri=(/index.html);user=(Guest);</code>.<p>
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        if (m_string == null) {
+            if (this == ALWAYS) {
+                m_string = "always";
+            } else {
+                StringBuffer str = new StringBuffer(m_size * 8);
+                boolean inList = false;
+                boolean first = false;
+                for (int i = 0; i < m_size; i += 2) {
+                    Object name = m_components[i];
+                    Object value = m_components[i + 1];
+                    if (value == LIST_START) {
+                        str.append(name);
+                        str.append("=(");
+                        inList = true;
+                        first = true;
+                    } else if (name == LIST_END) {
+                        str.append(LIST_END);
+                        inList = false;
+                    } else if (inList) {
+                        if (!first) {
+                            str.append(",");
+                        }
+                        first = false;
+                        str.append(name);
+                        str.append("=");
+                        str.append(value);
+                    } else if (value == IS_USED) {
+                        str.append(name);
+                        str.append(";");
+                    } else {
+                        str.append(name);
+                        str.append("=(");
+                        str.append(value);
+                        str.append(");");
+                    }
+                }
+                m_string = str.toString();
+            }
+        }
+        return m_string;
+    }
+
+    /**
+     * Adds a (name, value) pair to this key.<p>
+     * 
+     * @param name the directive or list entry name
+     * @param value the value
+     */
+    void add(Object name, Object value) {
+
+        if ((m_size + 2) > m_components.length) {
+            Object[] components = new Object[m_components.length * 2];
+            System.arraycopy(m_components, 0, components, 0, m_size);
+            m_components = components;
+        }
+        m_components[m_size++] = name;
+        m_components[m_size++] = value;
+    }
+
+    /**
+     * Completes this key by calculating the hash code.<p>
+     * 
+     * No components must be added after the key is completed.<p>
+     * 
+     * @return this key
+     */
+    CmsFlexCacheVariationKey complete() {
+
+        int hash = 1;
+        for (int i = 0; i < m_size; i++) {
+            Object o = m_components[i];
+            hash = (31 * hash) + ((o == null) ? 0 : o.hashCode());
+        }
+        m_hash = hash;
+        return this;
+    }
+
+    /**
+     * Checks if this key contains no components.<p>
+     * 
+     * @return <code>true</code> if this key contains no components
+     */
+    boolean isEmpty() {
+
+        return m_size == 0;
+    }
+
+    /**
+     * Returns the current number of component slots, used to roll back optional lists.<p>
+     * 
+     * @return the current number of component slots
+     */
+    int mark() {
+
+        return m_size;
+    }
+
+    /**
+     * Rolls back all components added after the given mark.<p>
+     * 
+     * @param mark the mark obtained by {@link #mark()}
+     */
+    void reset(int mark) {
+
+        for (int i = mark; i < m_size; i++) {
+            m_components[i] = null;
+        }
+        m_size = mark;
+    }
+}
@@ -63,6 +63,9 @@ public class CmsFlexController {
     /** The wrapped CmsObject provides JSP with access to the core system. */
     private CmsObject m_cmsObject;
 
+    /** The cache entry with compressed content that delivered the output of the requested resource. */
+    private CmsFlexCacheEntry m_compressedCacheEntry;
+
     /** List of wrapped RequestContext info object. */
     private List<CmsFlexRequestContextInfo> m_flexContextInfoList;
 
@@ -383,6 +386,7 @@ public class CmsFlexController {
         m_resource = null;
         m_cache = null;
         m_throwable = null;
+        m_compressedCacheEntry = null;
     }
 
     /**
@@ -421,6 +425,16 @@ public class CmsFlexController {
         return m_resource;
     }
 
+    /**
+     * Returns the cache entry with compressed content that delivered the output of the requested resource.<p>
+     * 
+     * @return the cache entry with compressed content, or <code>null</code>
+     */
+    public CmsFlexCacheEntry getCompressedCacheEntry() {
+
+        return m_compressedCacheEntry;
+    }
+
     /**
      * Returns the current flex request.<p>
      * 
@@ -615,6 +629,16 @@ public class CmsFlexController {
         attributeMap.remove(CmsDetailPageResourceHandler.ATTR_DETAIL_CONTENT_RESOURCE);
     }
 
+    /**
+     * Sets the cache entry with compressed content that delivered the output of the requested resource.<p>
+     * 
+     * @param entry the cache entry with compressed content
+     */
+    public void setCompressedCacheEntry(CmsFlexCacheEntry entry) {
+
+        m_compressedCacheEntry = entry;
+    }
+
     /**
      * Sets the value of the "forward mode" flag.<p>
      *
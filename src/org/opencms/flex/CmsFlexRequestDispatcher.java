@@ -377,10 +377,10 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
                 // the target is not cached (or caching off), so load it with the internal resource loader
                 I_CmsResourceLoader loader = null;
 
-                String variation = null;
+                CmsFlexCacheVariationKey variation = null;
                 // check cache keys to see if the result can be cached 
                 if (w_req.isCacheable()) {
-                    variation = w_res.getCmsCacheKey().matchRequestKey(w_req.getCmsCacheKey());
+                    variation = w_res.getCmsCacheKey().matchRequestVariation(w_req.getCmsCacheKey());
                 }
                 // indicate to the response if caching is not required                
                 w_res.setCmsCachingRequired(!controller.isForwardMode() && (variation != null));
@@ -434,6 +434,14 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
                         entry.setDateLastModified(controller.getDateLastModified());
                         entry.setDateExpires(controller.getDateExpires());
                     }
+                    if ((controller.getResponseStackSize() == 2) && (OpenCms.getStaticExportManager() != null)) {
+                        // this entry is the complete output of the requested resource, keep a compressed copy
+                        if (entry.compress(
+                            OpenCms.getStaticExportManager().getCompression(),
+                            controller.getTopResponse().getContentType())) {
+                            controller.setCompressedCacheEntry(entry);
+                        }
+                    }
                     cache.put(w_res.getCmsCacheKey(), entry, variation);
                 } else {
                     // result can not be cached, do not use "last modified" optimization
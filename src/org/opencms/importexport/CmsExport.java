@@ -222,6 +222,15 @@ public class CmsExport {
             }
 
             throw new CmsImportExportException(message, ioe);
+        } finally {
+            if (m_exportWriter != null) {
+                try {
+                    // make sure the writer thread ends if the export was aborted
+                    m_exportWriter.finishFiles();
+                } catch (IOException e) {
+                    // the export failed already, the error has been logged by the writer
+                }
+            }
         }
     }
 
@@ -1384,7 +1393,9 @@ public class CmsExport {
         m_exportWriter = new CmsExportHelper(
             getExportFileName(),
             m_parameters.isExportAsFiles(),
-            m_parameters.isXmlValidation());
+            m_parameters.isXmlValidation(),
+            m_parameters.getCompressionLevel(),
+            m_parameters.getStoredSuffixes());
         // initialize the dom4j writer object as member variable
         setSaxWriter(m_exportWriter.getSaxWriter());
 
@@ -29,32 +29,62 @@ package org.opencms.importexport;
 
 import org.opencms.configuration.CmsConfigurationManager;
 import org.opencms.file.CmsFile;
+import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsPair;
 import org.opencms.util.CmsXmlSaxWriter;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.logging.Log;
 import org.dom4j.io.SAXWriter;
 import org.xml.sax.SAXException;
 
 /**
  * Wrapper to write exported OpenCms resources either to a .ZIP file or to the file system.<p>
  * 
+ * The files are written by a separate writer thread, so that reading the next resources from 
+ * the database and compressing the previous ones into the ZIP file happens at the same time.
+ * The number of files waiting to be written is bounded, so the export does not keep more 
+ * than a few file contents in memory.<p>
+ * 
  * @since 7.5.1
  */
 public class CmsExportHelper {
 
+    /** The marker which tells the writer thread that all files have been queued. */
+    private static final CmsPair<CmsFile, String> END_OF_FILES = CmsPair.create(null, null);
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsExportHelper.class);
+
+    /** The time in milliseconds to wait for free space in the queue before checking the writer thread again. */
+    private static final long QUEUE_OFFER_TIMEOUT = 1000;
+
+    /** The maximal number of files waiting to be written. */
+    private static final int QUEUE_SIZE = 16;
+
     /** Length that can be safely written to ZIP output. */
     private static final int SUB_LENGTH = 4096;
 
+    /** The compression level for the ZIP entries. */
+    private int m_compressionLevel;
+
     /** The main export path. */
     private String m_exportPath;
 
@@ -64,9 +94,21 @@ public class CmsExportHelper {
     /** Indicates if the resources are exported in one export .ZIP file or as individual files. */
     private boolean m_isExportAsFiles;
 
+    /** The files waiting to be written, with their name in the export. */
+    private BlockingQueue<CmsPair<CmsFile, String>> m_queue;
+
     /** The SAX writer for the Manifest file. */
     private SAXWriter m_saxWriter;
 
+    /** The suffixes of files which are stored without compression in the ZIP. */
+    private List<String> m_storedSuffixes;
+
+    /** The first error which occurred while writing the files. */
+    private volatile IOException m_writerError;
+
+    /** The thread writing the files. */
+    private Thread m_writerThread;
+
     /**
      * Creates a new export helper.<p>
      * 
@@ -80,8 +122,39 @@ public class CmsExportHelper {
     public CmsExportHelper(String exportPath, boolean exportAsFiles, boolean validateXml)
     throws SAXException, IOException {
 
+        this(
+            exportPath,
+            exportAsFiles,
+            validateXml,
+            Deflater.DEFAULT_COMPRESSION,
+            CmsExportParameters.DEFAULT_STORED_SUFFIXES);
+    }
+
+    /**
+     * Creates a new export helper with the given compression settings.<p>
+     * 
+     * @param exportPath the export path
+     * @param exportAsFiles indicates if the resources should be exported as individual files or in one big ZIP file
+     * @param validateXml indicates of the manifest.xml should be validated
+     * @param compressionLevel the compression level for the ZIP entries, 0 stores all files without compression
+     * @param storedSuffixes the suffixes of files which are stored without compression
+     * 
+     * @throws SAXException in case of issues creating the manifest.xml
+     * @throws IOException in case of file access issues
+     */
+    public CmsExportHelper(
+        String exportPath,
+        boolean exportAsFiles,
+        boolean validateXml,
+        int compressionLevel,
+        List<String> storedSuffixes)
+    throws SAXException, IOException {
+
         m_exportPath = exportPath;
         m_isExportAsFiles = exportAsFiles;
+        m_compressionLevel = compressionLevel;
+        m_storedSuffixes = storedSuffixes;
+        m_queue = new ArrayBlockingQueue<CmsPair<CmsFile, String>>(QUEUE_SIZE);
 
         removeOldExport(exportPath);
 
@@ -97,6 +170,7 @@ public class CmsExportHelper {
         } else {
             // create the export ZIP stream
             m_exportZipStream = new ZipOutputStream(new FileOutputStream(m_exportPath));
+            m_exportZipStream.setLevel(m_compressionLevel);
             // delegate writing to a String writer
             writer = new StringWriter(SUB_LENGTH);
         }
@@ -118,6 +192,32 @@ public class CmsExportHelper {
         m_saxWriter = new SAXWriter(saxHandler, saxHandler);
     }
 
+    /**
+     * Waits until all queued files have been written and stops the writer thread.<p>
+     * 
+     * This is called when the manifest is written, but should also be called 
+     * if the export is aborted, so that the writer thread ends.<p>
+     * 
+     * @throws IOException if writing one of the files failed
+     */
+    public void finishFiles() throws IOException {
+
+        if (m_writerThread != null) {
+            try {
+                queueFile(END_OF_FILES);
+                m_writerThread.join();
+            } catch (InterruptedException e) {
+                // keep the interrupt for the caller and do not leave the writer thread behind
+                Thread.currentThread().interrupt();
+                m_writerThread.interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            } finally {
+                m_writerThread = null;
+            }
+        }
+        checkWriterError();
+    }
+
     /**
      * Returns the SAX writer for the Manifest file.<p>
      *
@@ -138,11 +238,12 @@ public class CmsExportHelper {
      */
     public void writeFile(CmsFile file, String name) throws IOException {
 
-        if (m_isExportAsFiles) {
-            writeFile2Rfs(file, name);
-        } else {
-            writeFile2Zip(file, name);
+        checkWriterError();
+        if (m_writerThread == null) {
+            startWriterThread();
         }
+        // blocks if the writer thread is behind, so the reading thread can not run out of memory
+        queueFile(CmsPair.create(file, name));
     }
 
     /**
@@ -155,6 +256,8 @@ public class CmsExportHelper {
      */
     public void writeManifest(CmsXmlSaxWriter xmlSaxWriter) throws IOException, SAXException {
 
+        // all files must be written before the ZIP stream is closed
+        finishFiles();
         if (m_isExportAsFiles) {
             writeManifest2Rfs(xmlSaxWriter);
         } else {
@@ -162,6 +265,19 @@ public class CmsExportHelper {
         }
     }
 
+    /**
+     * Throws the first error which occurred in the writer thread, if any.<p>
+     * 
+     * @throws IOException the error which occurred in the writer thread
+     */
+    protected void checkWriterError() throws IOException {
+
+        IOException error = m_writerError;
+        if (error != null) {
+            throw error;
+        }
+    }
+
     /**
      * Returns the RFS file name for the given OpenCms VFS file name.<p>
      * 
@@ -174,6 +290,25 @@ public class CmsExportHelper {
         return m_exportPath + name;
     }
 
+    /**
+     * Checks if the given file is stored without compression in the ZIP.<p>
+     * 
+     * @param name the name of the file in the export
+     * 
+     * @return <code>true</code> if the given file is stored without compression
+     */
+    protected boolean isStored(String name) {
+
+        if (m_compressionLevel == Deflater.NO_COMPRESSION) {
+            return true;
+        }
+        int pos = name.lastIndexOf('.');
+        if ((pos < 0) || (m_storedSuffixes == null)) {
+            return false;
+        }
+        return m_storedSuffixes.contains(name.substring(pos + 1).toLowerCase());
+    }
+
     /**
      * Removes the old export output, which may be an existing file or directory.<p> 
      * 
@@ -232,8 +367,18 @@ public class CmsExportHelper {
         ZipEntry entry = new ZipEntry(name);
         // save the time of the last modification in the zip
         entry.setTime(file.getDateLastModified());
+        byte[] content = file.getContents();
+        if (isStored(name)) {
+            // already compressed data does not get smaller, so save the time for deflating it
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
         m_exportZipStream.putNextEntry(entry);
-        m_exportZipStream.write(file.getContents());
+        m_exportZipStream.write(content);
         m_exportZipStream.closeEntry();
     }
 
@@ -297,4 +442,78 @@ public class CmsExportHelper {
         // finally close the zip stream
         m_exportZipStream.close();
     }
+
+    /**
+     * Adds a file to the queue of the writer thread.<p>
+     * 
+     * Waits as long as the queue is full, but stops waiting if the writer thread has ended,
+     * since nobody would take the file from the queue anymore.<p>
+     * 
+     * @param entry the file with its name in the export, or the end marker
+     * 
+     * @throws IOException if the writer thread has ended or the current thread was interrupted
+     */
+    private void queueFile(CmsPair<CmsFile, String> entry) throws IOException {
+
+        try {
+            while (!m_queue.offer(entry, QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                if (!m_writerThread.isAlive()) {
+                    checkWriterError();
+                    throw new IOException(Messages.get().getBundle().key(Messages.ERR_EXPORT_WRITER_ENDED_0));
+                }
+            }
+        } catch (InterruptedException e) {
+            // keep the interrupt for the caller and do not leave the writer thread behind
+            Thread.currentThread().interrupt();
+            m_writerThread.interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the thread which writes the queued files.<p>
+     */
+    private void startWriterThread() {
+
+        m_writerThread = new Thread("OpenCms: export writer for " + m_exportPath) {
+
+            /**
+             * @see java.lang.Thread#run()
+             */
+            @Override
+            public void run() {
+
+                try {
+                    CmsPair<CmsFile, String> next = m_queue.take();
+                    while (next != END_OF_FILES) {
+                        // after an error the remaining files are only removed from the queue
+                        if (m_writerError == null) {
+                            try {
+                                if (m_isExportAsFiles) {
+                                    writeFile2Rfs(next.getFirst(), next.getSecond());
+                                } else {
+                                    writeFile2Zip(next.getFirst(), next.getSecond());
+                                }
+                            } catch (IOException e) {
+                                LOG.error(e.getLocalizedMessage(), e);
+                                m_writerError = e;
+                            } catch (RuntimeException e) {
+                                // the reading thread must not wait forever for a dead writer thread
+                                LOG.error(e.getLocalizedMessage(), e);
+                                IOException error = new IOException(e.getLocalizedMessage());
+                                error.initCause(e);
+                                m_writerError = error;
+                            }
+                        }
+                        next = m_queue.take();
+                    }
+                } catch (InterruptedException e) {
+                    m_writerError = new InterruptedIOException(e.getMessage());
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        m_writerThread.setDaemon(true);
+        m_writerThread.start();
+    }
 }
\ No newline at end of file
@@ -30,8 +30,10 @@ package org.opencms.importexport;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.util.CmsStringUtil;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.Deflater;
 
 import org.dom4j.Element;
 
@@ -42,6 +44,30 @@ import org.dom4j.Element;
  */
 public class CmsExportParameters {
 
+    /** The default suffixes of files which are already compressed and stored without compression in the ZIP. */
+    public static final List<String> DEFAULT_STORED_SUFFIXES = Collections.unmodifiableList(Arrays.asList(new String[] {
+        "7z",
+        "docx",
+        "flv",
+        "gif",
+        "gz",
+        "jar",
+        "jpeg",
+        "jpg",
+        "mov",
+        "mp3",
+        "mp4",
+        "ogg",
+        "png",
+        "pptx",
+        "rar",
+        "swf",
+        "xlsx",
+        "zip"}));
+
+    /** The compression level for the ZIP entries. */
+    private int m_compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
     /** Only resources modified after this time stamp will be exported. */
     private long m_contentAge;
 
@@ -78,6 +104,9 @@ public class CmsExportParameters {
     /** The resources to export.*/
     private List<String> m_resources;
 
+    /** The suffixes of files which are stored without compression in the ZIP. */
+    private List<String> m_storedSuffixes = DEFAULT_STORED_SUFFIXES;
+
     /** If set, the manifest.xml file will be generated with dtd info. */
     private boolean m_xmlValidation;
 
@@ -131,6 +160,19 @@ public class CmsExportParameters {
         setExportAsFiles(false);
     }
 
+    /**
+     * Returns the compression level for the ZIP entries.<p>
+     * 
+     * The level is between 0 (store only) and 9 (best compression), 
+     * or -1 for the default compression of the JVM.<p>
+     *
+     * @return the compression level for the ZIP entries
+     */
+    public int getCompressionLevel() {
+
+        return m_compressionLevel;
+    }
+
     /**
      * Returns the content Age.<p>
      *
@@ -178,6 +220,17 @@ public class CmsExportParameters {
         return m_resources;
     }
 
+    /**
+     * Returns the suffixes of files which are already compressed and therefore 
+     * stored without compression in the ZIP.<p>
+     *
+     * @return the suffixes of files which are stored without compression
+     */
+    public List<String> getStoredSuffixes() {
+
+        return m_storedSuffixes;
+    }
+
     /**
      * Checks if to export account data.<p>
      *
@@ -269,6 +322,23 @@ public class CmsExportParameters {
         return m_xmlValidation;
     }
 
+    /**
+     * Sets the compression level for the ZIP entries.<p>
+     * 
+     * Use 0 to store all files without compression, or -1 for the default compression of the JVM.<p>
+     *
+     * @param compressionLevel the compression level to set
+     */
+    public void setCompressionLevel(int compressionLevel) {
+
+        if ((compressionLevel < Deflater.DEFAULT_COMPRESSION) || (compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new CmsIllegalArgumentException(Messages.get().container(
+                Messages.ERR_BAD_COMPRESSION_LEVEL_1,
+                String.valueOf(compressionLevel)));
+        }
+        m_compressionLevel = compressionLevel;
+    }
+
     /**
      * Sets the content Age.<p>
      *
@@ -397,6 +467,21 @@ public class CmsExportParameters {
         m_resources = resources;
     }
 
+    /**
+     * Sets the suffixes of files which are already compressed and therefore 
+     * stored without compression in the ZIP.<p>
+     *
+     * @param storedSuffixes the suffixes to set, without the leading dot
+     */
+    public void setStoredSuffixes(List<String> storedSuffixes) {
+
+        if (storedSuffixes == null) {
+            m_storedSuffixes = Collections.emptyList();
+        } else {
+            m_storedSuffixes = storedSuffixes;
+        }
+    }
+
     /**
      * Sets the xml validation flag. If set, the manifest.xml file will be generated with dtd info.<p>
      *
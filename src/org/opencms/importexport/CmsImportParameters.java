@@ -34,6 +34,9 @@ package org.opencms.importexport;
  */
 public class CmsImportParameters {
 
+    /** If set, the search indexes are updated once at the end of the import. */
+    private boolean m_deferIndexing;
+
     /** The path in the OpenCms VFS to import into.*/
     private String m_destinationPath;
 
@@ -80,6 +83,21 @@ public class CmsImportParameters {
         return m_path;
     }
 
+    /**
+     * Checks if the search indexes are updated once at the end of the import.<p>
+     * 
+     * If set, the resource events for the search indexes are collected and fired once at the end 
+     * of the import, the caches still get every event immediately. No log entries are written for the imported 
+     * resources, and the time needed by every phase of the import is reported. The resources themselves are 
+     * still written one by one, each in its own database operation.<p>
+     *
+     * @return the defer indexing flag
+     */
+    public boolean isDeferIndexing() {
+
+        return m_deferIndexing;
+    }
+
     /**
      * Returns the keep permissions flags. 
      * if set, the permissions set on existing resources will not be modified.<p>
@@ -101,6 +119,16 @@ public class CmsImportParameters {
         return m_xmlValidation;
     }
 
+    /**
+     * Sets the defer indexing flag. If set, the search indexes are updated once at the end of the import.<p>
+     *
+     * @param deferIndexing the defer indexing flag to set
+     */
+    public void setDeferIndexing(boolean deferIndexing) {
+
+        m_deferIndexing = deferIndexing;
+    }
+
     /**
      * Sets the path in the OpenCms VFS to import into.<p>
      *
@@ -275,6 +275,18 @@ public class CmsImportVersion7 implements I_CmsImport {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsImportVersion7.class);
 
+    /** Name of the import phase which fires the deferred events. */
+    private static final String PHASE_EVENTS = "events";
+
+    /** Name of the import phase which rewrites the links of the parseable resources. */
+    private static final String PHASE_LINKS = "links";
+
+    /** Name of the import phase which imports the relations. */
+    private static final String PHASE_RELATIONS = "relations";
+
+    /** Name of the import phase which imports the resources. */
+    private static final String PHASE_RESOURCES = "resources";
+
     /** The ACE flags value. */
     private int m_aceFlags;
 
@@ -368,6 +380,9 @@ public class CmsImportVersion7 implements I_CmsImport {
     /** The list of resource to be parsed, this is a global list, which will be handled at the end of the import. */
     private List<String> m_parseables;
 
+    /** The start time of the current phase of an import with deferred indexing. */
+    private long m_phaseStart;
+
     /** The project description. */
     private String m_projectDescription;
 
@@ -1338,6 +1353,12 @@ public class CmsImportVersion7 implements I_CmsImport {
         InputStream stream = null;
         m_helper = new CmsImportHelper(m_parameters);
         try {
+            if (m_parameters.isDeferIndexing()) {
+                // the search indexes are updated once at the end, and the import itself is the only log entry needed
+                OpenCms.getEventManager().deferResourceEvents();
+                getCms().getRequestContext().setAttribute(CmsLogEntry.ATTR_LOG_ENTRY, Boolean.FALSE);
+                m_phaseStart = System.currentTimeMillis();
+            }
             m_helper.openFile();
             m_helper.cacheDtdSystemId(DTD_LOCATION, DTD_FILENAME, CmsConfigurationManager.DEFAULT_DTD_PREFIX);
             findContentFiles();
@@ -1361,7 +1382,15 @@ public class CmsImportVersion7 implements I_CmsImport {
             } catch (Exception e) {
                 // noop
             }
-            m_helper.closeFile();
+            try {
+                m_helper.closeFile();
+            } finally {
+                if (m_parameters.isDeferIndexing()) {
+                    getCms().getRequestContext().removeAttribute(CmsLogEntry.ATTR_LOG_ENTRY);
+                    m_phaseStart = System.currentTimeMillis();
+                    reportPhase(PHASE_EVENTS, OpenCms.getEventManager().fireDeferredEvents());
+                }
+            }
         }
     }
 
@@ -1666,6 +1695,9 @@ public class CmsImportVersion7 implements I_CmsImport {
      */
     public void importRelations() {
 
+        if (m_parameters.isDeferIndexing()) {
+            reportPhase(PHASE_RESOURCES, m_fileCounter - 1);
+        }
         if ((m_relations == null) || m_relations.isEmpty()) {
             // no relations to add
             return;
@@ -1675,6 +1707,9 @@ public class CmsImportVersion7 implements I_CmsImport {
             Messages.get().container(Messages.RPT_START_IMPORT_RELATIONS_0),
             I_CmsReport.FORMAT_HEADLINE);
 
+        // many relations point to the same targets, so their paths are only read once
+        Map<String, String> targetPaths = new HashMap<String, String>();
+        int count = 0;
         int i = 0;
         Iterator<Entry<String, List<CmsRelation>>> it = m_relations.entrySet().iterator();
         while (it.hasNext()) {
@@ -1701,15 +1736,24 @@ public class CmsImportVersion7 implements I_CmsImport {
             getReport().print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
 
             boolean withErrors = false;
+            // all relations of the entry have the same source
+            String sourcePath = null;
             Iterator<CmsRelation> itRelations = relations.iterator();
             while (itRelations.hasNext()) {
                 CmsRelation relation = itRelations.next();
                 try {
+                    if (sourcePath == null) {
+                        sourcePath = getCms().getSitePath(relation.getSource(getCms(), CmsResourceFilter.ALL));
+                    }
+                    String targetKey = relation.getTargetId() + relation.getTargetPath();
+                    String targetPath = targetPaths.get(targetKey);
+                    if (targetPath == null) {
+                        targetPath = getCms().getSitePath(relation.getTarget(getCms(), CmsResourceFilter.ALL));
+                        targetPaths.put(targetKey, targetPath);
+                    }
                     // Add the relation to the resource
-                    getCms().importRelation(
-                        getCms().getSitePath(relation.getSource(getCms(), CmsResourceFilter.ALL)),
-                        getCms().getSitePath(relation.getTarget(getCms(), CmsResourceFilter.ALL)),
-                        relation.getType().getName());
+                    getCms().importRelation(sourcePath, targetPath, relation.getType().getName());
+                    count++;
                 } catch (CmsException e) {
                     getReport().addWarning(e);
                     withErrors = true;
@@ -1734,6 +1778,9 @@ public class CmsImportVersion7 implements I_CmsImport {
         }
 
         getReport().println(Messages.get().container(Messages.RPT_END_IMPORT_RELATIONS_0), I_CmsReport.FORMAT_HEADLINE);
+        if (m_parameters.isDeferIndexing()) {
+            reportPhase(PHASE_RELATIONS, count);
+        }
 
         m_relations = null;
     }
@@ -2282,7 +2329,12 @@ public class CmsImportVersion7 implements I_CmsImport {
             }
             i++;
         }
-        cms.getRequestContext().removeAttribute(CmsLogEntry.ATTR_LOG_ENTRY);
+        if (m_parameters.isDeferIndexing()) {
+            // the log entries stay disabled until the end of the import
+            reportPhase(PHASE_LINKS, i);
+        } else {
+            cms.getRequestContext().removeAttribute(CmsLogEntry.ATTR_LOG_ENTRY);
+        }
 
         report.println(Messages.get().container(Messages.RPT_END_PARSE_LINKS_0), I_CmsReport.FORMAT_HEADLINE);
         m_parseables = null;
@@ -3343,4 +3395,23 @@ public class CmsImportVersion7 implements I_CmsImport {
         return false;
 
     }
+
+    /**
+     * Reports the throughput of the finished phase of an import with deferred indexing and starts the next phase.<p>
+     * 
+     * @param phase the name of the finished phase
+     * @param count the number of entries handled in the finished phase
+     */
+    private void reportPhase(String phase, int count) {
+
+        long now = System.currentTimeMillis();
+        long time = now - m_phaseStart;
+        long perSecond = (time > 0) ? ((count * 1000L) / time) : count;
+        getReport().println(
+            Messages.get().container(
+                Messages.RPT_IMPORT_PHASE_FINISHED_4,
+                new Object[] {phase, String.valueOf(count), String.valueOf(time), String.valueOf(perSecond)}),
+            I_CmsReport.FORMAT_NOTE);
+        m_phaseStart = now;
+    }
 }
@@ -37,6 +37,9 @@ import org.opencms.i18n.I_CmsMessageBundle;
  */
 public final class Messages extends A_CmsMessageBundle {
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_BAD_COMPRESSION_LEVEL_1 = "ERR_BAD_COMPRESSION_LEVEL_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_BAD_CONTENT_AGE_1 = "ERR_BAD_CONTENT_AGE_1";
 
@@ -46,6 +49,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_BODY_CONTENT_NOT_FOUND_0 = "ERR_BODY_CONTENT_NOT_FOUND_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_EXPORT_WRITER_ENDED_0 = "ERR_EXPORT_WRITER_ENDED_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_IMPORTEXPORT_ERROR_ADDING_CHILD_RESOURCES_1 = "ERR_IMPORTEXPORT_ERROR_ADDING_CHILD_RESOURCES_1";
 
@@ -322,6 +328,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_IMPORT_ORGUNIT_0 = "RPT_IMPORT_ORGUNIT_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMPORT_PHASE_FINISHED_4 = "RPT_IMPORT_PHASE_FINISHED_4";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_IMPORT_PROJECT_0 = "RPT_IMPORT_PROJECT_0";
 
@@ -53,6 +53,7 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 import org.opencms.xml.containerpage.CmsADESessionCache;
 import org.opencms.xml.containerpage.CmsContainerBean;
 import org.opencms.xml.containerpage.CmsContainerElementBean;
@@ -68,6 +69,7 @@ import org.opencms.xml.containerpage.CmsXmlGroupContainerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -84,6 +86,9 @@ import org.apache.commons.logging.Log;
 /**
  * Provides access to the page container elements.<p>
  * 
+ * The elements of a container are rendered one after the other in the current request. Only the formatters
+ * of the elements are resolved up front, once per container.<p>
+ * 
  * @since 8.0
  */
 public class CmsJspTagContainer extends TagSupport {
@@ -343,6 +348,11 @@ public class CmsJspTagContainer extends TagSupport {
                             throw new JspException(e);
                         }
                     }
+                    // the configuration and the formatters are resolved once for all elements of the container
+                    CmsADEConfigData adeConfig = OpenCms.getADEManager().lookupConfiguration(
+                        cms,
+                        cms.getRequestContext().getRootUri());
+                    Map<CmsUUID, String> formatterPaths = readFormatterPaths(cms, allElements);
                     // iterate over elements to render
                     int numRenderedElements = 0;
                     for (CmsContainerElementBean elementBean : allElements) {
@@ -353,7 +363,9 @@ public class CmsJspTagContainer extends TagSupport {
                                 standardContext,
                                 elementBean,
                                 locale,
-                                numRenderedElements >= maxElements);
+                                numRenderedElements >= maxElements,
+                                adeConfig,
+                                formatterPaths);
                             if (rendered) {
                                 numRenderedElements += 1;
                             }
@@ -593,6 +605,38 @@ public class CmsJspTagContainer extends TagSupport {
         }
     }
 
+    /**
+     * Reads the site paths of the formatters of the given container elements.<p>
+     * 
+     * Elements of the same type usually share their formatter, so every formatter is only read once. 
+     * Formatters which can not be read are mapped to <code>null</code>, in this case the formatter 
+     * is looked up in the configuration when the element is rendered.<p>
+     * 
+     * @param cms the CMS context
+     * @param elements the container elements
+     * 
+     * @return the site paths of the formatters, by formatter id
+     */
+    protected Map<CmsUUID, String> readFormatterPaths(CmsObject cms, List<CmsContainerElementBean> elements) {
+
+        Map<CmsUUID, String> result = new HashMap<CmsUUID, String>();
+        for (CmsContainerElementBean element : elements) {
+            CmsUUID formatterId = element.getFormatterId();
+            if ((formatterId == null) || result.containsKey(formatterId)) {
+                continue;
+            }
+            String formatterPath = null;
+            try {
+                formatterPath = cms.getSitePath(cms.readResource(formatterId));
+            } catch (CmsException e) {
+                // the formatter will be looked up in the configuration
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+            result.put(formatterId, formatterPath);
+        }
+        return result;
+    }
+
     /**
      * Generates the detail view element.<p>
      * 
@@ -837,6 +881,8 @@ public class CmsJspTagContainer extends TagSupport {
      * @param element the container element to render
      * @param locale the requested locale
      * @param alreadyFull if true, only render invisible elements (they don't count towards the "max elements") 
+     * @param adeConfig the ADE configuration of the current page
+     * @param formatterPaths the site paths of the formatters of the container elements, by formatter id
      * 
      * @return true if an element was rendered that counts towards the container's maximum number of elements 
      * 
@@ -848,7 +894,9 @@ public class CmsJspTagContainer extends TagSupport {
         CmsJspStandardContextBean standardContext,
         CmsContainerElementBean element,
         Locale locale,
-        boolean alreadyFull) throws Exception {
+        boolean alreadyFull,
+        CmsADEConfigData adeConfig,
+        Map<CmsUUID, String> formatterPaths) throws Exception {
 
         CmsTemplateContext context = (CmsTemplateContext)(request.getAttribute(CmsTemplateContextManager.ATTR_TEMPLATE_CONTEXT));
         if ((context == null) && alreadyFull) {
@@ -868,9 +916,6 @@ public class CmsJspTagContainer extends TagSupport {
         if (!isOnline) {
             getSessionCache(cms).setCacheContainerElement(element.editorHash(), element);
         }
-        CmsADEConfigData adeConfig = OpenCms.getADEManager().lookupConfiguration(
-            cms,
-            cms.getRequestContext().getRootUri());
         boolean isGroupContainer = element.isGroupContainer(cms);
         boolean isInheritedContainer = element.isInheritedContainer(cms);
         if (isGroupContainer || isInheritedContainer) {
@@ -970,10 +1015,8 @@ public class CmsJspTagContainer extends TagSupport {
                     printElementWrapperTagEnd(isOnline, false);
                 }
             } else {
-                String formatter = null;
-                try {
-                    formatter = cms.getSitePath(cms.readResource(element.getFormatterId()));
-                } catch (CmsException e) {
+                String formatter = formatterPaths.get(element.getFormatterId());
+                if (formatter == null) {
                     // the formatter resource can not be found, try reading it form the configuration
                     CmsFormatterConfiguration elementFormatters = adeConfig.getFormatters(cms, element.getResource());
                     CmsFormatterBean elementFormatterBean = elementFormatters.getFormatter(
@@ -89,6 +89,9 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The log object for this class. */
     protected static final Log LOG = CmsLog.getLog(CmsImageLoader.class);
 
+    /** The maximum number of queued cache clearing events, which are handled in the background. */
+    private static final int EVENT_QUEUE_SIZE = 16;
+
     /** The (optional) image down scale parameters for image write operations. */
     protected static String m_downScaleParams;
 
@@ -283,7 +286,8 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
                 OpenCms.getSystemInfo().getWebApplicationRfsPath(),
                 m_imageRepositoryFolder);
         }
-        OpenCms.addCmsEventListener(this);
+        // cleaning the image cache may take long, so it must not block the thread that clears the caches
+        OpenCms.addCmsEventListener(this, new int[] {I_CmsEventListener.EVENT_CLEAR_CACHES}, EVENT_QUEUE_SIZE);
         // output setup information
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(
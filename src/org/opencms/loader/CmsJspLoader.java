@@ -52,7 +52,7 @@ import org.opencms.relations.CmsRelation;
 import org.opencms.relations.CmsRelationFilter;
 import org.opencms.relations.CmsRelationType;
 import org.opencms.staticexport.CmsLinkManager;
-import org.opencms.util.CmsCollectionsGenericWrapper;
+import org.opencms.staticexport.CmsStaticExportCompression;
 import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
@@ -74,6 +74,12 @@ import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -84,10 +90,11 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
 
+import com.google.common.base.Function;
 import com.google.common.base.Splitter;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 
 /**
@@ -128,6 +135,105 @@ import com.google.common.collect.Maps;
  */
 public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledLoader, I_CmsEventListener {
 
+    /**
+     * Validation state of a JSP written to the real file system.<p>
+     */
+    protected static final class CmsJspFreshness {
+
+        /** The online epoch in which the JSP was validated. */
+        private final long m_epoch;
+
+        /** Flag to indicate that a background refresh has been scheduled for this state. */
+        private final AtomicBoolean m_refreshScheduled = new AtomicBoolean();
+
+        /** The date of last modification of the VFS resource at validation time. */
+        private final long m_resourceDateLastModified;
+
+        /** The date of last modification of the file in the real file system. */
+        private final long m_rfsDateLastModified;
+
+        /** The time of validation. */
+        private final long m_validated;
+
+        /**
+         * Creates a new validation state.<p>
+         * 
+         * @param epoch the online epoch in which the JSP was validated
+         * @param resourceDateLastModified the date of last modification of the VFS resource
+         * @param rfsDateLastModified the date of last modification of the file in the real file system
+         * @param validated the time of validation
+         */
+        protected CmsJspFreshness(long epoch, long resourceDateLastModified, long rfsDateLastModified, long validated) {
+
+            m_epoch = epoch;
+            m_resourceDateLastModified = resourceDateLastModified;
+            m_rfsDateLastModified = rfsDateLastModified;
+            m_validated = validated;
+        }
+
+        /**
+         * Returns the online epoch in which the JSP was validated.<p>
+         * 
+         * @return the online epoch in which the JSP was validated
+         */
+        protected long getEpoch() {
+
+            return m_epoch;
+        }
+
+        /**
+         * Returns the date of last modification of the VFS resource at validation time.<p>
+         * 
+         * @return the date of last modification of the VFS resource
+         */
+        protected long getResourceDateLastModified() {
+
+            return m_resourceDateLastModified;
+        }
+
+        /**
+         * Returns the date of last modification of the file in the real file system.<p>
+         * 
+         * @return the date of last modification of the file in the real file system
+         */
+        protected long getRfsDateLastModified() {
+
+            return m_rfsDateLastModified;
+        }
+
+        /**
+         * Returns the time of validation.<p>
+         * 
+         * @return the time of validation
+         */
+        protected long getValidated() {
+
+            return m_validated;
+        }
+
+        /**
+         * Marks this state as scheduled for a background refresh.<p>
+         * 
+         * @return <code>true</code> if the refresh was not scheduled before
+         */
+        protected boolean markRefreshScheduled() {
+
+            return m_refreshScheduled.compareAndSet(false, true);
+        }
+
+        /**
+         * Returns a copy of this state with the given validation time.<p>
+         * 
+         * @param validated the new time of validation
+         * 
+         * @return the refreshed copy
+         */
+        protected CmsJspFreshness refresh(long validated) {
+
+            return new CmsJspFreshness(m_epoch, m_resourceDateLastModified, m_rfsDateLastModified, validated);
+        }
+    }
+
     /** Property value for "cache" that indicates that the FlexCache should be bypassed. */
     public static final String CACHE_PROPERTY_BYPASS = "bypass";
 
@@ -158,6 +264,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** Jsp folder parameter name. */
     public static final String PARAM_JSP_FOLDER = "jsp.folder";
 
+    /** Maximum staleness (in milliseconds) of offline JSPs parameter name. */
+    public static final String PARAM_JSP_OFFLINE_STALENESS = "jsp.offline.staleness";
+
     /** Jsp repository parameter name. */
     public static final String PARAM_JSP_REPOSITORY = "jsp.repository";
 
@@ -176,9 +285,15 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** The directory to store the generated JSP pages in (relative path in web application). */
     private static String m_jspWebAppRepository;
 
-    /** Read write locks for jsp files. */
-    @SuppressWarnings("unchecked")
-    private static Map<String, ReentrantReadWriteLock> m_fileLocks = new LRUMap(10000);
+    /** Read write locks for jsp files, weakly referenced so unused locks can be collected. */
+    private static Map<String, ReentrantReadWriteLock> m_fileLocks = new MapMaker().weakValues().makeComputingMap(
+        new Function<String, ReentrantReadWriteLock>() {
+
+            public ReentrantReadWriteLock apply(String jspVfsName) {
+
+                return new ReentrantReadWriteLock(true);
+            }
+        });
 
     /** The CmsFlexCache used to store generated cache entries in. */
     private CmsFlexCache m_cache;
@@ -191,10 +306,19 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     private boolean m_errorPagesAreNotCommitted; // default false should work for Tomcat > 4.1
 
     /** The offline JSPs. */
-    private Map<String, Boolean> m_offlineJsps;
+    private ConcurrentMap<String, CmsJspFreshness> m_offlineJsps;
+
+    /** The maximum time in milliseconds an offline JSP is served without checking its strong links, 0 to disable. */
+    private long m_offlineStaleness;
+
+    /** The executor used to refresh offline JSPs in the background. */
+    private ExecutorService m_offlineRefreshExecutor;
+
+    /** The current online epoch, incremented whenever the online JSP cache is cleared. */
+    private AtomicLong m_onlineEpoch = new AtomicLong();
 
     /** The online JSPs. */
-    private Map<String, Boolean> m_onlineJsps;
+    private ConcurrentMap<String, CmsJspFreshness> m_onlineJsps;
 
     /** A map from taglib names to their URIs. */
     private Map<String, String> m_taglibs = Maps.newHashMap();
@@ -245,6 +369,7 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
 
         switch (event.getType()) {
             case EVENT_CLEAR_CACHES:
+                m_onlineEpoch.incrementAndGet();
                 m_offlineJsps.clear();
                 m_onlineJsps.clear();
                 return;
@@ -252,6 +377,7 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                 m_offlineJsps.clear();
                 return;
             case EVENT_CLEAR_ONLINE_CACHES:
+                m_onlineEpoch.incrementAndGet();
                 m_onlineJsps.clear();
                 return;
             default:
@@ -260,11 +386,16 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     }
 
     /** 
-     * Destroy this ResourceLoder, this is a NOOP so far.  
+     * Destroy this ResourceLoder, stops the background refresh of offline JSPs.<p>  
      */
     public void destroy() {
 
-        // NOOP
+        synchronized (this) {
+            if (m_offlineRefreshExecutor != null) {
+                m_offlineRefreshExecutor.shutdownNow();
+                m_offlineRefreshExecutor = null;
+            }
+        }
     }
 
     /**
@@ -427,6 +558,8 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             initCaches(cacheSize);
         }
 
+        m_offlineStaleness = Math.max(0, m_configuration.getInteger(PARAM_JSP_OFFLINE_STALENESS, 0));
+
         // output setup information
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_JSP_REPOSITORY_ABS_PATH_1, m_jspRepository));
@@ -442,6 +575,11 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                     Messages.INIT_JSP_CACHE_SIZE_1,
                     String.valueOf(cacheSize)));
             }
+            if (m_offlineStaleness > 0) {
+                CmsLog.INIT.info(Messages.get().getBundle().key(
+                    Messages.INIT_JSP_OFFLINE_STALENESS_1,
+                    String.valueOf(m_offlineStaleness)));
+            }
             CmsLog.INIT.info(Messages.get().getBundle().key(
                 Messages.INIT_LOADER_INITIALIZED_1,
                 this.getClass().getName()));
@@ -590,7 +728,7 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
      */
     public void removeFromCache(Set<String> rootPaths, boolean online) {
 
-        Map<String, Boolean> cache;
+        Map<String, CmsJspFreshness> cache;
         if (online) {
             cache = m_onlineJsps;
         } else {
@@ -681,10 +819,31 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             return jspTargetName;
         }
 
-        String jspPath = CmsFileUtil.getRepositoryName(
-            m_jspRepository,
-            jspVfsName + extension,
-            controller.getCurrentRequest().isOnline());
+        boolean online = controller.getCurrentRequest().isOnline();
+        String jspPath = CmsFileUtil.getRepositoryName(m_jspRepository, jspVfsName + extension, online);
+
+        // fast path for JSPs that have already been validated, skips the strong link check,
+        // but still takes the read lock and checks the date of the file in the real FS
+        if (!controller.getCurrentRequest().isDoRecompile()) {
+            CmsJspFreshness freshness = getValidJsp(resource, jspPath, controller.getCmsObject(), online);
+            if (freshness != null) {
+                ReentrantReadWriteLock readLock = getFileLock(jspVfsName);
+                readLock.readLock().lock();
+                try {
+                    // the file in the real FS may have been deleted or written in the meantime
+                    if (new File(jspPath).lastModified() == freshness.getRfsDateLastModified()) {
+                        controller.updateDates(
+                            freshness.getRfsDateLastModified(),
+                            CmsResource.DATE_EXPIRED_DEFAULT);
+                        return jspTargetName;
+                    }
+                } finally {
+                    readLock.readLock().unlock();
+                }
+            }
+        }
+        // read the epoch before validating, so that a concurrent publish invalidates the result
+        long epoch = m_onlineEpoch.get();
 
         File d = new File(jspPath).getParentFile();
         if ((d == null) || (d.exists() && !(d.isDirectory() && d.canRead()))) {
@@ -729,11 +888,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                     mustUpdate = true;
                 } else {
                     // check if update is needed
-                    if (controller.getCurrentRequest().isOnline()) {
-                        mustUpdate = !m_onlineJsps.containsKey(jspVfsName);
-                    } else {
-                        mustUpdate = !m_offlineJsps.containsKey(jspVfsName);
-                    }
+                    // online JSPs are validated again after they have been removed from the cache by a publish
+                    CmsJspFreshness freshness = getCachedJsp(jspVfsName, online);
+                    mustUpdate = (freshness == null) || (online && (freshness.getEpoch() != epoch));
                     // check strong links only if update is needed
                     if (mustUpdate) {
                         // update strong link dependencies
@@ -794,11 +951,6 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                                 fs.write(contents);
                                 fs.close();
                             }
-                            if (controller.getCurrentRequest().isOnline()) {
-                                m_onlineJsps.put(jspVfsName, Boolean.TRUE);
-                            } else {
-                                m_offlineJsps.put(jspVfsName, Boolean.TRUE);
-                            }
                             if (LOG.isInfoEnabled()) {
                                 LOG.info(Messages.get().getBundle().key(
                                     Messages.LOG_UPDATED_JSP_2,
@@ -817,8 +969,17 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                 }
             }
 
+            long rfsDateLastModified = jspFile.lastModified();
+            if (rfsDateLastModified > 0) {
+                // remember the JSP as validated
+                cacheJsp(jspVfsName, new CmsJspFreshness(
+                    epoch,
+                    resource.getDateLastModified(),
+                    rfsDateLastModified,
+                    System.currentTimeMillis()), online);
+            }
             // update "last modified" and "expires" date on controller
-            controller.updateDates(jspFile.lastModified(), CmsResource.DATE_EXPIRED_DEFAULT);
+            controller.updateDates(rfsDateLastModified, CmsResource.DATE_EXPIRED_DEFAULT);
         } finally {
             //m_processingFiles.remove(jspVfsName);
             readWriteLock.readLock().unlock();
@@ -883,6 +1044,22 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         }
     }
 
+    /**
+     * Remembers the given JSP as validated.<p>
+     * 
+     * @param jspVfsName the root path of the JSP
+     * @param freshness the validation state of the JSP
+     * @param online if the JSP was validated online
+     */
+    protected void cacheJsp(String jspVfsName, CmsJspFreshness freshness, boolean online) {
+
+        if (online) {
+            m_onlineJsps.put(jspVfsName, freshness);
+        } else {
+            m_offlineJsps.put(jspVfsName, freshness);
+        }
+    }
+
     /**
      * Dispatches the current request to the OpenCms internal JSP.<p>
      * 
@@ -945,8 +1122,24 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                             CmsRequestUtil.HEADER_OPENCMS_EXPORT,
                             new Long(controller.getDateLastModified()));
                     } else if (controller.isTop()) {
+                        // use a compressed copy of the result from the Flex cache if the client accepts it
+                        byte[] output = result;
+                        if (controller.getCompressedCacheEntry() != null) {
+                            byte[] compressedResult = controller.getCompressedCacheEntry().getCompressedContent(result);
+                            if (compressedResult != null) {
+                                res.addHeader(
+                                    CmsStaticExportCompression.HEADER_VARY,
+                                    CmsStaticExportCompression.HEADER_ACCEPT_ENCODING);
+                                if (CmsStaticExportCompression.acceptsGzip(req)) {
+                                    res.setHeader(
+                                        CmsStaticExportCompression.HEADER_CONTENT_ENCODING,
+                                        CmsStaticExportCompression.ENCODING_GZIP);
+                                    output = compressedResult;
+                                }
+                            }
+                        }
                         // process headers and write output if this is the "top" request/response                                  
-                        res.setContentLength(result.length);
+                        res.setContentLength(output.length);
                         // check for preset error code
                         Integer errorCode = (Integer)req.getAttribute(CmsRequestUtil.ATTRIBUTE_ERRORCODE);
                         if (errorCode == null) {
@@ -976,7 +1169,7 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                         }
                         // process the headers
                         CmsFlexResponse.processHeaders(f_res.getHeaders(), res);
-                        res.getOutputStream().write(result);
+                        res.getOutputStream().write(output);
                         res.getOutputStream().flush();
                     }
                 }
@@ -1011,6 +1204,19 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         return buffer.toString();
     }
 
+    /**
+     * Returns the validation state of the given JSP from the cache, regardless of its age or epoch.<p>
+     * 
+     * @param jspVfsName the root path of the JSP
+     * @param online if the online or the offline cache should be used
+     * 
+     * @return the validation state, or <code>null</code> if the JSP is not cached
+     */
+    protected CmsJspFreshness getCachedJsp(String jspVfsName, boolean online) {
+
+        return online ? m_onlineJsps.get(jspVfsName) : m_offlineJsps.get(jspVfsName);
+    }
+
     /**
      * Delivers a Flex controller, either by creating a new one, or by re-using an existing one.<p> 
      * 
@@ -1051,6 +1257,52 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         return controller;
     }
 
+    /**
+     * Returns the validation state of the given JSP if the file in the real file system 
+     * can be used without any further check, or <code>null</code> if it has to be validated.<p>
+     * 
+     * Online JSPs are valid until they are removed from the cache after the JSP or one of its 
+     * strong link targets has been published, or until the online cache is cleared. 
+     * Offline JSPs are valid as long as the VFS resource is unchanged and the configured staleness 
+     * bound is not exceeded, after half of that time a background refresh is scheduled.<p>
+     * 
+     * @param resource the JSP resource
+     * @param jspPath the absolute path of the JSP in the real file system
+     * @param cms the current cms context
+     * @param online if the JSP is requested online
+     * 
+     * @return the validation state, or <code>null</code>
+     */
+    protected CmsJspFreshness getValidJsp(CmsResource resource, String jspPath, CmsObject cms, boolean online) {
+
+        if (online) {
+            CmsJspFreshness freshness = m_onlineJsps.get(resource.getRootPath());
+            if ((freshness != null)
+                && (freshness.getEpoch() == m_onlineEpoch.get())
+                && (freshness.getResourceDateLastModified() == resource.getDateLastModified())) {
+                return freshness;
+            }
+            return null;
+        }
+        if (m_offlineStaleness <= 0) {
+            return null;
+        }
+        CmsJspFreshness freshness = m_offlineJsps.get(resource.getRootPath());
+        if ((freshness == null) || (freshness.getResourceDateLastModified() != resource.getDateLastModified())) {
+            return null;
+        }
+        long age = System.currentTimeMillis() - freshness.getValidated();
+        if (age >= m_offlineStaleness) {
+            // staleness bound exceeded, drop the entry so that the next update checks the strong links synchronously
+            m_offlineJsps.remove(resource.getRootPath(), freshness);
+            return null;
+        }
+        if ((age >= (m_offlineStaleness / 2)) && freshness.markRefreshScheduled()) {
+            scheduleOfflineRefresh(resource, jspPath, cms, freshness);
+        }
+        return freshness;
+    }
+
     /**
      * Initializes the caches.<p>
      * 
@@ -1058,10 +1310,38 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
      */
     protected void initCaches(int cacheSize) {
 
-        Map<String, Boolean> map = CmsCollectionsGenericWrapper.createLRUMap(cacheSize);
-        m_offlineJsps = Collections.synchronizedMap(map);
-        map = CmsCollectionsGenericWrapper.createLRUMap(cacheSize);
-        m_onlineJsps = Collections.synchronizedMap(map);
+        m_offlineJsps = new MapMaker().maximumSize(cacheSize).makeMap();
+        m_onlineJsps = new MapMaker().maximumSize(cacheSize).makeMap();
+    }
+
+    /**
+     * Checks if one of the resources included by the given resource using the 'link.strong' macro
+     * has been modified after the given date.<p>
+     * 
+     * @param cms the current cms context
+     * @param resource the resource to check
+     * @param date the date to compare with
+     * @param checked the root paths of the already checked resources
+     * 
+     * @return <code>true</code> if one of the included resources has been modified after the given date
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    protected boolean isStrongLinkModified(CmsObject cms, CmsResource resource, long date, Set<String> checked)
+    throws CmsException {
+
+        CmsRelationFilter filter = CmsRelationFilter.TARGETS.filterType(CmsRelationType.JSP_STRONG);
+        Iterator<CmsRelation> it = cms.getRelationsForResource(resource, filter).iterator();
+        while (it.hasNext()) {
+            CmsResource target = it.next().getTarget(cms, CmsResourceFilter.DEFAULT);
+            if (!checked.add(target.getRootPath())) {
+                continue;
+            }
+            if ((target.getDateLastModified() >= date) || isStrongLinkModified(cms, target, date, checked)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -1491,6 +1771,82 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         return cms.readResource(jspName);
     }
 
+    /**
+     * Validates an offline JSP in the background.<p>
+     * 
+     * If the file in the real file system and the JSPs included with the 'link.strong' macro are unchanged, 
+     * the validation time is renewed, otherwise the JSP is removed from the cache 
+     * so that the next request updates it synchronously.<p>
+     * 
+     * @param cms the cms context to use
+     * @param resource the JSP resource
+     * @param jspPath the absolute path of the JSP in the real file system
+     * @param freshness the validation state to refresh
+     */
+    protected void refreshOfflineJsp(CmsObject cms, CmsResource resource, String jspPath, CmsJspFreshness freshness) {
+
+        String jspVfsName = resource.getRootPath();
+        boolean valid = false;
+        try {
+            valid = (new File(jspPath).lastModified() == freshness.getRfsDateLastModified())
+                && !isStrongLinkModified(cms, resource, freshness.getRfsDateLastModified(), new HashSet<String>());
+        } catch (CmsException e) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_JSP_REFRESH_FAILED_1, jspVfsName), e);
+            }
+        }
+        if (valid) {
+            m_offlineJsps.replace(jspVfsName, freshness, freshness.refresh(System.currentTimeMillis()));
+        } else {
+            m_offlineJsps.remove(jspVfsName, freshness);
+        }
+    }
+
+    /**
+     * Schedules the background refresh of an offline JSP.<p>
+     * 
+     * @param resource the JSP resource
+     * @param jspPath the absolute path of the JSP in the real file system
+     * @param cms the current cms context
+     * @param freshness the validation state to refresh
+     */
+    protected void scheduleOfflineRefresh(
+        final CmsResource resource,
+        final String jspPath,
+        CmsObject cms,
+        final CmsJspFreshness freshness) {
+
+        final CmsObject refreshCms;
+        try {
+            // the request context of the current request must not be used in another thread
+            refreshCms = OpenCms.initCmsObject(cms);
+        } catch (CmsException e) {
+            // validate synchronously with the next request
+            m_offlineJsps.remove(resource.getRootPath(), freshness);
+            return;
+        }
+        synchronized (this) {
+            if (m_offlineRefreshExecutor == null) {
+                m_offlineRefreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                    public Thread newThread(Runnable r) {
+
+                        Thread thread = new Thread(r, "OpenCms: JSP offline refresh");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            m_offlineRefreshExecutor.execute(new Runnable() {
+
+                public void run() {
+
+                    refreshOfflineJsp(refreshCms, resource, jspPath, freshness);
+                }
+            });
+        }
+    }
+
     /**
      * Delivers the plain uninterpreted resource with escaped XML.<p>
      * 
@@ -1625,11 +1981,6 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
      */
     private ReentrantReadWriteLock getFileLock(String jspVfsName) {
 
-        synchronized (m_fileLocks) {
-            if (!m_fileLocks.containsKey(jspVfsName)) {
-                m_fileLocks.put(jspVfsName, new ReentrantReadWriteLock(true));
-            }
-            return m_fileLocks.get(jspVfsName);
-        }
+        return m_fileLocks.get(jspVfsName);
     }
 }
@@ -160,6 +160,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_CACHE_SIZE_1 = "INIT_JSP_CACHE_SIZE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_JSP_OFFLINE_STALENESS_1 = "INIT_JSP_OFFLINE_STALENESS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_REPOSITORY_ABS_PATH_1 = "INIT_JSP_REPOSITORY_ABS_PATH_1";
 
@@ -220,6 +223,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JSP_PERMCHECK_4 = "LOG_JSP_PERMCHECK_4";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_REFRESH_FAILED_1 = "LOG_JSP_REFRESH_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NAME_REAL_FS_1 = "LOG_NAME_REAL_FS_1";
 
@@ -0,0 +1,285 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Dispatches the events for a single event listener asynchronously.<p>
+ * 
+ * Every dispatcher uses its own thread and a bounded queue, so a slow listener does neither block 
+ * the thread that fired the event nor the other asynchronous listeners. The events are handled in the 
+ * order they were fired. If the queue is full, the firing thread waits until there is space again, 
+ * or handles the event itself if the dispatcher is shut down meanwhile.<p>
+ * 
+ * Cache clearing events without event data that are still waiting in the queue are dropped 
+ * when an event of the same type is fired again, since only the last one has an effect.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsAsyncEventDispatcher {
+
+    /**
+     * A queued event.<p>
+     */
+    private final class CmsEventTask implements Runnable {
+
+        /** State of a task that has been cancelled. */
+        private static final int CANCELLED = 2;
+
+        /** State of a task waiting in the queue. */
+        private static final int QUEUED = 0;
+
+        /** State of a task that has been started. */
+        private static final int STARTED = 1;
+
+        /** The event. */
+        private CmsEvent m_event;
+
+        /** The state of this task. */
+        private AtomicInteger m_state = new AtomicInteger(QUEUED);
+
+        /**
+         * Creates a new task.<p>
+         * 
+         * @param event the event
+         */
+        protected CmsEventTask(CmsEvent event) {
+
+            m_event = event;
+        }
+
+        /**
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+
+            if (!m_state.compareAndSet(QUEUED, STARTED)) {
+                // cancelled, the same event has been fired again
+                return;
+            }
+            if (isCoalescable(m_event)) {
+                synchronized (m_pendingClears) {
+                    if (m_pendingClears.get(m_event.getTypeInteger()) == this) {
+                        m_pendingClears.remove(m_event.getTypeInteger());
+                    }
+                }
+            }
+            try {
+                m_manager.invokeListener(m_listener, m_event, m_statistics, true);
+            } catch (Throwable t) {
+                // there is no caller to pass the exception to
+                LOG.error(Messages.get().getBundle().key(
+                    Messages.LOG_ASYNC_EVENT_FAILED_2,
+                    m_event.toString(),
+                    m_listener.getClass().getName()), t);
+            }
+        }
+
+        /**
+         * Cancels this task if it has not been started yet.<p>
+         * 
+         * @return <code>true</code> if the task was cancelled
+         */
+        protected boolean cancel() {
+
+            return m_state.compareAndSet(QUEUED, CANCELLED);
+        }
+    }
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsAsyncEventDispatcher.class);
+
+    /** The time to wait for space in a full queue before checking for a shutdown again, in milliseconds. */
+    private static final long QUEUE_OFFER_TIMEOUT = 100;
+
+    /** The executor. */
+    private ThreadPoolExecutor m_executor;
+
+    /** The listener. */
+    private I_CmsEventListener m_listener;
+
+    /** The event manager. */
+    private CmsEventManager m_manager;
+
+    /** The queued cache clearing events, by event type. */
+    private Map<Integer, CmsEventTask> m_pendingClears;
+
+    /** The statistics of the listener. */
+    private CmsEventListenerStatistics m_statistics;
+
+    /** The thread of the executor. */
+    private volatile Thread m_thread;
+
+    /**
+     * Creates a new asynchronous dispatcher.<p>
+     * 
+     * @param manager the event manager
+     * @param listener the listener to dispatch the events to
+     * @param statistics the statistics of the listener
+     * @param queueSize the maximum number of queued events
+     */
+    protected CmsAsyncEventDispatcher(
+        CmsEventManager manager,
+        I_CmsEventListener listener,
+        CmsEventListenerStatistics statistics,
+        int queueSize) {
+
+        m_manager = manager;
+        m_listener = listener;
+        m_statistics = statistics;
+        m_pendingClears = new HashMap<Integer, CmsEventTask>();
+        final String threadName = "OpenCms: Event dispatcher " + listener.getClass().getName();
+        m_executor = new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+            new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, threadName);
+                    thread.setDaemon(true);
+                    m_thread = thread;
+                    return thread;
+                }
+            },
+            new RejectedExecutionHandler() {
+
+                public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+
+                    try {
+                        // the queue is full, wait for space to keep the order of the events
+                        while (!executor.isShutdown()) {
+                            if (executor.getQueue().offer(r, QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                                if (executor.isShutdown() && executor.getQueue().remove(r)) {
+                                    // the dispatcher thread may have terminated before the event was queued
+                                    break;
+                                }
+                                return;
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    // the caller runs the event
+                    throw new RejectedExecutionException();
+                }
+            });
+    }
+
+    /**
+     * Checks if the given event may be dropped if it is fired again while still waiting in the queue.<p>
+     * 
+     * @param event the event to check
+     * 
+     * @return <code>true</code> if the event may be coalesced
+     */
+    protected static boolean isCoalescable(CmsEvent event) {
+
+        switch (event.getType()) {
+            case I_CmsEventListener.EVENT_CLEAR_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES:
+            case I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES:
+                return (event.getData() == null) || event.getData().isEmpty();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Queues an event for the listener.<p>
+     * 
+     * Events fired by the listener itself are handled synchronously.<p>
+     * 
+     * @param event the event to queue
+     */
+    public void dispatch(CmsEvent event) {
+
+        if (Thread.currentThread() == m_thread) {
+            // the listener fires an event itself, waiting for the queue would block forever
+            m_manager.invokeListener(m_listener, event, m_statistics, false);
+            return;
+        }
+        CmsEventTask task = new CmsEventTask(event);
+        m_statistics.addPending();
+        if (isCoalescable(event)) {
+            synchronized (m_pendingClears) {
+                CmsEventTask previous = m_pendingClears.put(event.getTypeInteger(), task);
+                if ((previous != null) && previous.cancel()) {
+                    m_statistics.addCoalesced();
+                }
+            }
+        }
+        try {
+            m_executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the dispatcher has been shut down or the firing thread was interrupted, the event must not get lost
+            task.run();
+        }
+    }
+
+    /**
+     * Returns the listener of this dispatcher.<p>
+     * 
+     * @return the listener of this dispatcher
+     */
+    public I_CmsEventListener getListener() {
+
+        return m_listener;
+    }
+
+    /**
+     * Stops the dispatcher after all queued events have been handled.<p>
+     * 
+     * @param timeout the maximum time to wait for the queued events in milliseconds
+     */
+    public void shutDown(long timeout) {
+
+        m_executor.shutdown();
+        try {
+            m_executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -128,6 +128,21 @@ public class CmsEvent {
         return m_type.hashCode();
     }
 
+    /**
+     * Checks if this event has been received from another node of the cluster.<p>
+     * 
+     * Listeners should only update their local caches for such events, 
+     * since the originating node has already done all other work.<p>
+     * 
+     * @return <code>true</code> if this event has been received from another node of the cluster
+     * 
+     * @see I_CmsEventListener#KEY_CLUSTER_NODE
+     */
+    public boolean isClusterEvent() {
+
+        return (m_data != null) && m_data.containsKey(I_CmsEventListener.KEY_CLUSTER_NODE);
+    }
+
     /**
      * Return a String representation of this CmsEvent.<p>
      *
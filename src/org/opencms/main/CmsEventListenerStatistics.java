@@ -0,0 +1,218 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timing metrics of an event listener, collected by the {@link CmsEventManager}.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsEventListenerStatistics {
+
+    /** The number of events dropped because an equal event was fired later. */
+    private AtomicLong m_coalesced = new AtomicLong();
+
+    /** The number of handled events. */
+    private AtomicLong m_count = new AtomicLong();
+
+    /** The number of events for which the listener failed. */
+    private AtomicLong m_errors = new AtomicLong();
+
+    /** The name of the listener. */
+    private String m_listenerName;
+
+    /** The maximum time needed to handle an event, in nanoseconds. */
+    private AtomicLong m_maxTime = new AtomicLong();
+
+    /** The number of events waiting for asynchronous dispatch. */
+    private AtomicInteger m_pending = new AtomicInteger();
+
+    /** The total time needed to handle the events, in nanoseconds. */
+    private AtomicLong m_totalTime = new AtomicLong();
+
+    /**
+     * Creates new statistics for the given listener.<p>
+     * 
+     * @param listener the listener
+     */
+    public CmsEventListenerStatistics(I_CmsEventListener listener) {
+
+        m_listenerName = listener.getClass().getName();
+    }
+
+    /**
+     * Returns the average time needed to handle an event in milliseconds.<p>
+     * 
+     * @return the average time needed to handle an event in milliseconds
+     */
+    public double getAverageTime() {
+
+        long count = m_count.get();
+        if (count == 0) {
+            return 0;
+        }
+        return (m_totalTime.get() / (double)count) / 1000000.0;
+    }
+
+    /**
+     * Returns the number of events dropped because an equal event was fired later.<p>
+     * 
+     * @return the number of coalesced events
+     */
+    public long getCoalesced() {
+
+        return m_coalesced.get();
+    }
+
+    /**
+     * Returns the number of handled events.<p>
+     * 
+     * @return the number of handled events
+     */
+    public long getCount() {
+
+        return m_count.get();
+    }
+
+    /**
+     * Returns the number of events for which the listener failed.<p>
+     * 
+     * @return the number of events for which the listener failed
+     */
+    public long getErrors() {
+
+        return m_errors.get();
+    }
+
+    /**
+     * Returns the name of the listener.<p>
+     * 
+     * @return the name of the listener
+     */
+    public String getListenerName() {
+
+        return m_listenerName;
+    }
+
+    /**
+     * Returns the maximum time needed to handle an event in milliseconds.<p>
+     * 
+     * @return the maximum time needed to handle an event in milliseconds
+     */
+    public long getMaxTime() {
+
+        return m_maxTime.get() / 1000000L;
+    }
+
+    /**
+     * Returns the number of events waiting for asynchronous dispatch.<p>
+     * 
+     * @return the number of events waiting for asynchronous dispatch
+     */
+    public int getPending() {
+
+        return m_pending.get();
+    }
+
+    /**
+     * Returns the total time needed to handle the events in milliseconds.<p>
+     * 
+     * @return the total time needed to handle the events in milliseconds
+     */
+    public long getTotalTime() {
+
+        return m_totalTime.get() / 1000000L;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(128);
+        result.append(m_listenerName);
+        result.append(" [count=").append(getCount());
+        result.append(", avg=").append(Math.round(getAverageTime())).append("ms");
+        result.append(", max=").append(getMaxTime()).append("ms");
+        result.append(", total=").append(getTotalTime()).append("ms");
+        result.append(", errors=").append(getErrors());
+        result.append(", pending=").append(getPending());
+        result.append(", coalesced=").append(getCoalesced());
+        result.append("]");
+        return result.toString();
+    }
+
+    /**
+     * Records an event that was dropped because an equal event was fired later.<p>
+     */
+    protected void addCoalesced() {
+
+        m_coalesced.incrementAndGet();
+        m_pending.decrementAndGet();
+    }
+
+    /**
+     * Records a failed event.<p>
+     */
+    protected void addError() {
+
+        m_errors.incrementAndGet();
+    }
+
+    /**
+     * Records an event waiting for asynchronous dispatch.<p>
+     */
+    protected void addPending() {
+
+        m_pending.incrementAndGet();
+    }
+
+    /**
+     * Records the time needed to handle an event.<p>
+     * 
+     * @param nanos the time needed to handle the event in nanoseconds
+     * @param pending <code>true</code> if the event was dispatched asynchronously
+     */
+    protected void addTime(long nanos, boolean pending) {
+
+        if (pending) {
+            m_pending.decrementAndGet();
+        }
+        m_count.incrementAndGet();
+        m_totalTime.addAndGet(nanos);
+        long max = m_maxTime.get();
+        while ((nanos > max) && !m_maxTime.compareAndSet(max, nanos)) {
+            max = m_maxTime.get();
+        }
+    }
+}
@@ -27,11 +27,18 @@
 
 package org.opencms.main;
 
+import org.opencms.file.CmsResource;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.apache.commons.logging.Log;
 
@@ -44,6 +51,17 @@ import org.apache.commons.logging.Log;
  * Events can be used in OpenCms to notify custom event listeners that certain system events have happened.
  * Event listeners have to implement the interface {@link org.opencms.main.I_CmsEventListener}.<p>
  * 
+ * By default, the listeners are called synchronously in the thread that fires the event. Listeners 
+ * registered with {@link #addCmsEventListener(I_CmsEventListener, int[], int)} are called asynchronously 
+ * by their own {@link CmsAsyncEventDispatcher}, and therefore must not use event data that is only valid while 
+ * the event is fired, like the database context. The time every listener needs to handle events 
+ * is available from {@link #getListenerStatistics()}.<p>
+ * 
+ * Bulk operations can call {@link #deferResourceEvents()} to collect the resource events fired by the 
+ * current thread, and dispatch them once at the end with {@link #fireDeferredEvents()}. Only listeners 
+ * registered with {@link #addDeferrableCmsEventListener(I_CmsEventListener, int[])} get the events late, 
+ * all other listeners, for example the caches, still get every event immediately.<p>
+ * 
  * @since 7.0.0
  * 
  * @see org.opencms.main.CmsEvent
@@ -54,18 +72,54 @@ public class CmsEventManager {
     /** Required as template for event list generation. */
     protected static final I_CmsEventListener[] EVENT_LIST = new I_CmsEventListener[0];
 
+    /** The default time in milliseconds after which a listener is reported as slow. */
+    public static final long DEFAULT_SLOW_LISTENER_THRESHOLD = 1000;
+
+    /** The maximum time to wait for the queued events of an asynchronous listener on shutdown, in milliseconds. */
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
     /** The static log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsEventManager.class);
 
+    /** The types of the events which are deferred by {@link #deferResourceEvents()}. */
+    private static final int[] DEFERRABLE_EVENTS = {
+        I_CmsEventListener.EVENT_PROPERTY_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCE_COPIED,
+        I_CmsEventListener.EVENT_RESOURCE_CREATED,
+        I_CmsEventListener.EVENT_RESOURCE_DELETED,
+        I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCE_MOVED,
+        I_CmsEventListener.EVENT_RESOURCES_AND_PROPERTIES_MODIFIED,
+        I_CmsEventListener.EVENT_RESOURCES_MODIFIED};
+
+    /** The dispatchers of the asynchronous event listeners. */
+    private Map<I_CmsEventListener, CmsAsyncEventDispatcher> m_asyncDispatchers;
+
+    /** The listeners which accept that their resource events are deferred. */
+    private Set<I_CmsEventListener> m_deferrableListeners;
+
+    /** The resource events deferred by the current thread, by their coalescing key. */
+    private ThreadLocal<Map<String, CmsEvent>> m_deferredEvents = new ThreadLocal<Map<String, CmsEvent>>();
+
     /** Stores the active event listeners. */
     private Map<Integer, List<I_CmsEventListener>> m_eventListeners;
 
+    /** The time in milliseconds after which a listener is reported as slow. */
+    private long m_slowListenerThreshold = DEFAULT_SLOW_LISTENER_THRESHOLD;
+
+    /** The statistics of the event listeners. */
+    private ConcurrentMap<I_CmsEventListener, CmsEventListenerStatistics> m_statistics;
+
     /**
      * Create a new instance of an OpenCms event manager.<p>
      */
     public CmsEventManager() {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>();
+        m_asyncDispatchers = new ConcurrentHashMap<I_CmsEventListener, CmsAsyncEventDispatcher>();
+        m_statistics = new ConcurrentHashMap<I_CmsEventListener, CmsEventListenerStatistics>();
+        m_deferrableListeners = new CopyOnWriteArraySet<I_CmsEventListener>();
     }
 
     /**
@@ -107,6 +161,89 @@ public class CmsEventManager {
         }
     }
 
+    /**
+     * Add an OpenCms event listener that is called asynchronously.<p>
+     * 
+     * The listener gets its own thread and a queue for at most <code>queueSize</code> events. 
+     * The events are passed to the listener in the order they were fired.<p>
+     *
+     * @param listener the listener to add
+     * @param eventTypes the events to listen for, or <code>null</code> to listen for all events
+     * @param queueSize the maximum number of queued events, if not positive the listener is called synchronously
+     */
+    public void addCmsEventListener(I_CmsEventListener listener, int[] eventTypes, int queueSize) {
+
+        if (queueSize > 0) {
+            synchronized (m_eventListeners) {
+                if (!m_asyncDispatchers.containsKey(listener)) {
+                    m_asyncDispatchers.put(listener, new CmsAsyncEventDispatcher(
+                        this,
+                        listener,
+                        getStatistics(listener),
+                        queueSize));
+                }
+            }
+        }
+        addCmsEventListener(listener, eventTypes);
+    }
+
+    /**
+     * Add an OpenCms event listener which accepts that its resource events are deferred.<p>
+     * 
+     * While the resource events of a thread are deferred by {@link #deferResourceEvents()}, the listener 
+     * gets them only when they are fired by {@link #fireDeferredEvents()}. This is only suitable for 
+     * listeners which do expensive work for every changed resource, like updating a search index, and 
+     * whose state is not read by the thread which defers the events. Listeners keeping caches must 
+     * be added with {@link #addCmsEventListener(I_CmsEventListener, int[])} instead.<p>
+     *
+     * @param listener the listener to add
+     * @param eventTypes the events to listen for, or <code>null</code> to listen for all events
+     */
+    public void addDeferrableCmsEventListener(I_CmsEventListener listener, int[] eventTypes) {
+
+        m_deferrableListeners.add(listener);
+        addCmsEventListener(listener, eventTypes);
+    }
+
+    /**
+     * Starts collecting the resource events fired by the current thread for the deferrable listeners.<p>
+     * 
+     * The listeners added with {@link #addDeferrableCmsEventListener(I_CmsEventListener, int[])} 
+     * get the events later, and events of the same type for the same resource and change only once. 
+     * All other listeners still get the events immediately. The collected events are dispatched 
+     * by {@link #fireDeferredEvents()}, which must be called in a <code>finally</code> block by the caller.<p>
+     */
+    public void deferResourceEvents() {
+
+        if (m_deferredEvents.get() == null) {
+            m_deferredEvents.set(new LinkedHashMap<String, CmsEvent>());
+        }
+    }
+
+    /**
+     * Stops collecting the resource events of the current thread and dispatches the collected events.<p>
+     * 
+     * @return the number of dispatched events
+     * 
+     * @see #deferResourceEvents()
+     */
+    public int fireDeferredEvents() {
+
+        Map<String, CmsEvent> deferred = m_deferredEvents.get();
+        if (deferred == null) {
+            return 0;
+        }
+        m_deferredEvents.remove();
+        Iterator<CmsEvent> it = deferred.values().iterator();
+        while (it.hasNext()) {
+            CmsEvent event = it.next();
+            fireEventHandler(getListeners(m_eventListeners.get(event.getTypeInteger()), true), event);
+            List<I_CmsEventListener> forAll = m_eventListeners.get(I_CmsEventListener.LISTENERS_FOR_ALL_EVENTS);
+            fireEventHandler(getListeners(forAll, true), event);
+        }
+        return deferred.size();
+    }
+
     /**
      * Notify all event listeners that a particular event has occurred.<p>
      *
@@ -114,6 +251,18 @@ public class CmsEventManager {
      */
     public void fireEvent(CmsEvent event) {
 
+        Map<String, CmsEvent> deferred = m_deferredEvents.get();
+        if ((deferred != null) && isDeferrable(event)) {
+            String key = getDeferredEventKey(event, deferred.size());
+            // keep the position of the latest occurrence, so the listeners see the final state in order
+            deferred.remove(key);
+            deferred.put(key, event);
+            // the other listeners, especially the caches, must see every change immediately
+            fireEventHandler(getListeners(m_eventListeners.get(event.getTypeInteger()), false), event);
+            List<I_CmsEventListener> forAll = m_eventListeners.get(I_CmsEventListener.LISTENERS_FOR_ALL_EVENTS);
+            fireEventHandler(getListeners(forAll, false), event);
+            return;
+        }
         fireEventHandler(m_eventListeners.get(event.getTypeInteger()), event);
         fireEventHandler(m_eventListeners.get(I_CmsEventListener.LISTENERS_FOR_ALL_EVENTS), event);
     }
@@ -139,6 +288,26 @@ public class CmsEventManager {
         fireEvent(new CmsEvent(type, data));
     }
 
+    /**
+     * Returns the timing metrics of all event listeners that have handled events.<p>
+     * 
+     * @return the timing metrics of the event listeners
+     */
+    public List<CmsEventListenerStatistics> getListenerStatistics() {
+
+        return new ArrayList<CmsEventListenerStatistics>(m_statistics.values());
+    }
+
+    /**
+     * Returns the time in milliseconds after which a listener is reported as slow.<p>
+     * 
+     * @return the time in milliseconds after which a listener is reported as slow
+     */
+    public long getSlowListenerThreshold() {
+
+        return m_slowListenerThreshold;
+    }
+
     /**
      * Removes a cms event listener.<p>
      *
@@ -153,6 +322,55 @@ public class CmsEventManager {
                 listeners.remove(listener);
             }
         }
+        CmsAsyncEventDispatcher dispatcher = m_asyncDispatchers.remove(listener);
+        if (dispatcher != null) {
+            dispatcher.shutDown(0);
+        }
+        m_statistics.remove(listener);
+        m_deferrableListeners.remove(listener);
+    }
+
+    /**
+     * Sets the time in milliseconds after which a listener is reported as slow.<p>
+     * 
+     * @param slowListenerThreshold the time in milliseconds, if not positive slow listeners are not reported
+     */
+    public void setSlowListenerThreshold(long slowListenerThreshold) {
+
+        m_slowListenerThreshold = slowListenerThreshold;
+    }
+
+    /**
+     * Stops the dispatchers of the asynchronous listeners after they handled their queued events.<p>
+     */
+    public void shutDown() {
+
+        Iterator<CmsAsyncEventDispatcher> it = m_asyncDispatchers.values().iterator();
+        while (it.hasNext()) {
+            it.next().shutDown(SHUTDOWN_TIMEOUT);
+        }
+        if (LOG.isInfoEnabled()) {
+            Iterator<CmsEventListenerStatistics> stats = m_statistics.values().iterator();
+            while (stats.hasNext()) {
+                LOG.info(Messages.get().getBundle().key(Messages.LOG_EVENT_LISTENER_STATISTICS_1, stats.next()));
+            }
+        }
+    }
+
+    /**
+     * Passes an event to a listener, either directly or using the asynchronous dispatcher of the listener.<p>
+     * 
+     * @param listener the listener
+     * @param event the event
+     */
+    protected void dispatchEvent(I_CmsEventListener listener, CmsEvent event) {
+
+        CmsAsyncEventDispatcher dispatcher = m_asyncDispatchers.get(listener);
+        if (dispatcher != null) {
+            dispatcher.dispatch(event);
+        } else {
+            invokeListener(listener, event, getStatistics(listener), false);
+        }
     }
 
     /**
@@ -173,6 +391,45 @@ public class CmsEventManager {
     protected void initialize(CmsEventManager base) {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>(base.getEventListeners());
+        m_asyncDispatchers.putAll(base.m_asyncDispatchers);
+        m_statistics.putAll(base.m_statistics);
+        m_deferrableListeners.addAll(base.m_deferrableListeners);
+    }
+
+    /**
+     * Calls a listener and records the time needed.<p>
+     * 
+     * @param listener the listener to call
+     * @param event the event to pass to the listener
+     * @param statistics the statistics of the listener
+     * @param async <code>true</code> if the call is done by the asynchronous dispatcher of the listener
+     */
+    protected void invokeListener(
+        I_CmsEventListener listener,
+        CmsEvent event,
+        CmsEventListenerStatistics statistics,
+        boolean async) {
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            listener.cmsEvent(event);
+            success = true;
+        } finally {
+            long time = System.nanoTime() - start;
+            statistics.addTime(time, async);
+            if (!success) {
+                statistics.addError();
+            }
+            long millis = time / 1000000L;
+            if ((m_slowListenerThreshold > 0) && (millis >= m_slowListenerThreshold) && LOG.isWarnEnabled()) {
+                LOG.warn(Messages.get().getBundle().key(
+                    Messages.LOG_SLOW_EVENT_LISTENER_3,
+                    listener.getClass().getName(),
+                    event.toString(),
+                    String.valueOf(millis)));
+            }
+        }
     }
 
     /**
@@ -191,7 +448,7 @@ public class CmsEventManager {
                 // loop through all registered event listeners
                 for (int i = 0; i < list.length; i++) {
                     // fire the event
-                    list[i].cmsEvent(event);
+                    dispatchEvent(list[i], event);
                 }
             }
         } else {
@@ -232,7 +489,7 @@ public class CmsEventManager {
                         new Integer(i),
                         event.toString()));
                     // fire the event
-                    list[i].cmsEvent(event);
+                    dispatchEvent(list[i], event);
                     LOG.debug(Messages.get().getBundle().key(
                         Messages.LOG_DEBUG_EVENT_END_LISTENER_3,
                         list[i],
@@ -245,4 +502,88 @@ public class CmsEventManager {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_DEBUG_EVENT_COMPLETE_1, event.toString()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the key used to coalesce a deferred event with the other deferred events.<p>
+     * 
+     * @param event the event
+     * @param position the number of already deferred events, used for events which can not be coalesced
+     * 
+     * @return the key of the event
+     */
+    private String getDeferredEventKey(CmsEvent event, int position) {
+
+        Object resource = (event.getData() != null) ? event.getData().get(I_CmsEventListener.KEY_RESOURCE) : null;
+        if (!(resource instanceof CmsResource)) {
+            // events for several resources or without a resource are kept as they are
+            return "#" + position;
+        }
+        StringBuffer result = new StringBuffer(64);
+        result.append(event.getType());
+        result.append('|');
+        result.append(((CmsResource)resource).getStructureId());
+        result.append('|');
+        result.append(event.getData().get(I_CmsEventListener.KEY_CHANGE));
+        return result.toString();
+    }
+
+    /**
+     * Returns the listeners from the given list which accept deferred events, or the ones which do not.<p>
+     * 
+     * @param listeners the listeners, may be <code>null</code>
+     * @param deferrable <code>true</code> to return the listeners which accept deferred events
+     * 
+     * @return the matching listeners, may be <code>null</code>
+     */
+    private List<I_CmsEventListener> getListeners(List<I_CmsEventListener> listeners, boolean deferrable) {
+
+        if ((listeners == null) || m_deferrableListeners.isEmpty()) {
+            return deferrable ? null : listeners;
+        }
+        List<I_CmsEventListener> result = new ArrayList<I_CmsEventListener>(listeners.size());
+        I_CmsEventListener[] list = listeners.toArray(EVENT_LIST);
+        for (int i = 0; i < list.length; i++) {
+            if (m_deferrableListeners.contains(list[i]) == deferrable) {
+                result.add(list[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the statistics of the given listener, creating them if required.<p>
+     * 
+     * @param listener the listener
+     * 
+     * @return the statistics of the listener
+     */
+    private CmsEventListenerStatistics getStatistics(I_CmsEventListener listener) {
+
+        CmsEventListenerStatistics statistics = m_statistics.get(listener);
+        if (statistics == null) {
+            statistics = new CmsEventListenerStatistics(listener);
+            CmsEventListenerStatistics existing = m_statistics.putIfAbsent(listener, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Checks if the given event is deferred by {@link #deferResourceEvents()}.<p>
+     * 
+     * @param event the event to check
+     * 
+     * @return <code>true</code> if the event is deferred
+     */
+    private boolean isDeferrable(CmsEvent event) {
+
+        for (int i = 0; i < DEFERRABLE_EVENTS.length; i++) {
+            if (DEFERRABLE_EVENTS[i] == event.getType()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -714,6 +714,33 @@ class CmsShellCommands implements I_CmsShellCommands {
             params);
     }
 
+    /**
+     * Imports a resource into the Cms, and updates the search indexes once at the end of the import.<p>
+     * 
+     * Use this for very large imports, the resource events for the search indexes are fired 
+     * once at the end of the import and the report shows the throughput of every phase.<p>
+     * 
+     * @param importFile the name (absolute Path) of the import resource (zip or folder)
+     * @param importPath the name (absolute Path) of folder in which should be imported
+     * 
+     * @throws Exception if something goes wrong
+     * 
+     * @see org.opencms.importexport.CmsImportParameters#isDeferIndexing()
+     */
+    public void importResourcesDeferIndexing(String importFile, String importPath) throws Exception {
+
+        CmsImportParameters params = new CmsImportParameters(
+            OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(importFile),
+            importPath,
+            true);
+        params.setDeferIndexing(true);
+
+        OpenCms.getImportExportManager().importData(
+            m_cms,
+            new CmsShellReport(m_cms.getRequestContext().getLocale()),
+            params);
+    }
+
     /**
      * Imports a folder or a ZIP file to the root folder of the 
      * current site, creating a temporary project for this.<p>
@@ -363,6 +363,9 @@ public interface I_CmsEventListener {
     /** Key name for passing a change int in the data map - see the <code>CHANGED_XXX</code> constants in {@link org.opencms.db.CmsDriverManager}. */
     String KEY_CHANGE = "change";
 
+    /** Key name for passing the id of the cluster node an event was received from in the data map. */
+    String KEY_CLUSTER_NODE = "clusterNode";
+
     /** Key name for passing a database context in the data map. */
     String KEY_DBCONTEXT = "dbContext";
 
@@ -339,6 +339,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_WEBINF_PATH_1 = "INIT_WEBINF_PATH_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ASYNC_EVENT_FAILED_2 = "LOG_ASYNC_EVENT_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CONSOLE_TOTAL_RUNTIME_1 = "LOG_CONSOLE_TOTAL_RUNTIME_1";
 
@@ -372,9 +375,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_ADE_MANAGER_SHUTDOWN_1 = "LOG_ERROR_ADE_MANAGER_SHUTDOWN_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_CLUSTER_MANAGER_SHUTDOWN_1 = "LOG_ERROR_CLUSTER_MANAGER_SHUTDOWN_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_DERIGISTERING_JDBC_DRIVER_1 = "LOG_ERROR_DERIGISTERING_JDBC_DRIVER_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1 = "LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_EXPORT_1 = "LOG_ERROR_EXPORT_1";
 
@@ -423,6 +432,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_WRITING_CONFIG_1 = "LOG_ERROR_WRITING_CONFIG_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EVENT_LISTENER_STATISTICS_1 = "LOG_EVENT_LISTENER_STATISTICS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INIT_CMSOBJECT_IN_HANDLER_2 = "LOG_INIT_CMSOBJECT_IN_HANDLER_2";
 
@@ -459,6 +471,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SHUTDOWN_TRACE_0 = "LOG_SHUTDOWN_TRACE_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SLOW_EVENT_LISTENER_3 = "LOG_SLOW_EVENT_LISTENER_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_STARTUP_CONSOLE_NOTE_2 = "LOG_STARTUP_CONSOLE_NOTE_2";
 
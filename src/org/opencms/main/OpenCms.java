@@ -144,6 +144,20 @@ public final class OpenCms {
         OpenCmsCore.getInstance().getEventManager().addCmsEventListener(listener, eventTypes);
     }
 
+    /**
+     * Add a cms event listener that listens only to particular events and is called asynchronously.<p>
+     *
+     * @param listener the listener to add
+     * @param eventTypes the events to listen for
+     * @param queueSize the maximum number of queued events
+     * 
+     * @see CmsEventManager#addCmsEventListener(I_CmsEventListener, int[], int)
+     */
+    public static void addCmsEventListener(I_CmsEventListener listener, int[] eventTypes, int queueSize) {
+
+        OpenCmsCore.getInstance().getEventManager().addCmsEventListener(listener, eventTypes, queueSize);
+    }
+
     /**
      * Notify all event listeners that a particular event has occurred.<p>
      *
@@ -28,6 +28,7 @@
 package org.opencms.main;
 
 import org.opencms.ade.configuration.CmsADEManager;
+import org.opencms.cluster.CmsClusterManager;
 import org.opencms.configuration.CmsConfigurationException;
 import org.opencms.configuration.CmsConfigurationManager;
 import org.opencms.configuration.CmsImportExportConfiguration;
@@ -163,6 +164,9 @@ public final class OpenCmsCore {
     /** The ADE manager instance. */
     private CmsADEManager m_adeManager;
 
+    /** The cluster manager instance, <code>null</code> if no cluster transport is configured. */
+    private CmsClusterManager m_clusterManager;
+
     /** The template context manager. */
     private CmsTemplateContextManager m_templateContextManager;
 
@@ -1292,6 +1296,12 @@ public final class OpenCmsCore {
                 m_workflowManager.setParameters(new HashMap<String, String>());
             }
             m_workflowManager.initialize(adminCms);
+
+            // initialize the cluster manager as last, since it fires the events received from other nodes
+            m_clusterManager = CmsClusterManager.create(configuration, m_eventManager);
+            if (m_clusterManager != null) {
+                m_clusterManager.initialize();
+            }
         } catch (CmsException e) {
             throw new CmsInitException(Messages.get().container(Messages.ERR_CRITICAL_INIT_MANAGERS_0), e);
         }
@@ -1717,6 +1727,26 @@ public final class OpenCmsCore {
                         Messages.get().getBundle().key(Messages.LOG_ERROR_PUBLISH_SHUTDOWN_1, e.getMessage()),
                         e);
                 }
+                try {
+                    // stop receiving events from the other cluster nodes
+                    if (m_clusterManager != null) {
+                        m_clusterManager.shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(
+                        Messages.get().getBundle().key(Messages.LOG_ERROR_CLUSTER_MANAGER_SHUTDOWN_1, e.getMessage()),
+                        e);
+                }
+                try {
+                    // let the asynchronous event listeners handle their queued events while all managers are available
+                    if (m_eventManager != null) {
+                        m_eventManager.shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(
+                        Messages.get().getBundle().key(Messages.LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1, e.getMessage()),
+                        e);
+                }
                 try {
                     // search manager must be shut down early since there may be background indexing still ongoing
                     if (m_searchManager != null) {
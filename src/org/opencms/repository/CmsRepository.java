@@ -63,9 +63,18 @@ public class CmsRepository extends A_CmsRepository {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsRepository.class);
 
+    /** The default time in milliseconds folder listings are cached. */
+    private static final int DEFAULT_LISTING_CACHE_TTL = 2000;
+
+    /** The name of the parameter for the time in milliseconds folder listings are cached. */
+    private static final String PARAM_LISTING_CACHE_TTL = "listingCacheTtl";
+
     /** The name of the parameter of the configuration. */
     private static final String PARAM_WRAPPER = "wrapper";
 
+    /** The short lived cache for folder listings. */
+    private CmsRepositoryListingCache m_listingCache;
+
     /** The list of configured wrappers of the repository. */
     private List<I_CmsResourceWrapper> m_wrappers;
 
@@ -76,6 +85,7 @@ public class CmsRepository extends A_CmsRepository {
 
         super();
         m_wrappers = new ArrayList<I_CmsResourceWrapper>();
+        m_listingCache = new CmsRepositoryListingCache(0);
     }
 
     /**
@@ -128,6 +138,9 @@ public class CmsRepository extends A_CmsRepository {
         }
 
         m_wrappers = Collections.unmodifiableList(m_wrappers);
+        m_listingCache = new CmsRepositoryListingCache(getConfiguration().getInteger(
+            PARAM_LISTING_CACHE_TTL,
+            DEFAULT_LISTING_CACHE_TTL));
 
         super.initConfiguration();
     }
@@ -160,7 +173,7 @@ public class CmsRepository extends A_CmsRepository {
         CmsObjectWrapper objWrapper = new CmsObjectWrapper(cms, m_wrappers);
         cms.getRequestContext().setAttribute(CmsObjectWrapper.ATTRIBUTE_NAME, objWrapper);
 
-        return new CmsRepositorySession(objWrapper, getFilter());
+        return new CmsRepositorySession(objWrapper, getFilter(), m_listingCache);
     }
 
 }
@@ -36,6 +36,9 @@ import org.opencms.loader.CmsResourceManager;
 import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
 /**
  * Represents a single entry in the repository. In the context of OpenCms
  * this means a single {@link CmsResource}.<p>
@@ -94,6 +97,19 @@ public class CmsRepositoryItem implements I_CmsRepositoryItem {
         return m_content;
     }
 
+    /**
+     * @see org.opencms.repository.I_CmsRepositoryItem#getContentStream()
+     */
+    public InputStream getContentStream() {
+
+        byte[] content = getContent();
+        if (content == null) {
+            return null;
+        }
+        // the VFS provides the content as array, so wrap it without copying
+        return new ByteArrayInputStream(content);
+    }
+
     /**
      * @see org.opencms.repository.I_CmsRepositoryItem#getContentLength()
      */
@@ -0,0 +1,167 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.repository;
+
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsPair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short lived cache for the folder listings of a repository.<p>
+ * 
+ * WebDAV clients often request the same folder listing several times within a few seconds,
+ * e.g. once for the folder itself and once for every file dialog refresh. This cache keeps
+ * the listings for a configurable time, so that repeated requests do not read the folder
+ * contents again.<p>
+ * 
+ * Changes made through the repository clear the cache, changes made by other means
+ * become visible after the configured time at the latest.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsRepositoryListingCache {
+
+    /** The maximal number of listings kept in the cache. */
+    public static final int MAX_ENTRIES = 1000;
+
+    /** The cached listings with the time they were added, by key. */
+    private Map<String, CmsPair<Long, List<CmsResource>>> m_entries;
+
+    /** The time in milliseconds a listing is kept. */
+    private long m_ttl;
+
+    /**
+     * Creates a new listing cache.<p>
+     * 
+     * @param ttl the time in milliseconds a listing is kept, a value of 0 or less disables the cache
+     */
+    public CmsRepositoryListingCache(long ttl) {
+
+        m_ttl = ttl;
+        m_entries = new ConcurrentHashMap<String, CmsPair<Long, List<CmsResource>>>();
+    }
+
+    /**
+     * Removes all cached listings.<p>
+     */
+    public void clear() {
+
+        m_entries.clear();
+    }
+
+    /**
+     * Returns the cached listing for the given key.<p>
+     * 
+     * @param key the key of the listing
+     * 
+     * @return the cached listing, or <code>null</code> if there is no valid listing for the key
+     */
+    public List<CmsResource> get(String key) {
+
+        CmsPair<Long, List<CmsResource>> entry = m_entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if ((System.currentTimeMillis() - entry.getFirst().longValue()) > m_ttl) {
+            m_entries.remove(key);
+            return null;
+        }
+        return entry.getSecond();
+    }
+
+    /**
+     * Returns the time in milliseconds a listing is kept.<p>
+     * 
+     * @return the time in milliseconds a listing is kept
+     */
+    public long getTtl() {
+
+        return m_ttl;
+    }
+
+    /**
+     * Checks if this cache keeps listings at all.<p>
+     * 
+     * @return <code>true</code> if this cache keeps listings
+     */
+    public boolean isEnabled() {
+
+        return m_ttl > 0;
+    }
+
+    /**
+     * Adds a listing to the cache.<p>
+     * 
+     * @param key the key of the listing
+     * @param resources the resources of the listing
+     */
+    public void put(String key, List<CmsResource> resources) {
+
+        if (!isEnabled()) {
+            return;
+        }
+        if (m_entries.size() >= MAX_ENTRIES) {
+            removeExpired();
+            if (m_entries.size() >= MAX_ENTRIES) {
+                m_entries.clear();
+            }
+        }
+        List<CmsResource> listing = Collections.unmodifiableList(new ArrayList<CmsResource>(resources));
+        m_entries.put(key, CmsPair.create(Long.valueOf(System.currentTimeMillis()), listing));
+    }
+
+    /**
+     * Returns the number of cached listings.<p>
+     * 
+     * @return the number of cached listings
+     */
+    public int size() {
+
+        return m_entries.size();
+    }
+
+    /**
+     * Removes all listings which have expired.<p>
+     */
+    private void removeExpired() {
+
+        long now = System.currentTimeMillis();
+        Iterator<CmsPair<Long, List<CmsResource>>> it = m_entries.values().iterator();
+        while (it.hasNext()) {
+            if ((now - it.next().getFirst().longValue()) > m_ttl) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -41,12 +41,15 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsSecurityException;
 import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 
@@ -69,9 +72,21 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsRepositorySession.class);
 
+    /** The largest content length for which the content is read into a buffer allocated in advance. */
+    private static final int MAX_PRESIZED_CONTENT_LENGTH = 4 * 1024 * 1024;
+
     /** The initialized {@link CmsObjectWrapper}. */
     private final CmsObjectWrapper m_cms;
 
+    /** The shared cache for folder listings, may be <code>null</code>. */
+    private final CmsRepositoryListingCache m_listingCache;
+
+    /** The resources already read in this session, by site path. */
+    private final Map<String, CmsResource> m_resources;
+
+    /** The lock owners already read in this session, by user id. */
+    private final Map<CmsUUID, CmsUser> m_users;
+
     /**
      * Constructor with an initialized {@link CmsObjectWrapper} and a 
      * {@link CmsRepositoryFilter} to use.<p>
@@ -81,7 +96,26 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
      */
     public CmsRepositorySession(CmsObjectWrapper cms, CmsRepositoryFilter filter) {
 
+        this(cms, filter, null);
+    }
+
+    /**
+     * Constructor with an initialized {@link CmsObjectWrapper}, a 
+     * {@link CmsRepositoryFilter} and a cache for folder listings to use.<p>
+     * 
+     * @param cms the initialized CmsObject
+     * @param filter the repository filter to use
+     * @param listingCache the cache for folder listings, may be <code>null</code>
+     */
+    public CmsRepositorySession(
+        CmsObjectWrapper cms,
+        CmsRepositoryFilter filter,
+        CmsRepositoryListingCache listingCache) {
+
         m_cms = cms;
+        m_listingCache = listingCache;
+        m_resources = new HashMap<String, CmsResource>();
+        m_users = new HashMap<CmsUUID, CmsUser>();
         setFilter(filter);
     }
 
@@ -133,7 +167,12 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
         }
 
         // copy resource
-        m_cms.copyResource(src, dest, CmsResource.COPY_PRESERVE_SIBLING);
+        clearCaches();
+        try {
+            m_cms.copyResource(src, dest, CmsResource.COPY_PRESERVE_SIBLING);
+        } finally {
+            clearCaches();
+        }
 
         // unlock destination resource
         m_cms.unlockResource(dest);
@@ -151,7 +190,13 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
         }
 
         // create the folder
-        CmsResource res = m_cms.createResource(path, CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        clearCaches();
+        CmsResource res;
+        try {
+            res = m_cms.createResource(path, CmsResourceTypeFolder.RESOURCE_TYPE_ID);
+        } finally {
+            clearCaches();
+        }
 
         // unlock new created folders if lock is not inherited
         if (!m_cms.getLock(res).isInherited()) {
@@ -176,7 +221,12 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
         m_cms.lockResource(path);
 
         // delete resource
-        m_cms.deleteResource(path, CmsResource.DELETE_PRESERVE_SIBLINGS);
+        clearCaches();
+        try {
+            m_cms.deleteResource(path, CmsResource.DELETE_PRESERVE_SIBLINGS);
+        } finally {
+            clearCaches();
+        }
 
         // if deleting items out of a xml page restore lock state after deleting
         try {
@@ -212,7 +262,11 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_READ_ITEM_1, path));
         }
 
-        CmsResource res = m_cms.readResource(path, CmsResourceFilter.DEFAULT);
+        CmsResource res = m_resources.get(path);
+        if (res == null) {
+            res = m_cms.readResource(path, CmsResourceFilter.DEFAULT);
+            m_resources.put(path, res);
+        }
 
         CmsRepositoryItem item = new CmsRepositoryItem(res, m_cms);
         return item;
@@ -228,14 +282,22 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
 
             path = validatePath(path);
 
-            CmsResource res = m_cms.readResource(path, CmsResourceFilter.DEFAULT);
+            // resources of the listings are reused, so that a PROPFIND does not read every child again
+            CmsResource res = m_resources.get(path);
+            if (res == null) {
+                res = m_cms.readResource(path, CmsResourceFilter.DEFAULT);
+            }
 
             // check user locks
             CmsLock cmsLock = m_cms.getLock(res);
             if (!cmsLock.isUnlocked()) {
                 lockInfo.setPath(path);
 
-                CmsUser owner = m_cms.readUser(cmsLock.getUserId());
+                CmsUser owner = m_users.get(cmsLock.getUserId());
+                if (owner == null) {
+                    owner = m_cms.readUser(cmsLock.getUserId());
+                    m_users.put(cmsLock.getUserId(), owner);
+                }
                 if (owner != null) {
                     lockInfo.setUsername(owner.getName());
                     lockInfo.setOwner(owner.getName() + "||" + owner.getEmail());
@@ -265,22 +327,40 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_LIST_ITEMS_1, path));
         }
 
-        List<CmsResource> resources = m_cms.getResourcesInFolder(path, CmsResourceFilter.DEFAULT);
-        Iterator<CmsResource> iter = resources.iterator();
-        while (iter.hasNext()) {
-            CmsResource res = iter.next();
-
-            if (!isFiltered(m_cms.getRequestContext().removeSiteRoot(res.getRootPath()))) {
+        String cacheKey = null;
+        List<CmsResource> listing = null;
+        if ((m_listingCache != null) && m_listingCache.isEnabled()) {
+            cacheKey = getListingCacheKey(path);
+            listing = m_listingCache.get(cacheKey);
+        }
 
-                // open the original resource (for virtual files this is the resource in the VFS
-                // which the virtual resource is based on)
-                // this filters e.g. property files for resources that are filtered out and thus
-                // should not be displayed
-                CmsResource org = m_cms.readResource(res.getStructureId(), CmsResourceFilter.DEFAULT);
-                if (!isFiltered(m_cms.getRequestContext().removeSiteRoot(org.getRootPath()))) {
-                    ret.add(new CmsRepositoryItem(res, m_cms));
+        if (listing == null) {
+            listing = new ArrayList<CmsResource>();
+            List<CmsResource> resources = m_cms.getResourcesInFolder(path, CmsResourceFilter.DEFAULT);
+            Iterator<CmsResource> iter = resources.iterator();
+            while (iter.hasNext()) {
+                CmsResource res = iter.next();
+
+                if (!isFiltered(m_cms.getRequestContext().removeSiteRoot(res.getRootPath()))) {
+
+                    // open the original resource (for virtual files this is the resource in the VFS
+                    // which the virtual resource is based on)
+                    // this filters e.g. property files for resources that are filtered out and thus
+                    // should not be displayed
+                    CmsResource org = m_cms.readResource(res.getStructureId(), CmsResourceFilter.DEFAULT);
+                    if (!isFiltered(m_cms.getRequestContext().removeSiteRoot(org.getRootPath()))) {
+                        listing.add(res);
+                    }
                 }
             }
+            if (cacheKey != null) {
+                m_listingCache.put(cacheKey, listing);
+            }
+        }
+
+        for (CmsResource res : listing) {
+            m_resources.put(m_cms.getRequestContext().removeSiteRoot(res.getRootPath()), res);
+            ret.add(new CmsRepositoryItem(res, m_cms));
         }
 
         if (LOG.isDebugEnabled()) {
@@ -355,7 +435,12 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
         m_cms.lockResource(src);
 
         // moving
-        m_cms.moveResource(src, dest);
+        clearCaches();
+        try {
+            m_cms.moveResource(src, dest);
+        } finally {
+            clearCaches();
+        }
 
         // unlock destination resource
         m_cms.unlockResource(dest);
@@ -366,8 +451,24 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
      */
     public void save(String path, InputStream inputStream, boolean overwrite) throws CmsException, IOException {
 
+        save(path, inputStream, -1, overwrite);
+    }
+
+    /**
+     * @see org.opencms.repository.I_CmsRepositorySession#save(java.lang.String, java.io.InputStream, long, boolean)
+     */
+    public void save(String path, InputStream inputStream, long contentLength, boolean overwrite)
+    throws CmsException, IOException {
+
         path = validatePath(path);
-        byte[] content = CmsFileUtil.readFully(inputStream);
+        byte[] content;
+        if ((contentLength >= 0) && (contentLength <= MAX_PRESIZED_CONTENT_LENGTH)) {
+            // read directly into an array of the right size, the length is sent by the client
+            // so larger contents are read into a growing buffer instead of trusting it
+            content = CmsFileUtil.readFully(inputStream, (int)contentLength);
+        } else {
+            content = CmsFileUtil.readFully(inputStream);
+        }
 
         try {
             CmsFile file = m_cms.readFile(path, CmsResourceFilter.DEFAULT);
@@ -388,7 +489,12 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
                 }
 
                 // write file
-                m_cms.writeFile(file);
+                clearCaches();
+                try {
+                    m_cms.writeFile(file);
+                } finally {
+                    clearCaches();
+                }
 
                 if (lock.isNullLock()) {
                     m_cms.unlockResource(path);
@@ -410,7 +516,13 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
             int type = OpenCms.getResourceManager().getDefaultTypeForName(path).getTypeId();
 
             // create the file
-            CmsResource res = m_cms.createResource(path, type, content, null);
+            clearCaches();
+            CmsResource res;
+            try {
+                res = m_cms.createResource(path, type, content, null);
+            } finally {
+                clearCaches();
+            }
 
             // unlock file after creation if lock is not inherited
             if (!m_cms.getLock(res).isInherited()) {
@@ -462,6 +574,43 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
         return ret;
     }
 
+    /**
+     * Clears the resources read in this session and the cached folder listings.<p>
+     * 
+     * Called before and after every write operation. Clearing after the write makes sure that a listing
+     * cached by a concurrent request while the write was running does not keep showing the old state.<p>
+     */
+    private void clearCaches() {
+
+        m_resources.clear();
+        if (m_listingCache != null) {
+            m_listingCache.clear();
+        }
+    }
+
+    /**
+     * Returns the key for the listing cache of the given folder.<p>
+     * 
+     * The listing depends on the permissions of the user and the current project and site,
+     * so they are all part of the key.<p>
+     * 
+     * @param path the validated path of the folder
+     * 
+     * @return the key for the listing cache
+     */
+    private String getListingCacheKey(String path) {
+
+        StringBuffer result = new StringBuffer(64);
+        result.append(m_cms.getRequestContext().getCurrentUser().getName());
+        result.append('|');
+        result.append(m_cms.getRequestContext().getCurrentProject().getUuid());
+        result.append('|');
+        result.append(m_cms.getRequestContext().getSiteRoot());
+        result.append('|');
+        result.append(path);
+        return result.toString();
+    }
+
     /**
      * Validates (translates) the given path and checks if it is filtered out.<p>
      * 
@@ -27,6 +27,8 @@
 
 package org.opencms.repository;
 
+import java.io.InputStream;
+
 /**
  * This class represents items in the repository interface. That can be
  * files or folders (collections). <p>
@@ -42,6 +44,17 @@ public interface I_CmsRepositoryItem {
      */
     byte[] getContent();
 
+    /**
+     * Returns the content of this item as a stream.<p>
+     * 
+     * Callers which only copy the content somewhere else should prefer this over 
+     * {@link #getContent()}, since implementations may provide the content without
+     * holding all of it in memory.<p>
+     * 
+     * @return the content of this item as a stream, or <code>null</code> if this item is a collection
+     */
+    InputStream getContentStream();
+
     /**
      * Returns the length of the content of this item.<p>
      * 
@@ -150,6 +150,25 @@ public interface I_CmsRepositorySession {
      */
     void save(String path, InputStream inputStream, boolean overwrite) throws CmsException, IOException;
 
+    /**
+     * Saves an item at the given path, reading the given number of bytes from the stream.<p>
+     * 
+     * This creates a new single item (file) if it does not exist.<p>
+     * 
+     * If the content length is known in advance, the content can be read in a single pass
+     * without intermediate buffers.<p>
+     * 
+     * @param path the complete path of the new item
+     * @param inputStream the content of the item
+     * @param contentLength the length of the content, or <code>-1</code> if unknown
+     * @param overwrite should an existing item at the path be overwritten
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws IOException if a write error occurs
+     */
+    void save(String path, InputStream inputStream, long contentLength, boolean overwrite)
+    throws CmsException, IOException;
+
     /**
      * Unlocks the item found at the path.<p>
      * 
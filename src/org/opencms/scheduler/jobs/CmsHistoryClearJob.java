@@ -27,6 +27,7 @@
 
 package org.opencms.scheduler.jobs;
 
+import org.opencms.db.CmsHistoryClearCursor;
 import org.opencms.file.CmsObject;
 import org.opencms.report.CmsLogReport;
 import org.opencms.scheduler.I_CmsScheduledJob;
@@ -34,7 +35,9 @@ import org.opencms.util.CmsStringUtil;
 
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * A schedulable OpenCms job to clear the history.<p>
@@ -55,12 +58,31 @@ import java.util.Map;
  * <dd>Number/Integer to configure the number of days the versions of deleted resources will 
  * be kept. That means that all versions wich are older than the specified number will be deleted.
  * This parameter is optional and only makes sense if the clearDeleted parameter is set to true.</dd>
+ * <dt><code>chunkSize={Number/Integer}</code></dt>
+ * <dd>Number/Integer to configure how many historical entries are read and processed at once.
+ * This parameter is optional, the default is 500.</dd>
+ * <dt><code>pause={Number/Integer}</code></dt>
+ * <dd>Number/Integer to configure the number of milliseconds to wait between two chunks, 
+ * e.g. to reduce the database load during business hours. This parameter is optional, the default is 0.</dd>
+ * <dt><code>maxEntries={Number/Integer}</code></dt>
+ * <dd>Number/Integer to configure the maximal number of resources processed by one run of the job.
+ * The next run of the job with the same parameters continues where the previous run stopped.
+ * This parameter is optional, by default all resources are processed.</dd>
  * </dl>
  * 
  * @since 7.0.0
  */
 public class CmsHistoryClearJob implements I_CmsScheduledJob {
 
+    /** Name of the parameter where to configure the number of entries processed at once. */
+    public static final String PARAM_CHUNKSIZE = "chunkSize";
+
+    /** Name of the parameter where to configure the maximal number of entries processed per run. */
+    public static final String PARAM_MAXENTRIES = "maxEntries";
+
+    /** Name of the parameter where to configure the pause between two chunks in milliseconds. */
+    public static final String PARAM_PAUSE = "pause";
+
     /** Name of the parameter where to configure how many versions are kept. */
     public static final String PARAM_KEEPVERSIONS = "keepVersions";
 
@@ -70,6 +92,9 @@ public class CmsHistoryClearJob implements I_CmsScheduledJob {
     /** Name of the parameter where to configure the number of days the versions will be kept. */
     public static final String PARAM_KEEPTIMERANGE = "keepTimeRange";
 
+    /** The cursors of suspended runs, by job parameters. */
+    private static final Map<String, CmsHistoryClearCursor> CURSORS = new HashMap<String, CmsHistoryClearCursor>();
+
     /**
      * @see org.opencms.scheduler.I_CmsScheduledJob#launch(org.opencms.file.CmsObject, java.util.Map)
      */
@@ -100,13 +125,51 @@ public class CmsHistoryClearJob implements I_CmsScheduledJob {
             keepDeletedVersions = -1;
         }
 
+        // resume a suspended run with the same parameters, or start a new one
+        String cursorKey = new TreeMap<String, String>(parameters).toString();
+        CmsHistoryClearCursor cursor;
+        synchronized (CURSORS) {
+            cursor = CURSORS.remove(cursorKey);
+        }
+        if (cursor == null) {
+            cursor = new CmsHistoryClearCursor(
+                getIntParameter(parameters, PARAM_CHUNKSIZE, CmsHistoryClearCursor.DEFAULT_CHUNK_SIZE),
+                getIntParameter(parameters, PARAM_PAUSE, 0),
+                getIntParameter(parameters, PARAM_MAXENTRIES, -1));
+        }
+
         // create a new report
         CmsLogReport report = new CmsLogReport(cms.getRequestContext().getLocale(), CmsHistoryClearJob.class);
 
         // delete the versions
-        cms.deleteHistoricalVersions(keepVersions, keepDeletedVersions, timeDeleted, report);
+        cms.deleteHistoricalVersions(keepVersions, keepDeletedVersions, timeDeleted, cursor, report);
+
+        if (!cursor.isFinished()) {
+            // keep the progress for the next run
+            synchronized (CURSORS) {
+                CURSORS.put(cursorKey, cursor);
+            }
+        }
 
         return null;
     }
 
+    /**
+     * Returns the value of an optional integer parameter.<p>
+     * 
+     * @param parameters the job parameters
+     * @param name the name of the parameter
+     * @param defaultValue the value to use if the parameter is not set
+     * 
+     * @return the value of the parameter
+     */
+    private int getIntParameter(Map<String, String> parameters, String name, int defaultValue) {
+
+        String value = parameters.get(name);
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
 }
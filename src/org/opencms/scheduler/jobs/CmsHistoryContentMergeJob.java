@@ -0,0 +1,64 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.scheduler.jobs;
+
+import org.opencms.file.CmsObject;
+import org.opencms.report.CmsLogReport;
+import org.opencms.scheduler.I_CmsScheduledJob;
+
+import java.util.Map;
+
+/**
+ * A schedulable OpenCms job to merge identical historical file contents.<p>
+ * 
+ * Publishing a file whose content did not change does not store the content again, 
+ * this job converts the history written before that, so that each distinct content
+ * of a resource is stored only once for all consecutive versions sharing it.<p>
+ * 
+ * The user to execute the process should have have access to the required "Workplace manager" role.<p>
+ * 
+ * This job does not use any parameters.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsHistoryContentMergeJob implements I_CmsScheduledJob {
+
+    /**
+     * @see org.opencms.scheduler.I_CmsScheduledJob#launch(org.opencms.file.CmsObject, java.util.Map)
+     */
+    public String launch(CmsObject cms, Map<String, String> parameters) throws Exception {
+
+        // create a new report
+        CmsLogReport report = new CmsLogReport(cms.getRequestContext().getLocale(), CmsHistoryContentMergeJob.class);
+
+        // merge the contents
+        cms.mergeHistoricalContents(report);
+
+        return null;
+    }
+}
@@ -50,6 +50,7 @@ import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.document.NumericField;
 
 /**
  * A Lucene search document implamentation.<p>
@@ -164,6 +165,14 @@ public class CmsLuceneDocument implements I_CmsSearchDocument {
 
         field.setBoost(0.0F);
         m_doc.add(field);
+        // numeric trie field for fast range filters
+        NumericField numericField = new NumericField(
+            name + CmsSearchField.FIELD_DATE_NUMERIC_SUFFIX,
+            CmsSearchIndex.NUMERIC_DATE_PRECISION_STEP,
+            Field.Store.NO,
+            true);
+        numericField.setLongValue(date);
+        m_doc.add(numericField);
         if (analyzed) {
             field = new Field(
                 name + CmsSearchField.FIELD_DATE_LOOKUP_SUFFIX,
@@ -31,6 +31,7 @@ import org.opencms.main.CmsLog;
 import org.opencms.search.fields.CmsSearchField;
 
 import java.io.IOException;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.document.Document;
@@ -48,6 +49,9 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
     /** The log object for this class. */
     protected static final Log LOG = CmsLog.getLog(CmsLuceneIndexWriter.class);
 
+    /** The user data to store with each commit, may be <code>null</code>. */
+    private Map<String, String> m_commitUserData;
+
     /** The OpenCms search index instance this writer to supposed to write to. */
     private CmsSearchIndex m_index;
 
@@ -76,8 +80,22 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
      */
     public CmsLuceneIndexWriter(IndexWriter indexWriter, CmsSearchIndex index) {
 
+        this(indexWriter, index, null);
+    }
+
+    /**
+     * Creates a new index writer based on the provided standard Lucene IndexWriter for the 
+     * provided OpenCms search index instance, that stores the given user data with each commit.<p>
+     * 
+     * @param indexWriter the standard Lucene IndexWriter to use as delegate
+     * @param index the OpenCms search index instance this writer to supposed to write to
+     * @param commitUserData the user data to store with each commit, may be <code>null</code>
+     */
+    public CmsLuceneIndexWriter(IndexWriter indexWriter, CmsSearchIndex index, Map<String, String> commitUserData) {
+
         m_indexWriter = indexWriter;
         m_index = index;
+        m_commitUserData = commitUserData;
         if ((m_index != null) && LOG.isInfoEnabled()) {
             LOG.info(Messages.get().getBundle().key(
                 Messages.LOG_INDEX_WRITER_MSG_CREATE_2,
@@ -119,7 +137,11 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
                 m_index.getName(),
                 m_index.getPath()));
         }
-        m_indexWriter.commit();
+        if (m_commitUserData != null) {
+            m_indexWriter.commit(m_commitUserData);
+        } else {
+            m_indexWriter.commit();
+        }
     }
 
     /**
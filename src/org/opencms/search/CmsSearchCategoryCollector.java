@@ -27,97 +27,54 @@
 
 package org.opencms.search;
 
-import org.opencms.main.CmsLog;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.util.CmsStringUtil;
 
-import java.io.IOException;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.TreeMap;
 
-import org.apache.commons.logging.Log;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.Scorer;
 
 /**
  * Collects category information during a search process.<p>
  * 
- * <b>Please note:</b> The calculation of the category count slows down the search time by an order
- * of magnitude. Make sure that you only use this feature if it's really required! 
- * Be especially careful if your search result list can become large (> 1000 documents), since in this case
- * overall system performance will certainly be impacted considerably when calculating the categories.<p> 
+ * The categories are counted from the cached term ordinals of the category field, 
+ * see {@link CmsSearchFacetCollector}. If a top-N collector is passed to this collector,
+ * the categories are counted in the same pass that collects the search hits.<p>
+ * 
+ * Every category of a document is counted, documents without a category are counted 
+ * as {@link #UNKNOWN_CATEGORY}.<p>
  * 
  * @since 6.0.0 
  */
-public class CmsSearchCategoryCollector extends Collector {
-
-    /**
-     * Class with an increasing counter to avoid multiple look ups and 
-     * object creations when dealing with the category count.<p>
-     */
-    private static class CmsCategroyCount {
-
-        /** The category count. */
-        int m_count;
-
-        /**
-         * Creates a new instance with a initial count of 1.<p> 
-         */
-        CmsCategroyCount() {
-
-            m_count = 1;
-        }
-
-        /**
-         * Increases the count by one.<p>
-         */
-        void inc() {
-
-            m_count++;
-        }
-
-        /**
-         * Creates an Integer for this count.<p>
-         * 
-         * @return an Integer for this count
-         */
-        Integer toInteger() {
-
-            return new Integer(m_count);
-        }
-    }
+public class CmsSearchCategoryCollector extends CmsSearchFacetCollector {
 
     /** Category used in case the document belongs to no category. */
     public static final String UNKNOWN_CATEGORY = "unknown";
 
-    /** The log object for this class. */
-    private static final Log LOG = CmsLog.getLog(CmsSearchCategoryCollector.class);
-
-    /** The internal map of the categories found. */
-    private Map<String, CmsCategroyCount> m_categories;
-
-    /** The index of the document reader. */
-    private int m_docBase;
+    /**
+     * Creates a new category search collector instance that passes all documents to the given collector.<p>
+     * 
+     * @param delegate the collector to pass all documents to, for example a top-N collector, may be <code>null</code>
+     */
+    public CmsSearchCategoryCollector(Collector delegate) {
 
-    /** The index searcher used. */
-    private IndexSearcher m_searcher;
+        super(delegate, Collections.singletonList(CmsSearchField.FIELD_CATEGORY));
+    }
 
     /**
      * Creates a new category search collector instance.<p>
      * 
      * @param searcher the index searcher used
+     * 
+     * @deprecated the searcher is no longer required, use {@link #CmsSearchCategoryCollector(Collector)} instead
      */
+    @Deprecated
     public CmsSearchCategoryCollector(IndexSearcher searcher) {
 
-        super();
-        m_docBase = 0;
-        m_searcher = searcher;
-        m_categories = new HashMap<String, CmsCategroyCount>();
+        this((Collector)null);
     }
 
     /**
@@ -143,48 +100,6 @@ public class CmsSearchCategoryCollector extends Collector {
         return result.toString();
     }
 
-    /**
-     * @see org.apache.lucene.search.Collector#acceptsDocsOutOfOrder()
-     */
-    @Override
-    public boolean acceptsDocsOutOfOrder() {
-
-        // we just count hits and these don't need to be ordered
-        return true;
-    }
-
-    /**
-     * @see org.apache.lucene.search.Collector#collect(int)
-     */
-    @Override
-    public void collect(int id) {
-
-        String category = null;
-        int rebasedId = m_docBase + id;
-        try {
-            Document doc = m_searcher.doc(rebasedId);
-            category = doc.get(CmsSearchField.FIELD_CATEGORY);
-        } catch (IOException e) {
-            // category will be null
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(
-                    Messages.get().getBundle().key(Messages.LOG_READ_CATEGORY_FAILED_1, new Integer(rebasedId)),
-                    e);
-            }
-
-        }
-        if (category == null) {
-            category = UNKNOWN_CATEGORY;
-        }
-        CmsCategroyCount count = m_categories.get(category);
-        if (count != null) {
-            count.inc();
-        } else {
-            count = new CmsCategroyCount();
-            m_categories.put(category, count);
-        }
-    }
-
     /**
      * Returns the category count result, the returned map
      * contains Strings (category names) mapped to an Integer (the count).<p>
@@ -193,33 +108,15 @@ public class CmsSearchCategoryCollector extends Collector {
      */
     public Map<String, Integer> getCategoryCountResult() {
 
-        Map<String, Integer> result = new TreeMap<String, Integer>();
-        Iterator<Map.Entry<String, CmsCategroyCount>> i = m_categories.entrySet().iterator();
-        while (i.hasNext()) {
-            Map.Entry<String, CmsCategroyCount> entry = i.next();
-            result.put(entry.getKey(), entry.getValue().toInteger());
+        Map<String, Integer> result = getFacetCounts(CmsSearchField.FIELD_CATEGORY);
+        int missing = getMissingCount(CmsSearchField.FIELD_CATEGORY);
+        if (missing > 0) {
+            Integer unknown = result.get(UNKNOWN_CATEGORY);
+            result.put(UNKNOWN_CATEGORY, new Integer(unknown == null ? missing : unknown.intValue() + missing));
         }
         return result;
     }
 
-    /**
-     * @see org.apache.lucene.search.Collector#setNextReader(org.apache.lucene.index.IndexReader, int)
-     */
-    @Override
-    public void setNextReader(IndexReader reader, int docBase) {
-
-        m_docBase = docBase;
-    }
-
-    /**
-     * @see org.apache.lucene.search.Collector#setScorer(org.apache.lucene.search.Scorer)
-     */
-    @Override
-    public void setScorer(Scorer arg0) {
-
-        // ignored, we don't need a scorer
-    }
-
     /**
      * @see java.lang.Object#toString()
      */
@@ -0,0 +1,360 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * Counts the terms of one or more indexed fields (facets) for all documents matching a search.<p>
+ * 
+ * The collector may wrap another collector, usually the collector that gathers the top-N hits, 
+ * so that the facet counts are calculated in the same pass over the matching documents.<p>
+ * 
+ * The terms of a field are resolved to ordinals once per index segment. These ordinals are cached 
+ * as long as the segment is in use, so counting a facet only increments an array slot for each 
+ * collected document and does not need to load any stored document.<p>
+ * 
+ * Multi-valued fields (like the category field) are supported, every term of a document is counted.<p>
+ * 
+ * @since 8.5.0 
+ */
+public class CmsSearchFacetCollector extends Collector {
+
+    /**
+     * The term ordinals of a field in a single index segment.<p>
+     */
+    private static class CmsFacetOrdinals {
+
+        /** The start offsets in <code>m_ords</code> for each document, plus the end offset of the last document. */
+        final int[] m_offsets;
+
+        /** The term ordinals of all documents. */
+        final int[] m_ords;
+
+        /** The terms of the field, the array index is the ordinal. */
+        final String[] m_terms;
+
+        /**
+         * Reads the term ordinals of the given field from the given segment reader.<p>
+         * 
+         * @param reader the segment reader
+         * @param field the field to read the ordinals for
+         * 
+         * @throws IOException if something goes wrong reading the index
+         */
+        CmsFacetOrdinals(IndexReader reader, String field)
+        throws IOException {
+
+            int maxDoc = reader.maxDoc();
+            List<String> terms = new ArrayList<String>();
+            int[] counts = new int[maxDoc + 1];
+            TermEnum termEnum = reader.terms(new Term(field, ""));
+            TermDocs termDocs = reader.termDocs();
+            try {
+                // first pass: collect the terms and count the terms per document
+                do {
+                    Term term = termEnum.term();
+                    if ((term == null) || (term.field() != field)) {
+                        break;
+                    }
+                    terms.add(term.text());
+                    termDocs.seek(termEnum);
+                    while (termDocs.next()) {
+                        counts[termDocs.doc()]++;
+                    }
+                } while (termEnum.next());
+                m_offsets = new int[maxDoc + 1];
+                for (int i = 0; i < maxDoc; i++) {
+                    m_offsets[i + 1] = m_offsets[i] + counts[i];
+                }
+                m_ords = new int[m_offsets[maxDoc]];
+                m_terms = terms.toArray(new String[terms.size()]);
+                // second pass: fill in the ordinals, reusing the counts as insert positions 
+                System.arraycopy(m_offsets, 0, counts, 0, maxDoc);
+                for (int ord = 0; ord < m_terms.length; ord++) {
+                    termDocs.seek(new Term(field, m_terms[ord]));
+                    while (termDocs.next()) {
+                        m_ords[counts[termDocs.doc()]++] = ord;
+                    }
+                }
+            } finally {
+                termDocs.close();
+                termEnum.close();
+            }
+        }
+    }
+
+    /** The cached term ordinals, mapped by segment core key and then by field name. */
+    private static final Map<Object, Map<String, CmsFacetOrdinals>> ORDINALS = Collections.synchronizedMap(
+        new WeakHashMap<Object, Map<String, CmsFacetOrdinals>>());
+
+    /** The collector to delegate to, may be <code>null</code>. */
+    private Collector m_delegate;
+
+    /** The names of the counted fields. */
+    private String[] m_fields;
+
+    /** The number of collected documents without a term, for each field. */
+    private int[] m_missing;
+
+    /** The term ordinals of the current segment, for each field. */
+    private CmsFacetOrdinals[] m_ordinals;
+
+    /** The term counts of the current segment, by ordinal, for each field. */
+    private int[][] m_segmentCounts;
+
+    /** The term counts of all completed segments, for each field. */
+    private List<Map<String, Integer>> m_totals;
+
+    /**
+     * Creates a new facet collector.<p>
+     * 
+     * @param delegate the collector to pass all documents to, for example a top-N collector, may be <code>null</code>
+     * @param fields the names of the fields to count the terms for
+     */
+    public CmsSearchFacetCollector(Collector delegate, List<String> fields) {
+
+        m_delegate = delegate;
+        m_fields = new String[fields.size()];
+        for (int i = 0; i < m_fields.length; i++) {
+            // the field names are interned so they can be compared with the field names of terms 
+            m_fields[i] = fields.get(i).intern();
+        }
+        m_missing = new int[m_fields.length];
+        m_ordinals = new CmsFacetOrdinals[m_fields.length];
+        m_segmentCounts = new int[m_fields.length][];
+        m_totals = new ArrayList<Map<String, Integer>>(m_fields.length);
+        for (int i = 0; i < m_fields.length; i++) {
+            m_totals.add(new HashMap<String, Integer>());
+        }
+    }
+
+    /**
+     * Returns the cached term ordinals of the given field for the given segment reader.<p>
+     * 
+     * @param reader the segment reader
+     * @param field the field name
+     * 
+     * @return the term ordinals
+     * 
+     * @throws IOException if something goes wrong reading the index
+     */
+    private static CmsFacetOrdinals getOrdinals(IndexReader reader, String field) throws IOException {
+
+        Object key = reader.getCoreCacheKey();
+        Map<String, CmsFacetOrdinals> fieldOrdinals;
+        synchronized (ORDINALS) {
+            fieldOrdinals = ORDINALS.get(key);
+            if (fieldOrdinals == null) {
+                fieldOrdinals = Collections.synchronizedMap(new HashMap<String, CmsFacetOrdinals>());
+                ORDINALS.put(key, fieldOrdinals);
+            }
+        }
+        CmsFacetOrdinals result = fieldOrdinals.get(field);
+        if (result == null) {
+            // concurrent searches may read the ordinals twice, which is harmless 
+            result = new CmsFacetOrdinals(reader, field);
+            fieldOrdinals.put(field, result);
+        }
+        return result;
+    }
+
+    /**
+     * @see org.apache.lucene.search.Collector#acceptsDocsOutOfOrder()
+     */
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+
+        // counting does not depend on the order, so the delegate decides
+        return (m_delegate == null) || m_delegate.acceptsDocsOutOfOrder();
+    }
+
+    /**
+     * @see org.apache.lucene.search.Collector#collect(int)
+     */
+    @Override
+    public void collect(int doc) throws IOException {
+
+        for (int i = 0; i < m_fields.length; i++) {
+            CmsFacetOrdinals ordinals = m_ordinals[i];
+            int start = ordinals.m_offsets[doc];
+            int end = ordinals.m_offsets[doc + 1];
+            if (start == end) {
+                m_missing[i]++;
+            } else {
+                int[] counts = m_segmentCounts[i];
+                for (int j = start; j < end; j++) {
+                    counts[ordinals.m_ords[j]]++;
+                }
+            }
+        }
+        if (m_delegate != null) {
+            m_delegate.collect(doc);
+        }
+    }
+
+    /**
+     * Returns the collector all documents are passed to.<p>
+     * 
+     * @return the collector all documents are passed to, may be <code>null</code>
+     */
+    public Collector getDelegate() {
+
+        return m_delegate;
+    }
+
+    /**
+     * Returns the term counts of the given field, the returned map
+     * contains the terms mapped to the number of matching documents that contain the term.<p>
+     * 
+     * Terms that did not occur in any matching document are not contained in the map.<p>
+     * 
+     * @param field the field name
+     * 
+     * @return the term counts of the given field, or <code>null</code> if the field was not counted
+     */
+    public Map<String, Integer> getFacetCounts(String field) {
+
+        int i = getFieldIndex(field);
+        if (i < 0) {
+            return null;
+        }
+        flushSegmentCounts();
+        return new TreeMap<String, Integer>(m_totals.get(i));
+    }
+
+    /**
+     * Returns the term counts of all counted fields, mapped by field name.<p>
+     * 
+     * @return the term counts of all counted fields
+     * 
+     * @see #getFacetCounts(String)
+     */
+    public Map<String, Map<String, Integer>> getFacets() {
+
+        Map<String, Map<String, Integer>> result = new HashMap<String, Map<String, Integer>>();
+        for (String field : m_fields) {
+            result.put(field, getFacetCounts(field));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of matching documents that contain no term for the given field.<p>
+     * 
+     * @param field the field name
+     * 
+     * @return the number of matching documents that contain no term for the given field
+     */
+    public int getMissingCount(String field) {
+
+        int i = getFieldIndex(field);
+        return i < 0 ? 0 : m_missing[i];
+    }
+
+    /**
+     * @see org.apache.lucene.search.Collector#setNextReader(org.apache.lucene.index.IndexReader, int)
+     */
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) throws IOException {
+
+        flushSegmentCounts();
+        for (int i = 0; i < m_fields.length; i++) {
+            m_ordinals[i] = getOrdinals(reader, m_fields[i]);
+            m_segmentCounts[i] = new int[m_ordinals[i].m_terms.length];
+        }
+        if (m_delegate != null) {
+            m_delegate.setNextReader(reader, docBase);
+        }
+    }
+
+    /**
+     * @see org.apache.lucene.search.Collector#setScorer(org.apache.lucene.search.Scorer)
+     */
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+
+        if (m_delegate != null) {
+            m_delegate.setScorer(scorer);
+        }
+    }
+
+    /**
+     * Adds the term counts of the current segment to the totals.<p>
+     */
+    private void flushSegmentCounts() {
+
+        for (int i = 0; i < m_fields.length; i++) {
+            int[] counts = m_segmentCounts[i];
+            if (counts == null) {
+                continue;
+            }
+            String[] terms = m_ordinals[i].m_terms;
+            Map<String, Integer> totals = m_totals.get(i);
+            for (int ord = 0; ord < counts.length; ord++) {
+                if (counts[ord] > 0) {
+                    Integer total = totals.get(terms[ord]);
+                    totals.put(terms[ord], new Integer(total == null ? counts[ord] : total.intValue() + counts[ord]));
+                }
+            }
+            m_segmentCounts[i] = null;
+        }
+    }
+
+    /**
+     * Returns the index of the given field in the counted fields.<p>
+     * 
+     * @param field the field name
+     * 
+     * @return the index of the given field, or -1 if the field is not counted
+     */
+    private int getFieldIndex(String field) {
+
+        for (int i = 0; i < m_fields.length; i++) {
+            if (m_fields[i].equals(field)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -64,6 +64,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.analysis.Analyzer;
@@ -84,19 +85,26 @@ import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanFilter;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.FilterClause;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.NumericRangeFilter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermsFilter;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.ReaderUtil;
 import org.apache.lucene.util.Version;
 
 /**
@@ -184,6 +192,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** Constant for additional parameter to enable optimized full index regeneration (default: false). */
     public static final String BACKUP_REINDEXING = A_LEGACY_PARAM_PREFIX + ".useBackupReindexing";
 
+    /** Commit user data key that marks an index which has been completely built with numeric date fields. */
+    public static final String COMMIT_DATA_NUMERIC_DATES = "opencms.numericDates";
+
     /** Look table to quickly zero-pad days / months in date Strings. */
     public static final String[] DATES = new String[] {
         "00",
@@ -257,6 +268,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** Constant for years max range span in document search. */
     public static final int MAX_YEAR_RANGE = 12;
 
+    /** The precision step used for the numeric date fields. */
+    public static final int NUMERIC_DATE_PRECISION_STEP = 8;
+
     /** Constant for additional parameter to enable permission checks (default: true). */
     public static final String PERMISSIONS = A_LEGACY_PARAM_PREFIX + ".checkPermissions";
 
@@ -347,9 +361,15 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The name of this index. */
     private String m_name;
 
+    /** Indicates if the current index has been built with numeric date fields. */
+    private boolean m_numericDates;
+
     /** The path where this index stores it's data in the "real" file system. */
     private String m_path;
 
+    /** The cached results of the permission checks for search results. */
+    private CmsSearchPermissionCache m_permissionCache;
+
     /** The thread priority for a search. */
     private int m_priority;
 
@@ -385,6 +405,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         m_createExcerpt = true;
         m_maxHits = MAX_HITS_DEFAULT;
         m_checkTimeRange = false;
+        m_permissionCache = new CmsSearchPermissionCache(CmsSearchPermissionCache.DEFAULT_TTL);
     }
 
     /**
@@ -700,6 +721,16 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return isEnabled();
     }
 
+    /**
+     * Removes all cached permission check results of this index.<p>
+     * 
+     * This is required if permissions or principals have been changed.<p> 
+     */
+    public void clearPermissionCache() {
+
+        m_permissionCache.clear();
+    }
+
     /**
      * Creates an empty document that can be used by this search field configuration.<p>
      * 
@@ -1070,6 +1101,19 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_sources;
     }
 
+    /**
+     * Returns <code>true</code> if the current index has been completely built with numeric date fields.<p>
+     * 
+     * Only in this case the numeric date fields are used for date range filters, 
+     * indexes built by an older version use the date lookup fields until they are rebuilt.<p>
+     * 
+     * @return <code>true</code> if the current index has been completely built with numeric date fields
+     */
+    public boolean hasNumericDateFields() {
+
+        return m_numericDates;
+    }
+
     /**
      * @see java.lang.Object#hashCode()
      */
@@ -1442,26 +1486,47 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 params.setParsedQuery(query.toString(CmsSearchField.FIELD_CONTENT));
             }
 
-            // collect the categories
-            CmsSearchCategoryCollector categoryCollector;
-            if (params.isCalculateCategories()) {
-                // USE THIS OPTION WITH CAUTION
-                // this may slow down searched by an order of magnitude
-                categoryCollector = new CmsSearchCategoryCollector(searcher);
-                // perform a first search to collect the categories
-                searcher.search(query, filter, categoryCollector);
-                // store the result
-                searchResults.setCategories(categoryCollector.getCategoryCountResult());
-            }
-
-            // perform the search operation          
+            // the hits are collected by a top-N collector, as done by the searcher itself
+            Weight weight = searcher.createNormalizedWeight(query);
+            boolean docsScoredInOrder = !weight.scoresDocsOutOfOrder();
+            int maxHits = Math.min(getMaxHits(), Math.max(searcher.maxDoc(), 1));
+            TopDocsCollector<?> hitCollector;
             if ((params.getSort() == null) || (params.getSort() == CmsSearchParameters.SORT_DEFAULT)) {
                 // apparently scoring is always enabled by Lucene if no sort order is provided
-                hits = searcher.search(query, filter, getMaxHits());
+                hitCollector = TopScoreDocCollector.create(maxHits, docsScoredInOrder);
             } else {
-                // if  a sort order is provided, we must check if scoring must be calculated by the searcher
-                prepareSortScoring(searcher, params.getSort());
-                hits = searcher.search(query, filter, getMaxHits(), params.getSort());
+                // if  a sort order is provided, we must check if scoring must be calculated by the collector
+                boolean doScoring = isSortScoring(params.getSort());
+                hitCollector = TopFieldCollector.create(
+                    params.getSort(),
+                    maxHits,
+                    true,
+                    doScoring,
+                    doScoring,
+                    docsScoredInOrder);
+            }
+
+            // collect the categories and facets in the same pass as the hits
+            CmsSearchCategoryCollector categoryCollector = null;
+            CmsSearchFacetCollector facetCollector = null;
+            Collector collector = hitCollector;
+            if ((params.getFacetFields() != null) && !params.getFacetFields().isEmpty()) {
+                facetCollector = new CmsSearchFacetCollector(collector, params.getFacetFields());
+                collector = facetCollector;
+            }
+            if (params.isCalculateCategories()) {
+                categoryCollector = new CmsSearchCategoryCollector(collector);
+                collector = categoryCollector;
+            }
+
+            // perform the search operation
+            searcher.search(weight, filter, collector);
+            hits = hitCollector.topDocs();
+            if (categoryCollector != null) {
+                searchResults.setCategories(categoryCollector.getCategoryCountResult());
+            }
+            if (facetCollector != null) {
+                searchResults.setFacets(facetCollector.getFacets());
             }
 
             timeLucene += System.currentTimeMillis();
@@ -1490,12 +1555,19 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 int visibleHitCount = hitCount;
                 for (int i = 0, cnt = 0; (i < hitCount) && (cnt < end); i++) {
                     try {
-                        doc = searcher.doc(hits.scoreDocs[i].doc);
-                        I_CmsSearchDocument searchDoc = new CmsLuceneDocument(doc);
-                        searchDoc.setScore(hits.scoreDocs[i].score);
-                        if ((isInTimeRange(doc, params)) && (hasReadPermission(searchCms, searchDoc))) {
+                        // the stored document is only loaded if it is required for the result
+                        doc = null;
+                        boolean visible = hasReadPermission(searchCms, searcher, hits.scoreDocs[i].doc);
+                        if (visible && isCheckingTimeRange()) {
+                            doc = searcher.doc(hits.scoreDocs[i].doc);
+                            visible = isInTimeRange(doc, params);
+                        }
+                        if (visible) {
                             // user has read permission
                             if (cnt >= start) {
+                                if (doc == null) {
+                                    doc = searcher.doc(hits.scoreDocs[i].doc);
+                                }
                                 // do not use the resource to obtain the raw content, read it from the lucene document!
                                 String excerpt = null;
                                 if (isCreatingExcerpt() && (fieldsQuery != null)) {
@@ -1781,8 +1853,13 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      */
     protected BooleanFilter appendDateCreatedFilter(BooleanFilter filter, long startTime, long endTime) {
 
-        // create special optimized sub-filter for the date last modified search
-        Filter dateFilter = createDateRangeFilter(CmsSearchField.FIELD_DATE_CREATED_LOOKUP, startTime, endTime);
+        // create special optimized sub-filter for the date created search
+        Filter dateFilter;
+        if (hasNumericDateFields()) {
+            dateFilter = createNumericDateRangeFilter(CmsSearchField.FIELD_DATE_CREATED_NUMERIC, startTime, endTime);
+        } else {
+            dateFilter = createDateRangeFilter(CmsSearchField.FIELD_DATE_CREATED_LOOKUP, startTime, endTime);
+        }
         if (dateFilter != null) {
             // extend main filter with the created date filter
             filter.add(new FilterClause(dateFilter, BooleanClause.Occur.MUST));
@@ -1809,7 +1886,15 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     protected BooleanFilter appendDateLastModifiedFilter(BooleanFilter filter, long startTime, long endTime) {
 
         // create special optimized sub-filter for the date last modified search
-        Filter dateFilter = createDateRangeFilter(CmsSearchField.FIELD_DATE_LASTMODIFIED_LOOKUP, startTime, endTime);
+        Filter dateFilter;
+        if (hasNumericDateFields()) {
+            dateFilter = createNumericDateRangeFilter(
+                CmsSearchField.FIELD_DATE_LASTMODIFIED_NUMERIC,
+                startTime,
+                endTime);
+        } else {
+            dateFilter = createDateRangeFilter(CmsSearchField.FIELD_DATE_LASTMODIFIED_LOOKUP, startTime, endTime);
+        }
         if (dateFilter != null) {
             // extend main filter with the created date filter
             filter.add(new FilterClause(dateFilter, BooleanClause.Occur.MUST));
@@ -1923,6 +2008,60 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return filter;
     }
 
+    /**
+     * Creates a numeric range filter for one of the numeric date fields.<p>
+     * 
+     * If the start date is equal to {@link Long#MIN_VALUE} and the end date is equal to {@link Long#MAX_VALUE}  
+     * than <code>null</code> is returned.<p>
+     * 
+     * @param fieldName the name of the numeric field to search
+     * @param startTime start time of the range to search in
+     * @param endTime end time of the range to search in
+     * 
+     * @return a numeric range filter for the date field
+     * 
+     * @see CmsSearchField#FIELD_DATE_NUMERIC_SUFFIX
+     */
+    protected Filter createNumericDateRangeFilter(String fieldName, long startTime, long endTime) {
+
+        if ((startTime == Long.MIN_VALUE) && (endTime == Long.MAX_VALUE)) {
+            return null;
+        }
+        return NumericRangeFilter.newLongRange(
+            fieldName,
+            NUMERIC_DATE_PRECISION_STEP,
+            startTime == Long.MIN_VALUE ? null : Long.valueOf(startTime),
+            endTime == Long.MAX_VALUE ? null : Long.valueOf(endTime),
+            true,
+            true);
+    }
+
+    /**
+     * Acquires a Lucene index searcher for a single query on the current state of this index.<p>
+     * 
+     * The returned searcher is exclusive to the caller, so its settings may be changed freely,
+     * and its index reader stays open even if the index is updated in the meantime.
+     * The searcher must be handed back with {@link #releaseSearcher(IndexSearcher)} 
+     * once the query results have been read.<p>
+     * 
+     * @return a Lucene index searcher for a single query, or <code>null</code> if the index is not available
+     */
+    protected IndexSearcher acquireSearcher() {
+
+        IndexReader reader;
+        synchronized (this) {
+            // get an index searcher that is certainly up to date
+            indexSearcherUpdate();
+            if ((m_indexSearcher == null) || (m_indexSearcher.getIndexReader() == null)) {
+                return null;
+            }
+            reader = m_indexSearcher.getIndexReader();
+            // keep the reader open until the searcher is released, even if the index is reopened in between
+            reader.incRef();
+        }
+        return new IndexSearcher(reader);
+    }
+
     /**
      * Creates a backup of this index for optimized re-indexing of the whole content.<p>
      * 
@@ -2017,6 +2156,12 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 getName()), e);
         }
 
+        if (create) {
+            // a new index is built completely with the numeric date fields
+            return new CmsLuceneIndexWriter(indexWriter, this, Collections.singletonMap(
+                COMMIT_DATA_NUMERIC_DATES,
+                Boolean.TRUE.toString()));
+        }
         return new CmsLuceneIndexWriter(indexWriter, this);
     }
 
@@ -2138,7 +2283,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             }
             termsStr = buf.toString();
         }
-        Filter result = m_displayFilters.get((new StringBuffer(64)).append(field).append('|').append(termsStr).toString());
+        String key = (new StringBuffer(64)).append(field).append('|').append(termsStr).toString();
+        Filter result = m_displayFilters.get(key);
         if (result == null) {
             TermsFilter filter = new TermsFilter();
             if (termsList == null) {
@@ -2148,7 +2294,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 filter.addTerm(new Term(field, termsList.get(i)));
             }
             result = new CachingWrapperFilter(filter);
-            m_displayFilters.put(field + termsStr, result);
+            m_displayFilters.put(key, result);
         }
         return result;
     }
@@ -2212,6 +2358,41 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return !needsPermissionCheck(doc) ? true : (null != getResource(cms, doc));
     }
 
+    /**
+     * Checks if the OpenCms resource referenced by a search hit can be read 
+     * by the user of the given OpenCms context.<p>
+     * 
+     * The results are cached per index segment and user, so the stored document 
+     * is only loaded and the resource is only read for the first check of a hit.<p>
+     * 
+     * @param cms the OpenCms user context to use for permission testing
+     * @param searcher the index searcher the hit was found with
+     * @param docId the document number of the hit
+     * 
+     * @return <code>true</code> if the user has read permissions to the resource
+     * 
+     * @throws IOException if the stored document could not be loaded
+     */
+    protected boolean hasReadPermission(CmsObject cms, IndexSearcher searcher, int docId) throws IOException {
+
+        IndexReader[] segments = searcher.getSubReaders();
+        int[] starts = new int[segments.length];
+        for (int i = 1; i < segments.length; i++) {
+            starts[i] = starts[i - 1] + segments[i - 1].maxDoc();
+        }
+        int index = ReaderUtil.subIndex(docId, starts);
+        IndexReader segment = segments[index];
+        int segmentDocId = docId - starts[index];
+        String principal = cms.getRequestContext().getCurrentUser().getId().toString();
+        Boolean cached = m_permissionCache.getPermission(principal, segment, segmentDocId);
+        if (cached != null) {
+            return cached.booleanValue();
+        }
+        boolean result = hasReadPermission(cms, new CmsLuceneDocument(searcher.doc(docId)));
+        m_permissionCache.setPermission(principal, segment, segmentDocId, result);
+        return result;
+    }
+
     /**
      * Closes the index searcher for this index.<p>
      * 
@@ -2263,7 +2444,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                     oldSearcher = m_indexSearcher;
                 }
                 m_indexSearcher = new IndexSearcher(reader);
-                m_displayFilters = new HashMap<String, Filter>();
+                m_numericDates = hasNumericDateFields(reader);
+                m_displayFilters = new ConcurrentHashMap<String, Filter>();
             }
         } catch (IOException e) {
             LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_1, getName()), e);
@@ -2288,6 +2470,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 IndexReader newReader = IndexReader.openIfChanged(oldSearcher.getIndexReader());
                 if (newReader != null) {
                     m_indexSearcher = new IndexSearcher(newReader);
+                    m_numericDates = hasNumericDateFields(newReader);
                     indexSearcherClose(oldSearcher);
                 }
             } catch (Exception e) {
@@ -2418,27 +2601,25 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      */
     protected void prepareSortScoring(IndexSearcher searcher, Sort sort) {
 
-        boolean doScoring = false;
-        if (sort != null) {
-            if ((sort == CmsSearchParameters.SORT_DEFAULT) || (sort == CmsSearchParameters.SORT_TITLE)) {
-                // these default sorts do need score calculation
-                doScoring = true;
-            } else if ((sort == CmsSearchParameters.SORT_DATE_CREATED)
-                || (sort == CmsSearchParameters.SORT_DATE_LASTMODIFIED)) {
-                // these default sorts don't need score calculation
-                doScoring = false;
-            } else {
-                // for all non-defaults: check if the score field is present, in that case we must calculate the score
-                SortField[] fields = sort.getSort();
-                for (SortField field : fields) {
-                    if (field == SortField.FIELD_SCORE) {
-                        doScoring = true;
-                        break;
-                    }
-                }
+        boolean doScoring = isSortScoring(sort);
+        searcher.setDefaultFieldSortScoring(doScoring, doScoring);
+    }
+
+    /**
+     * Releases a Lucene index searcher that was obtained from {@link #acquireSearcher()}.<p>
+     * 
+     * @param searcher the searcher to release, may be <code>null</code>
+     */
+    protected void releaseSearcher(IndexSearcher searcher) {
+
+        if (searcher != null) {
+            try {
+                searcher.close();
+                searcher.getIndexReader().decRef();
+            } catch (IOException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_CLOSE_1, getName()), e);
             }
         }
-        searcher.setDefaultFieldSortScoring(doScoring, doScoring);
     }
 
     /**
@@ -2478,4 +2659,57 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         m_indexWriter = writer;
     }
 
+    /**
+     * Checks if the index read by the given reader has been completely built with numeric date fields.<p>
+     * 
+     * @param reader the index reader to check
+     * 
+     * @return <code>true</code> if the index has been completely built with numeric date fields
+     */
+    private boolean hasNumericDateFields(IndexReader reader) {
+
+        try {
+            Map<String, String> userData = reader.getIndexCommit().getUserData();
+            return (userData != null) && Boolean.valueOf(userData.get(COMMIT_DATA_NUMERIC_DATES)).booleanValue();
+        } catch (UnsupportedOperationException e) {
+            // no commit data available for this kind of reader
+            return false;
+        } catch (IOException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the score for the results must be calculated based on the provided sort option.<p>
+     * 
+     * @param sort the sort option to use
+     * 
+     * @return <code>true</code> if the score must be calculated
+     */
+    private boolean isSortScoring(Sort sort) {
+
+        boolean doScoring = false;
+        if (sort != null) {
+            if ((sort == CmsSearchParameters.SORT_DEFAULT) || (sort == CmsSearchParameters.SORT_TITLE)) {
+                // these default sorts do need score calculation
+                doScoring = true;
+            } else if ((sort == CmsSearchParameters.SORT_DATE_CREATED)
+                || (sort == CmsSearchParameters.SORT_DATE_LASTMODIFIED)) {
+                // these default sorts don't need score calculation
+                doScoring = false;
+            } else {
+                // for all non-defaults: check if the score field is present, in that case we must calculate the score
+                SortField[] fields = sort.getSort();
+                for (SortField field : fields) {
+                    if (field == SortField.FIELD_SCORE) {
+                        doScoring = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return doScoring;
+    }
+
 }
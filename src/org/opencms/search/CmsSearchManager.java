@@ -145,6 +145,58 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Rebuilds the search indexes that have been built without numeric date fields.<p>
+     * 
+     * The rebuild is started once the system has been fully initialized, 
+     * until then the indexes use the date lookup fields for date range filters.<p>
+     */
+    protected class CmsSearchIndexMigrationThread extends Thread {
+
+        /** The names of the indexes to rebuild. */
+        private List<String> m_indexNames;
+
+        /**
+         * Creates a new migration thread for the given indexes.<p>
+         * 
+         * @param indexNames the names of the indexes to rebuild
+         */
+        protected CmsSearchIndexMigrationThread(List<String> indexNames) {
+
+            super("OpenCms: Search Index Migration");
+            setDaemon(true);
+            m_indexNames = indexNames;
+        }
+
+        /**
+         * @see java.lang.Thread#run()
+         */
+        @Override
+        public void run() {
+
+            try {
+                while (OpenCms.getRunLevel() == OpenCms.RUNLEVEL_2_INITIALIZING) {
+                    Thread.sleep(1000);
+                }
+            } catch (InterruptedException e) {
+                // the system is shutting down
+                return;
+            }
+            if (OpenCms.getRunLevel() < OpenCms.RUNLEVEL_3_SHELL_ACCESS) {
+                // the initialization failed or the system is shutting down
+                return;
+            }
+            for (String indexName : m_indexNames) {
+                LOG.info(Messages.get().getBundle().key(Messages.LOG_INDEX_NUMERIC_DATES_REBUILD_1, indexName));
+                try {
+                    rebuildIndex(indexName, new CmsLogReport(Locale.ENGLISH, CmsSearchManager.class));
+                } catch (CmsException e) {
+                    LOG.error(Messages.get().getBundle().key(Messages.LOG_REBUILD_INDEX_FAILED_1, indexName), e);
+                }
+            }
+        }
+    }
+
     /**
      * Handles offline index generation.<p>
      */
@@ -247,8 +299,8 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             // do this only in case there are offline indexes configured
             if (!m_isEventRegistered && (m_offlineIndexes.size() > 0)) {
                 m_isEventRegistered = true;
-                // register this object as event listener
-                OpenCms.addCmsEventListener(this, new int[] {
+                // register this object as event listener, the offline indexes may be updated after a bulk operation
+                OpenCms.getEventManager().addDeferrableCmsEventListener(this, new int[] {
                     I_CmsEventListener.EVENT_PROPERTY_MODIFIED,
                     I_CmsEventListener.EVENT_RESOURCE_CREATED,
                     I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
@@ -575,6 +627,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The default value used for keeping the extraction results in the cache (672 hours = 4 weeks). */
     public static final float DEFAULT_EXTRACTION_CACHE_MAX_AGE = 672.0f;
 
+    /** Default for the maximum number of characters extracted from a single document (5000000). */
+    public static final int DEFAULT_MAX_EXTRACTED_CHARS = 5000000;
+
     /** Default for the maximum number of modifications before a commit in the search index is triggered (500). */
     public static final int DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT = 500;
 
@@ -644,6 +699,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The max. char. length of the excerpt in the search result. */
     private int m_maxExcerptLength;
 
+    /** The maximum number of characters extracted from a single document. */
+    private int m_maxExtractedChars;
+
     /** The maximum number of modifications before a commit in the search index is triggered. */
     private int m_maxModificationsBeforeCommit;
 
@@ -676,6 +734,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         m_extractionCacheMaxAge = DEFAULT_EXTRACTION_CACHE_MAX_AGE;
         m_maxExcerptLength = DEFAULT_EXCERPT_LENGTH;
         m_offlineUpdateFrequency = DEFAULT_OFFLINE_UPDATE_FREQNENCY;
+        m_maxExtractedChars = DEFAULT_MAX_EXTRACTED_CHARS;
         m_maxModificationsBeforeCommit = DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT;
 
         m_fieldConfigurations = new HashMap<String, CmsSearchFieldConfiguration>();
@@ -984,8 +1043,28 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_EVENT_CLEAR_CACHES_0), new Exception());
                 }
+                clearPermissionCaches();
+                break;
+            case I_CmsEventListener.EVENT_GROUP_MODIFIED:
+            case I_CmsEventListener.EVENT_USER_MODIFIED:
+                // group memberships may have changed
+                clearPermissionCaches();
+                break;
+            case I_CmsEventListener.EVENT_RESOURCE_MODIFIED:
+                Object change = event.getData().get(I_CmsEventListener.KEY_CHANGE);
+                if ((change instanceof Integer)
+                    && ((((Integer)change).intValue() & CmsDriverManager.CHANGED_ACCESSCONTROL) != 0)) {
+                    // the access control entries of a resource have changed, this may affect all sub resources
+                    clearPermissionCaches();
+                }
                 break;
             case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                // published access control entries are not necessarily reindexed
+                clearPermissionCaches();
+                if (event.isClusterEvent()) {
+                    // the indexes have been updated by the publishing node
+                    break;
+                }
                 // event data contains a list of the published resources
                 CmsUUID publishHistoryId = new CmsUUID((String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID));
                 if (LOG.isDebugEnabled()) {
@@ -1360,6 +1439,18 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_maxExcerptLength;
     }
 
+    /**
+     * Returns the maximum number of characters extracted from the text of a single document.<p>
+     * 
+     * Documents that contain more text are indexed partially.<p>
+     *
+     * @return the maximum number of characters extracted from the text of a single document
+     */
+    public int getMaxExtractedChars() {
+
+        return m_maxExtractedChars;
+    }
+
     /**
      * Returns the maximum number of modifications before a commit in the search index is triggered.<p>
      *
@@ -1472,6 +1563,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
 
         initializeIndexes();
         initOfflineIndexes();
+        migrateIndexes();
 
         // register the modified default similarity implementation
         Similarity.setDefault(new CmsSearchSimilarity());
@@ -1479,8 +1571,11 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         // register this object as event listener
         OpenCms.addCmsEventListener(this, new int[] {
             I_CmsEventListener.EVENT_CLEAR_CACHES,
+            I_CmsEventListener.EVENT_GROUP_MODIFIED,
             I_CmsEventListener.EVENT_PUBLISH_PROJECT,
-            I_CmsEventListener.EVENT_REBUILD_SEARCHINDEXES});
+            I_CmsEventListener.EVENT_REBUILD_SEARCHINDEXES,
+            I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+            I_CmsEventListener.EVENT_USER_MODIFIED});
     }
 
     /**
@@ -2017,6 +2112,36 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the maximum number of characters extracted from the text of a single document.<p>
+     *
+     * @param maxExtractedChars the maximum number of characters to set
+     */
+    public void setMaxExtractedChars(int maxExtractedChars) {
+
+        m_maxExtractedChars = maxExtractedChars;
+    }
+
+    /**
+     * Sets the maximum number of characters extracted from the text of a single document as a string.<p>
+     *
+     * @param value the maximum number of characters to set
+     */
+    public void setMaxExtractedChars(String value) {
+
+        try {
+            setMaxExtractedChars(Integer.parseInt(value));
+        } catch (Exception e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PARSE_MAX_EXTRACTED_CHARS_FAILED_2,
+                    value,
+                    new Integer(DEFAULT_MAX_EXTRACTED_CHARS)),
+                e);
+            setMaxExtractedChars(DEFAULT_MAX_EXTRACTED_CHARS);
+        }
+    }
+
     /**
      * Sets the maximum number of modifications before a commit in the search index is triggered.<p>
      *
@@ -2745,6 +2870,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Removes the cached permission check results of all indexes.<p>
+     */
+    private void clearPermissionCaches() {
+
+        for (CmsSearchIndex index : m_indexes) {
+            index.clearPermissionCache();
+        }
+    }
+
     /**
      * Creates the Solr core container.<p>
      * 
@@ -2791,6 +2926,33 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return report;
     }
 
+    /**
+     * Rebuilds the indexes which have been built without numeric date fields in the background.<p>
+     * 
+     * Indexes with the rebuild mode "manual" are not rebuilt automatically.<p>
+     */
+    private void migrateIndexes() {
+
+        List<String> indexNames = new ArrayList<String>();
+        for (CmsSearchIndex index : m_indexes) {
+            if (!index.isEnabled()
+                || (index instanceof CmsSolrIndex)
+                || (index.getSearcher() == null)
+                || index.hasNumericDateFields()) {
+                // disabled, not yet built or already migrated
+                continue;
+            }
+            if (CmsSearchIndex.REBUILD_MODE_MANUAL.equals(index.getRebuildMode())) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEX_NUMERIC_DATES_MISSING_1, index.getName()));
+            } else {
+                indexNames.add(index.getName());
+            }
+        }
+        if (!indexNames.isEmpty()) {
+            new CmsSearchIndexMigrationThread(indexNames).start();
+        }
+    }
+
     /**
      * Register the given index on the configured HTTP server.<p>
      * 
@@ -248,6 +248,9 @@ public class CmsSearchParameters {
     /** Indicates if all fields should be used for generating the excerpt, regardless if they have been searched or not. */
     private boolean m_excerptOnlySearchedFields;
 
+    /** The list of search index fields to calculate the term counts (facets) for. */
+    private List<String> m_facetFields;
+
     /** The map of individual search field queries. */
     private List<CmsSearchFieldQuery> m_fieldQueries;
 
@@ -445,6 +448,22 @@ public class CmsSearchParameters {
         return m_displayPages;
     }
 
+    /**
+     * Returns the list of search index field names (Strings) to calculate the term counts (facets) for.<p>
+     * 
+     * The term counts are calculated in the same pass that collects the search results, 
+     * useful fields are for example {@link org.opencms.search.fields.CmsSearchField#FIELD_TYPE} or 
+     * {@link org.opencms.search.fields.CmsSearchField#FIELD_RESOURCE_LOCALES}.<p>
+     *
+     * @return the list of search index field names to calculate the term counts for, may be <code>null</code>
+     * 
+     * @see CmsSearchResultList#getFacets()
+     */
+    public List<String> getFacetFields() {
+
+        return m_facetFields;
+    }
+
     /**
      * Returns the list of individual field queries.<p>
      * 
@@ -812,6 +831,7 @@ public class CmsSearchParameters {
             m_calculateCategories,
             m_sort);
         result.setIndex(getIndex());
+        result.setFacetFields(m_facetFields);
         return result;
     }
 
@@ -859,6 +879,18 @@ public class CmsSearchParameters {
         m_excerptOnlySearchedFields = excerptOnlySearchedFields;
     }
 
+    /**
+     * Sets the list of search index field names (Strings) to calculate the term counts (facets) for.<p>
+     * 
+     * @param facetFields the list of search index field names to calculate the term counts for
+     * 
+     * @see #getFacetFields()
+     */
+    public void setFacetFields(List<String> facetFields) {
+
+        m_facetFields = facetFields;
+    }
+
     /**
      * Sets the list of strings of names of fields to search in. <p>
      * 
@@ -0,0 +1,222 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.OpenBitSet;
+
+/**
+ * Caches the results of search result permission checks as bit sets per index segment and principal.<p>
+ * 
+ * The bit sets are keyed by the core cache key of the segment readers. Segments that are merged away
+ * or dropped when the index changes are released together with their readers, while the bits of
+ * unchanged segments are reused across index reopens.<p>
+ * 
+ * The bits of a principal expire after the configured time, so changes that are not signaled by an event,
+ * like a reached release or expiration date, are picked up after that time.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsSearchPermissionCache {
+
+    /**
+     * The cached segment permissions of one principal.<p>
+     */
+    private static class CmsPrincipalPermissions {
+
+        /** The time the permissions were created. */
+        protected long m_created;
+
+        /** The permission bits by segment core cache key. */
+        protected Map<Object, CmsSegmentPermissions> m_segments;
+
+        /**
+         * Creates new, empty principal permissions.<p>
+         */
+        protected CmsPrincipalPermissions() {
+
+            m_created = System.currentTimeMillis();
+            m_segments = Collections.synchronizedMap(new WeakHashMap<Object, CmsSegmentPermissions>());
+        }
+    }
+
+    /**
+     * The checked and readable documents of one index segment.<p>
+     */
+    private static class CmsSegmentPermissions {
+
+        /** The documents that have been checked. */
+        protected OpenBitSet m_checked;
+
+        /** The documents that are readable. */
+        protected OpenBitSet m_readable;
+
+        /**
+         * Creates new permission bits for a segment with the given number of documents.<p>
+         * 
+         * @param maxDoc the number of documents in the segment
+         */
+        protected CmsSegmentPermissions(int maxDoc) {
+
+            m_checked = new OpenBitSet(maxDoc);
+            m_readable = new OpenBitSet(maxDoc);
+        }
+    }
+
+    /** The default time in milliseconds the permissions of a principal are cached. */
+    public static final long DEFAULT_TTL = 60000;
+
+    /** The maximum number of principals the permissions are cached for. */
+    public static final int MAX_PRINCIPALS = 1000;
+
+    /** The cached permissions by principal signature. */
+    private Map<String, CmsPrincipalPermissions> m_principals;
+
+    /** The time in milliseconds the permissions of a principal are cached. */
+    private long m_ttl;
+
+    /**
+     * Creates a new permission cache.<p>
+     * 
+     * @param ttl the time in milliseconds the permissions of a principal are cached
+     */
+    public CmsSearchPermissionCache(long ttl) {
+
+        m_ttl = ttl;
+        m_principals = new ConcurrentHashMap<String, CmsPrincipalPermissions>();
+    }
+
+    /**
+     * Removes all cached permissions.<p>
+     */
+    public void clear() {
+
+        m_principals.clear();
+    }
+
+    /**
+     * Returns the cached readable state of a document in a segment for a principal.<p>
+     * 
+     * @param principal the principal signature
+     * @param segment the segment reader the document belongs to
+     * @param doc the document number inside the segment
+     * 
+     * @return the cached readable state, or <code>null</code> if the document has not been checked yet
+     */
+    public Boolean getPermission(String principal, IndexReader segment, int doc) {
+
+        CmsPrincipalPermissions permissions = m_principals.get(principal);
+        if (permissions == null) {
+            return null;
+        }
+        if ((System.currentTimeMillis() - permissions.m_created) > m_ttl) {
+            m_principals.remove(principal);
+            return null;
+        }
+        CmsSegmentPermissions bits = permissions.m_segments.get(segment.getCoreCacheKey());
+        if (bits == null) {
+            return null;
+        }
+        synchronized (bits) {
+            if (!bits.m_checked.get(doc)) {
+                return null;
+            }
+            return Boolean.valueOf(bits.m_readable.get(doc));
+        }
+    }
+
+    /**
+     * Returns the number of principals with cached permissions.<p>
+     * 
+     * @return the number of principals with cached permissions
+     */
+    public int size() {
+
+        return m_principals.size();
+    }
+
+    /**
+     * Stores the readable state of a document in a segment for a principal.<p>
+     * 
+     * @param principal the principal signature
+     * @param segment the segment reader the document belongs to
+     * @param doc the document number inside the segment
+     * @param readable the readable state to store
+     */
+    public void setPermission(String principal, IndexReader segment, int doc, boolean readable) {
+
+        CmsPrincipalPermissions permissions = m_principals.get(principal);
+        if ((permissions == null) || ((System.currentTimeMillis() - permissions.m_created) > m_ttl)) {
+            if (m_principals.size() >= MAX_PRINCIPALS) {
+                removeExpired();
+            }
+            permissions = new CmsPrincipalPermissions();
+            m_principals.put(principal, permissions);
+        }
+        CmsSegmentPermissions bits;
+        synchronized (permissions.m_segments) {
+            bits = permissions.m_segments.get(segment.getCoreCacheKey());
+            if (bits == null) {
+                bits = new CmsSegmentPermissions(segment.maxDoc());
+                permissions.m_segments.put(segment.getCoreCacheKey(), bits);
+            }
+        }
+        synchronized (bits) {
+            bits.m_checked.set(doc);
+            if (readable) {
+                bits.m_readable.set(doc);
+            } else {
+                bits.m_readable.clear(doc);
+            }
+        }
+    }
+
+    /**
+     * Removes the expired principals, or all principals if none has expired.<p>
+     */
+    private void removeExpired() {
+
+        long now = System.currentTimeMillis();
+        Iterator<CmsPrincipalPermissions> i = m_principals.values().iterator();
+        while (i.hasNext()) {
+            if ((now - i.next().m_created) > m_ttl) {
+                i.remove();
+            }
+        }
+        if (m_principals.size() >= MAX_PRINCIPALS) {
+            m_principals.clear();
+        }
+    }
+}
@@ -44,6 +44,9 @@ public class CmsSearchResultList extends ArrayList<CmsSearchResult> {
     /** The (optional) categories found in the last the search. */
     private Map<String, Integer> m_categories;
 
+    /** The (optional) term counts (facets) found in the last search. */
+    private Map<String, Map<String, Integer>> m_facets;
+
     /** The total size of all results found in the last search. */
     private int m_hitCount;
 
@@ -78,6 +81,21 @@ public class CmsSearchResultList extends ArrayList<CmsSearchResult> {
         return m_categories;
     }
 
+    /**
+     * Returns the (optional) term counts (facets) found in the last search, or <code>null</code>
+     * if no facets were requested in the search.<p>
+     * 
+     * The returned map contains the field names mapped to the term counts of the field.<p>
+     *
+     * @return the (optional) term counts found in the last search
+     * 
+     * @see CmsSearchParameters#getFacetFields()
+     */
+    public Map<String, Map<String, Integer>> getFacets() {
+
+        return m_facets;
+    }
+
     /**
      * Returns the hit count of all results found in the last search.<p>
      * 
@@ -103,6 +121,18 @@ public class CmsSearchResultList extends ArrayList<CmsSearchResult> {
         m_categories = categories;
     }
 
+    /**
+     * Sets the term counts (facets) found in the last search.<p>
+     *
+     * @param facets the term counts to set
+     * 
+     * @see CmsSearchParameters#setFacetFields(java.util.List)
+     */
+    public void setFacets(Map<String, Map<String, Integer>> facets) {
+
+        m_facets = facets;
+    }
+
     /**
      * Sets the hit count of all results found in the last search.<p>
      *
@@ -250,6 +250,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INDEX_ACCESS_FAILED_1 = "LOG_INDEX_ACCESS_FAILED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_INDEX_NUMERIC_DATES_MISSING_1 = "LOG_INDEX_NUMERIC_DATES_MISSING_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_INDEX_NUMERIC_DATES_REBUILD_1 = "LOG_INDEX_NUMERIC_DATES_REBUILD_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INDEX_WRITER_MSG_CLOSE_2 = "LOG_INDEX_WRITER_MSG_CLOSE_2";
 
@@ -337,6 +343,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_MAXCOMMIT_FAILED_2 = "LOG_PARSE_MAXCOMMIT_FAILED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PARSE_MAX_EXTRACTED_CHARS_FAILED_2 = "LOG_PARSE_MAX_EXTRACTED_CHARS_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PARSE_OFFLINE_UPDATE_FAILED_2 = "LOG_PARSE_OFFLINE_UPDATE_FAILED_2";
 
@@ -35,6 +35,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.search.CmsSearchIndex;
+import org.opencms.search.CmsSearchManager;
 import org.opencms.search.I_CmsSearchDocument;
 import org.opencms.search.extractors.CmsExtractionResult;
 import org.opencms.search.extractors.I_CmsExtractionResult;
@@ -122,7 +123,8 @@ public abstract class A_CmsVfsDocument implements I_CmsDocumentFactory {
                 cacheName = cache.getCacheName(
                     resource,
                     isLocaleDependend() ? index.getLocaleForResource(cms, resource, null) : null,
-                    getName());
+                    getName(),
+                    getMaxExtractedChars());
                 content = cache.getCacheObject(cacheName);
             }
 
@@ -146,6 +148,7 @@ public abstract class A_CmsVfsDocument implements I_CmsDocumentFactory {
                 // extraction result has not been attached to the resource
                 try {
                     content = extractContent(cms, resource, index);
+                    logTruncation(resource, content);
                     if ((cache != null) && (resource.getSiblingCount() > 1)) {
                         // save extracted content to the cache
                         cache.saveCacheObject(cacheName, content);
@@ -224,6 +227,19 @@ public abstract class A_CmsVfsDocument implements I_CmsDocumentFactory {
         m_cache = cache;
     }
 
+    /**
+     * Returns the maximum number of characters to extract from the text of a single document.<p>
+     * 
+     * @return the maximum number of characters to extract from the text of a single document
+     * 
+     * @see org.opencms.search.CmsSearchManager#getMaxExtractedChars()
+     */
+    protected int getMaxExtractedChars() {
+
+        CmsSearchManager searchManager = OpenCms.getSearchManager();
+        return searchManager != null ? searchManager.getMaxExtractedChars() : CmsSearchManager.DEFAULT_MAX_EXTRACTED_CHARS;
+    }
+
     /**
      * Logs content extraction for the specified resource and index.<p>
      * 
@@ -240,6 +256,36 @@ public abstract class A_CmsVfsDocument implements I_CmsDocumentFactory {
         }
     }
 
+    /**
+     * Logs that the text extracted from the given resource was truncated, if it reached the extraction limit.<p>
+     * 
+     * @param resource the resource the text was extracted from
+     * @param content the extraction result
+     * 
+     * @see #getMaxExtractedChars()
+     */
+    protected void logTruncation(CmsResource resource, I_CmsExtractionResult content) {
+
+        int maxChars = getMaxExtractedChars();
+        if ((content == null) || (maxChars < 0) || !LOG.isInfoEnabled()) {
+            return;
+        }
+        // the raw item contains the document text without the appended meta information
+        String text = null;
+        if (content.getContentItems() != null) {
+            text = content.getContentItems().get(I_CmsExtractionResult.ITEM_RAW);
+        }
+        if (text == null) {
+            text = content.getContent();
+        }
+        if ((text != null) && (text.length() >= maxChars)) {
+            LOG.info(Messages.get().getBundle().key(
+                Messages.LOG_EXTRACT_CONTENT_TRUNCATED_2,
+                resource.getRootPath(),
+                String.valueOf(maxChars)));
+        }
+    }
+
     /**
      * Upgrades the given resource to a {@link CmsFile} with content.<p>
      * 
@@ -73,7 +73,7 @@ public class CmsDocumentHtml extends A_CmsVfsDocument {
                 CmsPropertyDefinition.PROPERTY_CONTENT_ENCODING,
                 true);
             String encoding = encProp.getValue(OpenCms.getSystemInfo().getDefaultEncoding());
-            return CmsExtractorHtml.getExtractor().extractText(file.getContents(), encoding);
+            return CmsExtractorHtml.getExtractor().extractText(file.getContents(), encoding, getMaxExtractedChars());
         } catch (Exception e) {
             throw new CmsIndexException(
                 Messages.get().container(Messages.ERR_TEXT_EXTRACTION_1, resource.getRootPath()),
@@ -69,7 +69,7 @@ public class CmsDocumentMsOfficeOOXML extends A_CmsVfsDocument {
         logContentExtraction(resource, index);
         CmsFile file = readFile(cms, resource);
         try {
-            return CmsExtractorMsOfficeOOXML.getExtractor().extractText(file.getContents());
+            return CmsExtractorMsOfficeOOXML.getExtractor().extractText(file.getContents(), null, getMaxExtractedChars());
         } catch (Exception e) {
             throw new CmsIndexException(
                 Messages.get().container(Messages.ERR_TEXT_EXTRACTION_1, resource.getRootPath()),
@@ -65,7 +65,7 @@ public class CmsDocumentOpenOffice extends A_CmsVfsDocument {
         logContentExtraction(resource, index);
         CmsFile file = readFile(cms, resource);
         try {
-            return CmsExtractorOpenOffice.getExtractor().extractText(file.getContents());
+            return CmsExtractorOpenOffice.getExtractor().extractText(file.getContents(), null, getMaxExtractedChars());
         } catch (Exception e) {
             throw new CmsIndexException(
                 Messages.get().container(Messages.ERR_TEXT_EXTRACTION_1, resource.getRootPath()),
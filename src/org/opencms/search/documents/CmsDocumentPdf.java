@@ -68,7 +68,7 @@ public class CmsDocumentPdf extends A_CmsVfsDocument {
         logContentExtraction(resource, index);
         CmsFile file = readFile(cms, resource);
         try {
-            return CmsExtractorPdf.getExtractor().extractText(file.getContents());
+            return CmsExtractorPdf.getExtractor().extractText(file.getContents(), null, getMaxExtractedChars());
         } catch (Exception e) {
             if (e instanceof CryptographyException) {
                 throw new CmsIndexException(Messages.get().container(
@@ -66,7 +66,7 @@ public class CmsDocumentRtf extends A_CmsVfsDocument {
         logContentExtraction(resource, index);
         CmsFile file = readFile(cms, resource);
         try {
-            return CmsExtractorRtf.getExtractor().extractText(file.getContents());
+            return CmsExtractorRtf.getExtractor().extractText(file.getContents(), null, getMaxExtractedChars());
         } catch (Exception e) {
             throw new CmsIndexException(
                 Messages.get().container(Messages.ERR_TEXT_EXTRACTION_1, resource.getRootPath()),
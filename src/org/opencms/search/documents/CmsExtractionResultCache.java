@@ -27,21 +27,37 @@
 
 package org.opencms.search.documents;
 
-import org.opencms.cache.CmsVfsDiskCache;
+import org.opencms.cache.CmsLruCache;
+import org.opencms.cache.I_CmsLruCacheObject;
 import org.opencms.file.CmsResource;
 import org.opencms.main.CmsLog;
 import org.opencms.search.extractors.CmsExtractionResult;
 import org.opencms.search.extractors.I_CmsExtractionResult;
 import org.opencms.util.CmsFileUtil;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
 
 /**
- * Implements a disk cache that stores text extraction results in the RFS.<p>
+ * Implements a cache that stores text extraction results in memory and in the RFS.<p>
  * 
  * This cache operates on resource file names, plus a hash code calculated from 
  * {@link org.opencms.file.CmsResource#getDateLastModified()}
@@ -57,16 +73,345 @@ import org.apache.commons.logging.Log;
  * project will have a new hash code compared to the online project. If the resource is identical in the online and 
  * the offline project, the generated hash codes will be the same.<p>
  * 
+ * The most recently used extraction results are kept in a memory tier that is bounded by the
+ * size of the serialized results. In the RFS, the results are appended to a small number of segment files, 
+ * and an index of all results in the segments is kept in memory. The index is built from the segment 
+ * files when the cache is first used. Expired results are removed from the index by {@link #cleanCache(float)}, 
+ * the segment files are compacted in a background thread that does not block readers.<p>
+ * 
  * @since 6.2.0
  */
 public class CmsExtractionResultCache {
 
+    /**
+     * Thread that compacts the segment files and removes the files of the former one file per result cache.<p>
+     */
+    private class CmsCleanupThread extends Thread {
+
+        /**
+         * Creates a new cleanup thread.<p>
+         */
+        CmsCleanupThread() {
+
+            super("OpenCms: Extraction result cache cleanup");
+            setDaemon(true);
+        }
+
+        /**
+         * @see java.lang.Thread#run()
+         */
+        @Override
+        public void run() {
+
+            do {
+                try {
+                    while (m_cleanupRequested.getAndSet(false)) {
+                        int segments = compactSegments();
+                        int files = deleteLegacyFiles();
+                        if (LOG.isInfoEnabled()) {
+                            LOG.info(Messages.get().getBundle().key(
+                                Messages.LOG_EXTRACTION_CACHE_CLEANUP_2,
+                                new Integer(segments),
+                                new Integer(files)));
+                        }
+                    }
+                } finally {
+                    m_cleanupRunning.set(false);
+                }
+                // a cleanup may have been requested after the loop ended, but before the running flag was reset
+            } while (m_cleanupRequested.get() && m_cleanupRunning.compareAndSet(false, true));
+        }
+    }
+
+    /**
+     * A serialized extraction result in the memory tier.<p>
+     */
+    private class CmsMemoryEntry implements I_CmsLruCacheObject {
+
+        /** The serialized extraction result. */
+        byte[] m_bytes;
+
+        /** The cache name. */
+        String m_name;
+
+        /** The next object in the LRU list. */
+        private I_CmsLruCacheObject m_next;
+
+        /** The previous object in the LRU list. */
+        private I_CmsLruCacheObject m_previous;
+
+        /**
+         * Creates a new memory tier entry.<p>
+         * 
+         * @param name the cache name
+         * @param bytes the serialized extraction result
+         */
+        CmsMemoryEntry(String name, byte[] bytes) {
+
+            m_name = name;
+            m_bytes = bytes;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#addToLruCache()
+         */
+        public void addToLruCache() {
+
+            // noop
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getLruCacheCosts()
+         */
+        public int getLruCacheCosts() {
+
+            return m_bytes.length;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getNextLruObject()
+         */
+        public I_CmsLruCacheObject getNextLruObject() {
+
+            return m_next;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getPreviousLruObject()
+         */
+        public I_CmsLruCacheObject getPreviousLruObject() {
+
+            return m_previous;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#getValue()
+         */
+        public Object getValue() {
+
+            return m_bytes;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
+         */
+        public void removeFromLruCache() {
+
+            m_memoryEntries.remove(m_name, this);
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setNextLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setNextLruObject(I_CmsLruCacheObject theNextObject) {
+
+            m_next = theNextObject;
+        }
+
+        /**
+         * @see org.opencms.cache.I_CmsLruCacheObject#setPreviousLruObject(org.opencms.cache.I_CmsLruCacheObject)
+         */
+        public void setPreviousLruObject(I_CmsLruCacheObject thePreviousObject) {
+
+            m_previous = thePreviousObject;
+        }
+    }
+
+    /**
+     * A segment file that contains serialized extraction results.<p>
+     * 
+     * Each record in a segment consists of the length of the cache name (2 bytes), the UTF-8 encoded 
+     * cache name, the length of the serialized extraction result (4 bytes) and the serialized extraction result.<p>
+     */
+    private static class CmsSegment {
+
+        /** The segment file. */
+        final File m_file;
+
+        /** The random access file used to read and write the segment file. */
+        final RandomAccessFile m_randomAccessFile;
+
+        /** The segment id. */
+        final int m_id;
+
+        /** The time the segment file was last touched. */
+        volatile long m_lastTouched;
+
+        /** The size of the valid records in the segment file. */
+        volatile long m_size;
+
+        /**
+         * Opens a segment file.<p>
+         * 
+         * @param file the segment file
+         * @param id the segment id
+         * 
+         * @throws IOException if the file can not be opened
+         */
+        CmsSegment(File file, int id)
+        throws IOException {
+
+            m_file = file;
+            m_id = id;
+            m_lastTouched = file.exists() ? file.lastModified() : System.currentTimeMillis();
+            m_randomAccessFile = new RandomAccessFile(file, "rw");
+        }
+
+        /**
+         * Closes the segment file.<p>
+         */
+        void close() {
+
+            try {
+                m_randomAccessFile.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        /**
+         * Reads the given number of bytes from the given position of the segment file.<p>
+         * 
+         * @param position the position to read from
+         * @param length the number of bytes to read
+         * 
+         * @return the bytes read
+         * 
+         * @throws IOException if the segment file can not be read
+         */
+        byte[] read(long position, int length) throws IOException {
+
+            byte[] result = new byte[length];
+            synchronized (m_randomAccessFile) {
+                m_randomAccessFile.seek(position);
+                m_randomAccessFile.readFully(result);
+            }
+            return result;
+        }
+
+        /**
+         * Touches the segment file if it has not been touched for an hour.<p>
+         */
+        void touch() {
+
+            long now = System.currentTimeMillis();
+            if ((now - m_lastTouched) > TOUCH_INTERVAL) {
+                m_lastTouched = now;
+                m_file.setLastModified(now);
+            }
+        }
+
+        /**
+         * Writes the given bytes to the given position of the segment file.<p>
+         * 
+         * @param position the position to write to
+         * @param bytes the bytes to write
+         * 
+         * @throws IOException if the segment file can not be written
+         */
+        void write(long position, byte[] bytes) throws IOException {
+
+            synchronized (m_randomAccessFile) {
+                m_randomAccessFile.seek(position);
+                m_randomAccessFile.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * The location of a serialized extraction result in a segment file.<p>
+     */
+    private static class CmsSegmentLocation {
+
+        /** The last time the extraction result was written or read. */
+        volatile long m_lastAccess;
+
+        /** The length of the serialized extraction result. */
+        final int m_length;
+
+        /** The position of the serialized extraction result in the segment file. */
+        final long m_position;
+
+        /** The segment that contains the extraction result. */
+        final CmsSegment m_segment;
+
+        /**
+         * Creates a new segment location.<p>
+         * 
+         * @param segment the segment
+         * @param position the position of the serialized extraction result in the segment file
+         * @param length the length of the serialized extraction result
+         * @param lastAccess the last time the extraction result was written or read
+         */
+        CmsSegmentLocation(CmsSegment segment, long position, int length, long lastAccess) {
+
+            m_segment = segment;
+            m_position = position;
+            m_length = length;
+            m_lastAccess = lastAccess;
+        }
+    }
+
+    /** The default maximum size of the memory tier in bytes. */
+    public static final int DEFAULT_MEMORY_SIZE = 8 * 1024 * 1024;
+
+    /** The maximum size of a segment file in bytes. */
+    public static final long SEGMENT_MAX_SIZE = 32 * 1024 * 1024;
+
+    /** Segments with a smaller fraction of valid records than this are compacted. */
+    private static final float COMPACTION_THRESHOLD = 0.5f;
+
+    /** The file suffix of the former one file per result cache. */
+    private static final String LEGACY_SUFFIX = ".ext";
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsExtractionResultCache.class);
 
+    /** The size of the record header without the cache name. */
+    private static final int RECORD_HEADER_SIZE = 6;
+
+    /** The file name prefix of the segment files. */
+    private static final String SEGMENT_PREFIX = "segment_";
+
+    /** The file name suffix of the segment files. */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /** The interval in which the segment files are touched when they are read. */
+    private static final long TOUCH_INTERVAL = 3600000;
+
+    /** The segment that new records are appended to. */
+    private volatile CmsSegment m_activeSegment;
+
+    /** Indicates if a cleanup has been requested. */
+    private AtomicBoolean m_cleanupRequested;
+
+    /** Indicates if a cleanup thread is running. */
+    private AtomicBoolean m_cleanupRunning;
+
+    /** The index of all extraction results in the segment files. */
+    private ConcurrentMap<String, CmsSegmentLocation> m_index;
+
+    /** Indicates if the index has been read from the segment files. */
+    private volatile boolean m_initialized;
+
+    /** The entries of the memory tier. */
+    private ConcurrentMap<String, CmsMemoryEntry> m_memoryEntries;
+
+    /** The LRU policy of the memory tier. */
+    private CmsLruCache m_memoryTier;
+
+    /** The id of the next segment file to create. */
+    private int m_nextSegmentId;
+
     /** The name of the cache base repository folder in the RFS. */
     private String m_rfsRepository;
 
+    /** The segment files, mapped by segment id. */
+    private Map<Integer, CmsSegment> m_segments;
+
+    /** Lock used to append to the segment files. */
+    private Object m_writeLock;
+
     /**
      * Creates a new disk cache.<p>
      * 
@@ -75,67 +420,97 @@ public class CmsExtractionResultCache {
      */
     public CmsExtractionResultCache(String basepath, String foldername) {
 
+        this(basepath, foldername, DEFAULT_MEMORY_SIZE);
+    }
+
+    /**
+     * Creates a new disk cache.<p>
+     * 
+     * @param basepath the base path for the cache in the RFS
+     * @param foldername the folder name for this cache, to be used a subfolder for the base folder
+     * @param memorySize the maximum size of the memory tier in bytes, use 0 to disable the memory tier 
+     */
+    public CmsExtractionResultCache(String basepath, String foldername, int memorySize) {
+
         // normalize the given folder name 
         m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
+        m_memoryEntries = new ConcurrentHashMap<String, CmsMemoryEntry>();
+        m_memoryTier = new CmsLruCache(memorySize, (memorySize / 4) * 3, memorySize / 4);
+        m_index = new ConcurrentHashMap<String, CmsSegmentLocation>();
+        m_segments = new ConcurrentHashMap<Integer, CmsSegment>();
+        m_cleanupRequested = new AtomicBoolean(false);
+        m_cleanupRunning = new AtomicBoolean(false);
+        m_writeLock = new Object();
     }
 
     /**
-     * Removes all expired extraction result cache entries from the RFS cache.<p>
+     * Removes all expired extraction result cache entries from the cache.<p>
      * 
-     * @param maxAge the maximum age of the extraction result cache files in hours (or fractions of hours)
+     * The expired entries are removed from the index immediately, the segment files 
+     * are compacted in a background thread.<p>
      * 
-     * @return the total number of deleted resources
+     * @param maxAge the maximum age of the extraction result cache entries in hours (or fractions of hours)
+     * 
+     * @return the total number of deleted entries
      */
-    public synchronized int cleanCache(float maxAge) {
+    public int cleanCache(float maxAge) {
 
-        // calculate oldest possible date for the cache files
+        ensureInitialized();
+        // calculate oldest possible date for the cache entries
         long expireDate = System.currentTimeMillis() - (long)(maxAge * 60.0f * 60.0f * 1000.0f);
-        File basedir = new File(m_rfsRepository);
-        // perform the cache cleanup
         int count = 0;
-        if (basedir.canRead() && basedir.isDirectory()) {
-            File[] files = basedir.listFiles();
-            if (files != null) {
-                for (int i = 0; i < files.length; i++) {
-                    File f = files[i];
-                    if (f.canWrite()) {
-                        if (f.lastModified() < expireDate) {
-                            try {
-                                f.delete();
-                                count++;
-                            } catch (Exception e) {
-                                if (LOG.isWarnEnabled()) {
-                                    LOG.warn(
-                                        Messages.get().getBundle().key(
-                                            Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
-                                            f.getAbsolutePath()),
-                                        e);
-                                }
-                            }
-                        }
-                    }
+        Iterator<Map.Entry<String, CmsSegmentLocation>> i = m_index.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<String, CmsSegmentLocation> entry = i.next();
+            CmsSegmentLocation location = entry.getValue();
+            if ((location.m_lastAccess < expireDate) && m_index.remove(entry.getKey(), location)) {
+                CmsMemoryEntry memoryEntry = m_memoryEntries.get(entry.getKey());
+                if (memoryEntry != null) {
+                    m_memoryTier.remove(memoryEntry);
                 }
+                count++;
             }
         }
+        m_cleanupRequested.set(true);
+        if (m_cleanupRunning.compareAndSet(false, true)) {
+            new CmsCleanupThread().start();
+        }
         return count;
     }
 
     /**
-     * Returns the RFS name used for caching an the text extraction result
+     * Returns the name used for caching the text extraction result
      * based on the given VFS resource and locale.<p>  
      * 
      * @param resource the VFS resource to generate the cache name for
      * @param locale the locale to generate the cache name for (may be <code>null</code>)
      * @param docTypeName the name of the search document type
      * 
-     * @return the RFS name to use for caching the given VFS resource with parameters 
+     * @return the name to use for caching the given VFS resource with parameters 
      */
     public String getCacheName(CmsResource resource, Locale locale, String docTypeName) {
 
+        return getCacheName(resource, locale, docTypeName, -1);
+    }
+
+    /**
+     * Returns the name used for caching the text extraction result
+     * based on the given VFS resource, locale and extraction limit.<p>
+     * 
+     * Results extracted with different limits get different names, so a result that was 
+     * truncated with a lower limit is not used after the limit has been raised.<p>
+     * 
+     * @param resource the VFS resource to generate the cache name for
+     * @param locale the locale to generate the cache name for (may be <code>null</code>)
+     * @param docTypeName the name of the search document type
+     * @param maxChars the maximum number of extracted characters, or <code>-1</code> for no limit
+     * 
+     * @return the name to use for caching the given VFS resource with parameters 
+     */
+    public String getCacheName(CmsResource resource, Locale locale, String docTypeName, int maxChars) {
+
         // create a StringBuffer for the result
-        StringBuffer buf = new StringBuffer(m_rfsRepository.length() + 36);
-        buf.append(m_rfsRepository);
-        buf.append('/');
+        StringBuffer buf = new StringBuffer(64);
         buf.append(resource.getResourceId().toString());
 
         if (docTypeName != null) {
@@ -149,39 +524,49 @@ public class CmsExtractionResultCache {
             buf.append(locale.toString());
         }
 
+        if (maxChars >= 0) {
+            buf.append('_');
+            buf.append(maxChars);
+        }
+
         // append the date of last content modification to the result buffer 
         // please note that we need only worry about last change in content, since properties are ignored here
         buf.append('_');
         buf.append(resource.getDateContent());
-
-        // finally append the extension 
-        buf.append(".ext");
         return buf.toString();
     }
 
     /**
-     * Returns the extraction result in the requested file in the disk cache, or <code>null</code> if the
-     * file is not found in the cache, or is found but out-dated.<p>
+     * Returns the cached extraction result with the given name, or <code>null</code> if the
+     * result is not found in the cache.<p>
      * 
-     * @param rfsName the file RFS name to look up in the cache 
+     * @param cacheName the cache name to look up 
      * 
-     * @return the extraction result stored in the requested file in the RFS disk cache, or <code>null</code> 
+     * @return the cached extraction result, or <code>null</code> 
      */
-    public CmsExtractionResult getCacheObject(String rfsName) {
+    public CmsExtractionResult getCacheObject(String cacheName) {
 
-        try {
-            File f = new File(rfsName);
-            if (f.exists()) {
-                long age = f.lastModified();
-                if ((System.currentTimeMillis() - age) > 3600000) {
-                    // file has not been touched for 1 hour, touch the file with the current date
-                    f.setLastModified(System.currentTimeMillis());
-                }
-                byte[] byteContent = CmsFileUtil.readFile(f);
-                return CmsExtractionResult.fromBytes(byteContent);
+        CmsMemoryEntry memoryEntry = m_memoryEntries.get(cacheName);
+        if (memoryEntry != null) {
+            m_memoryTier.touch(memoryEntry);
+            CmsSegmentLocation location = m_index.get(cacheName);
+            if (location != null) {
+                location.m_lastAccess = System.currentTimeMillis();
+            }
+            return CmsExtractionResult.fromBytes(memoryEntry.m_bytes);
+        }
+        ensureInitialized();
+        CmsSegmentLocation location = m_index.get(cacheName);
+        if (location != null) {
+            try {
+                byte[] bytes = location.m_segment.read(location.m_position, location.m_length);
+                location.m_lastAccess = System.currentTimeMillis();
+                location.m_segment.touch();
+                addToMemoryTier(cacheName, bytes);
+                return CmsExtractionResult.fromBytes(bytes);
+            } catch (IOException e) {
+                // unable to read content, the segment may have been compacted concurrently
             }
-        } catch (IOException e) {
-            // unable to read content
         }
         // this code can be reached only in case of an error
         return null;
@@ -198,18 +583,281 @@ public class CmsExtractionResultCache {
     }
 
     /**
-     * Serializes the given extraction result and saves it in the disk cache.<p> 
+     * Serializes the given extraction result and saves it in the cache.<p> 
      * 
-     * @param rfsName the RFS name of the file to save the extraction result in
+     * @param cacheName the cache name to save the extraction result with
      * @param content the extraction result to serialize and save
      * 
      * @throws IOException in case of disk access errors
      */
-    public void saveCacheObject(String rfsName, I_CmsExtractionResult content) throws IOException {
+    public void saveCacheObject(String cacheName, I_CmsExtractionResult content) throws IOException {
 
         byte[] byteContent = content.getBytes();
         if (byteContent != null) {
-            CmsVfsDiskCache.saveFile(rfsName, byteContent);
+            ensureInitialized();
+            addToMemoryTier(cacheName, byteContent);
+            CmsSegmentLocation location = append(cacheName, byteContent, System.currentTimeMillis());
+            m_index.put(cacheName, location);
+        }
+    }
+
+    /**
+     * Returns the number of extraction results stored in the RFS.<p>
+     * 
+     * @return the number of extraction results stored in the RFS
+     */
+    public int size() {
+
+        ensureInitialized();
+        return m_index.size();
+    }
+
+    /**
+     * Compacts the segment files that contain mostly outdated records.<p>
+     * 
+     * The valid records of these segments are appended to the active segment, 
+     * and the compacted segment files are deleted.<p>
+     * 
+     * @return the number of deleted segment files
+     */
+    protected int compactSegments() {
+
+        // calculate the size of the valid records of all segments
+        Map<CmsSegment, long[]> validSizes = new HashMap<CmsSegment, long[]>();
+        for (Map.Entry<String, CmsSegmentLocation> entry : m_index.entrySet()) {
+            CmsSegmentLocation location = entry.getValue();
+            long[] size = validSizes.get(location.m_segment);
+            if (size == null) {
+                size = new long[1];
+                validSizes.put(location.m_segment, size);
+            }
+            size[0] += location.m_length + RECORD_HEADER_SIZE + entry.getKey().length();
+        }
+        int count = 0;
+        for (CmsSegment segment : new ArrayList<CmsSegment>(m_segments.values())) {
+            if (segment == m_activeSegment) {
+                continue;
+            }
+            long[] size = validSizes.get(segment);
+            if ((size != null) && (size[0] >= (segment.m_size * COMPACTION_THRESHOLD))) {
+                continue;
+            }
+            try {
+                if (size != null) {
+                    // copy the valid records to the active segment
+                    for (Map.Entry<String, CmsSegmentLocation> entry : m_index.entrySet()) {
+                        CmsSegmentLocation location = entry.getValue();
+                        if (location.m_segment == segment) {
+                            byte[] bytes = segment.read(location.m_position, location.m_length);
+                            CmsSegmentLocation newLocation = append(entry.getKey(), bytes, location.m_lastAccess);
+                            m_index.replace(entry.getKey(), location, newLocation);
+                        }
+                    }
+                }
+                m_segments.remove(new Integer(segment.m_id));
+                segment.close();
+                segment.m_file.delete();
+                count++;
+            } catch (IOException e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_EXTRACTION_CACHE_SEGMENT_ERROR_1,
+                        segment.m_file.getAbsolutePath()),
+                    e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Deletes the files of the former one file per result cache.<p>
+     * 
+     * @return the number of deleted files
+     */
+    protected int deleteLegacyFiles() {
+
+        int count = 0;
+        File[] files = new File(m_rfsRepository).listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                File f = files[i];
+                if (f.isFile() && f.getName().endsWith(LEGACY_SUFFIX)) {
+                    if (f.delete()) {
+                        count++;
+                    } else if (LOG.isWarnEnabled()) {
+                        LOG.warn(Messages.get().getBundle().key(
+                            Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
+                            f.getAbsolutePath()));
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds the given serialized extraction result to the memory tier.<p>
+     * 
+     * @param cacheName the cache name
+     * @param bytes the serialized extraction result
+     */
+    private void addToMemoryTier(String cacheName, byte[] bytes) {
+
+        CmsMemoryEntry memoryEntry = new CmsMemoryEntry(cacheName, bytes);
+        CmsMemoryEntry oldEntry = m_memoryEntries.put(cacheName, memoryEntry);
+        if (oldEntry != null) {
+            m_memoryTier.remove(oldEntry);
+        }
+        if (!m_memoryTier.add(memoryEntry)) {
+            // the extraction result is too large for the memory tier
+            m_memoryEntries.remove(cacheName, memoryEntry);
+        }
+    }
+
+    /**
+     * Appends a record to the active segment file.<p>
+     * 
+     * @param cacheName the cache name
+     * @param bytes the serialized extraction result
+     * @param lastAccess the last time the extraction result was written or read
+     * 
+     * @return the location of the serialized extraction result
+     * 
+     * @throws IOException if the segment file can not be written
+     */
+    private CmsSegmentLocation append(String cacheName, byte[] bytes, long lastAccess) throws IOException {
+
+        byte[] name = cacheName.getBytes("UTF-8");
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + name.length + bytes.length);
+        buffer.putShort((short)name.length);
+        buffer.put(name);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        synchronized (m_writeLock) {
+            if ((m_activeSegment == null) || (m_activeSegment.m_size >= SEGMENT_MAX_SIZE)) {
+                new File(m_rfsRepository).mkdirs();
+                int id = m_nextSegmentId++;
+                m_activeSegment = new CmsSegment(getSegmentFile(id), id);
+                m_segments.put(new Integer(id), m_activeSegment);
+            }
+            CmsSegment segment = m_activeSegment;
+            segment.write(segment.m_size, buffer.array());
+            long position = segment.m_size + buffer.capacity();
+            segment.m_size = position;
+            return new CmsSegmentLocation(
+                segment,
+                position - bytes.length,
+                bytes.length,
+                lastAccess);
+        }
+    }
+
+    /**
+     * Reads the index from the segment files if this has not been done yet.<p>
+     */
+    private void ensureInitialized() {
+
+        if (m_initialized) {
+            return;
+        }
+        synchronized (m_writeLock) {
+            if (m_initialized) {
+                return;
+            }
+            File[] files = new File(m_rfsRepository).listFiles();
+            List<Integer> ids = new ArrayList<Integer>();
+            if (files != null) {
+                for (int i = 0; i < files.length; i++) {
+                    String name = files[i].getName();
+                    if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                        try {
+                            ids.add(Integer.valueOf(name.substring(
+                                SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            // not a segment file
+                        }
+                    }
+                }
+            }
+            // later segments contain the newer records
+            Integer[] sortedIds = ids.toArray(new Integer[ids.size()]);
+            Arrays.sort(sortedIds);
+            for (int i = 0; i < sortedIds.length; i++) {
+                int id = sortedIds[i].intValue();
+                File file = getSegmentFile(id);
+                try {
+                    CmsSegment segment = new CmsSegment(file, id);
+                    readSegment(segment);
+                    m_segments.put(sortedIds[i], segment);
+                } catch (IOException e) {
+                    LOG.error(Messages.get().getBundle().key(
+                        Messages.LOG_EXTRACTION_CACHE_SEGMENT_ERROR_1,
+                        file.getAbsolutePath()), e);
+                }
+                m_nextSegmentId = id + 1;
+            }
+            // new records are always appended to a new segment
+            m_initialized = true;
+        }
+    }
+
+    /**
+     * Returns the file of the segment with the given id.<p>
+     * 
+     * @param id the segment id
+     * 
+     * @return the file of the segment
+     */
+    private File getSegmentFile(int id) {
+
+        return new File(m_rfsRepository, SEGMENT_PREFIX + id + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Adds all records of the given segment to the index.<p>
+     * 
+     * An incomplete record at the end of the segment file, for example caused by a crash, is ignored.<p>
+     * 
+     * @param segment the segment to read
+     * 
+     * @throws IOException if the segment file can not be read
+     */
+    private void readSegment(CmsSegment segment) throws IOException {
+
+        long fileSize = segment.m_file.length();
+        long lastAccess = segment.m_file.lastModified();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.m_file)));
+        try {
+            long position = 0;
+            while ((position + RECORD_HEADER_SIZE) <= fileSize) {
+                byte[] name = new byte[in.readUnsignedShort()];
+                in.readFully(name);
+                int length = in.readInt();
+                long dataPosition = position + RECORD_HEADER_SIZE + name.length;
+                if ((length < 0) || ((dataPosition + length) > fileSize)) {
+                    break;
+                }
+                long skip = length;
+                while (skip > 0) {
+                    long skipped = in.skip(skip);
+                    if (skipped <= 0) {
+                        throw new EOFException(segment.m_file.getAbsolutePath());
+                    }
+                    skip -= skipped;
+                }
+                m_index.put(new String(name, "UTF-8"), new CmsSegmentLocation(
+                    segment,
+                    dataPosition,
+                    length,
+                    lastAccess));
+                position = dataPosition + length;
+                segment.m_size = position;
+            }
+        } catch (EOFException e) {
+            // incomplete record at the end of the segment
+        } finally {
+            in.close();
         }
     }
-}
\ No newline at end of file
+}
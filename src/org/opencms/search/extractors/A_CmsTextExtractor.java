@@ -42,6 +42,7 @@ import org.apache.tika.metadata.Metadata;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.parser.Parser;
 import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
 
 /**
  * Base utility class that allows extraction of the indexable "plain" text from a given document format.<p>
@@ -68,6 +69,15 @@ public abstract class A_CmsTextExtractor implements I_CmsTextExtractor {
         return extractText(new ByteArrayInputStream(content), encoding);
     }
 
+    /**
+     * @see org.opencms.search.extractors.I_CmsTextExtractor#extractText(byte[], java.lang.String, int)
+     */
+    public I_CmsExtractionResult extractText(byte[] content, String encoding, int maxChars) throws Exception {
+
+        // call stream based method of extraction with encoding and limit
+        return extractText(new ByteArrayInputStream(content), encoding, maxChars);
+    }
+
     /**
      * @see org.opencms.search.extractors.I_CmsTextExtractor#extractText(java.io.InputStream)
      */
@@ -89,6 +99,17 @@ public abstract class A_CmsTextExtractor implements I_CmsTextExtractor {
         return extractText(text, encoding);
     }
 
+    /**
+     * Extracts the full result with {@link #extractText(InputStream, String)} and truncates it afterwards, 
+     * extractors that are able to stop the extraction early should override this method.<p>
+     * 
+     * @see org.opencms.search.extractors.I_CmsTextExtractor#extractText(java.io.InputStream, java.lang.String, int)
+     */
+    public I_CmsExtractionResult extractText(InputStream in, String encoding, int maxChars) throws Exception {
+
+        return truncate(extractText(in, encoding), maxChars);
+    }
+
     /**
      * Combines a meta information item extracted from the document with the main content buffer and 
      * also stores the individual information as item in the Map of content items.<p>
@@ -123,17 +144,50 @@ public abstract class A_CmsTextExtractor implements I_CmsTextExtractor {
      */
     protected CmsExtractionResult extractText(InputStream in, Parser parser) throws Exception {
 
+        return extractText(in, parser, -1);
+    }
+
+    /**
+     * Parses the given input stream with the provided parser and returns the result as a map of content items,
+     * keeping at most the given number of characters of the document text.<p>
+     * 
+     * The parser writes the document text directly to a buffer. Once the given number of characters 
+     * is reached, the parsing is stopped and the text extracted so far is used.<p>
+     * 
+     * @param in the input stream for the content to parse
+     * @param parser the parser to use
+     * @param maxChars the maximum number of characters to extract, or <code>-1</code> for no limit
+     * 
+     * @return the result of the parsing as a map of content items
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    protected CmsExtractionResult extractText(InputStream in, Parser parser, int maxChars) throws Exception {
+
         Map<String, String> contentItems = new HashMap<String, String>();
 
         StringWriter writer = new StringWriter();
-        BodyContentHandler handler = new BodyContentHandler(writer);
+        WriteOutContentHandler limitHandler = new WriteOutContentHandler(writer, maxChars);
+        BodyContentHandler handler = new BodyContentHandler(limitHandler);
         Metadata meta = new Metadata();
         ParseContext context = new ParseContext();
 
-        parser.parse(in, handler, meta, context);
-        in.close();
+        try {
+            parser.parse(in, handler, meta, context);
+        } catch (Exception e) {
+            if (!limitHandler.isWriteLimitReached(e)) {
+                throw e;
+            }
+            // the document contains more text than allowed, use the text extracted so far
+        } finally {
+            in.close();
+        }
 
         String result = writer.toString();
+        if ((maxChars >= 0) && (result.length() > maxChars)) {
+            // the limit applies to the document text only, so ignorable whitespace may exceed it
+            result = result.substring(0, maxChars);
+        }
 
         // add the main document text
         StringBuffer content = new StringBuffer(result);
@@ -240,4 +294,34 @@ public abstract class A_CmsTextExtractor implements I_CmsTextExtractor {
 
         return result.toString();
     }
+
+    /**
+     * Truncates the content and the content items of the given extraction result to the given number of characters.<p>
+     * 
+     * @param result the extraction result to truncate
+     * @param maxChars the maximum number of characters, or <code>-1</code> for no limit
+     * 
+     * @return the truncated extraction result, or the given result if it was short enough 
+     */
+    protected I_CmsExtractionResult truncate(I_CmsExtractionResult result, int maxChars) {
+
+        if ((result == null) || (maxChars < 0) || (result.getContent() == null)
+            || (result.getContent().length() <= maxChars)) {
+            return result;
+        }
+        Map<String, String> contentItems = new HashMap<String, String>();
+        if (result.getContentItems() != null) {
+            for (Map.Entry<String, String> entry : result.getContentItems().entrySet()) {
+                String value = entry.getValue();
+                if ((value != null) && (value.length() > maxChars)) {
+                    value = value.substring(0, maxChars);
+                }
+                contentItems.put(entry.getKey(), value);
+            }
+        }
+        return new CmsExtractionResult(
+            result.getContent().substring(0, maxChars),
+            contentItems,
+            result.getMappingFields());
+    }
 }
\ No newline at end of file
@@ -72,4 +72,13 @@ public final class CmsExtractorMsOfficeOLE2 extends A_CmsTextExtractor {
 
         return extractText(in, new OfficeParser());
     }
+
+    /**
+     * @see org.opencms.search.extractors.A_CmsTextExtractor#extractText(java.io.InputStream, java.lang.String, int)
+     */
+    @Override
+    public I_CmsExtractionResult extractText(InputStream in, String encoding, int maxChars) throws Exception {
+
+        return extractText(in, new OfficeParser(), maxChars);
+    }
 }
\ No newline at end of file
@@ -72,4 +72,13 @@ public final class CmsExtractorMsOfficeOOXML extends A_CmsTextExtractor {
 
         return extractText(in, new OOXMLParser());
     }
+
+    /**
+     * @see org.opencms.search.extractors.A_CmsTextExtractor#extractText(java.io.InputStream, java.lang.String, int)
+     */
+    @Override
+    public I_CmsExtractionResult extractText(InputStream in, String encoding, int maxChars) throws Exception {
+
+        return extractText(in, new OOXMLParser(), maxChars);
+    }
 }
\ No newline at end of file
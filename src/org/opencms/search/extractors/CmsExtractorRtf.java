@@ -67,4 +67,13 @@ public final class CmsExtractorRtf extends A_CmsTextExtractor {
 
         return extractText(in, new RTFParser());
     }
+
+    /**
+     * @see org.opencms.search.extractors.A_CmsTextExtractor#extractText(java.io.InputStream, java.lang.String, int)
+     */
+    @Override
+    public I_CmsExtractionResult extractText(InputStream in, String encoding, int maxChars) throws Exception {
+
+        return extractText(in, new RTFParser(), maxChars);
+    }
 }
\ No newline at end of file
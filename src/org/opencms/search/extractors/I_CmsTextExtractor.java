@@ -69,6 +69,24 @@ public interface I_CmsTextExtractor {
      */
     I_CmsExtractionResult extractText(byte[] content, String encoding) throws Exception;
 
+    /**
+     * Extracts the text and meta information from the given binary document, using the specified content encoding
+     * and keeping at most the given number of characters of the document text.<p>
+     * 
+     * Delivers is the same result as calling <code>{@link #extractText(InputStream, String, int)}</code>
+     * with an input stream on the binary content.<p>
+     * 
+     * @param content the binary content of the document to extract the text from
+     * @param encoding the encoding to use
+     * @param maxChars the maximum number of characters to extract from the document text, 
+     *      or <code>-1</code> for no limit
+     * 
+     * @return the extracted text
+     * 
+     * @throws Exception if the text extration fails
+     */
+    I_CmsExtractionResult extractText(byte[] content, String encoding, int maxChars) throws Exception;
+
     /**
      * Extracts the text and meta information from the document on the input stream.<p> 
      * 
@@ -100,4 +118,23 @@ public interface I_CmsTextExtractor {
      * @throws Exception if the text extration fails
      */
     I_CmsExtractionResult extractText(InputStream in, String encoding) throws Exception;
+
+    /**
+     * Extracts the text and meta information from the document on the input stream, using the specified content encoding
+     * and keeping at most the given number of characters of the document text.<p> 
+     * 
+     * The document text is streamed from the parser into a buffer that can not grow beyond the given number of 
+     * characters. If the document contains more text, the extraction stops and the result contains 
+     * the text extracted so far, so large documents are indexed partially instead of failing.<p>
+     * 
+     * @param in the input stream for the document to extract the text from
+     * @param encoding the encoding to use
+     * @param maxChars the maximum number of characters to extract from the document text, 
+     *      or <code>-1</code> for no limit
+     * 
+     * @return the extracted text and meta information 
+     * 
+     * @throws Exception if the text extration fails
+     */
+    I_CmsExtractionResult extractText(InputStream in, String encoding, int maxChars) throws Exception;
 }
\ No newline at end of file
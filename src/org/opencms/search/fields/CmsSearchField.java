@@ -68,21 +68,36 @@ public class CmsSearchField implements Serializable {
     /** Name of the field that contains the document creation date for fast lookup (hardcoded). */
     public static final String FIELD_DATE_CREATED_LOOKUP = "created_lookup";
 
+    /** Name of the numeric field that contains the document creation date for range filters (hardcoded). */
+    public static final String FIELD_DATE_CREATED_NUMERIC = "created_numeric";
+
     /** The field name for the expiration date. */
     public static final String FIELD_DATE_EXPIRED = "expired";
 
+    /** The numeric field name for the expiration date. */
+    public static final String FIELD_DATE_EXPIRED_NUMERIC = "expired_numeric";
+
     /** Name of the field that contains the document last modification date (hardcoded). */
     public static final String FIELD_DATE_LASTMODIFIED = "lastmodified";
 
     /** Name of the field that contains the document last modification date for fast lookup (hardcoded). */
     public static final String FIELD_DATE_LASTMODIFIED_LOOKUP = "lastmodified_lookup";
 
+    /** Name of the numeric field that contains the document last modification date for range filters (hardcoded). */
+    public static final String FIELD_DATE_LASTMODIFIED_NUMERIC = "lastmodified_numeric";
+
     /** The lookup suffix for date fields. */
     public static final String FIELD_DATE_LOOKUP_SUFFIX = "_lookup";
 
+    /** The numeric suffix for date fields. */
+    public static final String FIELD_DATE_NUMERIC_SUFFIX = "_numeric";
+
     /** The field name for the release date. */
     public static final String FIELD_DATE_RELEASED = "relased";
 
+    /** The numeric field name for the release date. */
+    public static final String FIELD_DATE_RELEASED_NUMERIC = "relased_numeric";
+
     /** The dependency type. */
     public static final String FIELD_DEPENDENCY_TYPE = "dependencyType";
 
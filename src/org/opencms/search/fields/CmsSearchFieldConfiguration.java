@@ -52,6 +52,10 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+
 /**
  * Abstract implementation for OpenCms search field configurations.<p>
  * 
@@ -428,7 +432,7 @@ public class CmsSearchFieldConfiguration implements Comparable<CmsSearchFieldCon
     }
 
     /**
-     * Extends the given document by fields for date of creation, content and last modification.<p>
+     * Extends the given document by fields for date of creation, content, last modification, release and expiration.<p>
      * 
      * @param document the document to extend
      * @param cms the OpenCms context used for building the search index
@@ -437,7 +441,7 @@ public class CmsSearchFieldConfiguration implements Comparable<CmsSearchFieldCon
      * @param properties the list of all properties directly attached to the resource (not searched)
      * @param propertiesSearched the list of all searched properties of the resource  
      * 
-     * @return the document extended by fields for date of creation, content and last modification
+     * @return the document extended by the date fields
      */
     protected I_CmsSearchDocument appendDates(
         I_CmsSearchDocument document,
@@ -450,6 +454,18 @@ public class CmsSearchFieldConfiguration implements Comparable<CmsSearchFieldCon
         document.addDateField(CmsSearchField.FIELD_DATE_CREATED, resource.getDateCreated(), true);
         document.addDateField(CmsSearchField.FIELD_DATE_LASTMODIFIED, resource.getDateLastModified(), true);
         document.addDateField(CmsSearchField.FIELD_DATE_CONTENT, resource.getDateContent(), false);
+        // the release and expiration dates are only used for range filters
+        Document doc = (Document)document.getDocument();
+        doc.add(new NumericField(
+            CmsSearchField.FIELD_DATE_RELEASED_NUMERIC,
+            CmsSearchIndex.NUMERIC_DATE_PRECISION_STEP,
+            Field.Store.NO,
+            true).setLongValue(resource.getDateReleased()));
+        doc.add(new NumericField(
+            CmsSearchField.FIELD_DATE_EXPIRED_NUMERIC,
+            CmsSearchIndex.NUMERIC_DATE_PRECISION_STEP,
+            Field.Store.NO,
+            true).setLongValue(resource.getDateExpired()));
 
         return document;
     }
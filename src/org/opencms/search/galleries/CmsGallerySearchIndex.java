@@ -28,6 +28,7 @@
 package org.opencms.search.galleries;
 
 import org.opencms.ade.galleries.shared.CmsGallerySearchScope;
+import org.opencms.configuration.CmsParameterConfiguration;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
@@ -49,13 +50,17 @@ import org.opencms.search.documents.I_CmsDocumentFactory;
 import org.opencms.search.documents.I_CmsTermHighlighter;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.search.fields.CmsSearchFieldConfiguration;
+import org.opencms.util.CmsPair;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.document.Document;
@@ -89,6 +94,12 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
     /** The advanced gallery index name. */
     public static final String GALLERY_INDEX_NAME = "Gallery Index";
 
+    /** Configuration parameter for the time in milliseconds search results are cached, 0 disables the cache. */
+    public static final String RESULT_CACHE_TTL = A_LEGACY_PARAM_PREFIX + ".resultCacheTtl";
+
+    /** The default time in milliseconds gallery search results are cached. */
+    public static final long RESULT_CACHE_TTL_DEFAULT = 5000;
+
     /** The gallery document type name for xml-contents. */
     public static final String TYPE_XMLCONTENT_GALLERIES = "xmlcontent-galleries";
 
@@ -101,6 +112,16 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsGallerySearchIndex.class);
 
+    /** The maximum number of entries kept in the result cache. */
+    private static final int RESULT_CACHE_MAX_ENTRIES = 500;
+
+    /** The cached search results with the time they were stored, by cache key. */
+    private Map<String, CmsPair<Long, CmsGallerySearchResultList>> m_resultCache =
+        new ConcurrentHashMap<String, CmsPair<Long, CmsGallerySearchResultList>>();
+
+    /** The time in milliseconds search results are cached. */
+    private long m_resultCacheTtl = RESULT_CACHE_TTL_DEFAULT;
+
     /**
      * Default constructor only intended to be used by the XML configuration. <p>
      * 
@@ -130,6 +151,36 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
         setRequireViewPermission(true);
     }
 
+    /**
+     * @see org.opencms.search.CmsSearchIndex#addConfigurationParameter(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void addConfigurationParameter(String key, String value) {
+
+        if (RESULT_CACHE_TTL.equals(key)) {
+            try {
+                m_resultCacheTtl = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_INVALID_PARAM_3, value, key, getName()));
+            }
+        } else {
+            super.addConfigurationParameter(key, value);
+        }
+    }
+
+    /**
+     * @see org.opencms.search.CmsSearchIndex#getConfiguration()
+     */
+    @Override
+    public CmsParameterConfiguration getConfiguration() {
+
+        CmsParameterConfiguration result = super.getConfiguration();
+        if (m_resultCacheTtl != RESULT_CACHE_TTL_DEFAULT) {
+            result.put(RESULT_CACHE_TTL, String.valueOf(m_resultCacheTtl));
+        }
+        return result;
+    }
+
     /**
      * Returns the Lucene document with the given structure id from the index.<p>
      * 
@@ -226,6 +277,13 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
     /**
      * Performs a search on the gallery index.<p>
      * 
+     * Searches are not serialized, each search uses its own index searcher.
+     * Results are cached for a short time, per user and for the current state of the index.<p>
+     * 
+     * Permission changes do not change the index, so a cached result may still contain a resource 
+     * the user can no longer read, or miss one the user can read now, until the result expires 
+     * after the time configured with {@link #RESULT_CACHE_TTL}.<p>
+     * 
      * @param cms the current users OpenCms context
      * @param params the parameters to use for the search
      * 
@@ -233,7 +291,7 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
      * 
      * @throws CmsSearchException if something goes wrong
      */
-    public synchronized CmsGallerySearchResultList searchGallery(CmsObject cms, CmsGallerySearchParameters params)
+    public CmsGallerySearchResultList searchGallery(CmsObject cms, CmsGallerySearchParameters params)
     throws CmsSearchException {
 
         // the hits found during the search
@@ -242,7 +300,22 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
         // storage for the results found
         CmsGallerySearchResultList searchResults = new CmsGallerySearchResultList();
 
+        // get an index searcher for this search only that is certainly up to date
+        IndexSearcher searcher = acquireSearcher();
+        String cacheKey = null;
         try {
+            if (searcher == null) {
+                throw new CmsSearchException(Messages.get().container(Messages.ERR_INDEX_SEARCHER_1, getName()));
+            }
+            if (m_resultCacheTtl > 0) {
+                cacheKey = getResultCacheKey(cms, params, searcher);
+                CmsGallerySearchResultList cachedResults = getCachedResults(cacheKey);
+                if (cachedResults != null) {
+                    searchResults.append(cachedResults);
+                    return searchResults;
+                }
+            }
+
             // copy the user OpenCms context
             CmsObject searchCms = OpenCms.initCmsObject(cms);
             // make sure to keep the request time when evaluating resource expiration
@@ -305,10 +378,6 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
             // store separate fields query for excerpt highlighting  
             Query fieldsQuery = null;
 
-            // get an index searcher that is certainly up to date
-            indexSearcherUpdate();
-            IndexSearcher searcher = getSearcher();
-
             Locale locale = params.getLocale() == null ? null : CmsLocaleManager.getLocale(params.getLocale());
             if (params.getSearchWords() != null) {
                 // this search contains a full text search component
@@ -362,7 +431,7 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
                 int visibleHitCount = hitCount;
                 for (int i = 0, cnt = 0; (i < hitCount) && (cnt < end); i++) {
                     try {
-                        doc = getSearcher().doc(hits.scoreDocs[i].doc);
+                        doc = searcher.doc(hits.scoreDocs[i].doc);
                         I_CmsSearchDocument searchDoc = new CmsLuceneDocument(doc);
                         if (hasReadPermission(searchCms, searchDoc)) {
                             // user has read permission
@@ -403,10 +472,17 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
                 searchResults.setHitCount(0);
             }
 
+            if (cacheKey != null) {
+                cacheResults(cacheKey, searchResults);
+            }
+        } catch (CmsSearchException e) {
+            throw e;
         } catch (RuntimeException e) {
             throw new CmsSearchException(Messages.get().container(Messages.ERR_SEARCH_PARAMS_1, params), e);
         } catch (Exception e) {
             throw new CmsSearchException(Messages.get().container(Messages.ERR_SEARCH_PARAMS_1, params), e);
+        } finally {
+            releaseSearcher(searcher);
         }
 
         return searchResults;
@@ -586,4 +662,72 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
         return null;
     }
 
+    /**
+     * Stores a copy of the given search results in the result cache.<p>
+     * 
+     * @param cacheKey the cache key
+     * @param results the search results to cache
+     */
+    private void cacheResults(String cacheKey, CmsGallerySearchResultList results) {
+
+        if (m_resultCache.size() >= RESULT_CACHE_MAX_ENTRIES) {
+            long now = System.currentTimeMillis();
+            Iterator<CmsPair<Long, CmsGallerySearchResultList>> i = m_resultCache.values().iterator();
+            while (i.hasNext()) {
+                if ((now - i.next().getFirst().longValue()) > m_resultCacheTtl) {
+                    i.remove();
+                }
+            }
+            if (m_resultCache.size() >= RESULT_CACHE_MAX_ENTRIES) {
+                // all entries are still valid, so start over rather than grow without bounds
+                m_resultCache.clear();
+            }
+        }
+        CmsGallerySearchResultList copy = new CmsGallerySearchResultList(results.size());
+        copy.append(results);
+        m_resultCache.put(cacheKey, CmsPair.create(Long.valueOf(System.currentTimeMillis()), copy));
+    }
+
+    /**
+     * Returns the cached search results for the given key.<p>
+     * 
+     * @param cacheKey the cache key
+     * 
+     * @return the cached search results, or <code>null</code> if there are no valid cached results
+     */
+    private CmsGallerySearchResultList getCachedResults(String cacheKey) {
+
+        CmsPair<Long, CmsGallerySearchResultList> entry = m_resultCache.get(cacheKey);
+        if (entry == null) {
+            return null;
+        }
+        if ((System.currentTimeMillis() - entry.getFirst().longValue()) > m_resultCacheTtl) {
+            m_resultCache.remove(cacheKey);
+            return null;
+        }
+        return entry.getSecond();
+    }
+
+    /**
+     * Returns the result cache key for a search.<p>
+     * 
+     * The key contains the user and the context the permissions are checked in, 
+     * and the version of the index the search runs on, so cached results are not used after the index changed.
+     * Changes of the access control entries do not update the index version, the key does not cover them.<p>
+     * 
+     * @param cms the current users OpenCms context
+     * @param params the search parameters
+     * @param searcher the index searcher used for the search
+     * 
+     * @return the result cache key
+     */
+    private String getResultCacheKey(CmsObject cms, CmsGallerySearchParameters params, IndexSearcher searcher) {
+
+        StringBuffer result = new StringBuffer(512);
+        result.append(cms.getRequestContext().getCurrentUser().getId()).append('|');
+        result.append(cms.getRequestContext().getSiteRoot()).append('|');
+        result.append(searcher.getIndexReader().getVersion()).append('|');
+        result.append(params.getCacheKey());
+        return result.toString();
+    }
 }
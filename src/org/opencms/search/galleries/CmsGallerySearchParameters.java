@@ -34,7 +34,9 @@ import org.opencms.search.CmsSearchParameters;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.search.fields.CmsSearchFieldConfiguration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.lucene.search.Sort;
@@ -353,6 +355,39 @@ public class CmsGallerySearchParameters {
         m_matchesPerPage = 10;
     }
 
+    /**
+     * Returns a key that identifies the search result produced by these parameters.<p>
+     * 
+     * The key is normalized, so parameters that differ only in the order of 
+     * list values which are combined with "or" in the search produce the same key.<p>
+     * 
+     * @return a key that identifies the search result produced by these parameters
+     */
+    public String getCacheKey() {
+
+        StringBuffer result = new StringBuffer(256);
+        appendSorted(result, getCategories());
+        appendSorted(result, getContainerTypes());
+        result.append(getDateCreatedRange().getStartTime()).append('-').append(getDateCreatedRange().getEndTime());
+        result.append('|');
+        result.append(getDateLastModifiedRange().getStartTime()).append('-').append(
+            getDateLastModifiedRange().getEndTime());
+        result.append('|');
+        appendSorted(result, getFields());
+        appendSorted(result, getFolders());
+        appendSorted(result, getGalleries());
+        result.append(isIgnoreSearchExclude()).append('|');
+        result.append(getLocale()).append('|');
+        result.append(getMatchesPerPage()).append('|');
+        result.append(getReferencePath()).append('|');
+        appendSorted(result, getResourceTypes());
+        result.append(getResultPage()).append('|');
+        result.append(getScope()).append('|');
+        result.append(getSortOrder()).append('|');
+        result.append(getSearchWords());
+        return result.toString();
+    }
+
     /**
      * Returns the categories that have been included in the search.<p>
      *
@@ -856,4 +891,22 @@ public class CmsGallerySearchParameters {
 
         return result;
     }
+
+    /**
+     * Appends the sorted values of the given list to the given buffer.<p>
+     * 
+     * @param buffer the buffer to append to
+     * @param values the values to append, may be <code>null</code>
+     */
+    private void appendSorted(StringBuffer buffer, List<String> values) {
+
+        if (values != null) {
+            List<String> sorted = new ArrayList<String>(values);
+            Collections.sort(sorted);
+            for (String value : sorted) {
+                buffer.append(value).append(',');
+            }
+        }
+        buffer.append('|');
+    }
 }
\ No newline at end of file
@@ -100,7 +100,9 @@ public abstract class A_CmsStaticExportHandler implements I_CmsStaticExportHandl
          */
         public boolean accept(File f) {
 
-            return f.getName().startsWith(m_baseName) && f.getName().endsWith(m_baseExtension);
+            return f.getName().startsWith(m_baseName)
+                && (f.getName().endsWith(m_baseExtension) || f.getName().endsWith(
+                    m_baseExtension + CmsStaticExportCompression.GZIP_SUFFIX));
         }
     }
 
@@ -308,6 +310,8 @@ public abstract class A_CmsStaticExportHandler implements I_CmsStaticExportHandl
 
         // first delete the base file
         deleteFile(rfsFile, vfsName);
+        // also delete the precompressed sibling of the base file
+        deleteFile(new File(rfsFilePath + CmsStaticExportCompression.GZIP_SUFFIX), vfsName);
 
         // now delete the file parameter variations
         // get the parent folder
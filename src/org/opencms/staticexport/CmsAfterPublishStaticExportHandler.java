@@ -57,7 +57,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
@@ -273,6 +279,8 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
 
             // do the export
             doExportAfterPublish(publishedResources, report);
+            // remember the content hashes of the written files for the next export
+            OpenCms.getStaticExportManager().writeExportManifests();
         }
 
     }
@@ -594,9 +602,86 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
         return status;
     }
 
+    /**
+     * Exports a single (template) resource specified by its export data by rendering it inside 
+     * the OpenCms web application, without sending a http request.<p>
+     * 
+     * @param cms the cms context, in the root site as Export user
+     * @param data the export data
+     * 
+     * @return the status of the export, using the same codes as the http request in 
+     *      {@link #exportTemplateResource(CmsStaticExportData, StringBuffer)}
+     */
+    protected int exportTemplateResourceInProcess(CmsObject cms, CmsStaticExportData data) {
+
+        return exportTemplateResourceInProcess(
+            cms,
+            data,
+            OpenCms.getSystemInfo().getServletContainerSettings().getServletContext());
+    }
+
+    /**
+     * Exports a single (template) resource specified by its export data by rendering it with 
+     * the given servlet context, without sending a http request.<p>
+     * 
+     * @param cms the cms context, in the root site as Export user
+     * @param data the export data
+     * @param context the servlet context used to dispatch to the JSP pages
+     * 
+     * @return the status of the export, using the same codes as the http request in 
+     *      {@link #exportTemplateResource(CmsStaticExportData, StringBuffer)}
+     */
+    protected int exportTemplateResourceInProcess(CmsObject cms, CmsStaticExportData data, ServletContext context) {
+
+        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+        String vfsName = data.getVfsName();
+        String siteRoot = OpenCms.getSiteManager().getSiteRoot(vfsName);
+        if (siteRoot != null) {
+            vfsName = vfsName.substring(siteRoot.length());
+        }
+        try {
+            CmsStaticExportRenderRequest req = new CmsStaticExportRenderRequest(
+                context,
+                manager.getExportUrl(),
+                vfsName);
+            // add the same headers as for the export through the export URL
+            req.setHeader(CmsRequestUtil.HEADER_OPENCMS_EXPORT, CmsStringUtil.TRUE);
+            if (manager.getAcceptLanguageHeader() != null) {
+                req.setHeader(CmsRequestUtil.HEADER_ACCEPT_LANGUAGE, manager.getAcceptLanguageHeader());
+            } else {
+                req.setHeader(CmsRequestUtil.HEADER_ACCEPT_LANGUAGE, manager.getDefaultAcceptLanguageHeader());
+            }
+            if (manager.getAcceptCharsetHeader() != null) {
+                req.setHeader(CmsRequestUtil.HEADER_ACCEPT_CHARSET, manager.getAcceptCharsetHeader());
+            } else {
+                req.setHeader(CmsRequestUtil.HEADER_ACCEPT_CHARSET, manager.getDefaultAcceptCharsetHeader());
+            }
+            if (manager.getRemoteAddr() != null) {
+                req.setRemoteAddr(manager.getRemoteAddr());
+            }
+            CmsStaticExportRenderResponse res = new CmsStaticExportRenderResponse();
+            int status = manager.export(new CmsStaticExportRequest(req, data), res, cms, data);
+            if (LOG.isInfoEnabled()) {
+                LOG.info(Messages.get().getBundle().key(
+                    Messages.LOG_EXPORT_FILE_STATUS_3,
+                    data.getVfsName(),
+                    data.getRfsName(),
+                    new Integer(status)));
+            }
+            return status;
+        } catch (Exception e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_RENDER_TEMPLATE_FAILED_1, data.getRfsName()), e);
+            return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+    }
+
     /**
      * Exports all template resources found in a list of published resources.<p>
      * 
+     * If render threads are configured in the static export manager, the resources are rendered in-process 
+     * by {@link #exportTemplateResourcesInProcess(CmsObject, List, I_CmsReport, int)}. Otherwise, a http 
+     * request is sent to the export URL for each resource.<p>
+     * 
      * @param cms the cms context, in the root site as Export user
      * @param publishedTemplateResources list of potential candidates to export
      * @param report an I_CmsReport instance to print output message, or null to write messages to the log file    
@@ -604,6 +689,14 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
     protected void exportTemplateResources(CmsObject cms, List<String> publishedTemplateResources, I_CmsReport report) {
 
         CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+        if (manager.getRenderThreads() > 0) {
+            if (OpenCms.getSystemInfo().getServletContainerSettings().getServletContext() != null) {
+                exportTemplateResourcesInProcess(cms, publishedTemplateResources, report, manager.getRenderThreads());
+                return;
+            }
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_RENDER_IN_PROCESS_UNAVAILABLE_0));
+        }
+
         int size = publishedTemplateResources.size();
         int count = 1;
 
@@ -619,38 +712,9 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
         Iterator<String> i = publishedTemplateResources.iterator();
         while (i.hasNext()) {
             String rfsName = i.next();
-            CmsStaticExportData data = null;
-            try {
-                data = manager.getVfsNameInternal(cms, rfsName);
-            } catch (CmsVfsResourceNotFoundException e) {
-                String rfsBaseName = rfsName;
-                int pos = rfsName.lastIndexOf('_');
-                if (pos >= 0) {
-                    rfsBaseName = rfsName.substring(0, pos);
-                }
-                try {
-                    data = manager.getVfsNameInternal(cms, rfsBaseName);
-                } catch (CmsVfsResourceNotFoundException e2) {
-                    if (LOG.isInfoEnabled()) {
-                        LOG.info(Messages.get().getBundle().key(
-                            Messages.LOG_NO_INTERNAL_VFS_RESOURCE_FOUND_1,
-                            new String[] {rfsName}));
-                    }
-                }
-            }
+            CmsStaticExportData data = readTemplateExportData(cms, rfsName);
             if (data != null) {
-                data.setRfsName(rfsName);
-                report.print(
-                    org.opencms.report.Messages.get().container(
-                        org.opencms.report.Messages.RPT_SUCCESSION_2,
-                        new Integer(count++),
-                        new Integer(size)),
-                    I_CmsReport.FORMAT_NOTE);
-                report.print(Messages.get().container(Messages.RPT_EXPORTING_0), I_CmsReport.FORMAT_NOTE);
-                report.print(org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    rfsName));
-                report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+                reportTemplateExportStart(report, count++, size, rfsName);
             } else {
                 // no valid resource found for rfs name (already deleted), skip it
                 continue;
@@ -676,25 +740,7 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
                 int status = exportTemplateResource(data, cookies);
 
                 // write the report
-                if (status == HttpServletResponse.SC_OK) {
-                    report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                        I_CmsReport.FORMAT_OK);
-                } else if (status == HttpServletResponse.SC_NOT_MODIFIED) {
-                    report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
-                        I_CmsReport.FORMAT_NOTE);
-                } else if (status == HttpServletResponse.SC_SEE_OTHER) {
-                    report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_IGNORED_0),
-                        I_CmsReport.FORMAT_NOTE);
-                } else {
-                    report.println(
-                        org.opencms.report.Messages.get().container(
-                            org.opencms.report.Messages.RPT_ARGUMENT_1,
-                            new Integer(status)),
-                        I_CmsReport.FORMAT_OK);
-                }
+                reportTemplateExportStatus(report, status);
             } catch (IOException e) {
                 report.println(e);
             }
@@ -706,6 +752,131 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
             I_CmsReport.FORMAT_HEADLINE);
     }
 
+    /**
+     * Exports all template resources found in a list of published resources by rendering them 
+     * inside the OpenCms web application, using a bounded pool of render threads.<p>
+     * 
+     * The calling thread renders resources itself if all render threads are busy and the queue 
+     * of waiting resources is full. The report receives one line per exported resource, 
+     * followed by the total time and the throughput.<p>
+     * 
+     * @param cms the cms context, in the root site as Export user
+     * @param publishedTemplateResources list of potential candidates to export
+     * @param report an I_CmsReport instance to print output message
+     * @param renderThreads the number of render threads to use 
+     */
+    protected void exportTemplateResourcesInProcess(
+        final CmsObject cms,
+        List<String> publishedTemplateResources,
+        final I_CmsReport report,
+        int renderThreads) {
+
+        final CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+        final int size = publishedTemplateResources.size();
+        final AtomicInteger count = new AtomicInteger();
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_EXPORT_TEMPLATES_1, new Integer(size)));
+        }
+        report.println(
+            Messages.get().container(Messages.RPT_STATICEXPORT_TEMPLATE_RESOURCES_BEGIN_0),
+            I_CmsReport.FORMAT_HEADLINE);
+
+        long startTime = System.currentTimeMillis();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            renderThreads,
+            renderThreads,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(renderThreads * 2),
+            new ThreadFactory() {
+
+                /** The number of created threads. */
+                private AtomicInteger m_threadCount = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "OpenCms: Static export render thread "
+                        + m_threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (final String rfsName : publishedTemplateResources) {
+                executor.execute(new Runnable() {
+
+                    public void run() {
+
+                        // every render thread needs its own context, since the export modifies it
+                        CmsObject renderCms;
+                        try {
+                            renderCms = OpenCms.initCmsObject(cms);
+                        } catch (CmsException e) {
+                            LOG.error(e.getLocalizedMessage(), e);
+                            synchronized (report) {
+                                reportTemplateExportStart(report, count.incrementAndGet(), size, rfsName);
+                                report.println(e);
+                            }
+                            return;
+                        }
+                        CmsStaticExportData data = readTemplateExportData(renderCms, rfsName);
+                        if (data == null) {
+                            // no valid resource found for rfs name (already deleted), skip it
+                            return;
+                        }
+                        try {
+                            Collection<String> detailPages = CmsDetailPageUtil.getAllDetailPagesWithUrlName(
+                                renderCms,
+                                data.getResource());
+                            for (String detailPageUri : detailPages) {
+                                String altRfsName = manager.getRfsName(renderCms, detailPageUri);
+                                CmsStaticExportData detailData = new CmsStaticExportData(
+                                    data.getVfsName(),
+                                    altRfsName,
+                                    data.getResource(),
+                                    data.getParameters());
+                                exportTemplateResourceInProcess(renderCms, detailData);
+                            }
+                        } catch (CmsException e) {
+                            LOG.error(e.getLocalizedMessage(), e);
+                        }
+                        int status = exportTemplateResourceInProcess(renderCms, data);
+                        // print the complete report line at once, so that lines of different threads do not mix 
+                        synchronized (report) {
+                            reportTemplateExportStart(report, count.incrementAndGet(), size, rfsName);
+                            reportTemplateExportStatus(report, status);
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // keep waiting for the render threads
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long time = Math.max(1, System.currentTimeMillis() - startTime);
+        Object[] stats = new Object[] {
+            new Integer(count.get()),
+            new Integer(renderThreads),
+            new Long(time),
+            new Long((count.get() * 1000L) / time)};
+        report.println(
+            Messages.get().container(Messages.RPT_STATICEXPORT_TEMPLATE_RESOURCES_STATS_4, stats),
+            I_CmsReport.FORMAT_NOTE);
+        report.println(
+            Messages.get().container(Messages.RPT_STATICEXPORT_TEMPLATE_RESOURCES_END_0),
+            I_CmsReport.FORMAT_HEADLINE);
+    }
+
     /**
      * @see org.opencms.staticexport.A_CmsStaticExportHandler#getRelatedFilesToPurge(java.lang.String, java.lang.String)
      */
@@ -890,4 +1061,90 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
 
         return templatesFound;
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads the export data for a template resource by its rfs name.<p>
+     * 
+     * @param cms the cms context, in the root site as Export user
+     * @param rfsName the rfs name of the template resource 
+     * 
+     * @return the export data, or <code>null</code> if no resource was found for the rfs name
+     */
+    protected CmsStaticExportData readTemplateExportData(CmsObject cms, String rfsName) {
+
+        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+        CmsStaticExportData data = null;
+        try {
+            data = manager.getVfsNameInternal(cms, rfsName);
+        } catch (CmsVfsResourceNotFoundException e) {
+            String rfsBaseName = rfsName;
+            int pos = rfsName.lastIndexOf('_');
+            if (pos >= 0) {
+                rfsBaseName = rfsName.substring(0, pos);
+            }
+            try {
+                data = manager.getVfsNameInternal(cms, rfsBaseName);
+            } catch (CmsVfsResourceNotFoundException e2) {
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(Messages.get().getBundle().key(
+                        Messages.LOG_NO_INTERNAL_VFS_RESOURCE_FOUND_1,
+                        new String[] {rfsName}));
+                }
+            }
+        }
+        if (data != null) {
+            data.setRfsName(rfsName);
+        }
+        return data;
+    }
+
+    /**
+     * Prints the report line prefix for the export of a template resource.<p>
+     * 
+     * @param report the report 
+     * @param count the number of the resource 
+     * @param size the total number of resources 
+     * @param rfsName the rfs name of the resource
+     */
+    private void reportTemplateExportStart(I_CmsReport report, int count, int size, String rfsName) {
+
+        report.print(
+            org.opencms.report.Messages.get().container(
+                org.opencms.report.Messages.RPT_SUCCESSION_2,
+                new Integer(count),
+                new Integer(size)),
+            I_CmsReport.FORMAT_NOTE);
+        report.print(Messages.get().container(Messages.RPT_EXPORTING_0), I_CmsReport.FORMAT_NOTE);
+        report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ARGUMENT_1, rfsName));
+        report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+    }
+
+    /**
+     * Prints the result of the export of a template resource to the report.<p>
+     * 
+     * @param report the report 
+     * @param status the status of the export
+     */
+    private void reportTemplateExportStatus(I_CmsReport report, int status) {
+
+        if (status == HttpServletResponse.SC_OK) {
+            report.println(
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                I_CmsReport.FORMAT_OK);
+        } else if (status == HttpServletResponse.SC_NOT_MODIFIED) {
+            report.println(
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
+                I_CmsReport.FORMAT_NOTE);
+        } else if (status == HttpServletResponse.SC_SEE_OTHER) {
+            report.println(
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_IGNORED_0),
+                I_CmsReport.FORMAT_NOTE);
+        } else {
+            report.println(
+                org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_ARGUMENT_1,
+                    new Integer(status)),
+                I_CmsReport.FORMAT_OK);
+        }
+    }
+}
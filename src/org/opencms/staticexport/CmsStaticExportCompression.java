@@ -0,0 +1,291 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.staticexport;
+
+import org.opencms.main.CmsLog;
+import org.opencms.util.CmsStringUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Rules for keeping precompressed (gzip) representations of static export files 
+ * and of Flex cache entries.<p>
+ * 
+ * Content is compressed if compression is enabled, its MIME type matches one of the 
+ * configured MIME type rules and it is at least as large as the minimum size of that rule.
+ * A MIME type rule may end with <code>/*</code> to match all subtypes.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsStaticExportCompression {
+
+    /** The MIME types compressed if no MIME type rules are configured. */
+    public static final List<String> DEFAULT_MIME_TYPES = Collections.unmodifiableList(Arrays.asList(new String[] {
+        "text/*",
+        "application/javascript",
+        "application/x-javascript",
+        "application/json",
+        "application/xml",
+        "image/svg+xml"}));
+
+    /** The default minimum size in bytes of compressed content. */
+    public static final int DEFAULT_MIN_SIZE = 1024;
+
+    /** The value of the "Content-Encoding" header for gzip compressed content. */
+    public static final String ENCODING_GZIP = "gzip";
+
+    /** The suffix of the compressed sibling files in the static export. */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /** The name of the "Accept-Encoding" request header. */
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+
+    /** The name of the "Content-Encoding" response header. */
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    /** The name of the "Vary" response header. */
+    public static final String HEADER_VARY = "Vary";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsStaticExportCompression.class);
+
+    /** Indicates if compression is enabled. */
+    private boolean m_enabled;
+
+    /** The configured MIME type rules with their minimum sizes, or <code>null</code> for the default size. */
+    private Map<String, Integer> m_mimeTypes;
+
+    /** The minimum size in bytes of compressed content. */
+    private int m_minSize;
+
+    /**
+     * Creates new, disabled compression settings.<p>
+     */
+    public CmsStaticExportCompression() {
+
+        m_minSize = DEFAULT_MIN_SIZE;
+        m_mimeTypes = new LinkedHashMap<String, Integer>();
+    }
+
+    /**
+     * Checks if the given request accepts gzip compressed content.<p>
+     * 
+     * @param req the request to check
+     * 
+     * @return <code>true</code> if the given request accepts gzip compressed content
+     */
+    public static boolean acceptsGzip(HttpServletRequest req) {
+
+        String header = req.getHeader(HEADER_ACCEPT_ENCODING);
+        if (header == null) {
+            return false;
+        }
+        Iterator<String> it = CmsStringUtil.splitAsList(header, ',', true).iterator();
+        while (it.hasNext()) {
+            String coding = it.next();
+            String quality = null;
+            int pos = coding.indexOf(';');
+            if (pos >= 0) {
+                quality = coding.substring(pos + 1).trim();
+                coding = coding.substring(0, pos).trim();
+            }
+            if (ENCODING_GZIP.equalsIgnoreCase(coding) || "*".equals(coding)) {
+                // "q=0" means the coding is not acceptable
+                return (quality == null) || !quality.matches("q\\s*=\\s*0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the gzip compressed form of the given content.<p>
+     * 
+     * @param content the content to compress
+     * 
+     * @return the compressed content
+     */
+    public static byte[] gzip(byte[] content) {
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(content.length / 4);
+        try {
+            GZIPOutputStream out = new GZIPOutputStream(result);
+            out.write(content);
+            out.close();
+        } catch (IOException e) {
+            // can not happen for an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Adds a MIME type rule.<p>
+     * 
+     * @param mimeType the MIME type, may end with <code>/*</code> 
+     * @param minSize the minimum size for this MIME type, or <code>null</code> to use the default minimum size
+     */
+    public void addMimeType(String mimeType, String minSize) {
+
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(mimeType)) {
+            return;
+        }
+        Integer size = null;
+        if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(minSize)) {
+            try {
+                size = Integer.valueOf(minSize.trim());
+            } catch (NumberFormatException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_COMPRESSION_INVALID_MIN_SIZE_1, minSize), e);
+            }
+        }
+        m_mimeTypes.put(mimeType.trim().toLowerCase(Locale.ENGLISH), size);
+    }
+
+    /**
+     * Returns the configured MIME type rules, with the minimum size of each rule,
+     * or <code>null</code> for rules using the default minimum size.<p>
+     * 
+     * @return the configured MIME type rules
+     */
+    public Map<String, Integer> getMimeTypes() {
+
+        return Collections.unmodifiableMap(m_mimeTypes);
+    }
+
+    /**
+     * Returns the default minimum size in bytes of compressed content.<p>
+     * 
+     * @return the default minimum size in bytes of compressed content
+     */
+    public int getMinSize() {
+
+        return m_minSize;
+    }
+
+    /**
+     * Checks if content with the given MIME type and length should be compressed.<p>
+     * 
+     * @param mimeType the MIME type of the content, may contain parameters like the charset
+     * @param length the length of the content in bytes
+     * 
+     * @return <code>true</code> if the content should be compressed
+     */
+    public boolean isCompressible(String mimeType, int length) {
+
+        if (!m_enabled || (mimeType == null)) {
+            return false;
+        }
+        String type = mimeType;
+        int pos = type.indexOf(';');
+        if (pos >= 0) {
+            type = type.substring(0, pos);
+        }
+        type = type.trim().toLowerCase(Locale.ENGLISH);
+        if (m_mimeTypes.isEmpty()) {
+            Iterator<String> it = DEFAULT_MIME_TYPES.iterator();
+            while (it.hasNext()) {
+                if (matches(it.next(), type)) {
+                    return length >= m_minSize;
+                }
+            }
+            return false;
+        }
+        Iterator<Map.Entry<String, Integer>> it = m_mimeTypes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Integer> rule = it.next();
+            if (matches(rule.getKey(), type)) {
+                int minSize = (rule.getValue() != null) ? rule.getValue().intValue() : m_minSize;
+                return length >= minSize;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if compression is enabled.<p>
+     * 
+     * @return <code>true</code> if compression is enabled
+     */
+    public boolean isEnabled() {
+
+        return m_enabled;
+    }
+
+    /**
+     * Enables or disables compression.<p>
+     * 
+     * @param enabled <code>"true"</code> to enable compression
+     */
+    public void setEnabled(String enabled) {
+
+        m_enabled = Boolean.valueOf(enabled).booleanValue();
+    }
+
+    /**
+     * Sets the default minimum size in bytes of compressed content.<p>
+     * 
+     * @param minSize the default minimum size in bytes
+     */
+    public void setMinSize(String minSize) {
+
+        try {
+            m_minSize = Math.max(0, Integer.parseInt(minSize.trim()));
+        } catch (NumberFormatException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_COMPRESSION_INVALID_MIN_SIZE_1, minSize), e);
+        }
+    }
+
+    /**
+     * Checks if the given MIME type rule matches the given MIME type.<p>
+     * 
+     * @param rule the MIME type rule
+     * @param mimeType the MIME type, without parameters and in lower case
+     * 
+     * @return <code>true</code> if the rule matches
+     */
+    private boolean matches(String rule, String mimeType) {
+
+        if (rule.endsWith("/*")) {
+            return mimeType.startsWith(rule.substring(0, rule.length() - 1));
+        }
+        return rule.equals(mimeType);
+    }
+}
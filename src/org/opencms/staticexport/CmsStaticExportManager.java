@@ -73,6 +73,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -84,6 +85,12 @@ import org.apache.commons.logging.Log;
  * Provides the functionality to export resources from the OpenCms VFS
  * to the file system.<p>
  * 
+ * Export files are written to a temporary file in the same folder first, which is then renamed 
+ * to the export file. The temporary files start with a <code>.</code> and end with 
+ * {@link #EXPORT_TEMP_FILE_SUFFIX}. A web server that serves the export folders directly 
+ * should deny requests for such files, e.g. for Apache httpd with 
+ * <code>&lt;FilesMatch "^\..*\.tmp$"&gt;Require all denied&lt;/FilesMatch&gt;</code>.<p>
+ * 
  * @since 6.0.0 
  */
 public class CmsStaticExportManager implements I_CmsEventListener {
@@ -121,6 +128,12 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** Flag value for links without parameters. */
     public static final int EXPORT_LINK_WITHOUT_PARAMETER = 1;
 
+    /** Path of the folder for the content hash manifests of the export roots, outside of all export roots. */
+    public static final String EXPORT_MANIFEST_PATH = CmsSystemInfo.FOLDER_WEBINF + "exportmanifests";
+
+    /** Suffix of the temporary files written to the export folders. */
+    public static final String EXPORT_TEMP_FILE_SUFFIX = ".tmp";
+
     /** Marker for externally redirected 404 uri's. */
     public static final String EXPORT_MARKER = "exporturi";
 
@@ -157,6 +170,9 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** Cache for the secure links. */
     private Map<String, String> m_cacheSecureLinks;
 
+    /** The rules for precompressed export files and Flex cache entries. */
+    private CmsStaticExportCompression m_compression;
+
     /** OpenCms default charset header. */
     private String m_defaultAcceptCharsetHeader;
 
@@ -172,6 +188,12 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** The additional http headers for the static export. */
     private List<String> m_exportHeaders;
 
+    /** The folder of the content hash manifests. */
+    private String m_exportManifestPath;
+
+    /** The content hash manifests of the export roots, keyed by the normalized export path. */
+    private ConcurrentHashMap<String, CmsStaticExportManifest> m_exportManifests;
+
     /** List of all resources that have the "exportname" property set: &lt;system-wide unique export name, root path&gt;. */
     private Map<String, String> m_exportnameResources;
 
@@ -223,6 +245,9 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** Remote address. */
     private String m_remoteAddr;
 
+    /** The number of threads rendering template resources in-process, 0 if they are requested from the export URL. */
+    private int m_renderThreads;
+
     /** Prefix to use for exported files. */
     private String m_rfsPrefix;
 
@@ -274,6 +299,8 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         m_lockCmsEvent = new Object();
         m_lockScrubExportFolders = new Object();
         m_lockSetExportnames = new Object();
+        m_exportManifests = new ConcurrentHashMap<String, CmsStaticExportManifest>();
+        m_compression = new CmsStaticExportCompression();
         m_exportSuffixes = new ArrayList<String>();
         m_exportFolders = new ArrayList<String>();
         m_exportHeaders = new ArrayList<String>();
@@ -443,6 +470,11 @@ public class CmsStaticExportManager implements I_CmsEventListener {
                     }
                     return;
                 }
+                if (event.isClusterEvent()) {
+                    // the after publish export has been done by the publishing node
+                    clearCaches(event);
+                    break;
+                }
                 // event data contains a list of the published resources
                 CmsUUID publishHistoryId = new CmsUUID((String)data.get(I_CmsEventListener.KEY_PUBLISHID));
                 if (LOG.isDebugEnabled()) {
@@ -684,32 +716,31 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         // set member to false for further exports
         m_fullStaticExport = false;
 
+        // the manifests must be written before the work folders are swapped into place
+        writeExportManifests();
+
         // check if report contents no errors
         if (m_useTempDirs && !report.hasError()) {
-            // backup old export folders for default export 
-            File staticExport = new File(m_staticExportPath);
-            createExportBackupFolders(staticExport, m_staticExportPath, getExportBackups().intValue(), null);
+            // swap the used temporary export folder into place of the default export path
+            swapExportFolder(m_staticExportWorkPath, m_staticExportPath, getExportBackups().intValue(), null);
+            swapExportManifest(m_staticExportWorkPath, m_staticExportPath);
 
-            // change the name of the used temporary export folder to the original default export path
-            File staticExportWork = new File(m_staticExportWorkPath);
-            staticExportWork.renameTo(new File(m_staticExportPath));
-
-            // backup old export folders of rule based exports
+            // swap the temporary export folders of rule based exports
             Iterator<CmsStaticExportRfsRule> it = m_rfsRules.iterator();
             while (it.hasNext()) {
                 CmsStaticExportRfsRule rule = it.next();
-                File staticExportRule = new File(rule.getExportPath());
-                File staticExportWorkRule = new File(rule.getExportWorkPath());
-                // only backup if a temporary folder exists for this rule
-                if (staticExportWorkRule.exists()) {
-                    createExportBackupFolders(
-                        staticExportRule,
+                // only swap if a temporary folder exists for this rule
+                if (new File(rule.getExportWorkPath()).exists()) {
+                    swapExportFolder(
+                        rule.getExportWorkPath(),
                         rule.getExportPath(),
                         rule.getExportBackups().intValue(),
                         OpenCms.getResourceManager().getFileTranslator().translateResource(rule.getName()));
-                    staticExportWorkRule.renameTo(new File(rule.getExportPath()));
+                    swapExportManifest(rule.getExportWorkPath(), rule.getExportPath());
                 }
             }
+            // the manifests are read again from the swapped folders when required
+            m_exportManifests.clear();
         } else if (report.hasError()) {
             report.println(Messages.get().container(Messages.ERR_EXPORT_NOT_SUCCESSFUL_0), I_CmsReport.FORMAT_WARNING);
         }
@@ -760,6 +791,16 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         return new StringBuffer(siteRoot).append(uri).toString();
     }
 
+    /**
+     * Returns the rules for precompressed export files and Flex cache entries.<p>
+     * 
+     * @return the rules for precompressed export files and Flex cache entries
+     */
+    public CmsStaticExportCompression getCompression() {
+
+        return m_compression;
+    }
+
     /**
      * Gets the default property value as a string representation.<p>
      * 
@@ -1170,6 +1211,24 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         return m_remoteAddr;
     }
 
+    /**
+     * Returns the number of threads used by the {@link CmsAfterPublishStaticExportHandler} 
+     * for rendering template resources in-process.<p>
+     * 
+     * The setting applies to the "after publish" export if that handler is configured, and to the 
+     * "full static render" export, see {@link #exportFullStaticRender(boolean, I_CmsReport)}, 
+     * which always uses that handler. Other export handlers ignore it.<p>
+     * 
+     * If this is <code>0</code>, template resources are exported by sending a http request 
+     * for each resource to the export URL.<p>
+     * 
+     * @return the number of render threads
+     */
+    public int getRenderThreads() {
+
+        return m_renderThreads;
+    }
+
     /**
      * Returns the static export rfs name for a given vfs resource.<p>
      * 
@@ -1539,6 +1598,7 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         // initialize static export RFS path (relative to web application)
         m_staticExportPath = normalizeExportPath(m_staticExportPathConfigured);
         m_staticExportWorkPath = normalizeExportPath(getExportWorkPathForConfiguration());
+        m_exportManifestPath = normalizeExportPath(EXPORT_MANIFEST_PATH);
         if (m_staticExportPath.equals(OpenCms.getSystemInfo().getWebApplicationRfsPath())) {
             throw new CmsIllegalArgumentException(Messages.get().container(Messages.ERR_INVALID_EXPORT_PATH_0));
         }
@@ -1960,6 +2020,16 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         m_acceptLanguageHeader = value;
     }
 
+    /**
+     * Sets the rules for precompressed export files and Flex cache entries.<p>
+     * 
+     * @param compression the compression rules
+     */
+    public void setCompression(CmsStaticExportCompression compression) {
+
+        m_compression = compression;
+    }
+
     /**
      * Sets the default property value.<p>
      * 
@@ -2122,6 +2192,16 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         m_remoteAddr = addr;
     }
 
+    /**
+     * Sets the number of threads used for rendering template resources in-process.<p>
+     * 
+     * @param renderThreads the number of render threads, <code>0</code> for exporting through the export URL 
+     */
+    public void setRenderThreads(String renderThreads) {
+
+        m_renderThreads = Math.max(0, Integer.parseInt(renderThreads.trim()));
+    }
+
     /**
      * Sets the prefix for exported links in the "real" file system.<p>
      * 
@@ -2178,12 +2258,27 @@ public class CmsStaticExportManager implements I_CmsEventListener {
             }
         }
 
+        writeExportManifests();
+
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_SHUTDOWN_1, this.getClass().getName()));
         }
 
     }
 
+    /**
+     * Writes the changed content hash manifests of all export roots to the RFS.<p>
+     * 
+     * This is called by the static export handlers after an export has finished.<p>
+     */
+    public void writeExportManifests() {
+
+        Iterator<CmsStaticExportManifest> it = m_exportManifests.values().iterator();
+        while (it.hasNext()) {
+            it.next().write();
+        }
+    }
+
     /**
      * Clears the caches in the export manager.<p>
      * 
@@ -2290,6 +2385,27 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         return m_cacheSecureLinks;
     }
 
+    /**
+     * Returns the content hash manifest for the given export root.<p>
+     * 
+     * @param exportPath the export root
+     * 
+     * @return the content hash manifest
+     */
+    protected CmsStaticExportManifest getExportManifest(String exportPath) {
+
+        String key = CmsFileUtil.normalizePath(exportPath + '/');
+        CmsStaticExportManifest manifest = m_exportManifests.get(key);
+        if (manifest == null) {
+            manifest = new CmsStaticExportManifest(key, m_exportManifestPath);
+            CmsStaticExportManifest existing = m_exportManifests.putIfAbsent(key, manifest);
+            if (existing != null) {
+                manifest = existing;
+            }
+        }
+        return manifest;
+    }
+
     /**
      * Returns the export data for a requested resource, if null is returned no export is required.<p>
      * 
@@ -2696,6 +2812,8 @@ public class CmsStaticExportManager implements I_CmsEventListener {
                     }
                 }
             }
+            // the purged folders no longer contain the files listed in the manifests
+            m_exportManifests.clear();
         }
         if (report != null) {
             report.println(
@@ -2704,6 +2822,78 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Replaces an export folder with the given work folder.<p>
+     * 
+     * The previous export folder is renamed to a backup folder, or to a trash folder if no backups 
+     * are kept, before the work folder is renamed to the export folder. Both are single rename operations, 
+     * so the web server never sees a partially built or purged export folder. 
+     * The trash folder is deleted only after the new export folder is in place.<p>
+     * 
+     * @param workPath the work folder containing the new export
+     * @param exportPath the export folder to replace
+     * @param exportBackups the number of backup folders to keep
+     * @param ruleBackupExtension extension for rule based backups
+     */
+    protected void swapExportFolder(String workPath, String exportPath, int exportBackups, String ruleBackupExtension) {
+
+        File staticExport = new File(exportPath);
+        File staticExportWork = new File(workPath);
+        File staticExportTrash = null;
+        if (exportBackups > 0) {
+            // move the old export folder to the first backup folder
+            createExportBackupFolders(staticExport, exportPath, exportBackups, ruleBackupExtension);
+        } else if (staticExport.exists()) {
+            // move the old export folder out of the way, it is deleted after the swap
+            staticExportTrash = new File(staticExport.getParentFile(), staticExport.getName()
+                + "."
+                + new CmsUUID()
+                + ".old");
+            if (!staticExport.renameTo(staticExportTrash)) {
+                // fall back to purging the old export before the swap
+                staticExportTrash = null;
+                CmsFileUtil.purgeDirectory(staticExport);
+            }
+        }
+        if (!staticExportWork.renameTo(staticExport)) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_EXPORT_FOLDER_SWAP_FAILED_2, workPath, exportPath));
+            if ((staticExportTrash != null) && !staticExport.exists()) {
+                // restore the previous export
+                if (staticExportTrash.renameTo(staticExport)) {
+                    staticExportTrash = null;
+                }
+            }
+        }
+        if (staticExportTrash != null) {
+            CmsFileUtil.purgeDirectory(staticExportTrash);
+        }
+    }
+
+    /**
+     * Moves the content hash manifest of a work folder to the export root it was swapped into.<p>
+     * 
+     * The manifest of the export root is replaced, since it describes the files of the previous export. 
+     * Nothing is moved if the work folder still exists, i.e. if the swap failed.<p>
+     * 
+     * @param workPath the work folder 
+     * @param exportPath the export root
+     */
+    protected void swapExportManifest(String workPath, String exportPath) {
+
+        if (new File(workPath).exists()) {
+            return;
+        }
+        File workManifest = getExportManifest(workPath).getManifestFile();
+        File exportManifest = getExportManifest(exportPath).getManifestFile();
+        exportManifest.delete();
+        if (workManifest.isFile() && !workManifest.renameTo(exportManifest)) {
+            LOG.error(Messages.get().getBundle().key(
+                Messages.LOG_WRITE_EXPORT_MANIFEST_FAILED_1,
+                exportManifest.getPath()));
+            workManifest.delete();
+        }
+    }
+
     /**
       * Writes a resource to the given export path with the given rfs name and the given content.<p>
       * 
@@ -2726,42 +2916,144 @@ public class CmsStaticExportManager implements I_CmsEventListener {
 
         // make sure all required parent folder exist
         createExportFolder(exportPath, rfsName);
-        // generate export file instance and output stream
+        // generate export file instance
         File exportFile = new File(exportFileName);
-        // write new exported file content
-        try {
-            FileOutputStream exportStream = new FileOutputStream(exportFile);
-            exportStream.write(content);
-            exportStream.close();
-
-            // log export success 
-            if (LOG.isInfoEnabled()) {
-                LOG.info(Messages.get().getBundle().key(
-                    Messages.LOG_STATIC_EXPORTED_2,
+
+        // the modification date is either sent by the server or taken from the OpenCms resource
+        long dateLastModified = -1;
+        if (req != null) {
+            Long dateHeader = (Long)req.getAttribute(CmsRequestUtil.HEADER_OPENCMS_EXPORT);
+            if (dateHeader != null) {
+                dateLastModified = dateHeader.longValue();
+            }
+        } else {
+            dateLastModified = resource.getDateLastModified();
+        }
+        if (dateLastModified != -1) {
+            dateLastModified = (dateLastModified / 1000) * 1000;
+        }
+
+        // skip writing the file if the exported content did not change
+        CmsStaticExportManifest manifest = getExportManifest(exportPath);
+        String contentHash = CmsStaticExportManifest.getContentHash(content);
+        boolean unchanged = manifest.isUnchanged(rfsName, contentHash, content.length, exportFile);
+        if (unchanged) {
+            if (dateLastModified != -1) {
+                exportFile.setLastModified(dateLastModified);
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(
+                    Messages.LOG_STATIC_EXPORT_UNCHANGED_2,
                     resource.getRootPath(),
                     exportFileName));
             }
+        }
 
+        try {
+            if (!unchanged) {
+                writeFile(exportFile, content, dateLastModified);
+                manifest.update(rfsName, contentHash);
+            }
+            // write or remove the precompressed sibling of the export file
+            writeCompressedFile(exportFile, content, dateLastModified, unchanged);
         } catch (Throwable t) {
+            manifest.remove(rfsName);
             throw new CmsStaticExportException(
                 Messages.get().container(Messages.ERR_OUTPUT_STREAM_1, exportFileName),
                 t);
         }
-        // update the file with the modification date from the server
-        if (req != null) {
-            Long dateLastModified = (Long)req.getAttribute(CmsRequestUtil.HEADER_OPENCMS_EXPORT);
-            if ((dateLastModified != null) && (dateLastModified.longValue() != -1)) {
-                exportFile.setLastModified((dateLastModified.longValue() / 1000) * 1000);
+
+        // log export success 
+        if (!unchanged && LOG.isInfoEnabled()) {
+            LOG.info(Messages.get().getBundle().key(
+                Messages.LOG_STATIC_EXPORTED_2,
+                resource.getRootPath(),
+                exportFileName));
+        }
+    }
+
+    /**
+     * Writes or removes the gzip compressed sibling of an export file.<p>
+     * 
+     * @param exportFile the export file
+     * @param content the uncompressed content of the export file
+     * @param dateLastModified the modification date to set, or -1
+     * @param unchanged <code>true</code> if the export file content did not change
+     * 
+     * @throws IOException if the compressed file could not be written
+     */
+    private void writeCompressedFile(File exportFile, byte[] content, long dateLastModified, boolean unchanged)
+    throws IOException {
+
+        File compressedFile = new File(exportFile.getPath() + CmsStaticExportCompression.GZIP_SUFFIX);
+        String mimeType = OpenCms.getResourceManager().getMimeType(exportFile.getName(), null);
+        if (!m_compression.isCompressible(mimeType, content.length)) {
+            if (compressedFile.exists()) {
+                // remove an outdated sibling, e.g. after the compression rules were changed
+                compressedFile.delete();
+            }
+            return;
+        }
+        if (unchanged && compressedFile.exists()) {
+            if (dateLastModified != -1) {
+                compressedFile.setLastModified(dateLastModified);
+            }
+            return;
+        }
+        writeFile(compressedFile, CmsStaticExportCompression.gzip(content), dateLastModified);
+    }
+
+    /**
+     * Writes the given content to an export file.<p>
+     * 
+     * The content is written to a temporary file in the same folder first, 
+     * which is then renamed to the export file, so that the web server never 
+     * serves a partially written file.<p>
+     * 
+     * @param exportFile the export file
+     * @param content the content to write
+     * @param dateLastModified the modification date to set, or -1
+     * 
+     * @throws IOException if the file could not be written
+     */
+    private void writeFile(File exportFile, byte[] content, long dateLastModified) throws IOException {
+
+        File tempFile = new File(exportFile.getParentFile(), "."
+            + exportFile.getName()
+            + "."
+            + new CmsUUID()
+            + EXPORT_TEMP_FILE_SUFFIX);
+        try {
+            FileOutputStream exportStream = new FileOutputStream(tempFile);
+            try {
+                exportStream.write(content);
+            } finally {
+                exportStream.close();
+            }
+            // update the file with the modification date before it becomes visible
+            if (dateLastModified != -1) {
+                tempFile.setLastModified(dateLastModified);
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(
                         Messages.LOG_SET_LAST_MODIFIED_2,
                         exportFile.getName(),
-                        new Long((dateLastModified.longValue() / 1000) * 1000)));
+                        new Long(dateLastModified)));
                 }
             }
-        } else {
-            // otherwise take the last modification date form the OpenCms resource
-            exportFile.setLastModified((resource.getDateLastModified() / 1000) * 1000);
+            if (!tempFile.renameTo(exportFile)) {
+                // some platforms can not rename onto an existing file
+                exportFile.delete();
+                if (!tempFile.renameTo(exportFile)) {
+                    throw new IOException(Messages.get().getBundle().key(
+                        Messages.LOG_WRITE_EXPORT_FILE_FAILED_2,
+                        tempFile.getPath(),
+                        exportFile.getPath()));
+                }
+            }
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
         }
     }
 
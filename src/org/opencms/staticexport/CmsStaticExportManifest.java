@@ -0,0 +1,314 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.staticexport;
+
+import org.opencms.i18n.CmsEncoder;
+import org.opencms.main.CmsLog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Keeps the content hashes of the files written to one static export root.<p>
+ * 
+ * The static export manager uses the manifest to skip writing files whose rendered content 
+ * did not change since the last export. The manifest is stored as a properties file in a separate 
+ * manifest folder outside of the export root, so that it is never served by the web server. 
+ * The name of the file is derived from the export root.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsStaticExportManifest {
+
+    /** The digest algorithm used for the content hashes. */
+    private static final String DIGEST_ALGORITHM = "MD5";
+
+    /** Hex digits for the hash encoding. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsStaticExportManifest.class);
+
+    /** The prefix of the manifest file names. */
+    private static final String MANIFEST_FILE_PREFIX = "manifest_";
+
+    /** The suffix of the manifest file names. */
+    private static final String MANIFEST_FILE_SUFFIX = ".properties";
+
+    /** Flag indicating the manifest has changes not yet written to the RFS. */
+    private boolean m_changed;
+
+    /** The export root folder. */
+    private String m_exportPath;
+
+    /** The content hashes, keyed by the rfs name relative to the export root. */
+    private Map<String, String> m_hashes;
+
+    /** The manifest file. */
+    private File m_manifestFile;
+
+    /**
+     * Creates a new manifest for the given export root.<p>
+     * 
+     * The manifest file is read lazily when the manifest is first accessed.<p>
+     * 
+     * @param exportPath the export root folder
+     * @param manifestPath the folder the manifest files are stored in, must not be inside the export root
+     */
+    public CmsStaticExportManifest(String exportPath, String manifestPath) {
+
+        m_exportPath = exportPath;
+        m_manifestFile = new File(manifestPath, getManifestFileName(exportPath));
+    }
+
+    /**
+     * Returns the hex encoded content hash for the given content.<p>
+     * 
+     * @param content the content to hash
+     * 
+     * @return the hex encoded content hash
+     */
+    public static String getContentHash(byte[] content) {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support MD5
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = digest.digest(content);
+        char[] result = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            result[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0x0f];
+            result[(i * 2) + 1] = HEX_DIGITS[hash[i] & 0x0f];
+        }
+        return new String(result);
+    }
+
+    /**
+     * Returns the name of the manifest file for the given export root.<p>
+     * 
+     * @param exportPath the export root folder
+     * 
+     * @return the name of the manifest file
+     */
+    public static String getManifestFileName(String exportPath) {
+
+        byte[] path;
+        try {
+            path = exportPath.getBytes(CmsEncoder.ENCODING_UTF_8);
+        } catch (UnsupportedEncodingException e) {
+            // every Java platform is required to support UTF-8
+            throw new IllegalStateException(e);
+        }
+        return MANIFEST_FILE_PREFIX + getContentHash(path) + MANIFEST_FILE_SUFFIX;
+    }
+
+    /**
+     * Removes all entries from this manifest.<p>
+     */
+    public synchronized void clear() {
+
+        m_hashes = new HashMap<String, String>();
+        m_changed = true;
+    }
+
+    /**
+     * Returns the manifest file.<p>
+     * 
+     * @return the manifest file
+     */
+    public File getManifestFile() {
+
+        return m_manifestFile;
+    }
+
+    /**
+     * Checks if the given export file already holds content with the given hash.<p>
+     * 
+     * The recorded hash is only trusted if the file still exists with the expected length,
+     * since export files may be deleted or replaced outside of the static export.<p>
+     * 
+     * @param rfsName the rfs name relative to the export root
+     * @param hash the content hash of the new content
+     * @param length the length of the new content
+     * @param exportFile the export file
+     * 
+     * @return <code>true</code> if the export file is unchanged
+     */
+    public synchronized boolean isUnchanged(String rfsName, String hash, long length, File exportFile) {
+
+        String oldHash = getHashes().get(rfsName);
+        return hash.equals(oldHash) && exportFile.isFile() && (exportFile.length() == length);
+    }
+
+    /**
+     * Removes the entry for the given rfs name.<p>
+     * 
+     * @param rfsName the rfs name relative to the export root
+     */
+    public synchronized void remove(String rfsName) {
+
+        if (getHashes().remove(rfsName) != null) {
+            m_changed = true;
+        }
+    }
+
+    /**
+     * Returns the number of entries in this manifest.<p>
+     * 
+     * @return the number of entries
+     */
+    public synchronized int size() {
+
+        return getHashes().size();
+    }
+
+    /**
+     * Records the content hash for the given rfs name.<p>
+     * 
+     * @param rfsName the rfs name relative to the export root
+     * @param hash the content hash
+     */
+    public synchronized void update(String rfsName, String hash) {
+
+        String oldHash = getHashes().put(rfsName, hash);
+        if (!hash.equals(oldHash)) {
+            m_changed = true;
+        }
+    }
+
+    /**
+     * Writes this manifest to the RFS if it has changed since it was read or written last.<p>
+     * 
+     * The manifest is written to a temporary file first, which is then renamed to the manifest file.<p>
+     */
+    public synchronized void write() {
+
+        if (!m_changed) {
+            return;
+        }
+        File folder = m_manifestFile.getParentFile();
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_WRITE_EXPORT_MANIFEST_FAILED_1, m_manifestFile.getPath()));
+            return;
+        }
+        Properties properties = new Properties();
+        Iterator<Map.Entry<String, String>> it = getHashes().entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            properties.setProperty(entry.getKey(), entry.getValue());
+        }
+        File tempFile = new File(folder, m_manifestFile.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            properties.store(out, m_exportPath);
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(m_manifestFile)) {
+                m_manifestFile.delete();
+                if (!tempFile.renameTo(m_manifestFile)) {
+                    throw new IOException(tempFile.getAbsolutePath());
+                }
+            }
+            m_changed = false;
+        } catch (IOException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_WRITE_EXPORT_MANIFEST_FAILED_1, m_manifestFile.getPath()),
+                e);
+            tempFile.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the hash map, reading the manifest file first if required.<p>
+     * 
+     * @return the hash map
+     */
+    private Map<String, String> getHashes() {
+
+        if (m_hashes == null) {
+            m_hashes = new HashMap<String, String>();
+            if (m_manifestFile.isFile()) {
+                Properties properties = new Properties();
+                InputStream in = null;
+                try {
+                    in = new FileInputStream(m_manifestFile);
+                    properties.load(in);
+                    Iterator<Map.Entry<Object, Object>> it = properties.entrySet().iterator();
+                    while (it.hasNext()) {
+                        Map.Entry<Object, Object> entry = it.next();
+                        m_hashes.put((String)entry.getKey(), (String)entry.getValue());
+                    }
+                } catch (IOException e) {
+                    // an unreadable manifest only means all files will be written again
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_READ_EXPORT_MANIFEST_FAILED_1,
+                            m_manifestFile.getPath()),
+                        e);
+                    m_hashes.clear();
+                } finally {
+                    if (in != null) {
+                        try {
+                            in.close();
+                        } catch (IOException e) {
+                            // ignore
+                        }
+                    }
+                }
+            }
+        }
+        return m_hashes;
+    }
+}
@@ -0,0 +1,820 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.staticexport;
+
+import org.opencms.file.CmsResource;
+import org.opencms.i18n.CmsLocaleManager;
+import org.opencms.main.CmsContextInfo;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsUUID;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+/**
+ * A synthetic GET request used for rendering template resources in-process during the static export, 
+ * instead of sending a http request to the export URL.<p>
+ * 
+ * The request has no parameters and no cookies. Request dispatchers are obtained from the servlet context 
+ * of the OpenCms web application, so that JSPs can be included as for a real request. Each request has 
+ * its own new session, which is discarded together with the request.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsStaticExportRenderRequest implements HttpServletRequest {
+
+    /**
+     * The session of a synthetic static export request.<p>
+     */
+    private static final class CmsStaticExportRenderSession implements HttpSession {
+
+        /** The session attributes. */
+        private Map<String, Object> m_attributes = Collections.synchronizedMap(new HashMap<String, Object>());
+
+        /** The servlet context. */
+        private ServletContext m_context;
+
+        /** The creation time. */
+        private long m_creationTime;
+
+        /** The session id. */
+        private String m_id;
+
+        /** The maximum inactive interval in seconds. */
+        private int m_maxInactiveInterval;
+
+        /**
+         * Creates a new session.<p>
+         * 
+         * @param context the servlet context 
+         */
+        protected CmsStaticExportRenderSession(ServletContext context) {
+
+            m_context = context;
+            m_creationTime = System.currentTimeMillis();
+            m_id = new CmsUUID().toString();
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getAttribute(java.lang.String)
+         */
+        public Object getAttribute(String name) {
+
+            return m_attributes.get(name);
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getAttributeNames()
+         */
+        public Enumeration<String> getAttributeNames() {
+
+            synchronized (m_attributes) {
+                return Collections.enumeration(new HashMap<String, Object>(m_attributes).keySet());
+            }
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getCreationTime()
+         */
+        public long getCreationTime() {
+
+            return m_creationTime;
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getId()
+         */
+        public String getId() {
+
+            return m_id;
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getLastAccessedTime()
+         */
+        public long getLastAccessedTime() {
+
+            return m_creationTime;
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getMaxInactiveInterval()
+         */
+        public int getMaxInactiveInterval() {
+
+            return m_maxInactiveInterval;
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getServletContext()
+         */
+        public ServletContext getServletContext() {
+
+            return m_context;
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getSessionContext()
+         */
+        @Deprecated
+        public javax.servlet.http.HttpSessionContext getSessionContext() {
+
+            return null;
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getValue(java.lang.String)
+         */
+        @Deprecated
+        public Object getValue(String name) {
+
+            return getAttribute(name);
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#getValueNames()
+         */
+        @Deprecated
+        public String[] getValueNames() {
+
+            synchronized (m_attributes) {
+                return m_attributes.keySet().toArray(new String[m_attributes.size()]);
+            }
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#invalidate()
+         */
+        public void invalidate() {
+
+            m_attributes.clear();
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#isNew()
+         */
+        public boolean isNew() {
+
+            return true;
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#putValue(java.lang.String, java.lang.Object)
+         */
+        @Deprecated
+        public void putValue(String name, Object value) {
+
+            setAttribute(name, value);
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#removeAttribute(java.lang.String)
+         */
+        public void removeAttribute(String name) {
+
+            m_attributes.remove(name);
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#removeValue(java.lang.String)
+         */
+        @Deprecated
+        public void removeValue(String name) {
+
+            removeAttribute(name);
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#setAttribute(java.lang.String, java.lang.Object)
+         */
+        public void setAttribute(String name, Object value) {
+
+            if (value == null) {
+                m_attributes.remove(name);
+            } else {
+                m_attributes.put(name, value);
+            }
+        }
+
+        /**
+         * @see javax.servlet.http.HttpSession#setMaxInactiveInterval(int)
+         */
+        public void setMaxInactiveInterval(int interval) {
+
+            m_maxInactiveInterval = interval;
+        }
+    }
+
+    /** The request method of all synthetic requests. */
+    private static final String METHOD_GET = "GET";
+
+    /** The request protocol of all synthetic requests. */
+    private static final String PROTOCOL = "HTTP/1.1";
+
+    /** The request attributes. */
+    private Map<String, Object> m_attributes = new HashMap<String, Object>();
+
+    /** The character encoding. */
+    private String m_characterEncoding;
+
+    /** The servlet context of the OpenCms web application. */
+    private ServletContext m_context;
+
+    /** The context path. */
+    private String m_contextPath;
+
+    /** The default port of the scheme. */
+    private int m_defaultPort;
+
+    /** The date headers, with lower case header names as keys. */
+    private Map<String, Long> m_dateHeaders = new HashMap<String, Long>();
+
+    /** The request headers, with lower case header names as keys. */
+    private Map<String, String> m_headers = new HashMap<String, String>();
+
+    /** The path info, i.e. the site relative VFS path. */
+    private String m_pathInfo;
+
+    /** The remote address. */
+    private String m_remoteAddr;
+
+    /** The scheme. */
+    private String m_scheme;
+
+    /** The server name. */
+    private String m_serverName;
+
+    /** The server port. */
+    private int m_serverPort;
+
+    /** The servlet path. */
+    private String m_servletPath;
+
+    /** The session, created on demand. */
+    private HttpSession m_session;
+
+    /**
+     * Creates a new synthetic request.<p>
+     * 
+     * @param context the servlet context of the OpenCms web application 
+     * @param serverUrl the URL from which scheme, server name and port are taken, e.g. the export URL
+     * @param vfsName the site relative VFS path of the requested resource  
+     * 
+     * @throws MalformedURLException if the server URL is invalid 
+     */
+    public CmsStaticExportRenderRequest(ServletContext context, String serverUrl, String vfsName)
+    throws MalformedURLException {
+
+        URL url = new URL(serverUrl);
+        m_context = context;
+        m_scheme = url.getProtocol();
+        m_serverName = url.getHost();
+        m_defaultPort = url.getDefaultPort();
+        m_serverPort = url.getPort() < 0 ? m_defaultPort : url.getPort();
+        m_contextPath = OpenCms.getSystemInfo().getContextPath();
+        m_servletPath = OpenCms.getSystemInfo().getServletPath();
+        m_pathInfo = vfsName;
+        m_characterEncoding = OpenCms.getSystemInfo().getDefaultEncoding();
+        m_remoteAddr = CmsContextInfo.LOCALHOST;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getAttribute(java.lang.String)
+     */
+    public Object getAttribute(String name) {
+
+        return m_attributes.get(name);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getAttributeNames()
+     */
+    public Enumeration<String> getAttributeNames() {
+
+        return Collections.enumeration(m_attributes.keySet());
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getAuthType()
+     */
+    public String getAuthType() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getCharacterEncoding()
+     */
+    public String getCharacterEncoding() {
+
+        return m_characterEncoding;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getContentLength()
+     */
+    public int getContentLength() {
+
+        return -1;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getContentType()
+     */
+    public String getContentType() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getContextPath()
+     */
+    public String getContextPath() {
+
+        return m_contextPath;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getCookies()
+     */
+    public Cookie[] getCookies() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getDateHeader(java.lang.String)
+     */
+    public long getDateHeader(String name) {
+
+        Long value = m_dateHeaders.get(name.toLowerCase());
+        return value != null ? value.longValue() : -1;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getHeader(java.lang.String)
+     */
+    public String getHeader(String name) {
+
+        return m_headers.get(name.toLowerCase());
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getHeaderNames()
+     */
+    public Enumeration<String> getHeaderNames() {
+
+        return Collections.enumeration(m_headers.keySet());
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getHeaders(java.lang.String)
+     */
+    public Enumeration<String> getHeaders(String name) {
+
+        String value = getHeader(name);
+        if (value == null) {
+            return Collections.enumeration(Collections.<String> emptyList());
+        }
+        return Collections.enumeration(Collections.singletonList(value));
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getInputStream()
+     */
+    public ServletInputStream getInputStream() {
+
+        return new ServletInputStream() {
+
+            /**
+             * @see java.io.InputStream#read()
+             */
+            @Override
+            public int read() {
+
+                return -1;
+            }
+        };
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getIntHeader(java.lang.String)
+     */
+    public int getIntHeader(String name) {
+
+        String value = getHeader(name);
+        return value != null ? Integer.parseInt(value) : -1;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getLocalAddr()
+     */
+    public String getLocalAddr() {
+
+        return CmsContextInfo.LOCALHOST;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getLocale()
+     */
+    public Locale getLocale() {
+
+        return CmsLocaleManager.getDefaultLocale();
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getLocales()
+     */
+    public Enumeration<Locale> getLocales() {
+
+        return Collections.enumeration(Collections.singletonList(getLocale()));
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getLocalName()
+     */
+    public String getLocalName() {
+
+        return m_serverName;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getLocalPort()
+     */
+    public int getLocalPort() {
+
+        return m_serverPort;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getMethod()
+     */
+    public String getMethod() {
+
+        return METHOD_GET;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getParameter(java.lang.String)
+     */
+    public String getParameter(String name) {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getParameterMap()
+     */
+    public Map<String, String[]> getParameterMap() {
+
+        return Collections.emptyMap();
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getParameterNames()
+     */
+    public Enumeration<String> getParameterNames() {
+
+        return Collections.enumeration(Collections.<String> emptyList());
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getParameterValues(java.lang.String)
+     */
+    public String[] getParameterValues(String name) {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getPathInfo()
+     */
+    public String getPathInfo() {
+
+        return m_pathInfo;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getPathTranslated()
+     */
+    public String getPathTranslated() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getProtocol()
+     */
+    public String getProtocol() {
+
+        return PROTOCOL;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getQueryString()
+     */
+    public String getQueryString() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getReader()
+     */
+    public BufferedReader getReader() {
+
+        return new BufferedReader(new StringReader(""));
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getRealPath(java.lang.String)
+     */
+    @Deprecated
+    public String getRealPath(String path) {
+
+        return m_context.getRealPath(path);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getRemoteAddr()
+     */
+    public String getRemoteAddr() {
+
+        return m_remoteAddr;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getRemoteHost()
+     */
+    public String getRemoteHost() {
+
+        return m_remoteAddr;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getRemotePort()
+     */
+    public int getRemotePort() {
+
+        return 0;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getRemoteUser()
+     */
+    public String getRemoteUser() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getRequestDispatcher(java.lang.String)
+     */
+    public RequestDispatcher getRequestDispatcher(String path) {
+
+        String target = path;
+        if (!target.startsWith("/")) {
+            target = CmsResource.getParentFolder(m_servletPath + m_pathInfo) + target;
+        }
+        return m_context.getRequestDispatcher(target);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getRequestedSessionId()
+     */
+    public String getRequestedSessionId() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getRequestURI()
+     */
+    public String getRequestURI() {
+
+        return m_contextPath + m_servletPath + m_pathInfo;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getRequestURL()
+     */
+    public StringBuffer getRequestURL() {
+
+        StringBuffer result = new StringBuffer(64);
+        result.append(m_scheme).append("://").append(m_serverName);
+        if (m_serverPort != m_defaultPort) {
+            result.append(':').append(m_serverPort);
+        }
+        result.append(getRequestURI());
+        return result;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getScheme()
+     */
+    public String getScheme() {
+
+        return m_scheme;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getServerName()
+     */
+    public String getServerName() {
+
+        return m_serverName;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#getServerPort()
+     */
+    public int getServerPort() {
+
+        return m_serverPort;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getServletPath()
+     */
+    public String getServletPath() {
+
+        return m_servletPath;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getSession()
+     */
+    public HttpSession getSession() {
+
+        return getSession(true);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getSession(boolean)
+     */
+    public HttpSession getSession(boolean create) {
+
+        if ((m_session == null) && create) {
+            m_session = new CmsStaticExportRenderSession(m_context);
+        }
+        return m_session;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getUserPrincipal()
+     */
+    public Principal getUserPrincipal() {
+
+        return null;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#isRequestedSessionIdFromCookie()
+     */
+    public boolean isRequestedSessionIdFromCookie() {
+
+        return false;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#isRequestedSessionIdFromUrl()
+     */
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+
+        return false;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#isRequestedSessionIdFromURL()
+     */
+    public boolean isRequestedSessionIdFromURL() {
+
+        return false;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#isRequestedSessionIdValid()
+     */
+    public boolean isRequestedSessionIdValid() {
+
+        return false;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#isSecure()
+     */
+    public boolean isSecure() {
+
+        return "https".equalsIgnoreCase(m_scheme);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#isUserInRole(java.lang.String)
+     */
+    public boolean isUserInRole(String role) {
+
+        return false;
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#removeAttribute(java.lang.String)
+     */
+    public void removeAttribute(String name) {
+
+        m_attributes.remove(name);
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#setAttribute(java.lang.String, java.lang.Object)
+     */
+    public void setAttribute(String name, Object value) {
+
+        if (value == null) {
+            m_attributes.remove(name);
+        } else {
+            m_attributes.put(name, value);
+        }
+    }
+
+    /**
+     * @see javax.servlet.ServletRequest#setCharacterEncoding(java.lang.String)
+     */
+    public void setCharacterEncoding(String encoding) {
+
+        m_characterEncoding = encoding;
+    }
+
+    /**
+     * Sets a date request header.<p>
+     * 
+     * @param name the header name 
+     * @param date the date value 
+     */
+    public void setDateHeader(String name, long date) {
+
+        m_dateHeaders.put(name.toLowerCase(), new Long(date));
+    }
+
+    /**
+     * Sets a request header.<p>
+     * 
+     * @param name the header name 
+     * @param value the header value 
+     */
+    public void setHeader(String name, String value) {
+
+        m_headers.put(name.toLowerCase(), value);
+    }
+
+    /**
+     * Sets the remote address of this request.<p>
+     * 
+     * @param remoteAddr the remote address 
+     */
+    public void setRemoteAddr(String remoteAddr) {
+
+        m_remoteAddr = remoteAddr;
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.staticexport;
+
+import org.opencms.main.OpenCms;
+
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * A synthetic response used together with a {@link CmsStaticExportRenderRequest} for rendering template 
+ * resources in-process during the static export.<p>
+ * 
+ * The exported content is returned by the resource loaders and written to the export folder by the 
+ * static export manager, so everything written to this response is discarded. Only the status code 
+ * and the headers are kept.<p>
+ * 
+ * @since 8.5.0
+ */
+public class CmsStaticExportRenderResponse implements HttpServletResponse {
+
+    /** The character encoding. */
+    private String m_characterEncoding;
+
+    /** Flag indicating if the response has been committed. */
+    private boolean m_committed;
+
+    /** The content type. */
+    private String m_contentType;
+
+    /** The response headers, with lower case header names as keys. */
+    private Map<String, String> m_headers = new HashMap<String, String>();
+
+    /** The locale. */
+    private Locale m_locale;
+
+    /** The output stream, which discards everything written to it. */
+    private ServletOutputStream m_outputStream;
+
+    /** The status code. */
+    private int m_status;
+
+    /** The writer, created on demand. */
+    private PrintWriter m_writer;
+
+    /**
+     * Creates a new synthetic response.<p>
+     */
+    public CmsStaticExportRenderResponse() {
+
+        m_status = SC_OK;
+        m_characterEncoding = OpenCms.getSystemInfo().getDefaultEncoding();
+        m_outputStream = new ServletOutputStream() {
+
+            /**
+             * @see java.io.OutputStream#write(byte[], int, int)
+             */
+            @Override
+            public void write(byte[] b, int off, int len) {
+
+                // discard
+            }
+
+            /**
+             * @see java.io.OutputStream#write(int)
+             */
+            @Override
+            public void write(int b) {
+
+                // discard
+            }
+        };
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#addCookie(javax.servlet.http.Cookie)
+     */
+    public void addCookie(Cookie cookie) {
+
+        // cookies are not used in the static export
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#addDateHeader(java.lang.String, long)
+     */
+    public void addDateHeader(String name, long date) {
+
+        setDateHeader(name, date);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#addHeader(java.lang.String, java.lang.String)
+     */
+    public void addHeader(String name, String value) {
+
+        setHeader(name, value);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#addIntHeader(java.lang.String, int)
+     */
+    public void addIntHeader(String name, int value) {
+
+        setIntHeader(name, value);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#containsHeader(java.lang.String)
+     */
+    public boolean containsHeader(String name) {
+
+        return m_headers.containsKey(name.toLowerCase());
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#encodeRedirectUrl(java.lang.String)
+     */
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+
+        return url;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#encodeRedirectURL(java.lang.String)
+     */
+    public String encodeRedirectURL(String url) {
+
+        return url;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#encodeUrl(java.lang.String)
+     */
+    @Deprecated
+    public String encodeUrl(String url) {
+
+        return url;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#encodeURL(java.lang.String)
+     */
+    public String encodeURL(String url) {
+
+        return url;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#flushBuffer()
+     */
+    public void flushBuffer() {
+
+        m_committed = true;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#getBufferSize()
+     */
+    public int getBufferSize() {
+
+        return 0;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#getCharacterEncoding()
+     */
+    public String getCharacterEncoding() {
+
+        return m_characterEncoding;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#getContentType()
+     */
+    public String getContentType() {
+
+        return m_contentType;
+    }
+
+    /**
+     * Returns the value of a response header.<p>
+     * 
+     * @param name the header name 
+     * 
+     * @return the header value, or <code>null</code> if the header was not set
+     */
+    public String getHeader(String name) {
+
+        return m_headers.get(name.toLowerCase());
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#getLocale()
+     */
+    public Locale getLocale() {
+
+        return m_locale;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#getOutputStream()
+     */
+    public ServletOutputStream getOutputStream() {
+
+        return m_outputStream;
+    }
+
+    /**
+     * Returns the status code of this response.<p>
+     * 
+     * @return the status code
+     */
+    public int getStatus() {
+
+        return m_status;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#getWriter()
+     */
+    public PrintWriter getWriter() throws UnsupportedEncodingException {
+
+        if (m_writer == null) {
+            m_writer = new PrintWriter(new OutputStreamWriter(m_outputStream, m_characterEncoding));
+        }
+        return m_writer;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#isCommitted()
+     */
+    public boolean isCommitted() {
+
+        return m_committed;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#reset()
+     */
+    public void reset() {
+
+        m_headers.clear();
+        m_status = SC_OK;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#resetBuffer()
+     */
+    public void resetBuffer() {
+
+        // nothing is buffered
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#sendError(int)
+     */
+    public void sendError(int status) {
+
+        m_status = status;
+        m_committed = true;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#sendError(int, java.lang.String)
+     */
+    public void sendError(int status, String message) {
+
+        sendError(status);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#sendRedirect(java.lang.String)
+     */
+    public void sendRedirect(String location) {
+
+        setHeader("Location", location);
+        sendError(SC_MOVED_TEMPORARILY);
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#setBufferSize(int)
+     */
+    public void setBufferSize(int size) {
+
+        // nothing is buffered
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#setCharacterEncoding(java.lang.String)
+     */
+    public void setCharacterEncoding(String encoding) {
+
+        m_characterEncoding = encoding;
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#setContentLength(int)
+     */
+    public void setContentLength(int length) {
+
+        setIntHeader("Content-Length", length);
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#setContentType(java.lang.String)
+     */
+    public void setContentType(String type) {
+
+        m_contentType = type;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#setDateHeader(java.lang.String, long)
+     */
+    public void setDateHeader(String name, long date) {
+
+        setHeader(name, String.valueOf(date));
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#setHeader(java.lang.String, java.lang.String)
+     */
+    public void setHeader(String name, String value) {
+
+        m_headers.put(name.toLowerCase(), value);
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#setIntHeader(java.lang.String, int)
+     */
+    public void setIntHeader(String name, int value) {
+
+        setHeader(name, String.valueOf(value));
+    }
+
+    /**
+     * @see javax.servlet.ServletResponse#setLocale(java.util.Locale)
+     */
+    public void setLocale(Locale locale) {
+
+        m_locale = locale;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#setStatus(int)
+     */
+    public void setStatus(int status) {
+
+        m_status = status;
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletResponse#setStatus(int, java.lang.String)
+     */
+    @Deprecated
+    public void setStatus(int status, String message) {
+
+        m_status = status;
+    }
+}
@@ -151,6 +151,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CHECKING_TEST_RESOURCE_1 = "LOG_CHECKING_TEST_RESOURCE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_COMPRESSION_INVALID_MIN_SIZE_1 = "LOG_COMPRESSION_INVALID_MIN_SIZE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_DEL_MAIN_SE_FOLDER_1 = "LOG_DEL_MAIN_SE_FOLDER_1";
 
@@ -166,6 +169,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_EXPORT_FILE_STATUS_3 = "LOG_EXPORT_FILE_STATUS_3";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXPORT_FOLDER_SWAP_FAILED_2 = "LOG_EXPORT_FOLDER_SWAP_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_EXPORT_TEMPLATES_1 = "LOG_EXPORT_TEMPLATES_1";
 
@@ -226,6 +232,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_READING_CHANGED_RESOURCES_FAILED_1 = "LOG_READING_CHANGED_RESOURCES_FAILED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_READ_EXPORT_MANIFEST_FAILED_1 = "LOG_READ_EXPORT_MANIFEST_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_RENDER_IN_PROCESS_UNAVAILABLE_0 = "LOG_RENDER_IN_PROCESS_UNAVAILABLE_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_RENDER_TEMPLATE_FAILED_1 = "LOG_RENDER_TEMPLATE_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_REQUEST_RESULT_3 = "LOG_REQUEST_RESULT_3";
 
@@ -265,6 +280,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_STATICEXPORT_COOKIES_1 = "LOG_STATICEXPORT_COOKIES_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_STATIC_EXPORT_UNCHANGED_2 = "LOG_STATIC_EXPORT_UNCHANGED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_TEST_RESOURCE_EXISTS_0 = "LOG_TEST_RESOURCE_EXISTS_0";
 
@@ -280,6 +298,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WAITING_STATIC_EXPORT_3 = "LOG_WAITING_STATIC_EXPORT_3";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_WRITE_EXPORT_FILE_FAILED_2 = "LOG_WRITE_EXPORT_FILE_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_WRITE_EXPORT_MANIFEST_FAILED_1 = "LOG_WRITE_EXPORT_MANIFEST_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_WRITE_FAILED_1 = "LOG_WRITE_FAILED_1";
 
@@ -313,6 +337,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_STATICEXPORT_TEMPLATE_RESOURCES_END_0 = "RPT_STATICEXPORT_TEMPLATE_RESOURCES_END_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_STATICEXPORT_TEMPLATE_RESOURCES_STATS_4 = "RPT_STATICEXPORT_TEMPLATE_RESOURCES_STATS_4";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.staticexport.messages";
 
@@ -0,0 +1,202 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A prefix tree which maps VFS folder paths to values and finds the value stored for the longest 
+ * folder prefix of a given path.<p>
+ * 
+ * The lookup cost only depends on the number of path segments of the looked up path, not on the number 
+ * of entries in the tree.<p>
+ * 
+ * Instances are not synchronized. They can be shared between threads without locking as long as they are 
+ * not modified any more after being safely published, e.g. as part of an immutable snapshot.<p>
+ * 
+ * @param <V> the value type 
+ * 
+ * @since 8.5.0
+ */
+public class CmsPathTrie<V> {
+
+    /**
+     * A node of the path tree.<p>
+     * 
+     * @param <V> the value type 
+     */
+    private static final class CmsPathTrieNode<V> {
+
+        /** The child nodes, by path segment. */
+        private Map<String, CmsPathTrieNode<V>> m_children;
+
+        /** The value stored for the path of this node, or null. */
+        private V m_value;
+
+        /**
+         * Creates a new node.<p>
+         */
+        protected CmsPathTrieNode() {
+
+            // empty
+        }
+    }
+
+    /** The root node, representing the path "/". */
+    private CmsPathTrieNode<V> m_root = new CmsPathTrieNode<V>();
+
+    /** The number of values stored in this tree. */
+    private int m_size;
+
+    /**
+     * Creates a new, empty path tree.<p>
+     */
+    public CmsPathTrie() {
+
+        // empty
+    }
+
+    /**
+     * Returns the value stored for exactly the given path.<p>
+     * 
+     * @param path the path 
+     * 
+     * @return the value stored for the path, or null 
+     */
+    public V get(String path) {
+
+        CmsPathTrieNode<V> node = m_root;
+        for (String segment : getSegments(path)) {
+            if (node.m_children == null) {
+                return null;
+            }
+            node = node.m_children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node.m_value;
+    }
+
+    /**
+     * Returns the value stored for the longest path which is equal to the given path or is a 
+     * parent folder of it.<p>
+     * 
+     * For example, if values are stored for /a, /a/b/c and /a/b/x, the value for /a/b/c is 
+     * returned for the path /a/b/c/d.<p>
+     * 
+     * @param path the path to look up 
+     * 
+     * @return the value stored for the longest matching prefix, or null if no prefix matches
+     */
+    public V getLongestPrefixValue(String path) {
+
+        if (path == null) {
+            return null;
+        }
+        CmsPathTrieNode<V> node = m_root;
+        V result = node.m_value;
+        for (String segment : getSegments(path)) {
+            if (node.m_children == null) {
+                break;
+            }
+            node = node.m_children.get(segment);
+            if (node == null) {
+                break;
+            }
+            if (node.m_value != null) {
+                result = node.m_value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores a value for a path, replacing the previous value for that path.<p>
+     * 
+     * Trailing or doubled slashes in the path are ignored.<p>
+     * 
+     * @param path the path 
+     * @param value the value, must not be null 
+     */
+    public void put(String path, V value) {
+
+        if (value == null) {
+            throw new IllegalArgumentException();
+        }
+        CmsPathTrieNode<V> node = m_root;
+        for (String segment : getSegments(path)) {
+            if (node.m_children == null) {
+                node.m_children = new HashMap<String, CmsPathTrieNode<V>>();
+            }
+            CmsPathTrieNode<V> child = node.m_children.get(segment);
+            if (child == null) {
+                child = new CmsPathTrieNode<V>();
+                node.m_children.put(segment, child);
+            }
+            node = child;
+        }
+        if (node.m_value == null) {
+            m_size += 1;
+        }
+        node.m_value = value;
+    }
+
+    /**
+     * Returns the number of values stored in this tree.<p>
+     * 
+     * @return the number of values 
+     */
+    public int size() {
+
+        return m_size;
+    }
+
+    /**
+     * Splits a path into its non-empty segments.<p>
+     * 
+     * @param path the path to split 
+     * 
+     * @return the path segments 
+     */
+    private List<String> getSegments(String path) {
+
+        List<String> result = new ArrayList<String>();
+        for (String segment : CmsStringUtil.splitAsList(path, '/')) {
+            if (segment.length() > 0) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+}
@@ -91,6 +91,8 @@ import java.util.Stack;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
@@ -110,8 +112,12 @@ import org.dom4j.Element;
 import org.dom4j.Namespace;
 import org.dom4j.Node;
 import org.dom4j.QName;
+import org.dom4j.io.OutputFormat;
 import org.dom4j.io.SAXReader;
+import org.dom4j.io.XMLWriter;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 
 /**
  * Servlet which adds support for WebDAV level 2.<p>
@@ -195,6 +201,9 @@ public class CmsWebdavServlet extends HttpServlet {
     /** The text to use as basic realm. */
     private static final String BASIC_REALM = "OpenCms WebDAV Servlet";
 
+    /** The maximal number of copy buffers kept for reuse. */
+    private static final int BUFFER_POOL_SIZE = 16;
+
     /** Default namespace. */
     private static final String DEFAULT_NAMESPACE = "DAV:";
 
@@ -360,6 +369,9 @@ public class CmsWebdavServlet extends HttpServlet {
     /** The output buffer size to use when serving resources. */
     protected int m_output = 2048;
 
+    /** The copy buffers kept for reuse, bounded by {@link #BUFFER_POOL_SIZE}. */
+    private BlockingQueue<byte[]> m_bufferPool = new ArrayBlockingQueue<byte[]>(BUFFER_POOL_SIZE);
+
     /** Should we generate directory listings? */
     private boolean m_listings;
 
@@ -506,6 +518,22 @@ public class CmsWebdavServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Returns a buffer for copying content, reusing a previously released buffer if available.<p>
+     * 
+     * The buffer has to be given back with {@link #releaseBuffer(byte[])} after use.<p>
+     * 
+     * @return a buffer of the configured input buffer size
+     */
+    protected byte[] borrowBuffer() {
+
+        byte[] buffer = m_bufferPool.poll();
+        if ((buffer == null) || (buffer.length != m_input)) {
+            buffer = new byte[m_input];
+        }
+        return buffer;
+    }
+
     /**
      * Copy the contents of the specified input stream to the specified
      * output stream, and ensure that both streams are closed before returning
@@ -523,7 +551,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         InputStream resourceInputStream = null;
         if (!item.isCollection()) {
-            resourceInputStream = new ByteArrayInputStream(item.getContent());
+            resourceInputStream = item.getContentStream();
         } else {
             resourceInputStream = is;
         }
@@ -564,20 +592,14 @@ public class CmsWebdavServlet extends HttpServlet {
         IOException exception = null;
         InputStream resourceInputStream = null;
 
-        // Optimization: If the binary content has already been loaded, send
-        // it directly
         if (!item.isCollection()) {
-            byte[] buffer = item.getContent();
-            if (buffer != null) {
-                ostream.write(buffer, 0, buffer.length);
-                return;
-            }
-            resourceInputStream = new ByteArrayInputStream(item.getContent());
+            resourceInputStream = item.getContentStream();
         } else {
             resourceInputStream = is;
         }
 
-        InputStream istream = new BufferedInputStream(resourceInputStream, m_input);
+        // copyRange reads through its own buffer, so the stream is used unbuffered
+        InputStream istream = resourceInputStream;
 
         // Copy the input stream to the output stream
         exception = copyRange(istream, ostream);
@@ -612,7 +634,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         IOException exception = null;
 
-        InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+        InputStream resourceInputStream = item.getContentStream();
 
         Reader reader = new InputStreamReader(resourceInputStream);
         exception = copyRange(reader, writer, range.getStart(), range.getEnd());
@@ -654,7 +676,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+            InputStream resourceInputStream = item.getContentStream();
 
             Reader reader = new InputStreamReader(resourceInputStream);
             CmsWebdavRange currentRange = ranges.next();
@@ -710,8 +732,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         IOException exception = null;
 
-        InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
-        InputStream istream = new BufferedInputStream(resourceInputStream, m_input);
+        InputStream istream = item.getContentStream();
         exception = copyRange(istream, ostream, range.getStart(), range.getEnd());
 
         // Clean up the input stream
@@ -751,8 +772,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
-            InputStream istream = new BufferedInputStream(resourceInputStream, m_input);
+            InputStream istream = item.getContentStream();
 
             CmsWebdavRange currentRange = ranges.next();
 
@@ -806,20 +826,16 @@ public class CmsWebdavServlet extends HttpServlet {
 
         // Copy the input stream to the output stream
         IOException exception = null;
-        byte[] buffer = new byte[m_input];
-        int len = buffer.length;
-        while (true) {
-            try {
-                len = istream.read(buffer);
-                if (len == -1) {
-                    break;
-                }
+        byte[] buffer = borrowBuffer();
+        try {
+            int len;
+            while ((len = istream.read(buffer)) != -1) {
                 ostream.write(buffer, 0, len);
-            } catch (IOException e) {
-                exception = e;
-                len = -1;
-                break;
             }
+        } catch (IOException e) {
+            exception = e;
+        } finally {
+            releaseBuffer(buffer);
         }
         return exception;
     }
@@ -842,35 +858,33 @@ public class CmsWebdavServlet extends HttpServlet {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_SERVE_BYTES_2, new Long(start), new Long(end)));
         }
 
-        try {
-            istream.skip(start);
-        } catch (IOException e) {
-            return e;
-        }
-
         IOException exception = null;
         long bytesToRead = (end - start) + 1;
 
-        byte[] buffer = new byte[m_input];
-        int len = buffer.length;
-        while ((bytesToRead > 0) && (len >= buffer.length)) {
-            try {
-                len = istream.read(buffer);
-                if (bytesToRead >= len) {
-                    ostream.write(buffer, 0, len);
-                    bytesToRead -= len;
-                } else {
-                    ostream.write(buffer, 0, (int)bytesToRead);
-                    bytesToRead = 0;
+        byte[] buffer = borrowBuffer();
+        try {
+            // skip may skip less than requested on streams that are not fully available
+            long toSkip = start;
+            while (toSkip > 0) {
+                long skipped = istream.skip(toSkip);
+                if (skipped <= 0) {
+                    break;
                 }
-            } catch (IOException e) {
-                exception = e;
-                len = -1;
+                toSkip -= skipped;
             }
-
-            if (len < buffer.length) {
-                break;
+            // a short read does not mean the end of the stream, so read until the range is complete
+            while (bytesToRead > 0) {
+                int len = istream.read(buffer, 0, (int)Math.min(buffer.length, bytesToRead));
+                if (len == -1) {
+                    break;
+                }
+                ostream.write(buffer, 0, len);
+                bytesToRead -= len;
             }
+        } catch (IOException e) {
+            exception = e;
+        } finally {
+            releaseBuffer(buffer);
         }
 
         return exception;
@@ -922,35 +936,29 @@ public class CmsWebdavServlet extends HttpServlet {
      */
     protected IOException copyRange(Reader reader, PrintWriter writer, long start, long end) {
 
-        try {
-            reader.skip(start);
-        } catch (IOException e) {
-            return e;
-        }
-
         IOException exception = null;
         long bytesToRead = (end - start) + 1;
 
         char[] buffer = new char[m_input];
-        int len = buffer.length;
-        while ((bytesToRead > 0) && (len >= buffer.length)) {
-            try {
-                len = reader.read(buffer);
-                if (bytesToRead >= len) {
-                    writer.write(buffer, 0, len);
-                    bytesToRead -= len;
-                } else {
-                    writer.write(buffer, 0, (int)bytesToRead);
-                    bytesToRead = 0;
+        try {
+            long toSkip = start;
+            while (toSkip > 0) {
+                long skipped = reader.skip(toSkip);
+                if (skipped <= 0) {
+                    break;
                 }
-            } catch (IOException e) {
-                exception = e;
-                len = -1;
+                toSkip -= skipped;
             }
-
-            if (len < buffer.length) {
-                break;
+            while (bytesToRead > 0) {
+                int len = reader.read(buffer, 0, (int)Math.min(buffer.length, bytesToRead));
+                if (len == -1) {
+                    break;
+                }
+                writer.write(buffer, 0, len);
+                bytesToRead -= len;
             }
+        } catch (IOException e) {
+            exception = e;
         }
 
         return exception;
@@ -1903,12 +1911,31 @@ public class CmsWebdavServlet extends HttpServlet {
         resp.setStatus(CmsWebdavStatus.SC_MULTI_STATUS);
         resp.setContentType("text/xml; charset=UTF-8");
 
-        // Create multistatus object
-        Document doc = DocumentHelper.createDocument();
-        Element multiStatusElem = doc.addElement(new QName(TAG_MULTISTATUS, Namespace.get("D", DEFAULT_NAMESPACE)));
+        // the responses are written one by one as soon as they are generated, 
+        // so that large folders do not have to be kept in memory as a whole
+        Writer writer = resp.getWriter();
+        OutputFormat format = new OutputFormat();
+        format.setEncoding("UTF-8");
+        XMLWriter xmlWriter = new XMLWriter(writer, format);
+        QName multiStatusName = new QName(TAG_MULTISTATUS, Namespace.get("D", DEFAULT_NAMESPACE));
+
+        // detached element the responses are generated in before they are written
+        Element multiStatusElem = DocumentHelper.createElement(multiStatusName);
+        try {
+            xmlWriter.startDocument();
+            xmlWriter.startPrefixMapping("D", DEFAULT_NAMESPACE);
+            xmlWriter.startElement(
+                DEFAULT_NAMESPACE,
+                TAG_MULTISTATUS,
+                multiStatusName.getQualifiedName(),
+                new AttributesImpl());
+        } catch (SAXException e) {
+            throw new IOException(e.getMessage());
+        }
 
         if (depth == 0) {
             parseProperties(req, multiStatusElem, item, type, properties);
+            writeResponses(xmlWriter, multiStatusElem);
         } else {
             // The stack always contains the object of the current level
             Stack<I_CmsRepositoryItem> stack = new Stack<I_CmsRepositoryItem>();
@@ -1921,6 +1948,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
                 I_CmsRepositoryItem currentItem = stack.pop();
                 parseProperties(req, multiStatusElem, currentItem, type, properties);
+                writeResponses(xmlWriter, multiStatusElem);
 
                 if ((currentItem.isCollection()) && (depth > 0)) {
 
@@ -1934,15 +1962,21 @@ public class CmsWebdavServlet extends HttpServlet {
 
                     } catch (CmsException e) {
 
-                        resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-
                         if (LOG.isErrorEnabled()) {
                             LOG.error(
                                 Messages.get().getBundle().key(Messages.LOG_LIST_ITEMS_ERROR_1, currentItem.getName()),
                                 e);
                         }
 
-                        return;
+                        // the status can only be changed if nothing has been sent to the client yet
+                        if (!resp.isCommitted()) {
+                            resp.reset();
+                            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                            return;
+                        }
+
+                        // otherwise complete the document with the responses generated so far
+                        break;
                     }
                 }
 
@@ -1954,8 +1988,12 @@ public class CmsWebdavServlet extends HttpServlet {
             }
         }
 
-        Writer writer = resp.getWriter();
-        doc.write(writer);
+        try {
+            xmlWriter.endElement(DEFAULT_NAMESPACE, TAG_MULTISTATUS, multiStatusName.getQualifiedName());
+            xmlWriter.endDocument();
+        } catch (SAXException e) {
+            throw new IOException(e.getMessage());
+        }
         writer.close();
     }
 
@@ -2042,6 +2080,7 @@ public class CmsWebdavServlet extends HttpServlet {
         CmsWebdavRange range = parseContentRange(req, resp);
 
         InputStream resourceInputStream = null;
+        long contentLength;
 
         // Append data specified in ranges to existing content for this
         // resource - create a temp. file on the local filesystem to
@@ -2050,8 +2089,10 @@ public class CmsWebdavServlet extends HttpServlet {
         if (range != null) {
             contentFile = executePartialPut(req, range, path);
             resourceInputStream = new FileInputStream(contentFile);
+            contentLength = contentFile.length();
         } else {
             resourceInputStream = req.getInputStream();
+            contentLength = req.getContentLength();
         }
 
         try {
@@ -2061,7 +2102,7 @@ public class CmsWebdavServlet extends HttpServlet {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_SAVE_ITEM_0));
             }
 
-            m_session.save(path, resourceInputStream, exists);
+            m_session.save(path, resourceInputStream, contentLength, exists);
         } catch (Exception e) {
 
             if (LOG.isErrorEnabled()) {
@@ -2175,7 +2216,7 @@ public class CmsWebdavServlet extends HttpServlet {
         try {
             I_CmsRepositoryItem item = m_session.getItem(path);
 
-            oldResourceStream = new ByteArrayInputStream(item.getContent());
+            oldResourceStream = item.getContentStream();
         } catch (CmsException e) {
             if (LOG.isErrorEnabled()) {
                 LOG.error(Messages.get().getBundle().key(Messages.LOG_ITEM_NOT_FOUND_1, path), e);
@@ -2186,9 +2227,13 @@ public class CmsWebdavServlet extends HttpServlet {
         if (oldResourceStream != null) {
 
             int numBytesRead;
-            byte[] copyBuffer = new byte[BUFFER_SIZE];
-            while ((numBytesRead = oldResourceStream.read(copyBuffer)) != -1) {
-                randAccessContentFile.write(copyBuffer, 0, numBytesRead);
+            byte[] copyBuffer = borrowBuffer();
+            try {
+                while ((numBytesRead = oldResourceStream.read(copyBuffer)) != -1) {
+                    randAccessContentFile.write(copyBuffer, 0, numBytesRead);
+                }
+            } finally {
+                releaseBuffer(copyBuffer);
             }
 
             oldResourceStream.close();
@@ -2355,6 +2400,18 @@ public class CmsWebdavServlet extends HttpServlet {
         return result;
     }
 
+    /**
+     * Gives back a buffer obtained by {@link #borrowBuffer()} so it can be reused.<p>
+     * 
+     * If enough buffers are kept for reuse already, the buffer is dropped.<p>
+     * 
+     * @param buffer the buffer which is no longer used
+     */
+    protected void releaseBuffer(byte[] buffer) {
+
+        m_bufferPool.offer(buffer);
+    }
+
     /**
      * Return an InputStream to an HTML representation of the contents
      * of this directory.<p>
@@ -3612,4 +3669,23 @@ public class CmsWebdavServlet extends HttpServlet {
         doc.write(writer);
         writer.close();
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the response elements generated in the given container element and removes them 
+     * from the container afterwards.<p>
+     * 
+     * @param xmlWriter the writer to write the responses to
+     * @param container the element containing the generated response elements
+     * 
+     * @throws IOException if writing the responses fails
+     */
+    private void writeResponses(XMLWriter xmlWriter, Element container) throws IOException {
+
+        @SuppressWarnings("unchecked")
+        Iterator<Element> iter = container.elementIterator();
+        while (iter.hasNext()) {
+            xmlWriter.write(iter.next());
+        }
+        container.clearContent();
+    }
+}
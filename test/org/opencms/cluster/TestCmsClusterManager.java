@@ -0,0 +1,262 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsEventManager;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the cluster event bus.<p>
+ */
+public class TestCmsClusterManager extends TestCase {
+
+    /**
+     * Event listener that records the received events.<p>
+     */
+    private static class CmsRecordingListener implements I_CmsEventListener {
+
+        /** The received events. */
+        protected List<CmsEvent> m_events = new ArrayList<CmsEvent>();
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            m_events.add(event);
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsClusterManager(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Creates a transport for the given channel.<p>
+     * 
+     * @param nodeId the node id
+     * @param channel the channel name
+     * 
+     * @return the transport
+     */
+    private static CmsLoopbackClusterTransport createTransport(String nodeId, String channel) {
+
+        CmsLoopbackClusterTransport transport = new CmsLoopbackClusterTransport();
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(CmsLoopbackClusterTransport.PARAM_CHANNEL, channel);
+        transport.initialize(nodeId, params);
+        return transport;
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() {
+
+        CmsLoopbackClusterTransport.reset();
+    }
+
+    /**
+     * Tests that equal pending events are coalesced and events are forwarded to the other node only.<p>
+     */
+    public void testCoalescingAndForwarding() {
+
+        CmsEventManager eventsA = new CmsEventManager();
+        CmsEventManager eventsB = new CmsEventManager();
+        CmsClusterManager nodeA = new CmsClusterManager(
+            "A",
+            createTransport("A", "coalesce"),
+            eventsA,
+            CmsClusterManager.DEFAULT_EVENT_TYPES,
+            0);
+        CmsClusterManager nodeB = new CmsClusterManager(
+            "B",
+            createTransport("B", "coalesce"),
+            eventsB,
+            CmsClusterManager.DEFAULT_EVENT_TYPES,
+            0);
+        nodeA.initialize();
+        nodeB.initialize();
+        CmsRecordingListener listenerA = new CmsRecordingListener();
+        CmsRecordingListener listenerB = new CmsRecordingListener();
+        eventsA.addCmsEventListener(listenerA);
+        eventsB.addCmsEventListener(listenerB);
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_USER_ID, new CmsUUID().toString());
+        data.put(I_CmsEventListener.KEY_DBCONTEXT, new Object());
+        eventsA.fireEvent(I_CmsEventListener.EVENT_USER_MODIFIED, data);
+        eventsA.fireEvent(I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES);
+        eventsA.fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+        eventsA.fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+        eventsA.fireEvent(I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES);
+        // not forwarded
+        eventsA.fireEvent(I_CmsEventListener.EVENT_LOGIN_USER);
+        assertEquals(2, nodeA.getOutboxSize());
+
+        nodeA.synchronize();
+        assertEquals(0, nodeA.getOutboxSize());
+        nodeB.synchronize();
+        assertEquals(2, listenerB.m_events.size());
+        CmsEvent userEvent = listenerB.m_events.get(0);
+        assertEquals(I_CmsEventListener.EVENT_USER_MODIFIED, userEvent.getType());
+        assertEquals(data.get(I_CmsEventListener.KEY_USER_ID), userEvent.getData().get(I_CmsEventListener.KEY_USER_ID));
+        assertEquals("A", userEvent.getData().get(I_CmsEventListener.KEY_CLUSTER_NODE));
+        assertFalse(userEvent.getData().containsKey(I_CmsEventListener.KEY_DBCONTEXT));
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_CACHES, listenerB.m_events.get(1).getType());
+
+        // received events are not sent back, own events are not fired again
+        assertEquals(0, nodeB.getOutboxSize());
+        int localEvents = listenerA.m_events.size();
+        nodeA.synchronize();
+        assertEquals(localEvents, listenerA.m_events.size());
+    }
+
+    /**
+     * Tests the file based transport.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testFileTransport() throws Exception {
+
+        File dir = new File(System.getProperty("java.io.tmpdir"), "opencms-cluster-" + new CmsUUID());
+        try {
+            Map<String, String> params = new HashMap<String, String>();
+            params.put(CmsFileClusterTransport.PARAM_DIRECTORY, dir.getAbsolutePath());
+            CmsFileClusterTransport transportA = new CmsFileClusterTransport();
+            transportA.initialize("A", params);
+            CmsFileClusterTransport transportB = new CmsFileClusterTransport();
+            transportB.initialize("B", params);
+            assertEquals(0, transportB.getLastSequence());
+
+            Map<String, String> data = new HashMap<String, String>();
+            data.put(I_CmsEventListener.KEY_PUBLISHID, CmsClusterEvent.encodeValue(new CmsUUID()));
+            data.put("key with = and : chars", CmsClusterEvent.encodeValue("value\nwith line break"));
+            List<CmsClusterEvent> events = new ArrayList<CmsClusterEvent>();
+            events.add(new CmsClusterEvent(0, "A", I_CmsEventListener.EVENT_PUBLISH_PROJECT, data, 42));
+            events.add(new CmsClusterEvent(
+                0,
+                "A",
+                I_CmsEventListener.EVENT_CLEAR_CACHES,
+                new HashMap<String, String>(),
+                43));
+            transportA.send(events);
+            transportB.send(events.subList(1, 2));
+
+            assertEquals(1, transportB.getFirstSequence());
+            assertEquals(3, transportB.getLastSequence());
+            List<CmsClusterEvent> received = transportB.receive(0, 10);
+            assertEquals(3, received.size());
+            CmsClusterEvent publish = received.get(0);
+            assertEquals(1, publish.getSequence());
+            assertEquals("A", publish.getNodeId());
+            assertEquals(I_CmsEventListener.EVENT_PUBLISH_PROJECT, publish.getType());
+            assertEquals(42, publish.getTimestamp());
+            assertEquals(data, publish.getData());
+            assertEquals(3, received.get(2).getSequence());
+            assertEquals(1, transportB.receive(1, 1).size());
+            assertEquals(0, transportB.receive(3, 10).size());
+        } finally {
+            File[] files = dir.listFiles();
+            for (int i = 0; (files != null) && (i < files.length); i++) {
+                files[i].delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /**
+     * Tests that events are kept while the transport is not available and replayed on reconnect.<p>
+     */
+    public void testReplayOnReconnect() {
+
+        CmsEventManager eventsA = new CmsEventManager();
+        CmsEventManager eventsB = new CmsEventManager();
+        CmsLoopbackClusterTransport transportA = createTransport("A", "replay");
+        CmsLoopbackClusterTransport transportB = createTransport("B", "replay");
+        CmsClusterManager nodeA = new CmsClusterManager(
+            "A",
+            transportA,
+            eventsA,
+            CmsClusterManager.DEFAULT_EVENT_TYPES,
+            0);
+        CmsClusterManager nodeB = new CmsClusterManager(
+            "B",
+            transportB,
+            eventsB,
+            CmsClusterManager.DEFAULT_EVENT_TYPES,
+            0);
+        nodeA.initialize();
+        nodeB.initialize();
+        CmsRecordingListener listenerB = new CmsRecordingListener();
+        eventsB.addCmsEventListener(listenerB);
+
+        // events are kept in the outbox while node A is disconnected
+        transportA.setConnected(false);
+        eventsA.fireEvent(I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY);
+        nodeA.synchronize();
+        assertFalse(nodeA.isConnected());
+        assertEquals(1, nodeA.getOutboxSize());
+        transportA.setConnected(true);
+        nodeA.synchronize();
+        assertTrue(nodeA.isConnected());
+        assertEquals(0, nodeA.getOutboxSize());
+
+        // node B misses events while disconnected and gets them on reconnect
+        transportB.setConnected(false);
+        nodeB.synchronize();
+        eventsA.fireEvent(I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES);
+        nodeA.synchronize();
+        nodeB.synchronize();
+        assertEquals(0, listenerB.m_events.size());
+        transportB.setConnected(true);
+        nodeB.synchronize();
+        assertEquals(2, listenerB.m_events.size());
+        assertEquals(I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY, listenerB.m_events.get(0).getType());
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES, listenerB.m_events.get(1).getType());
+        assertEquals(nodeA.getLastSequence(), nodeB.getLastSequence());
+    }
+}
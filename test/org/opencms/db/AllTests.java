@@ -64,6 +64,12 @@ public final class AllTests {
         suite.addTest(TestPublishHistory.suite());
         suite.addTest(TestSubscriptionManager.suite());
         suite.addTest(TestAliases.suite());
+        suite.addTest(new TestSuite(TestCmsAccessControlIndex.class));
+        suite.addTest(new TestSuite(TestCmsHistoryClearCursor.class));
+        suite.addTest(TestCmsAccessControlIndexUpdates.suite());
+        suite.addTest(new TestSuite(TestCmsPrincipalGraph.class));
+        suite.addTest(new TestSuite(TestCmsUserInfoCache.class));
+        suite.addTest(new TestSuite(TestCmsUserSearchIndex.class));
         // $JUnit-END$
         return suite;
     }
@@ -0,0 +1,160 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSet;
+import org.opencms.security.CmsPermissionSetCustom;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the merge rules of the access control index.<p>
+ */
+public class TestCmsAccessControlIndex extends TestCase {
+
+    /** Test group id. */
+    private static final CmsUUID GROUP = CmsUUID.getConstantUUID("group");
+
+    /** Test resource id. */
+    private static final CmsUUID RESOURCE = CmsUUID.getConstantUUID("resource");
+
+    /** Test user id. */
+    private static final CmsUUID USER = CmsUUID.getConstantUUID("user");
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsAccessControlIndex(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the merged permissions are the same as calculated by an access control list.<p>
+     */
+    public void testMergeLikeAccessControlList() {
+
+        List<CmsAccessControlEntry> parentAces = new ArrayList<CmsAccessControlEntry>();
+        parentAces.add(new CmsAccessControlEntry(RESOURCE, USER, CmsPermissionSet.PERMISSION_READ
+            | CmsPermissionSet.PERMISSION_WRITE, 0, CmsAccessControlEntry.ACCESS_FLAGS_INHERIT));
+        parentAces.add(new CmsAccessControlEntry(
+            RESOURCE,
+            GROUP,
+            CmsPermissionSet.PERMISSION_VIEW,
+            CmsPermissionSet.PERMISSION_CONTROL,
+            CmsAccessControlEntry.ACCESS_FLAGS_INHERIT));
+
+        List<CmsAccessControlEntry> ownAces = new ArrayList<CmsAccessControlEntry>();
+        ownAces.add(new CmsAccessControlEntry(
+            RESOURCE,
+            USER,
+            CmsPermissionSet.PERMISSION_VIEW,
+            CmsPermissionSet.PERMISSION_WRITE,
+            CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE));
+        ownAces.add(new CmsAccessControlEntry(RESOURCE, GROUP, CmsPermissionSet.PERMISSION_READ, 0, 0));
+
+        CmsAccessControlIndex.sortAces(parentAces);
+        CmsAccessControlIndex.sortAces(ownAces);
+        Map<CmsUUID, Long> parent = CmsAccessControlIndex.apply(
+            Collections.<CmsUUID, Long> emptyMap(),
+            parentAces,
+            false);
+        Map<CmsUUID, Long> merged = CmsAccessControlIndex.apply(parent, ownAces, false);
+
+        CmsAccessControlList acl = new CmsAccessControlList();
+        for (CmsAccessControlEntry ace : parentAces) {
+            acl.add(ace);
+        }
+        for (CmsAccessControlEntry ace : ownAces) {
+            acl.add(ace);
+            if ((ace.getFlags() & CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE) > 0) {
+                acl.setAllowedPermissions(ace);
+            }
+        }
+
+        assertEquals(acl.getPermissionMap().size(), merged.size());
+        for (CmsUUID principal : acl.getPrincipals()) {
+            CmsPermissionSetCustom expected = acl.getPermissions(principal);
+            long value = merged.get(principal).longValue();
+            assertEquals(expected.getAllowedPermissions(), CmsAccessControlIndex.getAllowed(value));
+            assertEquals(expected.getDeniedPermissions(), CmsAccessControlIndex.getDenied(value));
+        }
+    }
+
+    /**
+     * Tests the handling of the 'overwrite all' entry.<p>
+     */
+    public void testOverwriteAll() {
+
+        List<CmsAccessControlEntry> parentAces = new ArrayList<CmsAccessControlEntry>();
+        parentAces.add(new CmsAccessControlEntry(RESOURCE, USER, CmsPermissionSet.PERMISSION_READ, 0, 0));
+        Map<CmsUUID, Long> parent = CmsAccessControlIndex.apply(
+            Collections.<CmsUUID, Long> emptyMap(),
+            parentAces,
+            false);
+
+        List<CmsAccessControlEntry> ownAces = new ArrayList<CmsAccessControlEntry>();
+        ownAces.add(new CmsAccessControlEntry(RESOURCE, GROUP, CmsPermissionSet.PERMISSION_VIEW, 0, 0));
+        ownAces.add(new CmsAccessControlEntry(RESOURCE, CmsAccessControlEntry.PRINCIPAL_OVERWRITE_ALL_ID, 0, 0, 0));
+        boolean overwriteAll = CmsAccessControlIndex.sortAces(ownAces);
+        assertTrue(overwriteAll);
+        Map<CmsUUID, Long> merged = CmsAccessControlIndex.apply(parent, ownAces, overwriteAll);
+        assertNull(merged.get(USER));
+        assertEquals(
+            CmsPermissionSet.PERMISSION_VIEW,
+            CmsAccessControlIndex.getAllowed(merged.get(GROUP).longValue()));
+    }
+
+    /**
+     * Tests that folders without own entries share the permissions of their parent.<p>
+     */
+    public void testStructuralSharing() {
+
+        List<CmsAccessControlEntry> parentAces = new ArrayList<CmsAccessControlEntry>();
+        parentAces.add(new CmsAccessControlEntry(RESOURCE, USER, CmsPermissionSet.PERMISSION_READ, 0, 0));
+        Map<CmsUUID, Long> parent = CmsAccessControlIndex.apply(
+            Collections.<CmsUUID, Long> emptyMap(),
+            parentAces,
+            false);
+        Map<CmsUUID, Long> child = CmsAccessControlIndex.apply(
+            parent,
+            new ArrayList<CmsAccessControlEntry>(),
+            false);
+        assertSame(parent, child);
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests that the access control index returns the right permissions after access control entries
+ * are written, and after resources are moved or published.<p>
+ */
+public class TestCmsAccessControlIndexUpdates extends OpenCmsTestCase {
+
+    /** The permissions of the test user where the 'Users' group has no own entries. */
+    private static final String DEFAULT_PERMISSIONS = "+r+w+v";
+
+    /** The name of the test user. */
+    private static final String USER = "aclIndexUser";
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsAccessControlIndexUpdates(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsAccessControlIndexUpdates.class.getName());
+
+        suite.addTest(new TestCmsAccessControlIndexUpdates("testGetPermissions"));
+        suite.addTest(new TestCmsAccessControlIndexUpdates("testInvalidationOnWrite"));
+        suite.addTest(new TestCmsAccessControlIndexUpdates("testInvalidationOnMove"));
+        suite.addTest(new TestCmsAccessControlIndexUpdates("testInvalidationOnPublish"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests the permissions calculated from inherited folder entries and entries on files.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testGetPermissions() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the permissions calculated by the access control index");
+
+        cms.createUser(USER, "secret", "", null);
+        cms.addUserToGroup(USER, OpenCms.getDefaultUsers().getGroupUsers());
+
+        String folder = "/aclIndexPermissions/";
+        String subFolder = folder + "sub/";
+        String file = subFolder + "file.txt";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(subFolder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(file, CmsResourceTypePlain.getStaticTypeId());
+
+        cms.chacc(folder, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers(), "+r+v+o+i");
+        assertEquals("+r+v", cms.getPermissions(folder, USER).getPermissionString());
+        assertEquals("+r+v", cms.getPermissions(subFolder, USER).getPermissionString());
+        assertEquals("+r+v", cms.getPermissions(file, USER).getPermissionString());
+
+        // entries on the file are applied on top of the inherited folder entries
+        cms.chacc(file, I_CmsPrincipal.PRINCIPAL_USER, USER, "-v");
+        assertEquals("+r-v", cms.getPermissions(file, USER).getPermissionString());
+        assertEquals("+r+v", cms.getPermissions(subFolder, USER).getPermissionString());
+
+        // a non inherited entry only applies to the folder itself
+        cms.chacc(subFolder, I_CmsPrincipal.PRINCIPAL_USER, USER, "+w");
+        assertEquals("+r+w+v", cms.getPermissions(subFolder, USER).getPermissionString());
+        assertEquals("+r-v", cms.getPermissions(file, USER).getPermissionString());
+    }
+
+    /**
+     * Tests that writing and removing access control entries updates the indexed permissions.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testInvalidationOnWrite() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the access control index after access control entries are written");
+
+        String folder = "/aclIndexWrite/";
+        String file = folder + "sub/file.txt";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(folder + "sub/", CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(file, CmsResourceTypePlain.getStaticTypeId());
+
+        // read the permissions first, so the folders are in the index
+        assertEquals(DEFAULT_PERMISSIONS, cms.getPermissions(file, USER).getPermissionString());
+
+        cms.chacc(folder, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers(), "+o+i");
+        assertEquals("", cms.getPermissions(file, USER).getPermissionString());
+
+        cms.chacc(folder, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers(), "+r+o+i");
+        assertEquals("+r", cms.getPermissions(file, USER).getPermissionString());
+
+        cms.rmacc(folder, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers());
+        assertEquals(DEFAULT_PERMISSIONS, cms.getPermissions(file, USER).getPermissionString());
+    }
+
+    /**
+     * Tests that moved files and folders get the permissions of their new parent folder.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testInvalidationOnMove() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the access control index after resources are moved");
+
+        String restricted = "/aclIndexMove/restricted/";
+        String open = "/aclIndexMove/open/";
+        cms.createResource("/aclIndexMove/", CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(restricted, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(open, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(open + "file.txt", CmsResourceTypePlain.getStaticTypeId());
+        cms.createResource(open + "folder/", CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(open + "folder/file.txt", CmsResourceTypePlain.getStaticTypeId());
+        cms.chacc(restricted, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers(), "+o+i");
+
+        assertEquals(DEFAULT_PERMISSIONS, cms.getPermissions(open + "file.txt", USER).getPermissionString());
+        assertEquals(DEFAULT_PERMISSIONS, cms.getPermissions(open + "folder/file.txt", USER).getPermissionString());
+
+        cms.moveResource(open + "file.txt", restricted + "file.txt");
+        assertEquals("", cms.getPermissions(restricted + "file.txt", USER).getPermissionString());
+
+        cms.moveResource(open + "folder/", restricted + "folder/");
+        assertEquals("", cms.getPermissions(restricted + "folder/", USER).getPermissionString());
+        assertEquals("", cms.getPermissions(restricted + "folder/file.txt", USER).getPermissionString());
+
+        cms.moveResource(restricted + "folder/", open + "folder/");
+        assertEquals(DEFAULT_PERMISSIONS, cms.getPermissions(open + "folder/file.txt", USER).getPermissionString());
+    }
+
+    /**
+     * Tests that the online permissions change only when the access control entries are published.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testInvalidationOnPublish() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the access control index after publishing");
+
+        String folder = "/aclIndexPublish/";
+        String file = folder + "file.txt";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(file, CmsResourceTypePlain.getStaticTypeId());
+        cms.chacc(folder, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers(), "+r+o+i");
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsObject online = getCmsObject();
+        online.getRequestContext().setCurrentProject(online.readProject(CmsProject.ONLINE_PROJECT_ID));
+        assertEquals("+r", online.getPermissions(file, USER).getPermissionString());
+
+        cms.lockResource(folder);
+        cms.rmacc(folder, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers());
+        assertEquals(DEFAULT_PERMISSIONS, cms.getPermissions(file, USER).getPermissionString());
+        // the online project is not changed before the folder is published
+        assertEquals("+r", online.getPermissions(file, USER).getPermissionString());
+
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+        assertEquals(DEFAULT_PERMISSIONS, online.getPermissions(file, USER).getPermissionString());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.db;
+
+import org.opencms.util.CmsUUID;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the limits and the resume logic of the history clear cursor.<p>
+ */
+public class TestCmsHistoryClearCursor extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsHistoryClearCursor(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the maximal number of entries limits every run, not the total.<p>
+     */
+    public void testMaxEntries() {
+
+        CmsHistoryClearCursor cursor = new CmsHistoryClearCursor(2, 0, 3);
+        cursor.startRun();
+        assertEquals(3, cursor.getRemaining());
+        for (int i = 0; i < 3; i++) {
+            assertFalse(cursor.isLimitReached());
+            cursor.advance(new CmsUUID());
+        }
+        assertTrue(cursor.isLimitReached());
+        assertEquals(0, cursor.getRemaining());
+
+        // the next run may process the next entries again
+        cursor.startRun();
+        assertFalse(cursor.isLimitReached());
+        assertEquals(3, cursor.getRemaining());
+        assertEquals(3, cursor.getProcessedTotal());
+
+        CmsHistoryClearCursor unlimited = new CmsHistoryClearCursor(2, 0, -1);
+        unlimited.startRun();
+        unlimited.advance(new CmsUUID());
+        assertFalse(unlimited.isLimitReached());
+        assertEquals(Integer.MAX_VALUE, unlimited.getRemaining());
+    }
+
+    /**
+     * Tests that a suspended run is resumed after the last processed entry, 
+     * and that a finished cursor starts again at the first entry.<p>
+     */
+    public void testResume() {
+
+        CmsHistoryClearCursor cursor = new CmsHistoryClearCursor(2, 0, 1);
+        assertEquals(CmsUUID.getNullUUID(), cursor.getLastStructureId());
+
+        CmsUUID first = new CmsUUID();
+        cursor.startRun();
+        cursor.advance(first);
+        assertTrue(cursor.isLimitReached());
+
+        // the suspended run keeps its position
+        cursor.startRun();
+        assertEquals(first, cursor.getLastStructureId());
+        assertFalse(cursor.isExistingDone());
+
+        // switching to the deleted resources starts at the first entry again
+        cursor.setExistingDone();
+        assertTrue(cursor.isExistingDone());
+        assertEquals(CmsUUID.getNullUUID(), cursor.getLastStructureId());
+        assertEquals(1, cursor.getProcessedTotal());
+
+        cursor.advance(new CmsUUID());
+        cursor.setFinished();
+        assertTrue(cursor.isFinished());
+
+        // a finished cursor starts from scratch
+        cursor.startRun();
+        assertFalse(cursor.isFinished());
+        assertFalse(cursor.isExistingDone());
+        assertEquals(CmsUUID.getNullUUID(), cursor.getLastStructureId());
+        assertEquals(0, cursor.getProcessedTotal());
+    }
+
+    /**
+     * Tests the default values and the corrected arguments.<p>
+     */
+    public void testDefaults() {
+
+        CmsHistoryClearCursor cursor = new CmsHistoryClearCursor();
+        assertEquals(CmsHistoryClearCursor.DEFAULT_CHUNK_SIZE, cursor.getChunkSize());
+        assertEquals(0, cursor.getPause());
+        assertEquals(-1, cursor.getMaxEntries());
+
+        cursor = new CmsHistoryClearCursor(0, -10, 5);
+        assertEquals(CmsHistoryClearCursor.DEFAULT_CHUNK_SIZE, cursor.getChunkSize());
+        assertEquals(0, cursor.getPause());
+        assertEquals(5, cursor.getMaxEntries());
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsGroup;
+import org.opencms.main.CmsException;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the membership resolution and the incremental updates of the principal graph.<p>
+ */
+public class TestCmsPrincipalGraph extends TestCase {
+
+    /**
+     * Principal graph reading from in-memory test data instead of the database.<p>
+     */
+    private static class CmsTestPrincipalGraph extends CmsPrincipalGraph {
+
+        /** The test groups by id. */
+        Map<CmsUUID, CmsGroup> m_groups = new HashMap<CmsUUID, CmsGroup>();
+
+        /** The test memberships by user id. */
+        Map<CmsUUID, List<CmsGroup>> m_memberships = new HashMap<CmsUUID, List<CmsGroup>>();
+
+        /** The number of membership reads. */
+        int m_reads;
+
+        /**
+         * Creates a new test graph.<p>
+         */
+        CmsTestPrincipalGraph() {
+
+            super(null);
+        }
+
+        /**
+         * Adds a test group.<p>
+         * 
+         * @param name the group name
+         * @param parent the parent group, or <code>null</code>
+         * 
+         * @return the group
+         */
+        CmsGroup addGroup(String name, CmsGroup parent) {
+
+            CmsUUID parentId = (parent != null) ? parent.getId() : CmsUUID.getNullUUID();
+            CmsGroup group = new CmsGroup(new CmsUUID(), parentId, name, "", 0);
+            m_groups.put(group.getId(), group);
+            return group;
+        }
+
+        /**
+         * @see org.opencms.db.CmsPrincipalGraph#readGroup(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID)
+         */
+        @Override
+        protected CmsGroup readGroup(CmsDbContext dbc, CmsUUID groupId) throws CmsException {
+
+            CmsGroup group = m_groups.get(groupId);
+            if (group == null) {
+                throw new CmsDbEntryNotFoundException(null);
+            }
+            return group;
+        }
+
+        /**
+         * @see org.opencms.db.CmsPrincipalGraph#readGroup(org.opencms.db.CmsDbContext, java.lang.String)
+         */
+        @Override
+        protected CmsGroup readGroup(CmsDbContext dbc, String groupName) throws CmsException {
+
+            for (CmsGroup group : m_groups.values()) {
+                if (group.getName().equals(groupName)) {
+                    return group;
+                }
+            }
+            throw new CmsDbEntryNotFoundException(null);
+        }
+
+        /**
+         * @see org.opencms.db.CmsPrincipalGraph#readGroupsOfUser(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, boolean)
+         */
+        @Override
+        protected List<CmsGroup> readGroupsOfUser(CmsDbContext dbc, CmsUUID userId, boolean roles) {
+
+            m_reads++;
+            List<CmsGroup> result = new ArrayList<CmsGroup>();
+            if (m_memberships.containsKey(userId)) {
+                for (CmsGroup group : m_memberships.get(userId)) {
+                    if (group.isRole() == roles) {
+                        result.add(group);
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /** Test user id. */
+    private static final CmsUUID USER = CmsUUID.getConstantUUID("user");
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsPrincipalGraph(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests the filtering of the direct groups by organizational unit.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testGroupsOfUserInOrgUnits() throws Exception {
+
+        CmsTestPrincipalGraph graph = new CmsTestPrincipalGraph();
+        List<CmsGroup> groups = new ArrayList<CmsGroup>();
+        groups.add(graph.addGroup("Users", null));
+        groups.add(graph.addGroup("sales/Users", null));
+        groups.add(graph.addGroup("sales/north/Users", null));
+        graph.m_memberships.put(USER, groups);
+
+        assertEquals(3, graph.getGroupsOfUser(null, USER, "", true, false).size());
+        assertEquals(1, graph.getGroupsOfUser(null, USER, "", false, false).size());
+        assertEquals(2, graph.getGroupsOfUser(null, USER, "sales/", true, false).size());
+        assertEquals(1, graph.getGroupsOfUser(null, USER, "sales/", false, false).size());
+        assertEquals(0, graph.getGroupsOfUser(null, USER, "", true, true).size());
+        // the groups and the roles are read once each
+        assertEquals(2, graph.m_reads);
+    }
+
+    /**
+     * Tests that the memberships are updated incrementally without reading them again.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testIncrementalUpdates() throws Exception {
+
+        CmsTestPrincipalGraph graph = new CmsTestPrincipalGraph();
+        CmsGroup parent = graph.addGroup("Editors", null);
+        CmsGroup child = graph.addGroup("News", parent);
+        CmsGroup other = graph.addGroup("Guests", null);
+        List<CmsGroup> groups = new ArrayList<CmsGroup>();
+        groups.add(child);
+        graph.m_memberships.put(USER, groups);
+
+        assertFalse(graph.isUserInGroup(null, USER, "Guests"));
+        graph.addMembership(USER, other);
+        assertTrue(graph.isUserInGroup(null, USER, "Guests"));
+        graph.removeMembership(USER, other);
+        assertFalse(graph.isUserInGroup(null, USER, "Guests"));
+
+        // moving the child group removes the inherited membership
+        CmsGroup moved = new CmsGroup(child.getId(), other.getId(), child.getName(), "", 0);
+        graph.updateGroup(moved);
+        assertFalse(graph.isUserInGroup(null, USER, "Editors"));
+        assertTrue(graph.isUserInGroup(null, USER, "Guests"));
+
+        // deleting the group removes the membership
+        graph.removeGroup(moved);
+        assertFalse(graph.isUserInGroup(null, USER, "News"));
+        assertEquals(1, graph.m_reads);
+
+        // removing the user reads the memberships again
+        graph.removeUser(USER);
+        assertTrue(graph.isUserInGroup(null, USER, "Editors"));
+        assertEquals(2, graph.m_reads);
+    }
+
+    /**
+     * Tests the membership resolution through the parent groups.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testMembershipThroughParents() throws Exception {
+
+        CmsTestPrincipalGraph graph = new CmsTestPrincipalGraph();
+        CmsGroup root = graph.addGroup("Users", null);
+        CmsGroup parent = graph.addGroup("Editors", root);
+        CmsGroup child = graph.addGroup("News", parent);
+        graph.addGroup("Guests", null);
+        List<CmsGroup> groups = new ArrayList<CmsGroup>();
+        groups.add(child);
+        graph.m_memberships.put(USER, groups);
+
+        assertTrue(graph.isUserInGroup(null, USER, "News"));
+        assertTrue(graph.isUserInGroup(null, USER, "Editors"));
+        assertTrue(graph.isUserInGroup(null, USER, "/Users"));
+        assertFalse(graph.isUserInGroup(null, USER, "Guests"));
+        assertFalse(graph.isUserInGroup(null, CmsUUID.getConstantUUID("other"), "Users"));
+        assertEquals(parent, graph.getParent(null, child));
+        assertNull(graph.getParent(null, root));
+        assertEquals(2, graph.m_reads);
+        assertEquals(2, graph.getSize());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsUser;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.util.CmsUUID;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the cache and the lazy loading of the additional user infos.<p>
+ */
+public class TestCmsUserInfoCache extends TestCase {
+
+    /** Test user id. */
+    private static final CmsUUID USER = CmsUUID.getConstantUUID("user");
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsUserInfoCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that the cache returns copies and is invalidated per user.<p>
+     */
+    public void testInvalidation() {
+
+        CmsUserInfoCache cache = new CmsUserInfoCache(10);
+        CmsUUID other = CmsUUID.getConstantUUID("other");
+        Map<String, Object> infos = new HashMap<String, Object>();
+        infos.put("city", "Cologne");
+        cache.put(USER, infos, cache.getGeneration());
+        cache.put(other, infos, cache.getGeneration());
+
+        Map<String, Object> cached = cache.get(USER);
+        assertEquals("Cologne", cached.get("city"));
+        cached.put("city", "Berlin");
+        assertEquals("Cologne", cache.get(USER).get("city"));
+
+        cache.invalidate(USER);
+        assertNull(cache.get(USER));
+        assertNotNull(cache.get(other));
+        assertEquals(1, cache.getSize());
+    }
+
+    /**
+     * Tests that infos read concurrently to an invalidation are not cached.<p>
+     */
+    public void testConcurrentRead() {
+
+        CmsUserInfoCache cache = new CmsUserInfoCache(10);
+        long generation = cache.getGeneration();
+        // the infos are written while they are read
+        cache.invalidate(USER);
+        cache.put(USER, new HashMap<String, Object>(), generation);
+        assertNull(cache.get(USER));
+    }
+
+    /**
+     * Tests that the additional infos of a user are only read on first access.<p>
+     */
+    public void testLazyUserInfos() {
+
+        final int[] reads = new int[1];
+        I_CmsUserInfoLoader loader = new I_CmsUserInfoLoader() {
+
+            public Map<String, Object> readUserInfos(CmsUUID userId) {
+
+                reads[0]++;
+                Map<String, Object> infos = new HashMap<String, Object>();
+                infos.put(CmsUserSettings.ADDITIONAL_INFO_CITY, "Cologne");
+                return infos;
+            }
+        };
+        CmsUser user = new CmsUser(USER, "user", "", "", "", "", 0, I_CmsPrincipal.FLAG_ENABLED, 0, null);
+        user.setAdditionalInfoLoader(loader);
+        assertEquals("user", user.getName());
+        assertEquals(0, reads[0]);
+
+        CmsUser clone = (CmsUser)user.clone();
+        assertEquals("Cologne", user.getAdditionalInfo(CmsUserSettings.ADDITIONAL_INFO_CITY));
+        assertEquals("", user.getAdditionalInfo().get(CmsUserSettings.ADDITIONAL_INFO_DESCRIPTION));
+        assertEquals(1, reads[0]);
+
+        // the clone reads the infos on its own
+        clone.setAdditionalInfo(CmsUserSettings.ADDITIONAL_INFO_CITY, "Berlin");
+        assertEquals(2, reads[0]);
+        assertEquals("Berlin", clone.getCity());
+        assertEquals("Cologne", user.getCity());
+
+        // setting the complete map replaces the loader
+        CmsUser other = new CmsUser(USER, "user", "", "", "", "", 0, I_CmsPrincipal.FLAG_ENABLED, 0, null);
+        other.setAdditionalInfoLoader(loader);
+        other.setAdditionalInfo(new HashMap<String, Object>());
+        assertNull(other.getAdditionalInfo(CmsUserSettings.ADDITIONAL_INFO_CITY));
+        assertEquals(2, reads[0]);
+    }
+}
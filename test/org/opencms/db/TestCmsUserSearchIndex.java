@@ -0,0 +1,297 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsGroup;
+import org.opencms.file.CmsUser;
+import org.opencms.file.CmsUserSearchParameters;
+import org.opencms.file.CmsUserSearchParameters.SearchKey;
+import org.opencms.file.CmsUserSearchParameters.SortKey;
+import org.opencms.main.CmsException;
+import org.opencms.security.CmsOrganizationalUnit;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the user search index.<p>
+ */
+public class TestCmsUserSearchIndex extends TestCase {
+
+    /**
+     * User search index reading the users from a map instead of the database.<p>
+     */
+    private static class TestIndex extends CmsUserSearchIndex {
+
+        /** The number of users read. */
+        protected int m_reads;
+
+        /** The users by id. */
+        protected Map<CmsUUID, CmsUser> m_users = new TreeMap<CmsUUID, CmsUser>();
+
+        /**
+         * Creates a new test index.<p>
+         */
+        protected TestIndex() {
+
+            super(null);
+        }
+
+        /**
+         * Adds a user.<p>
+         * 
+         * @param name the fully qualified user name
+         * @param firstname the first name
+         * @param lastname the last name 
+         * @param email the email address
+         * @param flags the user flags
+         * 
+         * @return the user
+         */
+        protected CmsUser addUser(String name, String firstname, String lastname, String email, int flags) {
+
+            CmsUser user = new CmsUser(
+                CmsUUID.getConstantUUID(name),
+                name,
+                "",
+                firstname,
+                lastname,
+                email,
+                name.length(),
+                flags,
+                0,
+                null);
+            m_users.put(user.getId(), user);
+            return user;
+        }
+
+        /**
+         * @see org.opencms.db.CmsUserSearchIndex#readUser(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID)
+         */
+        @Override
+        protected CmsUser readUser(CmsDbContext dbc, CmsUUID userId) throws CmsException {
+
+            m_reads++;
+            CmsUser user = m_users.get(userId);
+            if (user == null) {
+                throw new CmsDbEntryNotFoundException(Messages.get().container(
+                    Messages.ERR_USER_SEARCH_INDEX_0));
+            }
+            return user;
+        }
+
+        /**
+         * @see org.opencms.db.CmsUserSearchIndex#readUsers(org.opencms.db.CmsDbContext, int, int)
+         */
+        @Override
+        protected List<CmsUser> readUsers(CmsDbContext dbc, int page, int pageSize) {
+
+            List<CmsUser> users = new ArrayList<CmsUser>(m_users.values());
+            int start = Math.min((page - 1) * pageSize, users.size());
+            return new ArrayList<CmsUser>(users.subList(start, Math.min(start + pageSize, users.size())));
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsUserSearchIndex(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that modified and deleted users are indexed again.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testInvalidate() throws Exception {
+
+        TestIndex index = createIndex();
+        CmsUserSearchParameters params = new CmsUserSearchParameters();
+        params.setSearchFilter("mith");
+        params.setCaseSensitive(false);
+        assertEquals(0, index.countUsers(null, params));
+        assertEquals(2503, index.getSize());
+
+        CmsUser user = index.addUser("sub/jsmith", "John", "Smith", "smith@example.org", I_CmsPrincipal.FLAG_ENABLED);
+        index.invalidate(user.getId());
+        assertEquals(1, index.countUsers(null, params));
+        assertEquals(user, index.searchUsers(null, params).get(0));
+
+        index.m_users.remove(user.getId());
+        index.invalidate(user.getId());
+        assertEquals(0, index.countUsers(null, params));
+        assertEquals(2503, index.getSize());
+    }
+
+    /**
+     * Tests sorting and keyset paging.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testPaging() throws Exception {
+
+        TestIndex index = createIndex();
+        CmsUserSearchParameters params = new CmsUserSearchParameters();
+        params.setOrganizationalUnit(new CmsOrganizationalUnit(null, "sub/", "", 0, null));
+        params.setSorting(SortKey.loginName, false);
+        List<String> expected = new ArrayList<String>();
+        for (int i = 2499; i >= 0; i--) {
+            expected.add(String.format("sub/user%04d", Integer.valueOf(i)));
+        }
+        params.setPaging(-1, 0);
+        assertEquals(expected, getNames(index.searchUsers(null, params)));
+
+        // page through the results, every page continues after the previous page
+        List<String> paged = new ArrayList<String>();
+        for (int page = 1; page <= 26; page++) {
+            params.setPaging(100, page);
+            index.m_reads = 0;
+            List<CmsUser> users = index.searchUsers(null, params);
+            assertEquals(page < 26 ? 100 : 0, users.size());
+            assertEquals(users.size(), index.m_reads);
+            paged.addAll(getNames(users));
+        }
+        assertEquals(expected, paged);
+
+        // jump directly to a page
+        params.setPaging(100, 7);
+        assertEquals(expected.subList(600, 700), getNames(createIndex().searchUsers(null, params)));
+
+        params.setSorting(SortKey.lastLogin, true);
+        params.setPaging(3, 1);
+        params.setRecursiveOrgUnits(true);
+        params.setOrganizationalUnit(new CmsOrganizationalUnit(null, "", "", 0, null));
+        assertEquals(3, index.searchUsers(null, params).size());
+        assertEquals("Admin", index.searchUsers(null, params).get(0).getName());
+    }
+
+    /**
+     * Tests the search conditions.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testSearch() throws Exception {
+
+        TestIndex index = createIndex();
+        CmsUserSearchParameters params = new CmsUserSearchParameters();
+        assertEquals(2503, index.countUsers(null, params));
+
+        params.setFilterCore(true);
+        assertEquals(2502, index.countUsers(null, params));
+
+        params.setOrganizationalUnit(new CmsOrganizationalUnit(null, "", "", 0, null));
+        assertEquals(1, index.countUsers(null, params));
+        params.setRecursiveOrgUnits(true);
+        assertEquals(2501, index.countUsers(null, params));
+
+        params.setSearchFilter("Mus");
+        assertEquals(1, index.countUsers(null, params));
+        params.setSearchFilter("mus");
+        assertEquals(0, index.countUsers(null, params));
+        params.setCaseSensitive(false);
+        assertEquals(1, index.countUsers(null, params));
+        params.setSearchFilter("max mus");
+        assertEquals(1, index.countUsers(null, params));
+        params.setSearchFilter("user001");
+        assertEquals(10, index.countUsers(null, params));
+        params.setSearchFilter("example");
+        assertEquals(0, index.countUsers(null, params));
+        params.addSearch(SearchKey.email);
+        assertEquals(1, index.countUsers(null, params));
+
+        // like the database query, the filter matches any part of the values
+        params.setSearchFilter("ustermann");
+        assertEquals(1, index.countUsers(null, params));
+        params.setSearchFilter("ser00");
+        assertEquals(100, index.countUsers(null, params));
+        params.setSearchFilter("user0001 first last1");
+        assertEquals(1, index.countUsers(null, params));
+        params.setSearchFilter("ub/");
+        assertEquals(0, index.countUsers(null, params));
+        params.addSearch(SearchKey.orgUnit);
+        assertEquals(2500, index.countUsers(null, params));
+        params.setSearchFilter("ser0*");
+        assertFalse(index.isSupported(params));
+
+        params = new CmsUserSearchParameters();
+        params.setFlags(I_CmsPrincipal.FLAG_DISABLED);
+        assertEquals(1, index.countUsers(null, params));
+        params.setFlags(I_CmsPrincipal.FLAG_USER_WEBUSER);
+        assertEquals(1, index.countUsers(null, params));
+        params.setKeepCoreUsers(true);
+        assertEquals(2502, index.countUsers(null, params));
+
+        params = new CmsUserSearchParameters();
+        params.setGroup(new CmsGroup());
+        assertFalse(index.isSupported(params));
+    }
+
+    /**
+     * Creates a test index with some users.<p>
+     * 
+     * @return the test index
+     */
+    private TestIndex createIndex() {
+
+        TestIndex index = new TestIndex();
+        index.addUser("Admin", "Max", "Mustermann", "admin@example.org", I_CmsPrincipal.FLAG_DISABLED);
+        index.addUser("web/guest", "", "", null, I_CmsPrincipal.FLAG_USER_WEBUSER);
+        index.addUser("Export", null, null, null, I_CmsPrincipal.FLAG_CORE_LIMIT * 2);
+        for (int i = 0; i < 2500; i++) {
+            String name = String.format("sub/user%04d", Integer.valueOf(i));
+            index.addUser(name, "First", "Last" + i, "u" + i + "@mail.org", I_CmsPrincipal.FLAG_ENABLED);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the names of the given users.<p>
+     * 
+     * @param users the users
+     * 
+     * @return the user names
+     */
+    private List<String> getNames(List<CmsUser> users) {
+
+        List<String> names = new ArrayList<String>();
+        for (CmsUser user : users) {
+            names.add(user.getName());
+        }
+        return names;
+    }
+}
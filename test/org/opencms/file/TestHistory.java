@@ -27,6 +27,7 @@
 
 package org.opencms.file;
 
+import org.opencms.db.CmsHistoryClearCursor;
 import org.opencms.db.CmsResourceState;
 import org.opencms.file.history.CmsHistoryFile;
 import org.opencms.file.history.I_CmsHistoryResource;
@@ -40,8 +41,13 @@ import org.opencms.report.CmsShellReport;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.test.OpenCmsTestResourceConfigurableFilter;
+import org.opencms.util.CmsUUID;
 
 import java.io.UnsupportedEncodingException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -96,6 +102,8 @@ public class TestHistory extends OpenCmsTestCase {
         suite.addTest(new TestHistory("testFileVersions"));
         suite.addTest(new TestHistory("testVersioningLimit"));
         suite.addTest(new TestHistory("testSiblingsV7HistoryIssue"));
+        suite.addTest(new TestHistory("testMergeHistoricalContents"));
+        suite.addTest(new TestHistory("testDeleteHistoricalVersionsInChunks"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -374,6 +382,89 @@ public class TestHistory extends OpenCmsTestCase {
         assertEquals(1 + counter + 1 + counter, historyResourcesForSibling.size());
     }
 
+    /**
+     * Tests deleting the historical versions in chunks, with a limit per run,
+     * resuming every run with the same cursor.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testDeleteHistoricalVersionsInChunks() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing deleting historical versions in chunks");
+
+        int files = 5;
+        int versions = 3;
+        OpenCms.getSystemInfo().setVersionHistorySettings(true, versions, versions);
+        List<String> filenames = new ArrayList<String>();
+        for (int i = 0; i < files; i++) {
+            String filename = "/chunkedHistory" + i + ".txt";
+            cms.createResource(filename, CmsResourceTypePlain.getStaticTypeId(), "version 0".getBytes(), null);
+            filenames.add(filename);
+        }
+        for (int v = 1; v <= versions; v++) {
+            for (String filename : filenames) {
+                CmsFile file = cms.readFile(filename);
+                file.setContents(("version " + v).getBytes());
+                cms.lockResource(filename);
+                cms.writeFile(file);
+                cms.unlockResource(filename);
+            }
+            OpenCms.getPublishManager().publishProject(cms);
+            OpenCms.getPublishManager().waitWhileRunning();
+        }
+        for (String filename : filenames) {
+            assertEquals(versions, cms.readAllAvailableVersions(filename).size());
+        }
+
+        // chunks smaller than the limit, and a limit smaller than the number of entries
+        int maxEntries = 3;
+        CmsHistoryClearCursor cursor = new CmsHistoryClearCursor(2, 0, maxEntries);
+        CmsShellReport report = new CmsShellReport(cms.getRequestContext().getLocale());
+
+        cms.deleteHistoricalVersions(1, 1, -1, cursor, report);
+        assertFalse(cursor.isFinished());
+        assertFalse(cursor.isExistingDone());
+        assertEquals(maxEntries, cursor.getProcessedTotal());
+
+        // only the entries up to the cursor position have been cleared
+        String lastStructureId = cursor.getLastStructureId().toString();
+        for (String filename : filenames) {
+            String structureId = cms.readResource(filename).getStructureId().toString();
+            int expected = (structureId.compareTo(lastStructureId) <= 0) ? 1 : versions;
+            assertEquals(filename, expected, cms.readAllAvailableVersions(filename).size());
+        }
+
+        // resume with the same cursor until everything is processed
+        int runs = 1;
+        while (!cursor.isFinished()) {
+            int processedTotal = cursor.getProcessedTotal();
+            boolean existingDone = cursor.isExistingDone();
+            cms.deleteHistoricalVersions(1, 1, -1, cursor, report);
+            runs++;
+            int processed = cursor.getProcessedTotal() - processedTotal;
+            assertTrue(processed <= maxEntries);
+            if (!cursor.isFinished()) {
+                assertEquals(maxEntries, processed);
+                if (existingDone == cursor.isExistingDone()) {
+                    // the keyset moves forward, no entry is read twice
+                    assertTrue(cursor.getLastStructureId().toString().compareTo(lastStructureId) > 0);
+                }
+            }
+            lastStructureId = cursor.getLastStructureId().toString();
+            assertTrue("too many runs", runs < 10000);
+        }
+        assertTrue(runs > 1);
+        for (String filename : filenames) {
+            assertEquals(filename, 1, cms.readAllAvailableVersions(filename).size());
+        }
+
+        // a finished cursor starts again at the first entry
+        cms.deleteHistoricalVersions(1, 1, -1, cursor, report);
+        assertFalse(cursor.isFinished());
+        assertEquals(maxEntries, cursor.getProcessedTotal());
+    }
+
     /**
      * creates a file, modifies and publishes it n-times, create 2 siblings, 
      * delete file and sibling N2, delete some versions from history, restore 
@@ -925,6 +1016,75 @@ public class TestHistory extends OpenCmsTestCase {
          */
     }
 
+    /**
+     * Tests merging identical historical contents of a file into a single content record.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testMergeHistoricalContents() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the merge of identical historical contents");
+
+        String filename = "/mergeHistory.txt";
+
+        // create and publish three versions with different contents
+        cms.createResource(filename, CmsResourceTypePlain.getStaticTypeId(), "content A".getBytes(), null);
+        cms.unlockResource(filename);
+        OpenCms.getPublishManager().publishResource(cms, filename);
+        OpenCms.getPublishManager().waitWhileRunning();
+        String[] contents = {"content B", "content C"};
+        for (int i = 0; i < contents.length; i++) {
+            CmsFile file = cms.readFile(filename);
+            file.setContents(contents[i].getBytes());
+            cms.lockResource(filename);
+            cms.writeFile(file);
+            OpenCms.getPublishManager().publishResource(cms, filename);
+            OpenCms.getPublishManager().waitWhileRunning();
+        }
+
+        CmsUUID resourceId = cms.readResource(filename).getResourceId();
+        List<Integer> publishTags = readContentPublishTags(resourceId);
+        assertEquals(3, publishTags.size());
+
+        // simulate history written before identical contents were shared:
+        // the second version gets the same content as the first one
+        Connection conn = OpenCms.getSqlManager().getConnection(OpenCms.getSqlManager().getDefaultDbPoolName());
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement("UPDATE CMS_CONTENTS SET FILE_CONTENT=? "
+                + "WHERE RESOURCE_ID=? AND PUBLISH_TAG_FROM=?");
+            stmt.setBytes(1, "content A".getBytes());
+            stmt.setString(2, resourceId.toString());
+            stmt.setInt(3, publishTags.get(1).intValue());
+            stmt.executeUpdate();
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+            conn.close();
+        }
+
+        cms.mergeHistoricalContents(new CmsShellReport(Locale.ENGLISH));
+
+        // the first two records have been merged, the last one is kept
+        publishTags = readContentPublishTags(resourceId);
+        assertEquals(2, publishTags.size());
+
+        // all versions must still read their content
+        List historyResources = cms.readAllAvailableVersions(filename);
+        assertEquals(3, historyResources.size());
+        String[] expected = {"content C", "content A", "content A"};
+        for (int i = 0; i < historyResources.size(); i++) {
+            CmsFile file = cms.readFile((CmsResource)historyResources.get(i));
+            assertEquals(expected[i], getContentString(cms, file.getContents()));
+        }
+
+        // the online content is not affected
+        cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        assertEquals("content C", getContentString(cms, cms.readFile(filename).getContents()));
+    }
+
     /**
      * Moves a resource n-times and tests if the version ID of the history resources
      * are correct and if the content could be restored for a specified version ID.<p>
@@ -2364,4 +2524,39 @@ public class TestHistory extends OpenCmsTestCase {
             return new String(content);
         }
     }
+
+    /**
+     * Reads the publish tags of all content records of the given resource.<p>
+     * 
+     * @param resourceId the resource id
+     * 
+     * @return the publish tags the content records start with, in ascending order
+     * 
+     * @throws Exception if something goes wrong
+     */
+    protected List<Integer> readContentPublishTags(CmsUUID resourceId) throws Exception {
+
+        List<Integer> publishTags = new ArrayList<Integer>();
+        Connection conn = OpenCms.getSqlManager().getConnection(OpenCms.getSqlManager().getDefaultDbPoolName());
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        try {
+            stmt = conn.prepareStatement("SELECT PUBLISH_TAG_FROM FROM CMS_CONTENTS "
+                + "WHERE RESOURCE_ID=? ORDER BY PUBLISH_TAG_FROM");
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+            while (res.next()) {
+                publishTags.add(new Integer(res.getInt(1)));
+            }
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+            conn.close();
+        }
+        return publishTags;
+    }
 }
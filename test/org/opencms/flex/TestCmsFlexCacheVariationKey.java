@@ -0,0 +1,348 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.file.CmsObject;
+import org.opencms.loader.I_CmsResourceLoader;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for the CmsFlexCacheVariationKey.<p>
+ */
+public class TestCmsFlexCacheVariationKey extends OpenCmsTestCase {
+
+    /**
+     * Invocation handler for a request with the given parameters, which also keeps the request attributes.<p>
+     */
+    private static class RequestHandler implements InvocationHandler {
+
+        /** The request attributes. */
+        private Map<String, Object> m_attributes = new HashMap<String, Object>();
+
+        /** The request parameters. */
+        private Map<String, String[]> m_parameters;
+
+        /**
+         * Creates a new request handler.<p>
+         * 
+         * @param parameters the request parameters
+         */
+        protected RequestHandler(Map<String, String[]> parameters) {
+
+            m_parameters = parameters;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            String name = method.getName();
+            if ("getParameterMap".equals(name)) {
+                return m_parameters;
+            } else if ("getParameter".equals(name)) {
+                String[] values = m_parameters.get(args[0]);
+                return values != null ? values[0] : null;
+            } else if ("getParameterValues".equals(name)) {
+                return m_parameters.get(args[0]);
+            } else if ("getAttribute".equals(name)) {
+                return m_attributes.get(args[0]);
+            } else if ("setAttribute".equals(name)) {
+                m_attributes.put((String)args[0], args[1]);
+            } else if ("removeAttribute".equals(name)) {
+                m_attributes.remove(args[0]);
+            } else if ("getAttributeNames".equals(name)) {
+                return Collections.enumeration(m_attributes.keySet());
+            } else if ("getServerPort".equals(name)) {
+                return Integer.valueOf(80);
+            } else if ("getScheme".equals(name)) {
+                return "http";
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsFlexCacheVariationKey(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsFlexCacheVariationKey.class.getName());
+
+        suite.addTest(new TestCmsFlexCacheVariationKey("testEquality"));
+        suite.addTest(new TestCmsFlexCacheVariationKey("testLookup"));
+        suite.addTest(new TestCmsFlexCacheVariationKey("testResetAndToString"));
+        suite.addTest(new TestCmsFlexCacheVariationKey("testMatchRequestVariation"));
+        suite.addTest(new TestCmsFlexCacheVariationKey("testMatchRequestVariationDirectives"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Creates a variation key like it would be generated for "cache=uri;user;params=(a,b)".<p>
+     * 
+     * @param uri the uri
+     * @param user the user
+     * @param a the value of parameter a
+     * @param b the value of parameter b
+     * 
+     * @return the variation key
+     */
+    private static CmsFlexCacheVariationKey createKey(String uri, String user, String a, String b) {
+
+        CmsFlexCacheVariationKey key = new CmsFlexCacheVariationKey(2);
+        key.add("uri", uri);
+        key.add("user", user);
+        key.add("params", CmsFlexCacheVariationKey.LIST_START);
+        if (a != null) {
+            key.add("a", a);
+        }
+        if (b != null) {
+            key.add("b", b);
+        }
+        key.add(CmsFlexCacheVariationKey.LIST_END, null);
+        return key.complete();
+    }
+
+    /**
+     * Tests equality and hash codes of variation keys.<p>
+     */
+    public void testEquality() {
+
+        CmsFlexCacheVariationKey key1 = createKey("/sites/default/index.html", "Guest", "1", null);
+        CmsFlexCacheVariationKey key2 = createKey(new String("/sites/default/index.html"), "Guest", "1", null);
+        CmsFlexCacheVariationKey key3 = createKey("/sites/default/index.html", "Admin", "1", null);
+        CmsFlexCacheVariationKey key4 = createKey("/sites/default/index.html", "Guest", null, "1");
+
+        assertEquals(key1, key2);
+        assertEquals(key1.hashCode(), key2.hashCode());
+        assertFalse(key1.equals(key3));
+        assertFalse(key1.equals(key4));
+        assertEquals(key1.toString(), key2.toString());
+    }
+
+    /**
+     * Tests looking up variations in a map with a realistic set of keys.<p>
+     */
+    public void testLookup() {
+
+        Map<CmsFlexCacheVariationKey, String> map = new HashMap<CmsFlexCacheVariationKey, String>();
+        for (int page = 0; page < 100; page++) {
+            for (int user = 0; user < 10; user++) {
+                String value = page + ":" + user;
+                map.put(createKey("/sites/default/page" + page + ".html", "user" + user, "" + (page % 3), null), value);
+            }
+        }
+        assertEquals(1000, map.size());
+        for (int page = 0; page < 100; page++) {
+            for (int user = 0; user < 10; user++) {
+                String value = page + ":" + user;
+                assertEquals(
+                    value,
+                    map.get(createKey("/sites/default/page" + page + ".html", "user" + user, "" + (page % 3), null)));
+            }
+        }
+        assertNull(map.get(createKey("/sites/default/page1.html", "user1", "2", null)));
+    }
+
+    /**
+     * Tests the variations created for requests with different parameters, users, URIs and elements.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testMatchRequestVariation() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        CmsObject guestCms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+        String element = I_CmsResourceLoader.PARAMETER_ELEMENT;
+        CmsFlexCacheKey key = new CmsFlexCacheKey("/sites/default/index.html", "uri;user;element;params=(a,b)", false);
+
+        CmsFlexCacheVariationKey variation = matchRequest(key, cms, "/index.html", "a", "1");
+        assertNotNull(variation);
+        String user = cms.getRequestContext().getCurrentUser().getName();
+        assertEquals(
+            "uri=(/sites/default/index.html);element=(null);user=(" + user + ");params=(a=1);",
+            variation.toString());
+
+        // the same request creates an equal variation
+        CmsFlexCacheVariationKey same = matchRequest(key, cms, "/index.html", "a", "1");
+        assertEquals(variation, same);
+        assertEquals(variation.hashCode(), same.hashCode());
+        assertEquals(variation.toString(), matchRequest(key, cms, "/index.html", "a", "1").toString());
+
+        // parameters not listed in the directives are ignored
+        assertEquals(variation, matchRequest(key, cms, "/index.html", "a", "1", "c", "3"));
+
+        // every listed directive creates a different variation
+        assertFalse(variation.equals(matchRequest(key, cms, "/index.html", "a", "2")));
+        assertFalse(variation.equals(matchRequest(key, cms, "/index.html", "a", "1", "b", "1")));
+        assertFalse(variation.equals(matchRequest(key, cms, "/index.html")));
+        assertFalse(variation.equals(matchRequest(key, guestCms, "/index.html", "a", "1")));
+        assertFalse(variation.equals(matchRequest(key, cms, "/folder1/index.html", "a", "1")));
+        CmsFlexCacheVariationKey elementVariation = matchRequest(key, cms, "/index.html", "a", "1", element, "body");
+        assertFalse(variation.equals(elementVariation));
+        assertTrue(elementVariation.toString().indexOf("element=(body);") >= 0);
+        assertEquals(elementVariation, matchRequest(key, cms, "/index.html", element, "body", "a", "1"));
+    }
+
+    /**
+     * Tests the directives which decide if a request is cached at all.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testMatchRequestVariationDirectives() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        String resource = "/sites/default/index.html";
+
+        CmsFlexCacheKey always = new CmsFlexCacheKey(resource, "always", false);
+        assertSame(CmsFlexCacheVariationKey.ALWAYS, matchRequest(always, cms, "/index.html", "a", "1"));
+
+        CmsFlexCacheKey never = new CmsFlexCacheKey(resource, "never", false);
+        assertNull(matchRequest(never, cms, "/index.html"));
+
+        // requests with parameters are not cached for "no-params"
+        CmsFlexCacheKey noParams = new CmsFlexCacheKey(resource, "uri;no-params", false);
+        assertNull(matchRequest(noParams, cms, "/index.html", "a", "1"));
+        CmsFlexCacheVariationKey variation = matchRequest(noParams, cms, "/index.html");
+        assertNotNull(variation);
+        assertEquals("uri=(/sites/default/index.html);", variation.toString());
+
+        // only the listed parameters prevent caching
+        CmsFlexCacheKey noParamA = new CmsFlexCacheKey(resource, "uri;no-params=(a)", false);
+        assertNull(matchRequest(noParamA, cms, "/index.html", "a", "1"));
+        assertEquals(variation, matchRequest(noParamA, cms, "/index.html", "b", "1"));
+    }
+
+    /**
+     * Tests the rollback of optional directives and the String representation.<p>
+     */
+    public void testResetAndToString() {
+
+        CmsFlexCacheVariationKey key = new CmsFlexCacheVariationKey(1);
+        key.add("uri", "/index.html");
+        int mark = key.mark();
+        key.add("session", CmsFlexCacheVariationKey.LIST_START);
+        key.reset(mark);
+        key.add("ports", Integer.valueOf(80));
+        key.complete();
+
+        assertEquals(2, key.size());
+        assertEquals("uri=(/index.html);ports=(80);", key.toString());
+        assertEquals("always", CmsFlexCacheVariationKey.ALWAYS.toString());
+    }
+
+    /**
+     * Matches the given cache key with a request for the given user, URI and parameters.<p>
+     * 
+     * @param key the cache key
+     * @param cms the cms context with the user of the request
+     * @param uri the requested URI
+     * @param params the request parameters as alternating names and values
+     * 
+     * @return the variation key
+     */
+    private CmsFlexCacheVariationKey matchRequest(CmsFlexCacheKey key, CmsObject cms, String uri, String... params) {
+
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        for (int i = 0; i < params.length; i += 2) {
+            parameters.put(params[i], new String[] {params[i + 1]});
+        }
+        HttpServletRequest req = (HttpServletRequest)Proxy.newProxyInstance(
+            Thread.currentThread().getContextClassLoader(),
+            new Class[] {HttpServletRequest.class},
+            new RequestHandler(parameters));
+        HttpServletResponse res = (HttpServletResponse)Proxy.newProxyInstance(
+            Thread.currentThread().getContextClassLoader(),
+            new Class[] {HttpServletResponse.class},
+            new TestCmsFlexResponse.RecordingMock());
+        CmsObject requestCms = cms;
+        try {
+            requestCms = OpenCms.initCmsObject(cms);
+        } catch (Exception e) {
+            fail(e.getLocalizedMessage());
+        }
+        requestCms.getRequestContext().setUri(uri);
+        CmsFlexController controller = new CmsFlexController(
+            requestCms,
+            null,
+            CmsFlexDummyLoader.getFlexCache(),
+            req,
+            res,
+            false,
+            true);
+        CmsFlexController.setController(req, controller);
+        return key.matchRequestVariation(new CmsFlexRequestKey(req, uri, false));
+    }
+}
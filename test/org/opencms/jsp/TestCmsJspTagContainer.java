@@ -0,0 +1,121 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.jsp;
+
+import org.opencms.file.CmsObject;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
+import org.opencms.xml.containerpage.CmsContainerElementBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit tests for the <code>{@link CmsJspTagContainer}</code>.<p>
+ * 
+ * @since 8.5.0
+ */
+public class TestCmsJspTagContainer extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsJspTagContainer(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsJspTagContainer.class.getName());
+
+        suite.addTest(new TestCmsJspTagContainer("testReadFormatterPaths"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the formatters of the container elements are resolved once per formatter id.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testReadFormatterPaths() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the formatter lookup of the container tag");
+
+        CmsUUID indexId = cms.readResource("/index.html").getStructureId();
+        CmsUUID folderId = cms.readResource("/folder1/").getStructureId();
+        CmsUUID missingId = new CmsUUID();
+
+        List<CmsContainerElementBean> elements = new ArrayList<CmsContainerElementBean>();
+        elements.add(new CmsContainerElementBean(folderId, indexId, null, false));
+        elements.add(new CmsContainerElementBean(folderId, indexId, null, false));
+        elements.add(new CmsContainerElementBean(folderId, missingId, null, false));
+        elements.add(new CmsContainerElementBean(folderId, null, null, false));
+
+        Map<CmsUUID, String> formatterPaths = new CmsJspTagContainer().readFormatterPaths(cms, elements);
+
+        assertEquals(2, formatterPaths.size());
+        assertEquals("/index.html", formatterPaths.get(indexId));
+        // formatters that can not be read are left to the configuration
+        assertTrue(formatterPaths.containsKey(missingId));
+        assertNull(formatterPaths.get(missingId));
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the cache of validated JSPs of the JSP loader.<p>
+ */
+public class TestCmsJspLoaderCache extends TestCase {
+
+    /**
+     * JSP loader which records the scheduled background refreshes instead of running them.<p>
+     */
+    private static class CmsTestJspLoader extends CmsJspLoader {
+
+        /** The root paths of the JSPs for which a refresh was scheduled. */
+        protected Set<String> m_scheduled = new HashSet<String>();
+
+        /** The result of the strong link check. */
+        protected boolean m_strongLinkModified;
+
+        /**
+         * @see org.opencms.loader.CmsJspLoader#isStrongLinkModified(org.opencms.file.CmsObject, org.opencms.file.CmsResource, long, java.util.Set)
+         */
+        @Override
+        protected boolean isStrongLinkModified(CmsObject cms, CmsResource resource, long date, Set<String> checked) {
+
+            return m_strongLinkModified;
+        }
+
+        /**
+         * @see org.opencms.loader.CmsJspLoader#scheduleOfflineRefresh(org.opencms.file.CmsResource, java.lang.String, org.opencms.file.CmsObject, org.opencms.loader.CmsJspLoader.CmsJspFreshness)
+         */
+        @Override
+        protected void scheduleOfflineRefresh(
+            CmsResource resource,
+            String jspPath,
+            CmsObject cms,
+            CmsJspFreshness freshness) {
+
+            m_scheduled.add(resource.getRootPath());
+        }
+    }
+
+    /** The offline staleness bound used in the tests. */
+    private static final long STALENESS = 60000;
+
+    /** The loader to test. */
+    private CmsTestJspLoader m_loader;
+
+    /**
+     * Tests the background refresh of offline JSPs.<p>
+     * 
+     * @throws Exception if something goes wrong
+     */
+    public void testOfflineRefresh() throws Exception {
+
+        CmsResource jsp = createResource("/test.jsp", 100);
+        File file = File.createTempFile("test", ".jsp");
+        try {
+            long now = System.currentTimeMillis();
+            CmsJspLoader.CmsJspFreshness freshness = new CmsJspLoader.CmsJspFreshness(
+                0,
+                100,
+                file.lastModified(),
+                now - (STALENESS / 2));
+
+            // unchanged file and strong links renew the validation time
+            m_loader.cacheJsp(jsp.getRootPath(), freshness, false);
+            m_loader.refreshOfflineJsp(null, jsp, file.getAbsolutePath(), freshness);
+            CmsJspLoader.CmsJspFreshness refreshed = m_loader.getCachedJsp(jsp.getRootPath(), false);
+            assertNotSame(freshness, refreshed);
+            assertTrue(refreshed.getValidated() >= now);
+
+            // a modified strong link drops the entry
+            m_loader.m_strongLinkModified = true;
+            m_loader.refreshOfflineJsp(null, jsp, file.getAbsolutePath(), refreshed);
+            assertNull(m_loader.getCachedJsp(jsp.getRootPath(), false));
+
+            // so does a changed file in the real file system
+            m_loader.m_strongLinkModified = false;
+            freshness = new CmsJspLoader.CmsJspFreshness(0, 100, file.lastModified() - 1000, now);
+            m_loader.cacheJsp(jsp.getRootPath(), freshness, false);
+            m_loader.refreshOfflineJsp(null, jsp, file.getAbsolutePath(), freshness);
+            assertNull(m_loader.getCachedJsp(jsp.getRootPath(), false));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests that offline JSPs are refreshed in the background after half of the staleness bound,
+     * and validated synchronously after the bound.<p>
+     */
+    public void testOfflineStaleness() {
+
+        CmsResource jsp = createResource("/test.jsp", 100);
+        long now = System.currentTimeMillis();
+
+        m_loader.cacheJsp(jsp.getRootPath(), new CmsJspLoader.CmsJspFreshness(0, 100, 200, now), false);
+        assertNotNull(m_loader.getValidJsp(jsp, "", null, false));
+        assertTrue(m_loader.m_scheduled.isEmpty());
+        // a changed VFS resource is never served from the cache
+        assertNull(m_loader.getValidJsp(createResource("/test.jsp", 101), "", null, false));
+
+        // after half of the bound the JSP is still served, but a refresh is scheduled once
+        m_loader.cacheJsp(
+            jsp.getRootPath(),
+            new CmsJspLoader.CmsJspFreshness(0, 100, 200, now - (STALENESS / 2)),
+            false);
+        assertNotNull(m_loader.getValidJsp(jsp, "", null, false));
+        assertTrue(m_loader.m_scheduled.remove(jsp.getRootPath()));
+        assertNotNull(m_loader.getValidJsp(jsp, "", null, false));
+        assertTrue(m_loader.m_scheduled.isEmpty());
+
+        // after the bound the entry is dropped, so the strong links are checked again
+        m_loader.cacheJsp(jsp.getRootPath(), new CmsJspLoader.CmsJspFreshness(0, 100, 200, now - STALENESS), false);
+        assertNull(m_loader.getValidJsp(jsp, "", null, false));
+        assertNull(m_loader.getCachedJsp(jsp.getRootPath(), false));
+    }
+
+    /**
+     * Tests that online JSPs are valid until they are removed from the cache or the online epoch changes.<p>
+     */
+    public void testOnlineEpoch() {
+
+        CmsResource jsp = createResource("/test.jsp", 100);
+
+        m_loader.cacheJsp(jsp.getRootPath(), new CmsJspLoader.CmsJspFreshness(0, 100, 200, 0), true);
+        assertNotNull(m_loader.getValidJsp(jsp, "", null, true));
+        assertNull(m_loader.getValidJsp(createResource("/test.jsp", 101), "", null, true));
+        // online JSPs do not expire
+        assertTrue(m_loader.m_scheduled.isEmpty());
+
+        // a publish removes the published JSP and the JSPs including it
+        m_loader.removeFromCache(Collections.singleton(jsp.getRootPath()), true);
+        assertNull(m_loader.getValidJsp(jsp, "", null, true));
+
+        // clearing the online caches starts a new epoch
+        m_loader.cacheJsp(jsp.getRootPath(), new CmsJspLoader.CmsJspFreshness(0, 100, 200, 0), true);
+        m_loader.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES, new HashMap<String, Object>()));
+        assertNull(m_loader.getValidJsp(jsp, "", null, true));
+        // a JSP validated concurrently in the old epoch is not used
+        m_loader.cacheJsp(jsp.getRootPath(), new CmsJspLoader.CmsJspFreshness(0, 100, 200, 0), true);
+        assertNull(m_loader.getValidJsp(jsp, "", null, true));
+        m_loader.cacheJsp(jsp.getRootPath(), new CmsJspLoader.CmsJspFreshness(1, 100, 200, 0), true);
+        assertNotNull(m_loader.getValidJsp(jsp, "", null, true));
+
+        // the offline cache is not affected by the online epoch
+        m_loader.cacheJsp(jsp.getRootPath(), new CmsJspLoader.CmsJspFreshness(0, 100, 200, 0), false);
+        assertNotNull(m_loader.getCachedJsp(jsp.getRootPath(), false));
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() {
+
+        m_loader = new CmsTestJspLoader();
+        m_loader.addConfigurationParameter(
+            CmsJspLoader.PARAM_JSP_REPOSITORY,
+            System.getProperty("java.io.tmpdir"));
+        m_loader.addConfigurationParameter(CmsJspLoader.PARAM_JSP_OFFLINE_STALENESS, String.valueOf(STALENESS));
+        m_loader.initConfiguration();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() {
+
+        m_loader.destroy();
+    }
+
+    /**
+     * Creates a JSP resource.<p>
+     * 
+     * @param path the root path
+     * @param dateLastModified the date of last modification
+     * 
+     * @return the resource
+     */
+    private CmsResource createResource(String path, long dateLastModified) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            path,
+            1,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            0,
+            CmsUUID.getNullUUID(),
+            dateLastModified,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            0,
+            0,
+            0);
+    }
+}
@@ -64,6 +64,8 @@ public final class AllTests {
         suite.addTest(new TestSuite(TestCmsShell.class));
         suite.addTest(TestOpenCmsSingleton.suite());
         suite.addTest(TestCmsEvents.suite());
+        suite.addTest(new TestSuite(TestCmsAsyncEventDispatch.class));
+        suite.addTest(new TestSuite(TestCmsDeferredEvents.class));
         suite.addTest(TestCmsSystemInfo.suite());
         // $JUnit-END$
         return suite;
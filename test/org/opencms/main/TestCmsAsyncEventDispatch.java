@@ -0,0 +1,220 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the asynchronous event dispatch of the event manager.<p>
+ */
+public class TestCmsAsyncEventDispatch extends TestCase {
+
+    /**
+     * Event listener that waits for a latch before handling the first event.<p>
+     */
+    private static class CmsBlockingListener implements I_CmsEventListener {
+
+        /** The types of the handled events. */
+        protected List<Integer> m_events = Collections.synchronizedList(new ArrayList<Integer>());
+
+        /** The latch released when all events have been fired. */
+        protected CountDownLatch m_release = new CountDownLatch(1);
+
+        /** The latch released when the first event is handled. */
+        protected CountDownLatch m_started = new CountDownLatch(1);
+
+        /** The thread the events are handled in. */
+        protected volatile Thread m_thread;
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            m_thread = Thread.currentThread();
+            m_started.countDown();
+            try {
+                m_release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            m_events.add(event.getTypeInteger());
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsAsyncEventDispatch(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that asynchronous listeners get the events in order, with repeated cache clearing events coalesced.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testAsyncDispatch() throws Exception {
+
+        CmsEventManager manager = new CmsEventManager();
+        CmsBlockingListener asyncListener = new CmsBlockingListener();
+        TestEventListener syncListener = new TestEventListener();
+        manager.addCmsEventListener(asyncListener, null, 10);
+        manager.addCmsEventListener(syncListener);
+
+        manager.fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT);
+        assertTrue(asyncListener.m_started.await(10, TimeUnit.SECONDS));
+        // the first event is being handled, the following ones are queued
+        manager.fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+        manager.fireEvent(I_CmsEventListener.EVENT_LOGIN_USER);
+        manager.fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+        manager.fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+        manager.fireEvent(I_CmsEventListener.EVENT_USER_MODIFIED);
+
+        // the synchronous listener is not blocked by the asynchronous one
+        assertEquals(6, syncListener.getEvents().size());
+        assertTrue(asyncListener.m_events.isEmpty());
+
+        asyncListener.m_release.countDown();
+        manager.shutDown();
+
+        assertNotSame(Thread.currentThread(), asyncListener.m_thread);
+        List<Integer> expected = new ArrayList<Integer>();
+        expected.add(Integer.valueOf(I_CmsEventListener.EVENT_PUBLISH_PROJECT));
+        expected.add(Integer.valueOf(I_CmsEventListener.EVENT_LOGIN_USER));
+        expected.add(Integer.valueOf(I_CmsEventListener.EVENT_CLEAR_CACHES));
+        expected.add(Integer.valueOf(I_CmsEventListener.EVENT_USER_MODIFIED));
+        assertEquals(expected, asyncListener.m_events);
+
+        CmsEventListenerStatistics asyncStats = null;
+        CmsEventListenerStatistics syncStats = null;
+        for (CmsEventListenerStatistics stats : manager.getListenerStatistics()) {
+            if (stats.getListenerName().equals(CmsBlockingListener.class.getName())) {
+                asyncStats = stats;
+            } else if (stats.getListenerName().equals(TestEventListener.class.getName())) {
+                syncStats = stats;
+            }
+        }
+        assertNotNull(asyncStats);
+        assertEquals(4, asyncStats.getCount());
+        assertEquals(2, asyncStats.getCoalesced());
+        assertEquals(0, asyncStats.getPending());
+        assertNotNull(syncStats);
+        assertEquals(6, syncStats.getCount());
+    }
+
+    /**
+     * Tests that a thread waiting for space in a full queue does not hang when the dispatcher is shut down.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testFullQueueShutdown() throws Exception {
+
+        final CmsEventManager manager = new CmsEventManager();
+        CmsBlockingListener asyncListener = new CmsBlockingListener();
+        manager.addCmsEventListener(asyncListener, null, 1);
+
+        manager.fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT);
+        assertTrue(asyncListener.m_started.await(10, TimeUnit.SECONDS));
+        // the first event is being handled, the second one fills the queue
+        manager.fireEvent(I_CmsEventListener.EVENT_LOGIN_USER);
+        Thread firing = new Thread() {
+
+            /**
+             * @see java.lang.Thread#run()
+             */
+            @Override
+            public void run() {
+
+                manager.fireEvent(I_CmsEventListener.EVENT_USER_MODIFIED);
+            }
+        };
+        firing.start();
+        firing.join(300);
+        assertTrue(firing.isAlive());
+
+        Thread shutDown = new Thread() {
+
+            /**
+             * @see java.lang.Thread#run()
+             */
+            @Override
+            public void run() {
+
+                manager.shutDown();
+            }
+        };
+        shutDown.start();
+        // the waiting thread handles the event itself once the dispatcher is shut down
+        for (int i = 0; (i < 50) && (asyncListener.m_thread != firing); i++) {
+            Thread.sleep(100);
+        }
+        assertSame(firing, asyncListener.m_thread);
+        asyncListener.m_release.countDown();
+        firing.join(5000);
+        assertFalse(firing.isAlive());
+        shutDown.join(10000);
+        assertFalse(shutDown.isAlive());
+
+        assertEquals(3, asyncListener.m_events.size());
+        assertTrue(asyncListener.m_events.contains(Integer.valueOf(I_CmsEventListener.EVENT_USER_MODIFIED)));
+    }
+
+    /**
+     * Tests that exceptions of synchronous listeners are still passed to the caller and counted.<p>
+     */
+    public void testSyncListenerError() {
+
+        CmsEventManager manager = new CmsEventManager();
+        manager.addCmsEventListener(new I_CmsEventListener() {
+
+            public void cmsEvent(CmsEvent event) {
+
+                throw new CmsRuntimeException(Messages.get().container(Messages.ERR_CRITICAL_NO_DB_CONTEXT_0));
+            }
+        });
+        try {
+            manager.fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+            fail("exception expected");
+        } catch (CmsRuntimeException e) {
+            // expected
+        }
+        assertEquals(1, manager.getListenerStatistics().get(0).getErrors());
+        assertEquals(1, manager.getListenerStatistics().get(0).getCount());
+    }
+}
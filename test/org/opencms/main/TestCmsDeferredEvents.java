@@ -0,0 +1,199 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.main;
+
+import org.opencms.db.CmsDriverManager;
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsUUID;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the deferred resource events of the event manager.<p>
+ */
+public class TestCmsDeferredEvents extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsDeferredEvents(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that resource events are collected, coalesced per resource and fired at the end.<p>
+     */
+    public void testDeferResourceEvents() {
+
+        CmsEventManager manager = new CmsEventManager();
+        TestEventListener listener = new TestEventListener();
+        manager.addDeferrableCmsEventListener(listener, null);
+
+        CmsResource first = createResource("/first.txt");
+        CmsResource second = createResource("/second.txt");
+
+        manager.deferResourceEvents();
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, first));
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, second));
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, first));
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED, first));
+        // events which are not about resources are not deferred
+        manager.fireEvent(I_CmsEventListener.EVENT_USER_MODIFIED);
+        assertEquals(1, listener.getEvents().size());
+
+        assertEquals(3, manager.fireDeferredEvents());
+        assertEquals(4, listener.getEvents().size());
+        assertEquals(second, getResource(listener, 1));
+        assertEquals(first, getResource(listener, 2));
+        assertEquals(
+            I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
+            ((CmsEvent)listener.getEvents().get(3)).getType());
+
+        // after the deferred events are fired, events are dispatched directly again
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, first));
+        assertEquals(5, listener.getEvents().size());
+        assertEquals(0, manager.fireDeferredEvents());
+    }
+
+    /**
+     * Tests that the listeners which do not accept deferred events get all events immediately.<p>
+     */
+    public void testImmediateListeners() {
+
+        CmsEventManager manager = new CmsEventManager();
+        TestEventListener deferrable = new TestEventListener();
+        manager.addDeferrableCmsEventListener(deferrable, null);
+        TestEventListener immediate = new TestEventListener();
+        manager.addCmsEventListener(immediate);
+
+        CmsResource first = createResource("/first.txt");
+
+        manager.deferResourceEvents();
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, first));
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, first));
+        assertEquals(0, deferrable.getEvents().size());
+        assertEquals(2, immediate.getEvents().size());
+
+        assertEquals(1, manager.fireDeferredEvents());
+        assertEquals(1, deferrable.getEvents().size());
+        assertEquals(2, immediate.getEvents().size());
+    }
+
+    /**
+     * Tests that deleted and moved resources are deferred as well, so the events keep their order.<p>
+     */
+    public void testOrderOfDeferredEvents() {
+
+        CmsEventManager manager = new CmsEventManager();
+        TestEventListener listener = new TestEventListener();
+        manager.addDeferrableCmsEventListener(listener, null);
+
+        CmsResource first = createResource("/first.txt");
+        CmsResource second = createResource("/second.txt");
+
+        manager.deferResourceEvents();
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, first));
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_MOVED, second));
+        manager.fireEvent(createEvent(I_CmsEventListener.EVENT_RESOURCE_DELETED, first));
+        assertEquals(0, listener.getEvents().size());
+
+        assertEquals(3, manager.fireDeferredEvents());
+        assertEquals(
+            I_CmsEventListener.EVENT_RESOURCE_MODIFIED,
+            ((CmsEvent)listener.getEvents().get(0)).getType());
+        assertEquals(I_CmsEventListener.EVENT_RESOURCE_MOVED, ((CmsEvent)listener.getEvents().get(1)).getType());
+        assertEquals(
+            I_CmsEventListener.EVENT_RESOURCE_DELETED,
+            ((CmsEvent)listener.getEvents().get(2)).getType());
+    }
+
+    /**
+     * Creates a resource event.<p>
+     * 
+     * @param type the event type
+     * @param resource the resource of the event
+     * 
+     * @return the event
+     */
+    private CmsEvent createEvent(int type, CmsResource resource) {
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_RESOURCE, resource);
+        data.put(I_CmsEventListener.KEY_CHANGE, new Integer(CmsDriverManager.CHANGED_CONTENT));
+        return new CmsEvent(type, data);
+    }
+
+    /**
+     * Creates a resource for the events.<p>
+     * 
+     * @param path the root path of the resource
+     * 
+     * @return the resource
+     */
+    private CmsResource createResource(String path) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            path,
+            1,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_NEW,
+            0,
+            CmsUUID.getNullUUID(),
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            0,
+            0,
+            0);
+    }
+
+    /**
+     * Returns the resource of the event at the given position.<p>
+     * 
+     * @param listener the listener which received the events
+     * @param index the position of the event
+     * 
+     * @return the resource of the event
+     */
+    private CmsResource getResource(TestEventListener listener, int index) {
+
+        return (CmsResource)((CmsEvent)listener.getEvents().get(index)).getData().get(I_CmsEventListener.KEY_RESOURCE);
+    }
+}
@@ -27,6 +27,7 @@
 
 package org.opencms.search;
 
+import org.opencms.search.documents.TestCmsExtractionResultCache;
 import org.opencms.test.OpenCmsTestProperties;
 
 import junit.framework.Test;
@@ -59,6 +60,10 @@ public final class AllTests {
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
         suite.addTest(new TestSuite(TestCmsSearchUtils.class));
+        suite.addTest(new TestSuite(TestCmsSearchPermissionCache.class));
+        suite.addTest(new TestSuite(TestCmsSearchDateFilters.class));
+        suite.addTest(new TestSuite(TestCmsSearchFacetCollector.class));
+        suite.addTest(new TestSuite(TestCmsExtractionResultCache.class));
         suite.addTest(TestCmsSearch.suite());
         suite.addTest(TestCmsSearchOffline.suite());
         suite.addTest(TestCmsSearchFields.suite());
@@ -0,0 +1,232 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.search.fields.CmsSearchField;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.RAMDirectory;
+
+/**
+ * Compares the date lookup term filters with the numeric date range filters.<p>
+ * 
+ * The number of documents used for the timing comparison can be set with the system property
+ * <code>opencms.test.search.dateDocuments</code>, e.g. to 1000000 for a large index.<p>
+ */
+public class TestCmsSearchDateFilters extends TestCase {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(TestCmsSearchDateFilters.class);
+
+    /** The system property for the number of documents used for the timing comparison. */
+    private static final String PROPERTY_DOCUMENTS = "opencms.test.search.dateDocuments";
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSearchDateFilters(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that both filter types find the same documents.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testFiltersMatch() throws Exception {
+
+        IndexSearcher searcher = createSearcher(5000);
+        CmsSearchIndex index = new CmsSearchIndex();
+        int[][] ranges = new int[][] {
+            {2001, 0, 1, 2001, 0, 1},
+            {2003, 5, 17, 2003, 6, 2},
+            {2004, 11, 30, 2005, 1, 3},
+            {2000, 0, 1, 2011, 11, 31},
+            {2002, 2, 10, 2009, 8, 20}};
+        for (int[] range : ranges) {
+            long start = getTime(range[0], range[1], range[2], false);
+            long end = getTime(range[3], range[4], range[5], true);
+            Filter lookup = index.createDateRangeFilter(CmsSearchField.FIELD_DATE_LASTMODIFIED_LOOKUP, start, end);
+            Filter numeric = index.createNumericDateRangeFilter(
+                CmsSearchField.FIELD_DATE_LASTMODIFIED_NUMERIC,
+                start,
+                end);
+            int[] lookupDocs = search(searcher, lookup);
+            int[] numericDocs = search(searcher, numeric);
+            assertTrue(lookupDocs.length > 0);
+            assertTrue(Arrays.equals(lookupDocs, numericDocs));
+        }
+        assertNull(index.createNumericDateRangeFilter(
+            CmsSearchField.FIELD_DATE_LASTMODIFIED_NUMERIC,
+            Long.MIN_VALUE,
+            Long.MAX_VALUE));
+        searcher.getIndexReader().close();
+    }
+
+    /**
+     * Compares the time required by both filter types for a wide date range.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testFilterTiming() throws Exception {
+
+        int documents = Integer.getInteger(PROPERTY_DOCUMENTS, 20000).intValue();
+        IndexSearcher searcher = createSearcher(documents);
+        CmsSearchIndex index = new CmsSearchIndex();
+        long start = getTime(2001, 3, 12, false);
+        long end = getTime(2010, 9, 3, true);
+        int runs = 20;
+
+        long lookupTime = -System.currentTimeMillis();
+        int lookupHits = 0;
+        for (int i = 0; i < runs; i++) {
+            Filter filter = index.createDateRangeFilter(CmsSearchField.FIELD_DATE_LASTMODIFIED_LOOKUP, start, end);
+            lookupHits = searcher.search(new MatchAllDocsQuery(), filter, 1).totalHits;
+        }
+        lookupTime += System.currentTimeMillis();
+
+        long numericTime = -System.currentTimeMillis();
+        int numericHits = 0;
+        for (int i = 0; i < runs; i++) {
+            Filter filter = index.createNumericDateRangeFilter(
+                CmsSearchField.FIELD_DATE_LASTMODIFIED_NUMERIC,
+                start,
+                end);
+            numericHits = searcher.search(new MatchAllDocsQuery(), filter, 1).totalHits;
+        }
+        numericTime += System.currentTimeMillis();
+
+        LOG.info("Date range filters on "
+            + documents
+            + " documents, "
+            + runs
+            + " runs: lookup terms "
+            + lookupTime
+            + " ms, numeric "
+            + numericTime
+            + " ms");
+        assertEquals(lookupHits, numericHits);
+        searcher.getIndexReader().close();
+    }
+
+    /**
+     * Creates an index searcher on a new index with the given number of documents 
+     * that have random last modification dates between 2000 and 2011.<p>
+     * 
+     * @param documents the number of documents
+     * 
+     * @return the index searcher
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    private IndexSearcher createSearcher(int documents) throws Exception {
+
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(
+            CmsSearchIndex.LUCENE_VERSION,
+            new WhitespaceAnalyzer(CmsSearchIndex.LUCENE_VERSION)));
+        Random random = new Random(4711);
+        for (int i = 0; i < documents; i++) {
+            CmsLuceneDocument doc = new CmsLuceneDocument(new Document());
+            Calendar cal = Calendar.getInstance(OpenCms.getLocaleManager().getTimeZone());
+            cal.clear();
+            cal.set(2000 + random.nextInt(12), random.nextInt(12), 1, 12, 0, 0);
+            cal.add(Calendar.DAY_OF_MONTH, random.nextInt(28));
+            doc.addDateField(CmsSearchField.FIELD_DATE_LASTMODIFIED, cal.getTimeInMillis(), true);
+            writer.addDocument((Document)doc.getDocument());
+        }
+        writer.close();
+        return new IndexSearcher(IndexReader.open(dir));
+    }
+
+    /**
+     * Returns the start or the end of the given day.<p>
+     * 
+     * @param year the year
+     * @param month the month, starting with 0
+     * @param day the day of the month
+     * @param end if <code>true</code> the end of the day is returned, otherwise the start
+     * 
+     * @return the start or the end of the given day
+     */
+    private long getTime(int year, int month, int day, boolean end) {
+
+        Calendar cal = Calendar.getInstance(OpenCms.getLocaleManager().getTimeZone());
+        cal.clear();
+        cal.set(year, month, day, 0, 0, 0);
+        if (end) {
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            cal.add(Calendar.MILLISECOND, -1);
+        }
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Returns the sorted document numbers found with the given filter.<p>
+     * 
+     * @param searcher the index searcher
+     * @param filter the filter
+     * 
+     * @return the sorted document numbers
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    private int[] search(IndexSearcher searcher, Filter filter) throws Exception {
+
+        TopDocs hits = searcher.search(new MatchAllDocsQuery(), filter, searcher.maxDoc());
+        int[] result = new int[hits.scoreDocs.length];
+        int i = 0;
+        for (ScoreDoc doc : hits.scoreDocs) {
+            result[i++] = doc.doc;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.search.fields.CmsSearchField;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.RAMDirectory;
+
+/**
+ * Tests the ordinal based facet and category collectors.<p>
+ */
+public class TestCmsSearchFacetCollector extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSearchFacetCollector(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests the category counts, including documents without a category.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testCategoryCounts() throws Exception {
+
+        RAMDirectory dir = createIndex();
+        IndexReader reader = IndexReader.open(dir);
+        IndexSearcher searcher = new IndexSearcher(reader);
+
+        CmsSearchCategoryCollector collector = new CmsSearchCategoryCollector((Collector)null);
+        searcher.search(new MatchAllDocsQuery(), collector);
+        Map<String, Integer> categories = collector.getCategoryCountResult();
+        assertEquals(3, categories.size());
+        assertEquals(new Integer(4), categories.get("/news/"));
+        assertEquals(new Integer(2), categories.get("/events/"));
+        // the document without a category and the document with the explicit "unknown" category
+        assertEquals(new Integer(2), categories.get(CmsSearchCategoryCollector.UNKNOWN_CATEGORY));
+
+        searcher.close();
+        reader.close();
+    }
+
+    /**
+     * Tests that the facets are counted across segments in the same pass that collects the top hits.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testFacetsWithHits() throws Exception {
+
+        RAMDirectory dir = createIndex();
+        IndexReader reader = IndexReader.open(dir);
+        assertEquals(2, reader.getSequentialSubReaders().length);
+        IndexSearcher searcher = new IndexSearcher(reader);
+
+        TermQuery query = new TermQuery(new Term(CmsSearchField.FIELD_CATEGORY, "/news/"));
+        TopScoreDocCollector hitCollector = TopScoreDocCollector.create(2, false);
+        CmsSearchFacetCollector collector = new CmsSearchFacetCollector(hitCollector, Arrays.asList(
+            CmsSearchField.FIELD_TYPE,
+            CmsSearchField.FIELD_RESOURCE_LOCALES));
+        searcher.search(query, collector);
+
+        TopDocs hits = hitCollector.topDocs();
+        assertEquals(4, hits.totalHits);
+        assertEquals(2, hits.scoreDocs.length);
+
+        Map<String, Integer> types = collector.getFacetCounts(CmsSearchField.FIELD_TYPE);
+        assertEquals(2, types.size());
+        assertEquals(new Integer(3), types.get("plain"));
+        assertEquals(new Integer(1), types.get("image"));
+        Map<String, Integer> locales = collector.getFacetCounts(CmsSearchField.FIELD_RESOURCE_LOCALES);
+        assertEquals(new Integer(2), locales.get("en"));
+        assertEquals(new Integer(2), locales.get("de"));
+        assertEquals(0, collector.getMissingCount(CmsSearchField.FIELD_TYPE));
+        assertEquals(1, collector.getMissingCount(CmsSearchField.FIELD_RESOURCE_LOCALES));
+        assertNull(collector.getFacetCounts(CmsSearchField.FIELD_CATEGORY));
+        assertEquals(2, collector.getFacets().size());
+
+        searcher.close();
+        reader.close();
+    }
+
+    /**
+     * Adds a document to the index.<p>
+     * 
+     * @param writer the index writer
+     * @param type the resource type
+     * @param categories the categories, separated by spaces, or <code>null</code>
+     * @param locales the locales, separated by spaces, or <code>null</code>
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    private void addDocument(IndexWriter writer, String type, String categories, String locales) throws Exception {
+
+        Document doc = new Document();
+        doc.add(new Field(CmsSearchField.FIELD_TYPE, type, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        if (categories != null) {
+            doc.add(new Field(CmsSearchField.FIELD_CATEGORY, categories, Field.Store.YES, Field.Index.ANALYZED));
+        }
+        if (locales != null) {
+            doc.add(new Field(CmsSearchField.FIELD_RESOURCE_LOCALES, locales, Field.Store.YES, Field.Index.ANALYZED));
+        }
+        writer.addDocument(doc);
+    }
+
+    /**
+     * Creates an index with two segments.<p>
+     * 
+     * @return the index directory
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    private RAMDirectory createIndex() throws Exception {
+
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(
+            CmsSearchIndex.LUCENE_VERSION,
+            new WhitespaceAnalyzer(CmsSearchIndex.LUCENE_VERSION)));
+        addDocument(writer, "plain", "/news/", "en");
+        addDocument(writer, "plain", "/news/ /events/", "en de");
+        addDocument(writer, "image", null, null);
+        writer.commit();
+        addDocument(writer, "plain", "/news/", null);
+        addDocument(writer, "image", "/news/ /events/", "de");
+        addDocument(writer, "plain", CmsSearchCategoryCollector.UNKNOWN_CATEGORY, "en");
+        writer.close();
+        return dir;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+
+/**
+ * Tests the per segment permission cache used for search results.<p>
+ */
+public class TestCmsSearchPermissionCache extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSearchPermissionCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that cached permissions expire.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testExpiration() throws Exception {
+
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = createWriter(dir);
+        addDocuments(writer, 3);
+        writer.close();
+
+        IndexReader reader = IndexReader.open(dir);
+        IndexReader segment = reader.getSequentialSubReaders()[0];
+        CmsSearchPermissionCache cache = new CmsSearchPermissionCache(-1);
+        cache.setPermission("user", segment, 1, true);
+        assertNull(cache.getPermission("user", segment, 1));
+        reader.close();
+    }
+
+    /**
+     * Tests that permissions are cached per segment and principal, and survive an index reopen.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testSegmentPermissions() throws Exception {
+
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = createWriter(dir);
+        addDocuments(writer, 3);
+        writer.commit();
+
+        IndexReader reader = IndexReader.open(dir);
+        IndexReader segment = reader.getSequentialSubReaders()[0];
+        CmsSearchPermissionCache cache = new CmsSearchPermissionCache(CmsSearchPermissionCache.DEFAULT_TTL);
+        assertNull(cache.getPermission("user", segment, 0));
+        cache.setPermission("user", segment, 0, true);
+        cache.setPermission("user", segment, 2, false);
+        assertEquals(Boolean.TRUE, cache.getPermission("user", segment, 0));
+        assertNull(cache.getPermission("user", segment, 1));
+        assertEquals(Boolean.FALSE, cache.getPermission("user", segment, 2));
+        assertNull(cache.getPermission("other", segment, 0));
+
+        // add a new segment, the bits of the unchanged segment must be reused
+        addDocuments(writer, 2);
+        writer.commit();
+        IndexReader newReader = IndexReader.openIfChanged(reader);
+        assertNotNull(newReader);
+        IndexReader[] newSegments = newReader.getSequentialSubReaders();
+        assertEquals(2, newSegments.length);
+        assertEquals(Boolean.TRUE, cache.getPermission("user", newSegments[0], 0));
+        assertNull(cache.getPermission("user", newSegments[1], 0));
+
+        cache.clear();
+        assertNull(cache.getPermission("user", newSegments[0], 0));
+        assertEquals(0, cache.size());
+
+        newReader.close();
+        reader.close();
+        writer.close();
+    }
+
+    /**
+     * Adds the given number of documents to the index.<p>
+     * 
+     * @param writer the index writer
+     * @param count the number of documents to add
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    private void addDocuments(IndexWriter writer, int count) throws Exception {
+
+        for (int i = 0; i < count; i++) {
+            Document doc = new Document();
+            doc.add(new Field("path", "/doc" + i, Field.Store.YES, Field.Index.NOT_ANALYZED));
+            writer.addDocument(doc);
+        }
+    }
+
+    /**
+     * Creates an index writer for the given directory.<p>
+     * 
+     * @param dir the directory
+     * 
+     * @return the index writer
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    private IndexWriter createWriter(RAMDirectory dir) throws Exception {
+
+        return new IndexWriter(dir, new IndexWriterConfig(
+            CmsSearchIndex.LUCENE_VERSION,
+            new WhitespaceAnalyzer(CmsSearchIndex.LUCENE_VERSION)));
+    }
+}
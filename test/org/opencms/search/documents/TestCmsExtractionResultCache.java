@@ -0,0 +1,187 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search.documents;
+
+import org.opencms.file.CmsResource;
+import org.opencms.search.extractors.CmsExtractionResult;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the memory and segment file tiers of the text extraction result cache.<p>
+ */
+public class TestCmsExtractionResultCache extends TestCase {
+
+    /** The base directory for the test caches. */
+    private File m_baseDir;
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsExtractionResultCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that expired results are removed and the segment files are compacted.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testCleanCache() throws Exception {
+
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(m_baseDir.getAbsolutePath(), "/cache");
+        saveResults(cache, 10);
+        File legacyFile = new File(cache.getRepositoryPath(), "legacy.ext");
+        legacyFile.createNewFile();
+
+        // a new cache instance appends to a new segment, so the existing segment can be compacted
+        cache = new CmsExtractionResultCache(m_baseDir.getAbsolutePath(), "/cache");
+        assertEquals(0, cache.cleanCache(1.0f));
+        assertEquals(10, cache.cleanCache(-1.0f));
+        assertEquals(0, cache.size());
+        assertNull(cache.getCacheObject("result_0"));
+
+        File segment = new File(cache.getRepositoryPath(), "segment_0.seg");
+        for (int i = 0; (i < 50) && (segment.exists() || legacyFile.exists()); i++) {
+            Thread.sleep(100);
+        }
+        assertFalse(segment.exists());
+        assertFalse(legacyFile.exists());
+    }
+
+    /**
+     * Tests that the extraction limit is part of the cache name.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testCacheNameLimit() throws Exception {
+
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(m_baseDir.getAbsolutePath(), "/cache");
+        CmsResource resource = new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            "/sites/default/test.pdf",
+            1,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            1000,
+            CmsUUID.getNullUUID(),
+            1000,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            2,
+            100,
+            2000,
+            0);
+
+        String name = cache.getCacheName(resource, Locale.ENGLISH, "pdf");
+        assertEquals(name, cache.getCacheName(resource, Locale.ENGLISH, "pdf", -1));
+        String limited = cache.getCacheName(resource, Locale.ENGLISH, "pdf", 1000);
+        assertFalse(name.equals(limited));
+        assertFalse(limited.equals(cache.getCacheName(resource, Locale.ENGLISH, "pdf", 2000)));
+
+        // a result truncated with a lower limit must not be found with a higher one
+        cache.saveCacheObject(limited, new CmsExtractionResult("truncated"));
+        assertEquals("truncated", cache.getCacheObject(limited).getContent());
+        assertNull(cache.getCacheObject(cache.getCacheName(resource, Locale.ENGLISH, "pdf", 2000)));
+    }
+
+    /**
+     * Tests reading results from the memory tier and from the segment files.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testSaveAndRead() throws Exception {
+
+        CmsExtractionResultCache cache = new CmsExtractionResultCache(m_baseDir.getAbsolutePath(), "/cache");
+        saveResults(cache, 100);
+        assertEquals(100, cache.size());
+        assertEquals("content 42", cache.getCacheObject("result_42").getContent());
+        assertNull(cache.getCacheObject("result_100"));
+
+        // overwriting a result must return the latest version 
+        cache.saveCacheObject("result_7", new CmsExtractionResult("changed 7"));
+        assertEquals("changed 7", cache.getCacheObject("result_7").getContent());
+
+        // a new cache without memory tier must read all results from the segment files
+        cache = new CmsExtractionResultCache(m_baseDir.getAbsolutePath(), "/cache", 0);
+        assertEquals(100, cache.size());
+        for (int i = 0; i < 100; i++) {
+            String expected = (i == 7 ? "changed " : "content ") + i;
+            assertEquals(expected, cache.getCacheObject("result_" + i).getContent());
+        }
+        String[] files = new File(cache.getRepositoryPath()).list();
+        assertEquals(1, files.length);
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        m_baseDir = new File(System.getProperty("java.io.tmpdir"), "extractCacheTest" + System.currentTimeMillis());
+        m_baseDir.mkdirs();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        CmsFileUtil.purgeDirectory(m_baseDir);
+    }
+
+    /**
+     * Saves the given number of extraction results in the cache.<p>
+     * 
+     * @param cache the cache
+     * @param count the number of results to save
+     * 
+     * @throws Exception in case something goes wrong
+     */
+    private void saveResults(CmsExtractionResultCache cache, int count) throws Exception {
+
+        for (int i = 0; i < count; i++) {
+            cache.saveCacheObject("result_" + i, new CmsExtractionResult("content " + i));
+        }
+    }
+}
@@ -79,4 +79,23 @@ public class TestHtmllExtraction extends TestCase {
         assertTrue(result.indexOf("Some content on the third sheet.") > -1);
         assertTrue(result.indexOf("\u00e4\u00f6\u00fc\u00c4\u00d6\u00dc\u00df\u20ac") > -1);
     }
+
+    /**
+     * Tests that the Html extraction result is truncated to the maximum number of characters.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testLimitedHtmlExtraction() throws Exception {
+
+        // open an input stream for the test file        
+        InputStream in = getClass().getClassLoader().getResourceAsStream("org/opencms/search/extractors/test1.html");
+
+        // extract at most 10 characters of the content
+        I_CmsExtractionResult extractionResult = CmsExtractorHtml.getExtractor().extractText(in, null, 10);
+
+        Map<String, String> items = extractionResult.getContentItems();
+        assertEquals(10, extractionResult.getContent().length());
+        assertEquals(extractionResult.getContent(), items.get(I_CmsExtractionResult.ITEM_CONTENT));
+        assertTrue(items.get(I_CmsExtractionResult.ITEM_RAW).length() <= 10);
+    }
 }
\ No newline at end of file
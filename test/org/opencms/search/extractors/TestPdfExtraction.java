@@ -92,4 +92,25 @@ public class TestPdfExtraction extends TestCase {
         assertEquals("Microsoft Excel", items.get(I_CmsExtractionResult.ITEM_CREATOR));
         assertEquals("Jaws PDF Creator v4.0.24", items.get(I_CmsExtractionResult.ITEM_PRODUCER));
     }
-}
+
+    /**
+     * Tests that the Pdf extraction stops after the maximum number of characters, keeping the meta information.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testLimitedPdfExtraction() throws Exception {
+
+        // open an input stream for the test file        
+        InputStream in = getClass().getClassLoader().getResourceAsStream("org/opencms/search/extractors/test1.pdf");
+
+        // extract at most 20 characters of the content
+        I_CmsExtractionResult extractionResult = CmsExtractorPdf.getExtractor().extractText(in, null, 20);
+        Map<String, String> items = extractionResult.getContentItems();
+
+        String raw = items.get(I_CmsExtractionResult.ITEM_RAW);
+        assertNotNull(raw);
+        assertTrue(raw.length() <= 20);
+        assertTrue(extractionResult.getContent().indexOf("Some content on the third sheet.") == -1);
+        assertEquals("Alkacon Software - The OpenCms experts", items.get(I_CmsExtractionResult.ITEM_TITLE));
+    }
+}
\ No newline at end of file
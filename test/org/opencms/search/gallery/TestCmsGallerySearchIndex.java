@@ -0,0 +1,254 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.gallery;
+
+import org.opencms.search.CmsSearchIndex;
+import org.opencms.search.galleries.CmsGallerySearchIndex;
+import org.opencms.search.galleries.CmsGallerySearchParameters;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.FSDirectory;
+
+/**
+ * Tests the searcher handling and the result cache keys of the gallery search index 
+ * without an OpenCms setup.<p>
+ */
+public class TestCmsGallerySearchIndex extends TestCase {
+
+    /**
+     * Gallery index on a given folder, which provides access to the index searchers.<p>
+     */
+    private static class TestIndex extends CmsGallerySearchIndex {
+
+        /** The index folder. */
+        private String m_folder;
+
+        /**
+         * Creates a new test index.<p>
+         * 
+         * @param folder the index folder
+         */
+        protected TestIndex(String folder) {
+
+            m_folder = folder;
+        }
+
+        /**
+         * @see org.opencms.search.CmsSearchIndex#getPath()
+         */
+        @Override
+        public String getPath() {
+
+            return m_folder;
+        }
+
+        /**
+         * Acquires a searcher.<p>
+         * 
+         * @return the searcher
+         */
+        protected IndexSearcher acquire() {
+
+            return acquireSearcher();
+        }
+
+        /**
+         * Releases a searcher.<p>
+         * 
+         * @param searcher the searcher
+         */
+        protected void release(IndexSearcher searcher) {
+
+            releaseSearcher(searcher);
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsGallerySearchIndex(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that searchers acquired before a reopen of the index can still be used, 
+     * and that their index reader is closed once they are released.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testAcquireSearcherAcrossReopen() throws Exception {
+
+        File folder = File.createTempFile("galleryindex", "");
+        folder.delete();
+        folder.mkdirs();
+        FSDirectory dir = FSDirectory.open(folder);
+        try {
+            IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(
+                CmsSearchIndex.LUCENE_VERSION,
+                new WhitespaceAnalyzer(CmsSearchIndex.LUCENE_VERSION)));
+            addDocument(writer, "/sites/default/a.txt");
+            writer.commit();
+
+            TestIndex index = new TestIndex(folder.getAbsolutePath());
+            IndexSearcher first = index.acquire();
+            assertNotNull(first);
+            IndexReader firstReader = first.getIndexReader();
+            assertEquals(1, first.search(new MatchAllDocsQuery(), 10).totalHits);
+
+            // a second searcher on an unchanged index shares the reader
+            IndexSearcher same = index.acquire();
+            assertSame(firstReader, same.getIndexReader());
+            index.release(same);
+            assertTrue(firstReader.getRefCount() > 0);
+
+            // the index is changed, the next searcher reopens it
+            addDocument(writer, "/sites/default/b.txt");
+            writer.commit();
+            IndexSearcher second = index.acquire();
+            assertNotSame(firstReader, second.getIndexReader());
+            assertEquals(2, second.search(new MatchAllDocsQuery(), 10).totalHits);
+
+            // the searcher acquired before the reopen still works on the old state
+            assertTrue(firstReader.getRefCount() > 0);
+            assertEquals(1, first.search(new MatchAllDocsQuery(), 10).totalHits);
+
+            // releasing the last searcher on the old state closes its reader
+            index.release(first);
+            assertEquals(0, firstReader.getRefCount());
+
+            // the current reader stays open for the index
+            IndexReader secondReader = second.getIndexReader();
+            index.release(second);
+            assertTrue(secondReader.getRefCount() > 0);
+            IndexSearcher third = index.acquire();
+            assertSame(secondReader, third.getIndexReader());
+            assertEquals(2, third.search(new MatchAllDocsQuery(), 10).totalHits);
+            index.release(third);
+
+            writer.close();
+            secondReader.close();
+        } finally {
+            dir.close();
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests that the cache key of the search parameters does not depend on the order of list values, 
+     * but on every parameter that changes the result.<p>
+     */
+    public void testCacheKeyNormalization() {
+
+        CmsGallerySearchParameters params = createParameters(
+            new String[] {"image", "binary"},
+            new String[] {"/sites/default/a/", "/sites/default/b/"});
+        CmsGallerySearchParameters reordered = createParameters(
+            new String[] {"binary", "image"},
+            new String[] {"/sites/default/b/", "/sites/default/a/"});
+        assertEquals(params.getCacheKey(), reordered.getCacheKey());
+        // the key does not sort the lists of the parameters
+        assertEquals(Arrays.asList(new String[] {"binary", "image"}), reordered.getResourceTypes());
+
+        CmsGallerySearchParameters other = createParameters(
+            new String[] {"image"},
+            new String[] {"/sites/default/a/", "/sites/default/b/"});
+        assertFalse(params.getCacheKey().equals(other.getCacheKey()));
+
+        other = createParameters(new String[] {"image", "binary"}, new String[] {"/sites/default/a/"});
+        assertFalse(params.getCacheKey().equals(other.getCacheKey()));
+
+        other = createParameters(
+            new String[] {"image", "binary"},
+            new String[] {"/sites/default/a/", "/sites/default/b/"});
+        other.setResultPage(2);
+        assertFalse(params.getCacheKey().equals(other.getCacheKey()));
+
+        other.setResultPage(1);
+        assertEquals(params.getCacheKey(), other.getCacheKey());
+        other.setSearchWords("logo");
+        assertFalse(params.getCacheKey().equals(other.getCacheKey()));
+
+        // values must not run into each other
+        CmsGallerySearchParameters split1 = createParameters(new String[] {"ab"}, null);
+        CmsGallerySearchParameters split2 = createParameters(new String[] {"a", "b"}, null);
+        assertFalse(split1.getCacheKey().equals(split2.getCacheKey()));
+        CmsGallerySearchParameters moved = createParameters(null, new String[] {"image"});
+        assertFalse(createParameters(new String[] {"image"}, null).getCacheKey().equals(moved.getCacheKey()));
+    }
+
+    /**
+     * Adds a document with the given path to the index.<p>
+     * 
+     * @param writer the index writer
+     * @param path the path of the document
+     * 
+     * @throws Exception if the document could not be added
+     */
+    private void addDocument(IndexWriter writer, String path) throws Exception {
+
+        Document doc = new Document();
+        doc.add(new Field("path", path, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        writer.addDocument(doc);
+    }
+
+    /**
+     * Creates gallery search parameters with the given resource types and folders.<p>
+     * 
+     * @param types the resource types, or <code>null</code>
+     * @param folders the folders, or <code>null</code>
+     * 
+     * @return the search parameters
+     */
+    private CmsGallerySearchParameters createParameters(String[] types, String[] folders) {
+
+        CmsGallerySearchParameters params = new CmsGallerySearchParameters();
+        if (types != null) {
+            params.setResourceTypes(Arrays.asList(types));
+        }
+        if (folders != null) {
+            params.setFolders(Arrays.asList(folders));
+        }
+        return params;
+    }
+}
@@ -115,7 +115,11 @@ public class TestSolrIndexing extends OpenCmsTestCase {
             CmsSolrDocumentXmlContent.TYPE_XMLCONTENT_SOLR,
             "text/html");
         CmsExtractionResultCache cache = factory.getCache();
-        String cacheName = cache.getCacheName(res, Locale.ENGLISH, CmsSolrDocumentXmlContent.TYPE_XMLCONTENT_SOLR);
+        String cacheName = cache.getCacheName(
+            res,
+            Locale.ENGLISH,
+            CmsSolrDocumentXmlContent.TYPE_XMLCONTENT_SOLR,
+            OpenCms.getSearchManager().getMaxExtractedChars());
         CmsExtractionResult result = cache.getCacheObject(cacheName);
         assertNotNull(result);
     }
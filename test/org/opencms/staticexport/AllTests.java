@@ -60,6 +60,9 @@ public final class AllTests {
         //$JUnit-BEGIN$
         suite.addTest(TestCmsLinkManager.suite());
         suite.addTest(TestCmsStaticExportManager.suite());
+        suite.addTest(new TestSuite(TestCmsStaticExportCompression.class));
+        suite.addTest(new TestSuite(TestCmsStaticExportManifest.class));
+        suite.addTest(TestCmsStaticExportRenderRequest.suite());
         suite.addTest(TestExportFile.suite());
         suite.addTest(TestSecure.suite());
         suite.addTest(TestCmsExternalLinksValidator.suite());
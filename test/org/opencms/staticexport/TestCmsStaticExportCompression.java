@@ -0,0 +1,107 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.staticexport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+/** 
+ * Test case for the static export compression rules.<p>
+ */
+public class TestCmsStaticExportCompression extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsStaticExportCompression(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests the MIME type and size rules.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testCompressionRules() throws Exception {
+
+        CmsStaticExportCompression compression = new CmsStaticExportCompression();
+        assertFalse(compression.isCompressible("text/html", 10000));
+
+        compression.setEnabled("true");
+        // default rules
+        assertTrue(compression.isCompressible("text/html; charset=UTF-8", 10000));
+        assertTrue(compression.isCompressible("application/javascript", 10000));
+        assertFalse(compression.isCompressible("image/png", 10000));
+        assertFalse(compression.isCompressible("text/html", 100));
+
+        // configured rules replace the defaults
+        compression.setMinSize("2000");
+        compression.addMimeType("text/css", null);
+        compression.addMimeType("Text/HTML", "500");
+        assertTrue(compression.isCompressible("text/html", 600));
+        assertFalse(compression.isCompressible("text/css", 600));
+        assertTrue(compression.isCompressible("text/css", 2000));
+        assertFalse(compression.isCompressible("application/javascript", 10000));
+        compression.addMimeType("application/*", null);
+        assertTrue(compression.isCompressible("application/javascript", 10000));
+        assertFalse(compression.isCompressible(null, 10000));
+    }
+
+    /**
+     * Tests the gzip compression.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testGzip() throws Exception {
+
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i < 200; i++) {
+            buffer.append("<p>Paragraph ").append(i).append("</p>\n");
+        }
+        byte[] content = buffer.toString().getBytes("UTF-8");
+        byte[] compressed = CmsStaticExportCompression.gzip(content);
+        assertTrue(compressed.length < content.length);
+
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[512];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+    }
+}
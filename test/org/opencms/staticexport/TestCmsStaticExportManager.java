@@ -30,11 +30,16 @@ package org.opencms.staticexport;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProperty;
 import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
 import org.opencms.main.OpenCms;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import junit.extensions.TestSetup;
@@ -72,6 +77,7 @@ public class TestCmsStaticExportManager extends OpenCmsTestCase {
 
         suite.addTest(new TestCmsStaticExportManager("testExportJspLinkGeneration"));
         suite.addTest(new TestCmsStaticExportManager("testDefaultSuffixLinkGeneration"));
+        suite.addTest(new TestCmsStaticExportManager("testWriteResourceSkipsUnchanged"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -241,6 +247,61 @@ public class TestCmsStaticExportManager extends OpenCmsTestCase {
         checkLinkWithParameters(cms, vfsName, expected);
     }
 
+    /**
+     * Tests that writing an export file is skipped if the exported content did not change.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testWriteResourceSkipsUnchanged() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that unchanged export files are not written again");
+
+        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+        CmsResource resource = cms.readResource("/index.html");
+        File root = File.createTempFile("export", "");
+        root.delete();
+        root.mkdirs();
+        String exportPath = root.getAbsolutePath() + File.separator;
+        String rfsName = "/skip/index.html";
+        File exportFile = new File(root, "skip" + File.separator + "index.html");
+        try {
+            byte[] content = "<html>content A</html>".getBytes("UTF-8");
+            manager.writeResource(null, exportPath, rfsName, resource, content);
+            assertTrue(Arrays.equals(content, CmsFileUtil.readFile(exportFile)));
+
+            // replace the file with different content of the same length
+            byte[] replaced = "<html>content B</html>".getBytes("UTF-8");
+            FileOutputStream out = new FileOutputStream(exportFile);
+            out.write(replaced);
+            out.close();
+
+            // the manifest still records the first content, so the file is not written again
+            manager.writeResource(null, exportPath, rfsName, resource, content);
+            assertTrue(Arrays.equals(replaced, CmsFileUtil.readFile(exportFile)));
+
+            // changed content is always written
+            byte[] changed = "<html>changed content</html>".getBytes("UTF-8");
+            manager.writeResource(null, exportPath, rfsName, resource, changed);
+            assertTrue(Arrays.equals(changed, CmsFileUtil.readFile(exportFile)));
+
+            // a deleted file is written again even if the content did not change
+            exportFile.delete();
+            manager.writeResource(null, exportPath, rfsName, resource, changed);
+            assertTrue(Arrays.equals(changed, CmsFileUtil.readFile(exportFile)));
+
+            // no temporary files are left and the manifest is not stored in the export root
+            manager.writeExportManifests();
+            assertEquals(1, exportFile.getParentFile().list().length);
+            assertEquals(1, root.list().length);
+            File manifestFile = manager.getExportManifest(exportPath).getManifestFile();
+            assertTrue(manifestFile.isFile());
+            assertFalse(manifestFile.getAbsolutePath().startsWith(root.getAbsolutePath()));
+        } finally {
+            CmsFileUtil.purgeDirectory(root);
+        }
+    }
+
     /**
      * Checks a link that has no parameters.<p>
      * 
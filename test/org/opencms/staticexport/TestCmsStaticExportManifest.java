@@ -0,0 +1,107 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.staticexport;
+
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import junit.framework.TestCase;
+
+/** 
+ * Test case for the static export content hash manifest.<p>
+ */
+public class TestCmsStaticExportManifest extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsStaticExportManifest(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests the detection of unchanged content and the persistence of the manifest.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testManifest() throws Exception {
+
+        File root = File.createTempFile("export", "");
+        root.delete();
+        root.mkdirs();
+        File manifests = File.createTempFile("manifests", "");
+        manifests.delete();
+        String exportPath = root.getAbsolutePath();
+        String manifestPath = manifests.getAbsolutePath();
+        try {
+            byte[] content = "<html>test</html>".getBytes("UTF-8");
+            String hash = CmsStaticExportManifest.getContentHash(content);
+            assertEquals(32, hash.length());
+            assertFalse(hash.equals(CmsStaticExportManifest.getContentHash("<html>other</html>".getBytes("UTF-8"))));
+
+            File exportFile = new File(root, "index.html");
+            FileOutputStream out = new FileOutputStream(exportFile);
+            out.write(content);
+            out.close();
+
+            CmsStaticExportManifest manifest = new CmsStaticExportManifest(exportPath, manifestPath);
+            assertFalse(manifest.isUnchanged("/index.html", hash, content.length, exportFile));
+            manifest.update("/index.html", hash);
+            assertTrue(manifest.isUnchanged("/index.html", hash, content.length, exportFile));
+            // a different length means the file was changed outside of the export
+            assertFalse(manifest.isUnchanged("/index.html", hash, content.length + 1, exportFile));
+            manifest.write();
+            assertTrue(manifest.getManifestFile().isFile());
+            // the manifest is not stored in the export root
+            assertEquals(manifests, manifest.getManifestFile().getParentFile());
+            assertEquals(1, root.list().length);
+            assertFalse(CmsStaticExportManifest.getManifestFileName(exportPath).equals(
+                CmsStaticExportManifest.getManifestFileName(manifestPath)));
+
+            // a new manifest reads the stored hashes
+            CmsStaticExportManifest manifest2 = new CmsStaticExportManifest(exportPath, manifestPath);
+            assertEquals(1, manifest2.size());
+            assertTrue(manifest2.isUnchanged("/index.html", hash, content.length, exportFile));
+
+            // a missing file is never unchanged
+            exportFile.delete();
+            assertFalse(manifest2.isUnchanged("/index.html", hash, content.length, exportFile));
+            manifest2.remove("/index.html");
+            assertEquals(0, manifest2.size());
+        } finally {
+            CmsFileUtil.purgeDirectory(root);
+            CmsFileUtil.purgeDirectory(manifests);
+        }
+    }
+}
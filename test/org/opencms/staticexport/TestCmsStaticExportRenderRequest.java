@@ -0,0 +1,288 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.staticexport;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypeJsp;
+import org.opencms.main.OpenCms;
+import org.opencms.main.OpenCmsServlet;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsRequestUtil;
+import org.opencms.util.CmsStringUtil;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests for the synthetic request and response used to render template resources in-process 
+ * during the static export.<p>
+ * 
+ * The unit tests run without a servlet container, so the JSP pages are dispatched to a stub 
+ * servlet context that writes the template text of the JSP file generated by the JSP loader, 
+ * as a container does for a JSP page without scriptlets or tags.<p>
+ */
+public class TestCmsStaticExportRenderRequest extends OpenCmsTestCase {
+
+    /**
+     * Stub servlet context, which only provides request dispatchers to the JSP files 
+     * in the real file system.<p>
+     */
+    protected static class JspContextStub implements InvocationHandler {
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            if ("getRequestDispatcher".equals(method.getName())) {
+                return Proxy.newProxyInstance(
+                    Thread.currentThread().getContextClassLoader(),
+                    new Class[] {RequestDispatcher.class},
+                    new JspDispatcherStub((String)args[0]));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stub request dispatcher, which writes the template text of a JSP file to the response.<p>
+     */
+    protected static class JspDispatcherStub implements InvocationHandler {
+
+        /** The path of the JSP file relative to the web application. */
+        private String m_path;
+
+        /**
+         * Creates a new dispatcher stub.<p>
+         * 
+         * @param path the path of the JSP file relative to the web application
+         */
+        public JspDispatcherStub(String path) {
+
+            m_path = path;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String encoding = OpenCms.getSystemInfo().getDefaultEncoding();
+            String jsp = new String(CmsFileUtil.readFile(new File(
+                OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebApplication(m_path.substring(1)))), encoding);
+            // remove the directives, the template text is written unchanged
+            String text = jsp.replaceAll("(?s)<%@.*?%>", "");
+            ServletResponse res = (ServletResponse)args[1];
+            res.getOutputStream().write(text.getBytes(encoding));
+            return null;
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsStaticExportRenderRequest(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsStaticExportRenderRequest.class.getName());
+
+        suite.addTest(new TestCmsStaticExportRenderRequest("testRenderRequest"));
+        suite.addTest(new TestCmsStaticExportRenderRequest("testRenderJspInProcess"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that a JSP rendered in-process is exported with the same content as 
+     * the export through the export URL.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testRenderJspInProcess() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the in-process rendering of a JSP for the static export");
+
+        String folder = "/exportrender/";
+        String vfsName = folder + "page.jsp";
+        String text = "<html><body>Rendered in process</body></html>";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(
+            vfsName,
+            CmsResourceTypeJsp.getJSPTypeId(),
+            ("<%@ page session=\"false\" %>" + text).getBytes(OpenCms.getSystemInfo().getDefaultEncoding()),
+            null);
+        cms.writePropertyObject(vfsName, new CmsProperty(
+            CmsPropertyDefinition.PROPERTY_EXPORT,
+            CmsStringUtil.TRUE,
+            null));
+        cms.unlockResource(folder);
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsObject exportCms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserExport());
+        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+        String rootPath = cms.getRequestContext().addSiteRoot(vfsName);
+        String rfsName = manager.getRfsName(cms, vfsName).substring(manager.getRfsPrefix(rootPath).length());
+        CmsResource resource = exportCms.readResource(rootPath);
+        File exportFile = new File(CmsFileUtil.normalizePath(manager.getExportPath(rootPath) + rfsName));
+        ServletContext context = (ServletContext)Proxy.newProxyInstance(
+            Thread.currentThread().getContextClassLoader(),
+            new Class[] {ServletContext.class},
+            new JspContextStub());
+
+        // render the JSP in-process
+        CmsAfterPublishStaticExportHandler handler = new CmsAfterPublishStaticExportHandler();
+        int status = handler.exportTemplateResourceInProcess(exportCms, new CmsStaticExportData(
+            rootPath,
+            rfsName,
+            resource,
+            null), context);
+        assertEquals(HttpServletResponse.SC_OK, status);
+        assertTrue(exportFile.isFile());
+        byte[] inProcess = CmsFileUtil.readFile(exportFile);
+        assertTrue(new String(inProcess, OpenCms.getSystemInfo().getDefaultEncoding()).indexOf(text) >= 0);
+        exportFile.delete();
+
+        // export the JSP the same way the export servlet handles the request sent to the export URL
+        CmsStaticExportRenderRequest req = new CmsStaticExportRenderRequest(
+            context,
+            manager.getExportUrl(),
+            rfsName);
+        req.setHeader(CmsRequestUtil.HEADER_OPENCMS_EXPORT, CmsStringUtil.TRUE);
+        req.setAttribute(
+            CmsStaticExportManager.EXPORT_ATTRIBUTE_ERROR_REQUEST_URI,
+            manager.getExportUrlPrefix() + rfsName);
+        CmsStaticExportRenderResponse res = new CmsStaticExportRenderResponse();
+        new OpenCmsServlet().handle(req, res, "404");
+        assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+        assertTrue(exportFile.isFile());
+        assertTrue(Arrays.equals(inProcess, CmsFileUtil.readFile(exportFile)));
+    }
+
+    /**
+     * Tests the values provided by the synthetic request and response.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testRenderRequest() throws Exception {
+
+        echo("Testing the synthetic request and response of the static export");
+
+        CmsStaticExportRenderRequest req = new CmsStaticExportRenderRequest(
+            null,
+            "http://www.example.com:8081/opencms/handle404",
+            "/folder/page.html");
+        assertEquals("http", req.getScheme());
+        assertEquals("www.example.com", req.getServerName());
+        assertEquals(8081, req.getServerPort());
+        assertEquals("/folder/page.html", req.getPathInfo());
+        String uri = OpenCms.getSystemInfo().getContextPath()
+            + OpenCms.getSystemInfo().getServletPath()
+            + "/folder/page.html";
+        assertEquals(uri, req.getRequestURI());
+        assertEquals("http://www.example.com:8081" + uri, req.getRequestURL().toString());
+        assertEquals("GET", req.getMethod());
+
+        // headers are case insensitive 
+        req.setHeader(CmsRequestUtil.HEADER_OPENCMS_EXPORT, CmsStringUtil.TRUE);
+        assertEquals(CmsStringUtil.TRUE, req.getHeader(CmsRequestUtil.HEADER_OPENCMS_EXPORT.toUpperCase()));
+        assertNull(req.getHeader(CmsRequestUtil.HEADER_ACCEPT_LANGUAGE));
+        assertEquals(-1, req.getDateHeader(CmsRequestUtil.HEADER_IF_MODIFIED_SINCE));
+
+        // attributes and session are kept for the request 
+        req.setAttribute("attr", "value");
+        assertEquals("value", req.getAttribute("attr"));
+        req.removeAttribute("attr");
+        assertNull(req.getAttribute("attr"));
+        assertNull(req.getSession(false));
+        assertNotNull(req.getSession());
+        assertSame(req.getSession(), req.getSession(false));
+
+        // the default port is not included in the request URL
+        req = new CmsStaticExportRenderRequest(null, "http://www.example.com/opencms/handle404", "/index.html");
+        assertEquals(80, req.getServerPort());
+        assertEquals("http://www.example.com" + req.getRequestURI(), req.getRequestURL().toString());
+
+        // the response keeps status and headers, the content is discarded 
+        CmsStaticExportRenderResponse res = new CmsStaticExportRenderResponse();
+        assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+        res.setHeader("X-Test", "value");
+        assertTrue(res.containsHeader("x-test"));
+        res.getOutputStream().write("ignored".getBytes());
+        res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, res.getStatus());
+    }
+}
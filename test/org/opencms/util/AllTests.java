@@ -68,6 +68,7 @@ public final class AllTests {
         suite.addTest(new TestSuite(TestCmsHtmlParser.class));
         suite.addTest(new TestSuite(TestCmsHtmlStripper.class));
         suite.addTest(new TestSuite(TestCmsMacroResolver.class));
+        suite.addTest(new TestSuite(TestCmsPathTrie.class));
         suite.addTest(new TestSuite(TestCmsResourceTranslator.class));
         suite.addTest(new TestSuite(TestCmsStringUtil.class));
         suite.addTest(new TestSuite(TestCmsUriSplitter.class));
@@ -0,0 +1,92 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (C) Alkacon Software (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.util;
+
+import junit.framework.TestCase;
+
+/** 
+ * Test case for the path prefix tree.<p>
+ */
+public class TestCmsPathTrie extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsPathTrie(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests the longest prefix lookup.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testLongestPrefix() throws Exception {
+
+        CmsPathTrie<String> trie = new CmsPathTrie<String>();
+        trie.put("/a", "a");
+        trie.put("/a/b/c/", "abc");
+        trie.put("/a/b/x", "abx");
+        trie.put("/a/b/c/d/e", "abcde");
+        assertEquals(4, trie.size());
+
+        assertEquals("abc", trie.getLongestPrefixValue("/a/b/c/d"));
+        assertEquals("abc", trie.getLongestPrefixValue("/a/b/c/d/"));
+        assertEquals("abcde", trie.getLongestPrefixValue("/a/b/c/d/e/f.html"));
+        assertEquals("abx", trie.getLongestPrefixValue("/a/b/x"));
+        assertEquals("a", trie.getLongestPrefixValue("/a/b/xy"));
+        assertEquals("a", trie.getLongestPrefixValue("/a/"));
+        assertNull(trie.getLongestPrefixValue("/ab"));
+        assertNull(trie.getLongestPrefixValue("/"));
+        assertNull(trie.getLongestPrefixValue(null));
+
+        trie.put("/", "root");
+        assertEquals("root", trie.getLongestPrefixValue("/ab"));
+        assertEquals("root", trie.get("/"));
+    }
+
+    /**
+     * Tests storing and replacing values.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testPutAndGet() throws Exception {
+
+        CmsPathTrie<String> trie = new CmsPathTrie<String>();
+        trie.put("/sites/default/", "first");
+        trie.put("/sites//default", "second");
+        assertEquals(1, trie.size());
+        assertEquals("second", trie.get("/sites/default"));
+        assertNull(trie.get("/sites"));
+        assertNull(trie.get("/sites/default/sub"));
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.opencms.webdav;
+
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.commons.codec.binary.Base64;
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.dom4j.io.SAXReader;
+
+/**
+ * Tests the WebDAV servlet with the repository of the test configuration.<p>
+ * 
+ * The requests are sent directly to the servlet, using stubs for the servlet API objects.<p>
+ */
+public class TestCmsWebdavServlet extends OpenCmsTestCase {
+
+    /**
+     * Stub for the request, the servlet config and the servlet context.<p>
+     */
+    protected static class RequestStub implements InvocationHandler {
+
+        /** The request body. */
+        private byte[] m_body;
+
+        /** The request headers and the servlet init parameters. */
+        private Map<String, String> m_headers;
+
+        /** The request method. */
+        private String m_method;
+
+        /** The path of the requested item. */
+        private String m_path;
+
+        /**
+         * Creates a new request stub.<p>
+         * 
+         * @param method the request method
+         * @param path the path of the requested item
+         * @param body the request body
+         * @param headers the request headers, or the init parameters if used as servlet config
+         */
+        public RequestStub(String method, String path, byte[] body, Map<String, String> headers) {
+
+            m_method = method;
+            m_path = path;
+            m_body = body;
+            m_headers = headers;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            String name = method.getName();
+            if ("getMethod".equals(name)) {
+                return m_method;
+            } else if ("getPathInfo".equals(name)) {
+                return m_path;
+            } else if ("getHeader".equals(name) || "getInitParameter".equals(name)) {
+                return m_headers.get(args[0]);
+            } else if ("getContextPath".equals(name)) {
+                return CONTEXT_PATH;
+            } else if ("getServletPath".equals(name)) {
+                return SERVLET_PATH;
+            } else if ("getContentLength".equals(name)) {
+                return Integer.valueOf(m_body.length);
+            } else if ("getInputStream".equals(name)) {
+                final InputStream in = new ByteArrayInputStream(m_body);
+                return new ServletInputStream() {
+
+                    @Override
+                    public int available() throws IOException {
+
+                        return in.available();
+                    }
+
+                    @Override
+                    public int read() throws IOException {
+
+                        return in.read();
+                    }
+                };
+            } else if ("getServletContext".equals(name)) {
+                return Proxy.newProxyInstance(
+                    Thread.currentThread().getContextClassLoader(),
+                    new Class[] {ServletContext.class},
+                    this);
+            } else if ("getServletName".equals(name)) {
+                return "webdav";
+            } else if ("getDateHeader".equals(name) || "getIntHeader".equals(name)) {
+                return (method.getReturnType() == long.class) ? (Object)Long.valueOf(-1) : Integer.valueOf(-1);
+            } else if (method.getReturnType() == boolean.class) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stub for the response, keeping the status and the written text.<p>
+     */
+    protected static class ResponseStub implements InvocationHandler {
+
+        /** The response status. */
+        private int m_status = HttpServletResponse.SC_OK;
+
+        /** The written text. */
+        private StringWriter m_text = new StringWriter();
+
+        /**
+         * Returns the response status.<p>
+         * 
+         * @return the response status
+         */
+        public int getStatus() {
+
+            return m_status;
+        }
+
+        /**
+         * Returns the written text.<p>
+         * 
+         * @return the written text
+         */
+        public String getText() {
+
+            return m_text.toString();
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            String name = method.getName();
+            if ("setStatus".equals(name) || "sendError".equals(name)) {
+                m_status = ((Integer)args[0]).intValue();
+            } else if ("getWriter".equals(name)) {
+                return new PrintWriter(m_text);
+            } else if (method.getReturnType() == boolean.class) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+    }
+
+    /** The context path used for the requests. */
+    protected static final String CONTEXT_PATH = "/opencms";
+
+    /** The servlet path used for the requests. */
+    protected static final String SERVLET_PATH = "/webdav";
+
+    /** The user name and password used for the requests. */
+    private static final String CREDENTIALS = "Admin:admin";
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsWebdavServlet(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsWebdavServlet.class.getName());
+
+        suite.addTest(new TestCmsWebdavServlet("testPropfindAfterWrite"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that a PROPFIND shows the changes made by a write right before,
+     * although the folder listing of an earlier PROPFIND is still cached.<p>
+     * 
+     * Every request logs in again, as with a real client, so the requests only share 
+     * the listing cache of the repository.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testPropfindAfterWrite() throws Exception {
+
+        echo("Testing that a PROPFIND after a write shows the change");
+
+        CmsWebdavServlet servlet = new CmsWebdavServlet();
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("repository", "standard");
+        params.put("listings", "true");
+        params.put("readonly", "false");
+        servlet.init((ServletConfig)Proxy.newProxyInstance(
+            Thread.currentThread().getContextClassLoader(),
+            new Class[] {ServletConfig.class},
+            new RequestStub(null, null, null, params)));
+
+        String folder = "/propfind/";
+        String file = folder + "test.txt";
+
+        // the new folder is listed
+        Document listing = propfind(servlet, "/");
+        assertNull(getResponse(listing, folder));
+        assertEquals(HttpServletResponse.SC_CREATED, request(servlet, "MKCOL", folder, "").getStatus());
+        listing = propfind(servlet, "/");
+        assertNotNull(getResponse(listing, folder));
+
+        // the new file is listed
+        listing = propfind(servlet, folder);
+        assertNull(getResponse(listing, file));
+        assertEquals(HttpServletResponse.SC_CREATED, request(servlet, "PUT", file, "first").getStatus());
+        listing = propfind(servlet, folder);
+        assertEquals("5", getContentLength(getResponse(listing, file)));
+
+        // the changed file is listed with the new length
+        assertEquals(
+            HttpServletResponse.SC_NO_CONTENT,
+            request(servlet, "PUT", file, "second version").getStatus());
+        listing = propfind(servlet, folder);
+        assertEquals("14", getContentLength(getResponse(listing, file)));
+
+        // the deleted file is not listed any more
+        assertEquals(HttpServletResponse.SC_NO_CONTENT, request(servlet, "DELETE", file, "").getStatus());
+        listing = propfind(servlet, folder);
+        assertNull(getResponse(listing, file));
+    }
+
+    /**
+     * Returns the content length of the given PROPFIND response element.<p>
+     * 
+     * @param response the response element
+     * 
+     * @return the content length
+     */
+    private String getContentLength(Element response) {
+
+        assertNotNull(response);
+        Element prop = getElement(getElement(response, "propstat"), "prop");
+        return getElement(prop, "getcontentlength").getText();
+    }
+
+    /**
+     * Returns the first child element with the given local name.<p>
+     * 
+     * @param parent the parent element
+     * @param name the local name of the child
+     * 
+     * @return the child element, or <code>null</code> if not found
+     */
+    private Element getElement(Element parent, String name) {
+
+        Iterator<?> it = parent.elementIterator();
+        while (it.hasNext()) {
+            Element child = (Element)it.next();
+            if (child.getName().equals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the response element of the given item from a PROPFIND multistatus document.<p>
+     * 
+     * @param multiStatus the multistatus document
+     * @param path the path of the item
+     * 
+     * @return the response element, or <code>null</code> if the item is not contained
+     */
+    private Element getResponse(Document multiStatus, String path) {
+
+        // folders may be listed with or without the trailing slash
+        String href = CmsFileUtil.removeTrailingSeparator(CONTEXT_PATH + SERVLET_PATH + path);
+        Iterator<?> it = multiStatus.getRootElement().elementIterator();
+        while (it.hasNext()) {
+            Element response = (Element)it.next();
+            if (href.equals(CmsFileUtil.removeTrailingSeparator(getElement(response, "href").getText()))) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sends a PROPFIND request with depth 1 and returns the multistatus document.<p>
+     * 
+     * @param servlet the servlet
+     * @param path the path of the folder
+     * 
+     * @return the multistatus document
+     * 
+     * @throws Exception if something goes wrong
+     */
+    private Document propfind(CmsWebdavServlet servlet, String path) throws Exception {
+
+        ResponseStub res = request(servlet, "PROPFIND", path, "");
+        assertEquals(CmsWebdavStatus.SC_MULTI_STATUS, res.getStatus());
+        return new SAXReader().read(new StringReader(res.getText()));
+    }
+
+    /**
+     * Sends a request to the servlet.<p>
+     * 
+     * @param servlet the servlet
+     * @param method the request method
+     * @param path the path of the requested item
+     * @param body the request body
+     * 
+     * @return the response stub
+     * 
+     * @throws Exception if something goes wrong
+     */
+    private ResponseStub request(CmsWebdavServlet servlet, String method, String path, String body)
+    throws Exception {
+
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Authorization", "Basic " + new String(Base64.encodeBase64(CREDENTIALS.getBytes())));
+        headers.put("Depth", "1");
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        HttpServletRequest req = (HttpServletRequest)Proxy.newProxyInstance(
+            loader,
+            new Class[] {HttpServletRequest.class},
+            new RequestStub(method, path, body.getBytes(), headers));
+        ResponseStub stub = new ResponseStub();
+        HttpServletResponse res = (HttpServletResponse)Proxy.newProxyInstance(
+            loader,
+            new Class[] {HttpServletResponse.class},
+            stub);
+        servlet.service(req, res);
+        return stub;
+    }
+}